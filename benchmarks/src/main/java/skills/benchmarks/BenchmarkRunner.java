@@ -0,0 +1,46 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the benchmarks uber jar. Accepts the regular JMH command line
+ * (e.g. {@code java -jar target/benchmarks.jar InputSanitizer -f 1}) and, unless a result format is
+ * requested explicitly, writes machine-readable results to jmh-result.json.
+ */
+public class BenchmarkRunner {
+
+    static final String DEFAULT_RESULT_FORMAT = "json";
+    static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.add("-rf");
+            jmhArgs.add(DEFAULT_RESULT_FORMAT);
+            if (!jmhArgs.contains("-rff")) {
+                jmhArgs.add("-rff");
+                jmhArgs.add(DEFAULT_RESULT_FILE);
+            }
+        }
+        Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
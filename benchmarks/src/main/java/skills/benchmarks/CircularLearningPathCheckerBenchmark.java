@@ -0,0 +1,115 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import skills.controller.result.model.DependencyCheckResult;
+import skills.controller.result.model.SkillDefGraphRes;
+import skills.controller.result.model.SkillsGraphRes;
+import skills.services.admin.CircularLearningPathChecker;
+import skills.storage.model.SkillDef;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CircularLearningPathChecker.check on a synthetic learning path shaped as a binary tree
+ * (skill i requires skills 2i+1 and 2i+2), so the whole graph is reachable from the root at depth log(n).
+ * <ul>
+ *     <li>acyclic - a leaf of the left sub-tree gets the root of the right sub-tree as a prerequisite,
+ *     the whole right sub-tree is traversed and no cycle is found</li>
+ *     <li>cyclic - the last leaf gets the root as a prerequisite, the traversal ends with a circular path</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CircularLearningPathCheckerBenchmark {
+
+    static final String PROJECT_ID = "proj1";
+
+    @Param({"100", "500", "1000"})
+    int numSkills;
+
+    SkillsGraphRes graph;
+    List<SkillDef> skills;
+
+    @Setup
+    public void setup() {
+        List<SkillDefGraphRes> nodes = new ArrayList<>();
+        List<SkillsGraphRes.Edge> edges = new ArrayList<>();
+        skills = new ArrayList<>();
+        for (int i = 0; i < numSkills; i++) {
+            SkillDefGraphRes node = new SkillDefGraphRes();
+            node.setId(i);
+            node.setProjectId(PROJECT_ID);
+            node.setSkillId("skill" + i);
+            node.setName("Skill " + i);
+            node.setType(SkillDef.ContainerType.Skill);
+            nodes.add(node);
+
+            SkillDef skillDef = new SkillDef();
+            skillDef.setId(i);
+            skillDef.setProjectId(PROJECT_ID);
+            skillDef.setSkillId(node.getSkillId());
+            skillDef.setName(node.getName());
+            skillDef.setType(SkillDef.ContainerType.Skill);
+            skills.add(skillDef);
+
+            for (int prereq = 2 * i + 1; prereq <= 2 * i + 2 && prereq < numSkills; prereq++) {
+                SkillsGraphRes.Edge edge = new SkillsGraphRes.Edge();
+                edge.setFromId(i);
+                edge.setToId(prereq);
+                edges.add(edge);
+            }
+        }
+        graph = new SkillsGraphRes();
+        graph.setNodes(nodes);
+        graph.setEdges(edges);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearProfiler() {
+        Stubs.clearProfiler();
+    }
+
+    @Benchmark
+    public DependencyCheckResult acyclic() {
+        return check(skills.get(numSkills - 1 - (numSkills / 4)), skills.get(2));
+    }
+
+    @Benchmark
+    public DependencyCheckResult cyclic() {
+        return check(skills.get(numSkills - 1), skills.get(0));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private DependencyCheckResult check(SkillDef skillDef, SkillDef prereqSkillDef) {
+        CircularLearningPathChecker checker = new CircularLearningPathChecker();
+        checker.setCircularLearningPathCheckerMaxIterations(1000);
+        checker.setSkillDef(skillDef);
+        checker.setPrereqSkillDef(prereqSkillDef);
+        checker.setExistingGraph(graph);
+        // BadgeAndSkills is not visible outside of its package, no badges on this path anyway
+        checker.setBadgeAndSkills((List) Collections.emptyList());
+        return checker.check();
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import skills.utils.InputSanitizer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InputSanitizer sanitize/unsanitize round trips for names, urls and markdown descriptions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputSanitizerBenchmark {
+
+    static final String NAME = "Skill & <b>Name</b> with \"quotes\" <script>alert('x')</script>";
+    static final String URL = "https://skilltree.example.com/some path/page?query=a b&other=<c>#anchor";
+    static final String DESCRIPTION_PARAGRAPH = "# Heading\n\n" +
+            "Some **bold** and _italic_ text with a [link](https://example.com/a?b=c&d=e) and `inline < code`.\n\n" +
+            "> quoted <em>html</em> & more\n\n" +
+            "```\nif (a < b && c > d) { return \"<tag>\" }\n```\n\n" +
+            "| col1 | col2 |\n|------|------|\n| <span style=\"color:red\">v1</span> | v2 |\n\n" +
+            "<img src=\"https://example.com/img.png\" onerror=\"alert(1)\"/>\n\n";
+
+    @Param({"1", "20"})
+    int descriptionParagraphs;
+
+    String description;
+    String sanitizedName;
+    String sanitizedDescription;
+
+    @Setup
+    public void setup() {
+        description = DESCRIPTION_PARAGRAPH.repeat(descriptionParagraphs);
+        sanitizedName = InputSanitizer.sanitize(NAME);
+        sanitizedDescription = InputSanitizer.sanitizeDescription(description);
+    }
+
+    @Benchmark
+    public String sanitizeName() {
+        return InputSanitizer.sanitize(NAME);
+    }
+
+    @Benchmark
+    public String unsanitizeName() {
+        return InputSanitizer.unsanitizeName(sanitizedName);
+    }
+
+    @Benchmark
+    public String sanitizeUrl() {
+        return InputSanitizer.sanitizeUrl(URL);
+    }
+
+    @Benchmark
+    public String sanitizeDescription() {
+        return InputSanitizer.sanitizeDescription(description);
+    }
+
+    @Benchmark
+    public String unsanitizeForMarkdown() {
+        return InputSanitizer.unsanitizeForMarkdown(sanitizedDescription);
+    }
+}
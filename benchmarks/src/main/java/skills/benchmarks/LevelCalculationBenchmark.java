@@ -0,0 +1,86 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import skills.controller.result.model.SettingsResult;
+import skills.services.LevelDefinitionStorageService;
+import skills.services.settings.SettingsService;
+import skills.storage.model.LevelDef;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LevelDefinitionStorageService.getLevelInfo for percent-based and points-based level definitions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LevelCalculationBenchmark {
+
+    @Param({"5", "20"})
+    int numLevels;
+
+    @Param({"false", "true"})
+    boolean levelsAsPoints;
+
+    static final int TOTAL_POINTS = 10000;
+
+    LevelDefinitionStorageService levelDefinitionStorageService;
+    List<LevelDef> levelDefs;
+
+    @Setup
+    public void setup() {
+        SettingsResult setting = new SettingsResult();
+        setting.setValue(String.valueOf(levelsAsPoints));
+        levelDefinitionStorageService = new LevelDefinitionStorageService();
+        levelDefinitionStorageService.setSettingsService(new SettingsService() {
+            @Override
+            public SettingsResult getProjectSetting(String projectId, String settingName) {
+                return setting;
+            }
+        });
+
+        levelDefs = new ArrayList<>();
+        int pointsPerLevel = TOTAL_POINTS / numLevels;
+        // reverse order so that every call has to sort
+        for (int level = numLevels; level >= 1; level--) {
+            LevelDef levelDef = new LevelDef();
+            levelDef.setLevel(level);
+            levelDef.setPercent((int) Math.ceil(100d * level / numLevels) - 1);
+            levelDef.setPointsFrom((level - 1) * pointsPerLevel);
+            levelDef.setPointsTo(level * pointsPerLevel);
+            levelDefs.add(levelDef);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearProfiler() {
+        Stubs.clearProfiler();
+    }
+
+    @Benchmark
+    public LevelDefinitionStorageService.LevelInfo getLevelInfo() {
+        int currentScore = ThreadLocalRandom.current().nextInt(TOTAL_POINTS);
+        return levelDefinitionStorageService.getLevelInfo("proj1", new ArrayList<>(levelDefs), TOTAL_POINTS, currentScore);
+    }
+}
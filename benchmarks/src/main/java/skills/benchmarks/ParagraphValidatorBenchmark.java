@@ -0,0 +1,77 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import skills.services.CustomValidator;
+import skills.services.ParagraphValidator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * ParagraphValidator.validateMarkdown with a paragraph pattern requiring a "(A)" prefix, for a fully
+ * valid description and for one where every other paragraph fails and gets prefixed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParagraphValidatorBenchmark {
+
+    static final String VALID_PARAGRAPH = "(A) Some **bold** text with a [link](https://example.com) and `code`.\n\n" +
+            "* (A) first item\n* (A) second item\n\n" +
+            "| (A) col1 | col2 |\n|------|------|\n| v1 | v2 |\n\n";
+    static final String INVALID_PARAGRAPH = "Paragraph missing its prefix with _emphasis_.\n\n" +
+            "> (A) quoted\n\n" +
+            "<p>html block without prefix</p>\n\n";
+
+    @Param({"1", "20"})
+    int paragraphs;
+
+    CustomValidator.ValidationPattern validationPattern;
+    String validDescription;
+    String partiallyInvalidDescription;
+
+    @Setup
+    public void setup() {
+        validationPattern = new CustomValidator.ValidationPattern();
+        validationPattern.setPattern(Pattern.compile("^\\(A\\).*$"));
+        validationPattern.setMessage("paragraphs must start with (A)");
+        validDescription = VALID_PARAGRAPH.repeat(paragraphs);
+        partiallyInvalidDescription = (VALID_PARAGRAPH + INVALID_PARAGRAPH).repeat(paragraphs);
+    }
+
+    @Benchmark
+    public ParagraphValidator.InternalValidationResult validate() {
+        return validateMarkdown(validDescription, null);
+    }
+
+    @Benchmark
+    public ParagraphValidator.InternalValidationResult validateAndAddPrefix() {
+        return validateMarkdown(partiallyInvalidDescription, "(A) ");
+    }
+
+    private ParagraphValidator.InternalValidationResult validateMarkdown(String description, String prefix) {
+        ParagraphValidator.InternalValidationRequest request = new ParagraphValidator.InternalValidationRequest();
+        request.setDescription(description);
+        request.setPrefix(prefix);
+        request.setValidationPattern(validationPattern);
+        return new ParagraphValidator(request).validateMarkdown();
+    }
+}
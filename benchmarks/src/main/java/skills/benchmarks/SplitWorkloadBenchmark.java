@@ -0,0 +1,115 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import skills.controller.result.model.UserRoleRes;
+import skills.services.SplitWorkloadService;
+import skills.storage.model.SkillDefMin;
+import skills.storage.model.UserTag;
+import skills.storage.repos.SkillApprovalConfRepo;
+import skills.storage.repos.UserTagRepo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * SplitWorkloadService.findUsersForThisRequest with approver configuration and user tags served from memory.
+ * Every approver is configured with a skill, a user and a user tag; the requesting user only matches the
+ * tag configuration of the last approver, so every configuration is evaluated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitWorkloadBenchmark {
+
+    static final String PROJECT_ID = "proj1";
+    static final String TAG_KEY = "dutyOrganization";
+
+    @Param({"10", "100"})
+    int numApprovers;
+
+    SplitWorkloadService splitWorkloadService;
+    List<UserRoleRes> userRoles;
+    SkillDefMin skillDef;
+
+    @Setup
+    public void setup() {
+        userRoles = new ArrayList<>();
+        List<SkillApprovalConfRepo.ApproverConfResult> confs = new ArrayList<>();
+        for (int i = 0; i < numApprovers; i++) {
+            String approverId = "approver" + i;
+            UserRoleRes userRole = new UserRoleRes();
+            userRole.setUserId(approverId);
+            userRole.setProjectId(PROJECT_ID);
+            userRoles.add(userRole);
+
+            confs.add(approverConf(i * 3, approverId, Map.of("getSkillId", args -> "skill" + approverId)));
+            confs.add(approverConf(i * 3 + 1, approverId, Map.of("getUserId", args -> "user" + approverId)));
+            confs.add(approverConf(i * 3 + 2, approverId, Map.of(
+                    "getUserTagKey", args -> TAG_KEY,
+                    "getUserTagValue", args -> "org" + approverId
+            )));
+        }
+
+        UserTag userTag = new UserTag();
+        userTag.setUserId("requester");
+        userTag.setKey(TAG_KEY);
+        userTag.setValue("org" + "approver" + (numApprovers - 1) + "-division");
+        List<UserTag> userTags = List.of(userTag);
+
+        splitWorkloadService = new SplitWorkloadService();
+        splitWorkloadService.setSkillApprovalConfRepo(Stubs.of(SkillApprovalConfRepo.class, Map.of(
+                "findAllByProjectId", args -> confs
+        )));
+        splitWorkloadService.setUserTagRepo(Stubs.of(UserTagRepo.class, Map.of(
+                "findAllByUserIdAndKeyIn", args -> userTags
+        )));
+
+        skillDef = Stubs.of(SkillDefMin.class, Map.of(
+                "getProjectId", args -> PROJECT_ID,
+                "getSkillId", args -> "skillNotConfigured"
+        ));
+    }
+
+    private static SkillApprovalConfRepo.ApproverConfResult approverConf(int id, String approverId, Map<String, Function<Object[], Object>> values) {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>(values);
+        answers.put("getId", args -> id);
+        answers.put("getApproverUserId", args -> approverId);
+        answers.putIfAbsent("getUserId", args -> null);
+        answers.putIfAbsent("getSkillId", args -> null);
+        answers.putIfAbsent("getUserTagKey", args -> null);
+        answers.putIfAbsent("getUserTagValue", args -> null);
+        return Stubs.of(SkillApprovalConfRepo.ApproverConfResult.class, answers);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearProfiler() {
+        Stubs.clearProfiler();
+    }
+
+    @Benchmark
+    public List<UserRoleRes> findUsersForThisRequest() {
+        return splitWorkloadService.findUsersForThisRequest(userRoles, skillDef, "requester");
+    }
+}
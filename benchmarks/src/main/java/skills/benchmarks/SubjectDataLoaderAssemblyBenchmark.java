@@ -0,0 +1,100 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import skills.skillLoading.SubjectDataLoader;
+import skills.storage.model.SkillDef;
+import skills.storage.model.UserPoints;
+import skills.storage.repos.UserPointsRepo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SubjectDataLoader.assembleSkillsAndPoints for a synthetic subject where every other skill has points today and
+ * every third skill has two prerequisites. The assembly is expected to be linear in the number of skills, so the
+ * score divided by numSkills should stay roughly constant across the params.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubjectDataLoaderAssemblyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int numSkills;
+
+    List<SubjectDataLoader.SkillDefAndUserPoints> children;
+    List<UserPointsRepo.SkillRefIdWithPoints> todaysPoints;
+    List<UserPointsRepo.SkillWithChildAndAchievementIndicator> deps;
+
+    @Setup
+    public void setup() {
+        children = new ArrayList<>();
+        todaysPoints = new ArrayList<>();
+        deps = new ArrayList<>();
+        for (int i = 0; i < numSkills; i++) {
+            SkillDef skillDef = new SkillDef();
+            skillDef.setId(i);
+            skillDef.setSkillId("skill" + i);
+            skillDef.setPointIncrement(10);
+            skillDef.setDisplayOrder(i);
+            skillDef.setType(SkillDef.ContainerType.Skill);
+            SubjectDataLoader.SkillDefAndUserPoints child = new SubjectDataLoader.SkillDefAndUserPoints();
+            child.setSkillDef(skillDef);
+            if (i > 0) {
+                UserPoints userPoints = new UserPoints();
+                userPoints.setPoints(i * 10);
+                child.setPoints(userPoints);
+            }
+            children.add(child);
+
+            int skillRefId = i;
+            if (i % 2 == 0) {
+                todaysPoints.add(Stubs.of(UserPointsRepo.SkillRefIdWithPoints.class, Map.of(
+                        "getSkillRefId", args -> skillRefId,
+                        "getPoints", args -> 10
+                )));
+            }
+            if (i % 3 == 0) {
+                for (int childNum = 0; childNum < 2; childNum++) {
+                    int childId = numSkills + childNum;
+                    Integer achievementId = (i % 5 == 0 && childNum == 1) ? null : childNum + 1;
+                    deps.add(Stubs.of(UserPointsRepo.SkillWithChildAndAchievementIndicator.class, Map.of(
+                            "getParentId", args -> skillRefId,
+                            "getChildId", args -> childId,
+                            "getAchievementId", args -> achievementId
+                    )));
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearProfiler() {
+        Stubs.clearProfiler();
+    }
+
+    @Benchmark
+    public List<SubjectDataLoader.SkillsAndPoints> assembleSkillsAndPoints() {
+        return SubjectDataLoader.assembleSkillsAndPoints(children, todaysPoints, deps);
+    }
+}
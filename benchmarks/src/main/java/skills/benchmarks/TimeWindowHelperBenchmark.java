@@ -0,0 +1,72 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import skills.services.events.TimeWindowHelper;
+import skills.storage.model.SkillDefMin;
+import skills.storage.repos.UserPerformedSkillRepo;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TimeWindowHelper.checkTimeWindow with the performed-skill count served from memory, for a skill
+ * without a time window, one whose window still has room and one whose window is full.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeWindowHelperBenchmark {
+
+    @Param({"disabled", "open", "full"})
+    String window;
+
+    TimeWindowHelper timeWindowHelper;
+    SkillDefMin skillDef;
+    Date incomingSkillDate;
+
+    @Setup
+    public void setup() {
+        int pointIncrementInterval = "disabled".equals(window) ? 0 : 8 * 60 + 30;
+        long alreadyPerformed = "full".equals(window) ? 2L : 1L;
+        skillDef = Stubs.of(SkillDefMin.class, Map.of(
+                "getProjectId", args -> "proj1",
+                "getSkillId", args -> "skill1",
+                "getPointIncrementInterval", args -> pointIncrementInterval,
+                "getNumMaxOccurrencesIncrementInterval", args -> 2
+        ));
+        timeWindowHelper = new TimeWindowHelper();
+        timeWindowHelper.setPerformedSkillRepository(Stubs.of(UserPerformedSkillRepo.class, Map.of(
+                "countByUserIdAndProjectIdAndSkillIdAndPerformedOnGreaterThanAndPerformedOnLessThan", args -> alreadyPerformed
+        )));
+        incomingSkillDate = new Date();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearProfiler() {
+        Stubs.clearProfiler();
+    }
+
+    @Benchmark
+    public TimeWindowHelper.TimeWindowRes checkTimeWindow() {
+        return timeWindowHelper.checkTimeWindow(skillDef, "user1", incomingSkillDate);
+    }
+}
@@ -54,7 +54,9 @@ import skills.services.attributes.SlidesAttrs
 import skills.services.events.AddSkillHelper
 import skills.services.events.BatchReportService
 import skills.services.events.BatchSkillEventResult
+import skills.services.events.BulkReportProgress
 import skills.services.events.BulkSkillEventResult
+import skills.services.events.BulkSkillEventsService
 import skills.services.events.pointsAndAchievements.InsufficientPointsValidator
 import skills.services.inception.InceptionProjectService
 import skills.services.settings.ProjectSettingsValidator
@@ -230,6 +232,9 @@ class AdminController {
     @Autowired
     BatchReportService batchReportService
 
+    @Autowired
+    BulkSkillEventsService bulkSkillEventsService
+
     @RequestMapping(value = "/projects/{id}", method = [RequestMethod.PUT, RequestMethod.POST], produces = "application/json")
     @ResponseBody
     RequestResult saveProject(@PathVariable("id") String projectId, @RequestBody ProjectRequest projectRequest) {
@@ -1807,7 +1812,15 @@ class AdminController {
         SkillsValidator.isNotEmpty(userIds, 'userIds', projectId, skillId)
         SkillsValidator.isTrue(userIds.size() <= maxUserIdsForBulkSkillReporting, "number of userIds cannot exceed ${maxUserIdsForBulkSkillReporting}", projectId, skillId)
 
-        return skillEventService.bulkReportSkills(projectId, skillId, userIds, new Date(requestedTimestamp))
+        return skillEventService.bulkReportSkills(projectId, skillId, userIds, new Date(requestedTimestamp), bulkSkillEventRequest.importId)
+    }
+
+    @RequestMapping(value = "/projects/{projectId}/skillEventImports/{importId}/progress", method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    BulkReportProgress getSkillEventImportProgress(@PathVariable("projectId") String projectId,
+                                                   @PathVariable("importId") String importId) {
+        SkillsValidator.isNotBlank(importId, 'importId', projectId)
+        return bulkSkillEventsService.getProgress(projectId, importId)
     }
 
     @RequestMapping(value = "/projects/{projectId}/skills/reuse", method = [RequestMethod.POST, RequestMethod.PUT], produces = "application/json")
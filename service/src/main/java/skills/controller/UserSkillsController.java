@@ -26,7 +26,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -55,6 +57,7 @@ import skills.services.events.SkillEventsService;
 import skills.skillLoading.RankingLoader;
 import skills.skillLoading.SkillsLoader;
 import skills.skillLoading.SkillsService;
+import skills.skillLoading.UserProgressSnapshotCache;
 import skills.skillLoading.model.*;
 import skills.storage.model.Attachment;
 import skills.storage.model.SkillTag;
@@ -143,6 +146,9 @@ class UserSkillsController {
     @Autowired
     SkillTagService skillTagService;
 
+    @Autowired
+    UserProgressSnapshotCache userProgressSnapshotCache;
+
     @Value("${skills.config.allowedVideoUploadMimeTypes}")
     List<MediaType> allowedVideoUploadMimeTypes;
 
@@ -195,15 +201,19 @@ class UserSkillsController {
     @RequestMapping(value = "/projects/{projectId}/summary", method = RequestMethod.GET, produces = "application/json")
     @ResponseBody
     @Profile
-    public OverallSkillSummary getSkillsSummary(HttpServletRequest request,
-                                                @PathVariable("projectId") String projectId,
-                                                @RequestParam(name = "userId", required = false) String userIdParam,
-                                                @RequestParam(name = "version", required = false) Integer version,
-                                                @RequestParam(name = "idType", required = false) String idType) {
+    public ResponseEntity<OverallSkillSummary> getSkillsSummary(HttpServletRequest request,
+                                                                @PathVariable("projectId") String projectId,
+                                                                @RequestParam(name = "userId", required = false) String userIdParam,
+                                                                @RequestParam(name = "version", required = false) Integer version,
+                                                                @RequestParam(name = "idType", required = false) String idType,
+                                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         String userId = userInfoService.getUserName(userIdParam, true, idType);
 
         log.debug("userId is {} and userIdParam is {}", userId, userIdParam);
-        return skillsLoader.loadOverallSummary(projectId, userId, getProvidedVersionOrReturnDefault(version));
+        int providedVersion = getProvidedVersionOrReturnDefault(version);
+        UserProgressSnapshotCache.Snapshot<OverallSkillSummary> snapshot = userProgressSnapshotCache.get(userId, projectId, "overall", null, providedVersion,
+                () -> skillsLoader.loadOverallSummary(projectId, userId, providedVersion));
+        return UserProgressSnapshotCache.toResponse(snapshot, ifNoneMatch);
     }
 
     private boolean isRequestFromDashboard(HttpServletRequest request) throws UnknownHostException{
@@ -215,14 +225,19 @@ class UserSkillsController {
 
     @RequestMapping(value = "/projects/{projectId}/subjects/{subjectId}/summary", method = RequestMethod.GET, produces = "application/json")
     @ResponseBody
-    public SkillSubjectSummary getSubjectSummary(@PathVariable("projectId") String projectId,
-                                                 @PathVariable("subjectId") String subjectId,
-                                                 @RequestParam(name = "userId", required = false) String userIdParam,
-                                                 @RequestParam(name = "version", required = false) Integer version,
-                                                 @RequestParam(name = "idType", required = false) String idType,
-                                                 @RequestParam(name = "includeSkills", required = false, defaultValue = "true") String includeSkills) {
+    public ResponseEntity<SkillSubjectSummary> getSubjectSummary(@PathVariable("projectId") String projectId,
+                                                                 @PathVariable("subjectId") String subjectId,
+                                                                 @RequestParam(name = "userId", required = false) String userIdParam,
+                                                                 @RequestParam(name = "version", required = false) Integer version,
+                                                                 @RequestParam(name = "idType", required = false) String idType,
+                                                                 @RequestParam(name = "includeSkills", required = false, defaultValue = "true") String includeSkills,
+                                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         String userId = userInfoService.getUserName(userIdParam, true, idType);
-        return skillsLoader.loadSubject(projectId, userId, subjectId, getProvidedVersionOrReturnDefault(version), Boolean.valueOf(includeSkills));
+        int providedVersion = getProvidedVersionOrReturnDefault(version);
+        boolean loadSkills = Boolean.valueOf(includeSkills);
+        UserProgressSnapshotCache.Snapshot<SkillSubjectSummary> snapshot = userProgressSnapshotCache.get(userId, projectId, "subject-" + loadSkills, subjectId, providedVersion,
+                () -> skillsLoader.loadSubject(projectId, userId, subjectId, providedVersion, loadSkills));
+        return UserProgressSnapshotCache.toResponse(snapshot, ifNoneMatch);
     }
 
     @RequestMapping(value = "/projects/{projectId}/subjects/{subjectId}/descriptions", method = RequestMethod.GET, produces = "application/json")
@@ -338,16 +353,21 @@ class UserSkillsController {
 
     @RequestMapping(value = "/projects/{projectId}/badges/summary", method = RequestMethod.GET, produces = "application/json")
     @ResponseBody
-    public List<SkillBadgeSummary> getAllBadgesSummary(@PathVariable("projectId") String projectId,
-                                                       @RequestParam(name = "userId", required = false) String userIdParam,
-                                                       @RequestParam(name = "version", required = false) Integer version,
-                                                       @RequestParam(name = "idType", required = false) String idType) {
+    public ResponseEntity<List<SkillBadgeSummary>> getAllBadgesSummary(@PathVariable("projectId") String projectId,
+                                                                       @RequestParam(name = "userId", required = false) String userIdParam,
+                                                                       @RequestParam(name = "version", required = false) Integer version,
+                                                                       @RequestParam(name = "idType", required = false) String idType,
+                                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         String userId = userInfoService.getUserName(userIdParam, true, idType);
-        List<SkillBadgeSummary> badgeSummaries = skillsLoader.loadBadgeSummaries(projectId, userId, getProvidedVersionOrReturnDefault(version));
+        int providedVersion = getProvidedVersionOrReturnDefault(version);
+        UserProgressSnapshotCache.Snapshot<List<SkillBadgeSummary>> snapshot = userProgressSnapshotCache.get(userId, projectId, "badges", null, providedVersion, () -> {
+            List<SkillBadgeSummary> badgeSummaries = skillsLoader.loadBadgeSummaries(projectId, userId, providedVersion);
 
-        // add any global badges as well
-        badgeSummaries.addAll(skillsLoader.loadGlobalBadgeSummaries(userId, projectId, getProvidedVersionOrReturnDefault(version)));
-        return badgeSummaries;
+            // add any global badges as well
+            badgeSummaries.addAll(skillsLoader.loadGlobalBadgeSummaries(userId, projectId, providedVersion));
+            return badgeSummaries;
+        });
+        return UserProgressSnapshotCache.toResponse(snapshot, ifNoneMatch);
     }
 
 
@@ -616,6 +636,8 @@ class UserSkillsController {
     public void download(@PathVariable("uuid") String uuid,
                          @RequestParam(name = "alwaysReturnContentDispositionForPdf", required = false, defaultValue = "false") Boolean alwaysReturnContentDispositionForPdf,
                          @RequestHeader(value = "Range", required = false) String rangeHeader,
+                         @RequestHeader(value = "If-Range", required = false) String ifRangeHeader,
+                         @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatchHeader,
                          HttpServletResponse response) {
         Attachment attachment = attachmentService.getAttachment(uuid);
         if (attachment == null) {
@@ -632,7 +654,7 @@ class UserSkillsController {
         String contentType = attachment.getContentType().toLowerCase();
         boolean isVideoType = AttachmentValidator.isAllowedAttachmentMimeTypeBoolean(contentType, allowedVideoUploadMimeTypes);
         if (isVideoType) {
-            videoStreamService.streamVideo(attachment, rangeHeader, response);
+            videoStreamService.streamVideo(attachment, rangeHeader, ifRangeHeader, ifNoneMatchHeader, response);
         } else {
             try (InputStream inputStream = attachment.getContent().getBinaryStream();
                  OutputStream outputStream = response.getOutputStream()) {
@@ -16,6 +16,8 @@
 
 package skills.controller;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.StringUtils;
@@ -28,21 +30,32 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
 import skills.controller.exceptions.SkillException;
+import skills.services.video.VideoContentDiskCache;
 import skills.storage.model.Attachment;
 import skills.storage.repos.AttachmentRepo;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 @Service
 public class VideoStreamService {
 
-    private static final int BUFFER_SIZE = 1024 * 8; // 8KB buffer
+    private static final int BUFFER_SIZE = 1024 * 64; // 64KB buffer
+    private static final int BUFFER_POOL_SIZE = 32;
     private static final Logger log = LoggerFactory.getLogger(VideoStreamService.class);
     @Autowired
     AttachmentRepo attachmentRepo;
 
+    @Autowired
+    VideoContentDiskCache videoContentDiskCache;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Value("${skills.config.videoStreamDefaultChunkSize:5242880}")
     private Long videoStreamDefaultChunkSize = (long) (5 * 1024 * 1024); // 5MB chunks (5242880)
 
@@ -52,6 +65,12 @@ public class VideoStreamService {
     @Value("${skills.config.suppressBrokenPipeException:true}")
     private Boolean suppressBrokenPipeException = true;
 
+    // streaming buffers are reused across requests instead of being allocated per request
+    private final BlockingQueue<byte[]> bufferPool = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+
+    private Counter bytesServedFromDiskCache;
+    private Counter bytesServedFromDb;
+
     @PostConstruct
     protected void init() {
         if (videoStreamDefaultChunkSize > videoStreamMaxOptimizedDbFetchSize) {
@@ -61,15 +80,48 @@ public class VideoStreamService {
                     videoStreamMaxOptimizedDbFetchSize
             ));
         }
+        bytesServedFromDiskCache = Counter.builder("skills.video.bytesServed").tag("source", "diskCache").register(meterRegistry);
+        bytesServedFromDb = Counter.builder("skills.video.bytesServed").tag("source", "db").register(meterRegistry);
+    }
+
+    static String buildETag(Attachment attachment) {
+        // content of an attachment never changes for a given uuid
+        return "\"" + attachment.getUuid() + "-" + attachment.getSize() + "\"";
+    }
+
+    static boolean matchesETag(String header, String etag) {
+        if (StringUtils.isBlank(header)) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String trimmed = StringUtils.removeStart(candidate.trim(), "W/");
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Transactional(readOnly = true)
     public void streamVideo(
             Attachment attachment,
             String rangeHeader,
+            String ifRangeHeader,
+            String ifNoneMatchHeader,
             HttpServletResponse response) {
         try {
             // 1. Set common response headers
+            String etag = buildETag(attachment);
+            response.setHeader("ETag", etag);
+            if (rangeHeader == null && matchesETag(ifNoneMatchHeader, etag)) {
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                return;
+            }
+            // a range only applies to the representation the client already has
+            if (rangeHeader != null && ifRangeHeader != null && !StringUtils.removeStart(ifRangeHeader.trim(), "W/").equals(etag)) {
+                rangeHeader = null;
+            }
+
             response.setContentType(attachment.getContentType());
             response.setHeader("Accept-Ranges", "bytes");
             response.setHeader("Content-Disposition", "inline; filename=\"" + attachment.getFilename() + "\"");
@@ -112,54 +164,74 @@ public class VideoStreamService {
             long contentLength = end - start + 1;
             response.setContentLengthLong(contentLength);
 
-            // 3A. if chunks are small enough load them into memory only selectin the bytes for this chunk
-            if (contentLength <= videoStreamMaxOptimizedDbFetchSize) {
+            // 3A. serve from the local disk cache when the content is already there
+            FileChannel cachedChannel = videoContentDiskCache.open(attachment);
+            if (cachedChannel != null) {
+                byte[] buffer = acquireBuffer();
+                try (cachedChannel; OutputStream outputStream = response.getOutputStream()) {
+                    VideoContentDiskCache.transferTo(cachedChannel, start, contentLength, outputStream, buffer);
+                    bytesServedFromDiskCache.increment(contentLength);
+                } catch (AsyncRequestNotUsableException e) {
+                    handleClientAbort(e);
+                } finally {
+                    releaseBuffer(buffer);
+                }
+            } else if (contentLength <= videoStreamMaxOptimizedDbFetchSize) {
+                // 3B. if chunks are small enough load them into memory only selectin the bytes for this chunk
                 byte[] chunk = attachmentRepo.fetchFileChunk(attachment.getUuid(), start, contentLength);
                 try (OutputStream outputStream = response.getOutputStream()) {
                     outputStream.write(chunk, 0, chunk.length);
+                    bytesServedFromDb.increment(chunk.length);
                 } catch (AsyncRequestNotUsableException e) {
-                    if (suppressBrokenPipeException && StringUtils.isNotBlank(e.getMessage())
-                            && (e.getMessage().contains("Broken pipe") || e.getMessage().contains("Connection reset by peer"))
-                    ){
-                        log.debug("Client aborted the connection. This is typical of Video.js lib", e);
-                    } else {
-                        throw e;
-                    }
+                    handleClientAbort(e);
                 }
             } else {
-                // 3B. Stream larger the content
-                try (InputStream inputStream = attachment.getContent().getBinaryStream();
+                // 3C. Stream larger the content
+                byte[] buffer = acquireBuffer();
+                try (InputStream inputStream = attachment.getContent().getBinaryStream(start + 1, contentLength);
                      OutputStream outputStream = response.getOutputStream()) {
 
-                    // Skip to the start position if needed
-                    if (start > 0) {
-                        long skipped = inputStream.skip(start);
-                        if (skipped != start) {
-                            throw new IOException("Failed to skip to the requested position for video with uuid=[" + attachment.getUuid() + "]");
-                        }
-                    }
-
                     // Stream the content in chunks
-                    byte[] buffer = new byte[BUFFER_SIZE];
                     long remaining = contentLength;
                     int read;
 
-                    while ((read = inputStream.read(buffer, 0,
-                            (int) Math.min(buffer.length, remaining))) != -1 && remaining > 0) {
+                    while (remaining > 0 && (read = inputStream.read(buffer, 0,
+                            (int) Math.min(buffer.length, remaining))) != -1) {
                         outputStream.write(buffer, 0, read);
                         remaining -= read;
-                        outputStream.flush();
                     }
+                    bytesServedFromDb.increment(contentLength - remaining);
                 } catch (Exception e) {
                     if (!response.isCommitted()) {
                         response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(),
                                 "Error streaming video with uuid=[\" + attachment.getUuid() + \"]\": " + e.getMessage());
                     }
                     throw e;
+                } finally {
+                    releaseBuffer(buffer);
                 }
             }
         } catch (Exception e) {
             throw new SkillException("Failed to stream video [" + attachment.getUuid() + "]", e);
         }
     }
+
+    private void handleClientAbort(AsyncRequestNotUsableException e) throws AsyncRequestNotUsableException {
+        if (suppressBrokenPipeException && StringUtils.isNotBlank(e.getMessage())
+                && (e.getMessage().contains("Broken pipe") || e.getMessage().contains("Connection reset by peer"))
+        ){
+            log.debug("Client aborted the connection. This is typical of Video.js lib", e);
+        } else {
+            throw e;
+        }
+    }
+
+    private byte[] acquireBuffer() {
+        byte[] buffer = bufferPool.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    private void releaseBuffer(byte[] buffer) {
+        bufferPool.offer(buffer);
+    }
 }
\ No newline at end of file
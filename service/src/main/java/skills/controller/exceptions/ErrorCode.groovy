@@ -59,5 +59,6 @@ enum ErrorCode {
     LearningPathViolation,
     LearningContentGeneratorNotAvailable,
     ParagraphValidationFailed,
-    QuizAlreadyCompleted
+    QuizAlreadyCompleted,
+    TooManyRequests
 }
@@ -93,6 +93,8 @@ class RestExceptionHandler extends ResponseEntityExceptionHandler {
 
             if (NOT_FOUND_CODES.contains(ex.errorCode)) {
                 status = HttpStatus.NOT_FOUND
+            } else if (ex.errorCode == ErrorCode.TooManyRequests) {
+                status = HttpStatus.TOO_MANY_REQUESTS
             }
 
         } else {
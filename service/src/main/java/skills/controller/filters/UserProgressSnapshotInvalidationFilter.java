@@ -0,0 +1,78 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.controller.filters;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import skills.skillLoading.UserProgressSnapshotCache;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Invalidates cached user progress summaries after admin changes: a successful write under /admin/projects/{projectId}
+ * invalidates that project's summaries, and writes to definitions shared across projects (global badges, quizzes,
+ * root settings) invalidate all of them. Runs after the request completes so the changes are committed.
+ */
+@Component
+public class UserProgressSnapshotInvalidationFilter extends OncePerRequestFilter {
+
+    private static final String PROJECT_ADMIN_PREFIX = "/admin/projects/";
+    private static final List<String> SHARED_DEFINITION_PREFIXES = List.of("/admin/badges", "/admin/quiz-definitions", "/root/");
+
+    @Autowired
+    UserProgressSnapshotCache userProgressSnapshotCache;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!Boolean.TRUE.equals(userProgressSnapshotCache.getEnabled())) {
+            return true;
+        }
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (response.getStatus() < 400) {
+                invalidate(request.getRequestURI().substring(request.getContextPath().length()));
+            }
+        }
+    }
+
+    private void invalidate(String path) {
+        if (path.startsWith(PROJECT_ADMIN_PREFIX)) {
+            int end = path.indexOf('/', PROJECT_ADMIN_PREFIX.length());
+            String projectId = end > 0 ? path.substring(PROJECT_ADMIN_PREFIX.length(), end) : path.substring(PROJECT_ADMIN_PREFIX.length());
+            userProgressSnapshotCache.projectChanged(projectId);
+        } else {
+            for (String prefix : SHARED_DEFINITION_PREFIXES) {
+                if (path.startsWith(prefix)) {
+                    userProgressSnapshotCache.allChanged();
+                    return;
+                }
+            }
+        }
+    }
+}
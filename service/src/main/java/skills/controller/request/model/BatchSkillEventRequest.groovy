@@ -20,4 +20,6 @@ class BatchSkillEventRequest {
     List<String> userIds
     Long timestamp
     String userSuggestOption
+    // optional, client provided id used to track the progress of long running imports
+    String importId
 }
@@ -18,4 +18,6 @@ package skills.controller.request.model
 class BulkSkillEventRequest {
     List<String> userIds
     Long timestamp
+    // optional, client provided id used to track the progress of long running imports
+    String importId
 }
@@ -20,15 +20,25 @@ import com.fasterxml.jackson.databind.MappingIterator
 import com.fasterxml.jackson.databind.ObjectWriter
 import com.fasterxml.jackson.databind.json.JsonMapper
 import groovy.util.logging.Slf4j
-import org.apache.commons.io.IOUtils
 import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
 import org.springframework.core.io.Resource
 import org.springframework.stereotype.Component
 import skills.services.events.AddSkillHelper
 import skills.controller.request.model.SkillEventRequest
 
-import java.nio.charset.StandardCharsets
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 
+/**
+ * Replays a single WAL file of queued skill events.
+ *
+ * The file is streamed and parsed incrementally, so its size does not matter. Records are read in chunks of
+ * checkpointEveryNRecords; each chunk is partitioned by user and the partitions are replayed in parallel, with the
+ * events of a given user always applied sequentially and in file order. The checkpoint is recorded once the whole
+ * chunk has been applied, so a restarted replay resumes at the first record of the chunk that was in flight.
+ */
 @Slf4j
 @Component
 class EventsResourceProcessor {
@@ -41,6 +51,12 @@ class EventsResourceProcessor {
     @Autowired
     DBCheckPointer checkPointer
 
+    @Value('#{"${skills.queued-event.replay.num-threads-per-file:4}"}')
+    Integer numThreadsPerFile = 4
+
+    @Value('#{"${skills.queued-event.replay.checkpoint-every-n-records:500}"}')
+    Integer checkpointEveryNRecords = 500
+
     void processFile(Resource file) {
         String profNme = "process file".toString()
         CProf.start(profNme)
@@ -59,32 +75,21 @@ class EventsResourceProcessor {
         log.info("processing queued skill event file [${fileName}]")
         ObjectWriter errorSerializer = jsonMapper.writerFor(QueuedSkillEvent)
 
-        InputStream inputStream = file.getInputStream();
-        String text = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-        inputStream.close()
-
+        ExecutorService executor = Executors.newFixedThreadPool(numThreadsPerFile)
         int i = 0
-        try (MappingIterator<QueuedSkillEvent> itr = jsonMapper.readerFor(QueuedSkillEvent).readValues(text)) {
+        try (InputStream inputStream = new BufferedInputStream(file.getInputStream());
+             MappingIterator<QueuedSkillEvent> itr = jsonMapper.readerFor(QueuedSkillEvent).readValues(inputStream)) {
             int startAt = checkPointer.getRecordToStartOn(fileName)
+            List<QueuedSkillEvent> chunk = []
             while (itr.hasNext()) {
                 QueuedSkillEvent queuedSkillEvent = itr.nextValue()
                 if (i >= startAt) {
-                    try {
-                        SkillEventRequest skr = queuedSkillEvent.skillEventRequest
-                        if (!skr) {
-                            skr = new SkillEventRequest(userId: queuedSkillEvent.userId)
-                            skr.timestamp = queuedSkillEvent.requestTime.getTime()
-                        } else if (!skr.userId) {
-                            skr.userId = queuedSkillEvent.userId
-                            skr.idType = null
-                        }
-                        addSkillHelper.addSkill(queuedSkillEvent.projectId, queuedSkillEvent.skillId, skr)
-                    } catch (Exception e) {
-                        String asStr = errorSerializer.writeValueAsString(queuedSkillEvent)
-                        log.error("unable to add queued event [$asStr]", e)
+                    chunk.add(queuedSkillEvent)
+                    if (chunk.size() >= checkpointEveryNRecords) {
+                        replayChunk(executor, chunk, errorSerializer)
+                        checkPointer.recordRecord(fileName, i)
+                        chunk = []
                     }
-
-                    checkPointer.recordRecord(fileName, i)
                 } else {
                     log.debug("skipping record [{}], last record read before shutdown was [{}]", i, startAt)
                 }
@@ -94,8 +99,49 @@ class EventsResourceProcessor {
                     log.info("recovered [$i] events from [${file}] so far")
                 }
             }
+            if (chunk) {
+                replayChunk(executor, chunk, errorSerializer)
+                checkPointer.recordRecord(fileName, i - 1)
+            }
+        } finally {
+            executor.shutdown()
         }
         log.info("finished processing queued skill event file [${file}], recovered [$i] total events")
         checkPointer.cleanup(fileName)
     }
+
+    private void replayChunk(ExecutorService executor, List<QueuedSkillEvent> chunk, ObjectWriter errorSerializer) {
+        // LinkedHashMap + list append keeps each user's events in file order
+        Map<String, List<QueuedSkillEvent>> byUser = chunk.groupBy { QueuedSkillEvent queuedSkillEvent -> getUserKey(queuedSkillEvent) }
+        List<Future> futures = byUser.values().collect { List<QueuedSkillEvent> userEvents ->
+            executor.submit {
+                userEvents.each { QueuedSkillEvent queuedSkillEvent ->
+                    replayEvent(queuedSkillEvent, errorSerializer)
+                }
+            }
+        }
+        futures.each { it.get() }
+    }
+
+    private void replayEvent(QueuedSkillEvent queuedSkillEvent, ObjectWriter errorSerializer) {
+        try {
+            SkillEventRequest skr = queuedSkillEvent.skillEventRequest
+            if (!skr) {
+                skr = new SkillEventRequest(userId: queuedSkillEvent.userId)
+                skr.timestamp = queuedSkillEvent.requestTime.getTime()
+            } else if (!skr.userId) {
+                skr.userId = queuedSkillEvent.userId
+                skr.idType = null
+            }
+            addSkillHelper.addSkill(queuedSkillEvent.projectId, queuedSkillEvent.skillId, skr)
+        } catch (Exception e) {
+            String asStr = errorSerializer.writeValueAsString(queuedSkillEvent)
+            log.error("unable to add queued event [$asStr]", e)
+        }
+    }
+
+    private static String getUserKey(QueuedSkillEvent queuedSkillEvent) {
+        String userId = queuedSkillEvent.skillEventRequest?.userId ?: queuedSkillEvent.userId
+        return userId?.toLowerCase()
+    }
 }
@@ -0,0 +1,226 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.metrics
+
+import callStack.utils.CachedThreadPool
+import callStack.utils.ThreadPoolUtils
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.github.benmanes.caffeine.cache.Expiry
+import com.github.benmanes.caffeine.cache.Ticker
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import jakarta.annotation.PostConstruct
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import skills.metrics.builders.ProjectMetricsBuilder
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.function.Supplier
+
+/**
+ * Opt-in cache of project metrics results (skills.config.metricsCache.enabled=true) keyed by
+ * (projectId, metricsId, sorted props).
+ *
+ * - only builders that opt in via ProjectMetricsBuilder.getCacheTtlSeconds() are cached; a result is served from the
+ *   cache for the builder's TTL (or skills.config.metricsCache.defaultTtlSeconds for USE_DEFAULT_CACHE_TTL)
+ * - for staleWhileRevalidateSeconds after that the stale result is still served while a single background
+ *   refresh recomputes it
+ * - concurrent requests for a result that is not cached share a single computation
+ *
+ * Computation time is recorded per builder (skills.metrics.builder.duration) whether or not the cache is enabled.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class MetricsResultCache {
+
+    static final String CACHE_NAME = 'skills.metricsResults'
+
+    @Value('#{"${skills.config.metricsCache.enabled:false}"}')
+    Boolean enabled = false
+
+    @Value('#{"${skills.config.metricsCache.maxEntries:5000}"}')
+    long maxEntries = 5000
+
+    @Value('#{"${skills.config.metricsCache.defaultTtlSeconds:60}"}')
+    int defaultTtlSeconds = 60
+
+    @Value('#{"${skills.config.metricsCache.staleWhileRevalidateSeconds:600}"}')
+    int staleWhileRevalidateSeconds = 600
+
+    @Value('#{"${skills.config.metricsCache.refresh.maxNumOfThreads:2}"}')
+    int refreshMaxNumOfThreads = 2
+
+    @Value('#{"${skills.config.metricsCache.refresh.queueCapacity:500}"}')
+    int refreshQueueCapacity = 500
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    // overridden by tests to control time
+    Ticker ticker = Ticker.systemTicker()
+
+    private Cache<String, CachedResult> cache
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>()
+    private CachedThreadPool refreshPool
+
+    private static class CachedResult {
+        final Object value
+        final long computedAtNanos
+        final long ttlNanos
+
+        CachedResult(Object value, long ttlNanos, long computedAtNanos) {
+            this.value = value
+            this.ttlNanos = ttlNanos
+            this.computedAtNanos = computedAtNanos
+        }
+
+        boolean isFresh(long nowNanos) {
+            return nowNanos - computedAtNanos < ttlNanos
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            long staleNanos = TimeUnit.SECONDS.toNanos(staleWhileRevalidateSeconds)
+            log.info("Enabling metrics result cache: maxEntries=[{}], defaultTtlSeconds=[{}], staleWhileRevalidateSeconds=[{}]",
+                    maxEntries, defaultTtlSeconds, staleWhileRevalidateSeconds)
+            cache = Caffeine.newBuilder()
+                    .maximumSize(maxEntries)
+                    .expireAfter(new Expiry<String, CachedResult>() {
+                        @Override
+                        long expireAfterCreate(String key, CachedResult value, long currentTime) {
+                            return value.ttlNanos + staleNanos
+                        }
+
+                        @Override
+                        long expireAfterUpdate(String key, CachedResult value, long currentTime, long currentDuration) {
+                            return value.ttlNanos + staleNanos
+                        }
+
+                        @Override
+                        long expireAfterRead(String key, CachedResult value, long currentTime, long currentDuration) {
+                            return currentDuration
+                        }
+                    })
+                    .ticker(ticker)
+                    .recordStats()
+                    .build()
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME)
+            refreshPool = new CachedThreadPool('metrics-refresh', 1, refreshMaxNumOfThreads, refreshQueueCapacity)
+        }
+    }
+
+    Object get(String projectId, String metricsId, Map<String, String> props, ProjectMetricsBuilder builder) {
+        Supplier<Object> compute = { -> timed(builder) { builder.build(projectId, metricsId, props) } } as Supplier<Object>
+        int ttlSeconds = builder.getCacheTtlSeconds() >= 0 ? builder.getCacheTtlSeconds() : defaultTtlSeconds
+        if (!enabled || ttlSeconds == 0) {
+            return compute.get()
+        }
+
+        String key = toKey(projectId, metricsId, props)
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds)
+        CachedResult cached = cache.getIfPresent(key)
+        if (cached != null) {
+            if (cached.isFresh(ticker.read())) {
+                countRequest(metricsId, 'hit')
+                return cached.value
+            }
+            countRequest(metricsId, 'stale')
+            refreshInBackground(key, ttlNanos, compute)
+            return cached.value
+        }
+        countRequest(metricsId, 'miss')
+        return await(singleFlight(key, ttlNanos, compute))
+    }
+
+    static String toKey(String projectId, String metricsId, Map<String, String> props) {
+        StringBuilder key = new StringBuilder(projectId).append('|').append(metricsId)
+        if (props) {
+            new TreeMap<String, String>(props).each { String name, String value ->
+                key.append('|').append(name).append('=').append(value)
+            }
+        }
+        return key.toString()
+    }
+
+    private CompletableFuture<Object> singleFlight(String key, long ttlNanos, Supplier<Object> compute) {
+        CompletableFuture<Object> future = new CompletableFuture<>()
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future)
+        if (existing != null) {
+            return existing
+        }
+        try {
+            Object value = compute.get()
+            cache.put(key, new CachedResult(value, ttlNanos, ticker.read()))
+            future.complete(value)
+        } catch (Throwable t) {
+            future.completeExceptionally(t)
+        } finally {
+            inFlight.remove(key, future)
+        }
+        return future
+    }
+
+    private void refreshInBackground(String key, long ttlNanos, Supplier<Object> compute) {
+        if (inFlight.containsKey(key)) {
+            return
+        }
+        try {
+            refreshPool.submit([ThreadPoolUtils.callable {
+                try {
+                    await(singleFlight(key, ttlNanos, compute))
+                } catch (Throwable t) {
+                    log.warn("Failed to refresh metrics [${key}], the stale result will be served until it expires", t)
+                }
+                return null
+            }])
+        } catch (RejectedExecutionException ree) {
+            log.warn("Metrics refresh queue is full with [{}] items, unable to refresh [{}]", refreshQueueCapacity, key)
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join()
+        } catch (CompletionException e) {
+            // rethrow the original exception (for example SkillException) rather than the wrapper
+            throw e.cause ?: e
+        }
+    }
+
+    private Object timed(ProjectMetricsBuilder builder, Closure<Object> doBuild) {
+        long start = System.nanoTime()
+        try {
+            return doBuild.call()
+        } finally {
+            meterRegistry?.timer('skills.metrics.builder.duration', 'builder', builder.getId())?.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+        }
+    }
+
+    private void countRequest(String metricsId, String result) {
+        meterRegistry.counter('skills.metrics.cache.requests', 'builder', metricsId, 'result', result).increment()
+    }
+}
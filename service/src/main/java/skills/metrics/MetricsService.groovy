@@ -34,6 +34,9 @@ class MetricsService {
     @Autowired
     ApplicationContext appContext
 
+    @Autowired
+    MetricsResultCache metricsResultCache
+
     private final Map<String, ProjectMetricsBuilder> projectBuildersMap = [:]
     private final Map<String, GlobalMetricsBuilder> globalBuildersMap = [:]
 
@@ -67,7 +70,7 @@ class MetricsService {
             throw new SkillException("Failed to find metric with id [${metricsId}]", projectId)
         }
 
-        return metricsChartBuilder.build(projectId, metricsId, props)
+        return metricsResultCache.get(projectId, metricsId, props, metricsChartBuilder)
     }
 
     def loadGlobalMetrics(String metricsId, Map<String, String> props) {
@@ -19,6 +19,17 @@ import java.util.Map;
 
 public interface ProjectMetricsBuilder {
 
+    int USE_DEFAULT_CACHE_TTL = -1;
+
     String getId();
     Object build(String projectId, String chartId, Map<String, String> props);
+
+    /**
+     * How long results are served from the metrics cache when it is enabled; USE_DEFAULT_CACHE_TTL uses the configured
+     * default. Defaults to 0 (not cached) so that only builders whose results may be up to the TTL plus the
+     * stale-while-revalidate period out of date opt in.
+     */
+    default int getCacheTtlSeconds() {
+        return 0;
+    }
 }
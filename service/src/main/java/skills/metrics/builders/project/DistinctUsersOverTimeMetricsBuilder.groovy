@@ -35,6 +35,11 @@ class DistinctUsersOverTimeMetricsBuilder implements ProjectMetricsBuilder {
         return "distinctUsersOverTimeForProject"
     }
 
+    @Override
+    int getCacheTtlSeconds() {
+        return 300
+    }
+
     @Override
     @Profile
     def build(String projectId, String chartId, Map<String, String> props) {
@@ -33,6 +33,11 @@ class NumberUsersPerLevelMetricsBuilder implements ProjectMetricsBuilder {
         return "numUsersPerLevelChartBuilder"
     }
 
+    @Override
+    int getCacheTtlSeconds() {
+        return 300
+    }
+
     @Override
     def build(String projectId, String chartId, Map<String, String> props) {
         String subjectId, tagKey, tagFilter
@@ -41,6 +41,11 @@ class SkillUsageNavigatorMetricsBuilder implements ProjectMetricsBuilder {
         return "skillUsageNavigatorChartBuilder"
     }
 
+    @Override
+    int getCacheTtlSeconds() {
+        return 300
+    }
+
     static class SkillUsageNavigatorItem {
         String skillId
         String groupId
@@ -35,6 +35,11 @@ class AchievementsByTagPerLevelMetricsBuilder implements ProjectMetricsBuilder {
         return "achievementsByTagPerLevelMetricsBuilder"
     }
 
+    @Override
+    int getCacheTtlSeconds() {
+        return 300
+    }
+
     @Override
     def build(String projectId, String chartId, Map<String, String> props) {
         def userCount = userAchievedRepo.countNumUsersPerSubjectTagAndLevel(projectId, props.subjectId, props.userTagKey);
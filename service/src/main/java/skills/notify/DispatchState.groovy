@@ -27,26 +27,20 @@ class DispatchState {
     String prepend
     Logger wrappedLog
 
+    void recordSuccess() {
+        count++
+    }
+
     /**
-     * Executes the specified closure and only prints errors if they differ from the previous error
-     * @param notification
-     * @param doer
-     * @return
+     * Only prints errors if they differ from the previous error
      */
-    boolean doWithErrHandling(Notification notification, Closure doer) {
-        try {
-            doer()
-            count++
-            return true
-        } catch (Throwable t) {
-            // don't print the same message over and over again
-            if (!lastErrMsg?.equalsIgnoreCase(t.message)) {
-                wrappedLog.error("${prepend}Failed to send notification with id [${notification.id}] and type [${notification.type}]. Updating notification to retry", t)
-                lastErrMsg = t.message
-            }
-            errCount++
-            return false
+    void recordFailure(Notification notification, Throwable t) {
+        // don't print the same message over and over again
+        if (!lastErrMsg?.equalsIgnoreCase(t.message)) {
+            wrappedLog.error("${prepend}Failed to send notification with id [${notification.id}] and type [${notification.type}]. Updating notification to retry", t)
+            lastErrMsg = t.message
         }
+        errCount++
     }
 
 }
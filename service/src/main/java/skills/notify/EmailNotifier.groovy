@@ -16,11 +16,15 @@
 package skills.notify
 
 import callStack.profiler.Profile
+import callStack.utils.CachedThreadPool
+import callStack.utils.ThreadPoolUtils
 import groovy.json.JsonException
 import groovy.json.JsonOutput
 import groovy.json.JsonSlurper
 import groovy.time.TimeCategory
 import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
+import jakarta.annotation.PostConstruct
 import org.apache.commons.lang3.time.StopWatch
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.annotation.Value
@@ -42,6 +46,7 @@ import skills.storage.repos.NotificationsRepo
 import skills.storage.repos.UserAttrsRepo
 import skills.utils.PatternsUtil
 
+import java.util.concurrent.Callable
 import java.util.concurrent.TimeUnit
 import java.util.stream.Stream
 
@@ -55,6 +60,15 @@ class EmailNotifier implements Notifier {
     @Value('#{"${skills.config.notifications.maxRecipients:50}"}')
     int maxRecipients = 50
 
+    @Value('#{"${skills.config.notifications.dispatch.notificationsPerBatch:20}"}')
+    int notificationsPerBatch = 20
+
+    @Value('#{"${skills.config.notifications.dispatch.emailsPerConnection:50}"}')
+    int emailsPerConnection = 50
+
+    @Value('#{"${skills.config.notifications.dispatch.numThreads:4}"}')
+    int dispatchNumThreads = 4
+
     @Autowired
     EmailSendingService sendingService
 
@@ -82,6 +96,18 @@ class EmailNotifier implements Notifier {
     @Autowired
     SystemSettingsService systemSettingsService
 
+    @Autowired
+    MeterRegistry meterRegistry
+
+    private CachedThreadPool dispatchPool
+
+    @PostConstruct
+    void init() {
+        if (dispatchNumThreads > 1) {
+            dispatchPool = new CachedThreadPool('email-dispatch', 1, dispatchNumThreads)
+        }
+    }
+
     @Transactional
     @Profile
     void sendNotification(Notifier.NotificationRequest notificationRequest) {
@@ -165,97 +191,176 @@ class EmailNotifier implements Notifier {
         streamCreator.call().withCloseable { Stream<Notification> notifications ->
 
             SettingsInit init = getEmailConfig()
-            JavaMailSender senderForBatch = init.mailSender
-            Formatting formatting = init.formatting
             JsonSlurper slurper = new JsonSlurper()
 
+            List<Notification> batch = []
             notifications.forEach({ Notification notification ->
-                String fromEmail =  init.fromEmail
-
-                def userIds = null
-                try {
-                    userIds = slurper.parseText(notification.userId)
-                } catch (JsonException ex) {
-                    log.warn("user id field [${notification.userId}] was not in the expected json format, this is expected for any notifications that existed prior to 1.6")
-                    userIds = [notification.userId]
+                batch.add(notification)
+                if (batch.size() >= notificationsPerBatch) {
+                    dispatchBatch(batch, init, slurper, dispatchState)
+                    batch.clear()
                 }
+            })
+            if (batch) {
+                dispatchBatch(batch, init, slurper, dispatchState)
+            }
+        }
 
-                NotificationEmailBuilder.Res emailRes = notificationEmailBuilderManager.build(notification, formatting)
-                assert notification.userId?.size() > 0
+        stopWatch.stop()
+        if (dispatchState.count > 0 || dispatchState.errCount > 0) {
+            int seconds = stopWatch.getTime(TimeUnit.SECONDS)
+            log.info("${prependToLogs}Dispatched [${dispatchState.count}] notification(s) with [${dispatchState.errCount}] error(s) in [${seconds}] seconds")
+        }
+    }
 
-                if (PatternsUtil.isValidEmail(emailRes.replyToEmail)) {
-                    fromEmail = emailRes.replyToEmail
-                } else if (emailRes.replyToEmail) {
-                    log.warn("NotificationBuilder produced a replyTo email that is not a valid email address [{}], using the default configured value of [{}]", emailRes.replyToEmail, fromEmail)
-                }
+    private static class PreparedNotification {
+        Notification notification
+        List<String> userIds
+        NotificationEmailBuilder.Res emailRes
+        String fromEmail
+        List<String> failedUserIds = []
+    }
 
-                log.info("Sending notification: from [{}], to [{}], subject [{}]", fromEmail, userIds, emailRes.subject)
-                log.debug("sending notification [{}] to [{}]", emailRes.html, userIds)
-                List<String> failedUserIds = []
-
-                if (!emailRes.singleEmailToAllRecipients) {
-                    userIds.each {
-                        String email = emailRes.userIdsAreEmailAdresses ? it : getEmail(it)
-                        if (email) {
-                            boolean failed = !dispatchState.doWithErrHandling(notification, {
-                                sendingService.sendEmail(emailRes.subject, email, emailRes.html, emailRes.plainText, notification.requestedOn, senderForBatch, fromEmail, emailRes.ccRecipients)
-                            })
-                            if (failed) {
-                                failedUserIds.add(it)
-                            }
-                        }
-                    }
-                } else {
-                    List<String> emails = emailRes.userIdsAreEmailAdresses ? userIds : getEmails(userIds)
-                    if (emails) {
-                        boolean failed = !dispatchState.doWithErrHandling(notification, {
-                            sendingService.sendEmail(emailRes.subject, emails, emailRes.html, emailRes.plainText, notification.requestedOn, senderForBatch, fromEmail, emailRes.ccRecipients)
-                        })
-                        if (failed) {
-                            failedUserIds = userIds
-                        }
+    private static class Delivery {
+        PreparedNotification prepared
+        List<String> userIds
+        EmailSendingService.OutgoingEmail email
+    }
+
+    /**
+     * Renders each notification once, resolves the emails of all of the batch's recipients with a single query and sends
+     * the resulting emails in parallel, several emails per SMTP connection. The notifications are then removed or updated
+     * with their failed recipients on the calling thread (within the dispatch transaction).
+     */
+    private void dispatchBatch(List<Notification> batch, SettingsInit init, JsonSlurper slurper, DispatchState dispatchState) {
+        long start = System.nanoTime()
+        List<PreparedNotification> prepared = batch.collect { prepare(it, init, slurper) }
+
+        Set<String> userIdsToResolve = new HashSet<>()
+        prepared.each {
+            if (!it.emailRes.userIdsAreEmailAdresses) {
+                userIdsToResolve.addAll(it.userIds)
+            }
+        }
+        Map<String, String> emailsByUserId = getEmails(userIdsToResolve)
+
+        List<Delivery> deliveries = []
+        prepared.each { PreparedNotification notification ->
+            log.info("Sending notification: from [{}], to [{}], subject [{}]", notification.fromEmail, notification.userIds, notification.emailRes.subject)
+            log.debug("sending notification [{}] to [{}]", notification.emailRes.html, notification.userIds)
+            if (!notification.emailRes.singleEmailToAllRecipients) {
+                notification.userIds.each { String userId ->
+                    String email = notification.emailRes.userIdsAreEmailAdresses ? userId : emailsByUserId.get(userId)
+                    if (email) {
+                        deliveries.add(new Delivery(prepared: notification, userIds: [userId], email: toOutgoingEmail(notification, [email])))
                     }
                 }
+            } else {
+                List<String> emails = notification.emailRes.userIdsAreEmailAdresses ? notification.userIds : notification.userIds.collect { emailsByUserId.get(it) }.findAll()
+                if (emails) {
+                    deliveries.add(new Delivery(prepared: notification, userIds: notification.userIds, email: toOutgoingEmail(notification, emails)))
+                }
+            }
+        }
 
-                if (!failedUserIds) {
-                    removeNotificationImmediately(notification.id)
-                } else {
-                    log.info("failed to send notification to [{}] users, first 10: [{}]", failedUserIds.size(), failedUserIds.take(10))
-                    notification.failedCount = notification.failedCount + 1
-                    //only some failed. Update the notification to only include the failed ids
-                    notification.userId = JsonOutput.toJson(failedUserIds)
-                    boolean removed = removeIfOlderThanConfiguredRetainPeriod(notification)
-                    if (!removed) {
-                        notificationsRepo.save(notification)
-                    }
+        Map<EmailSendingService.OutgoingEmail, Exception> failed = send(deliveries.collect { it.email }, init.mailSender)
+        deliveries.each { Delivery delivery ->
+            Exception failure = failed.get(delivery.email)
+            if (failure) {
+                dispatchState.recordFailure(delivery.prepared.notification, failure)
+                delivery.prepared.failedUserIds.addAll(delivery.userIds)
+            } else {
+                dispatchState.recordSuccess()
+            }
+        }
+
+        prepared.each { PreparedNotification notification ->
+            List<String> failedUserIds = notification.failedUserIds
+            if (!failedUserIds) {
+                removeNotificationImmediately(notification.notification.id)
+            } else {
+                log.info("failed to send notification to [{}] users, first 10: [{}]", failedUserIds.size(), failedUserIds.take(10))
+                notification.notification.failedCount = notification.notification.failedCount + 1
+                //only some failed. Update the notification to only include the failed ids
+                notification.notification.userId = JsonOutput.toJson(failedUserIds)
+                boolean removed = removeIfOlderThanConfiguredRetainPeriod(notification.notification)
+                if (!removed) {
+                    notificationsRepo.save(notification.notification)
                 }
-            })
+            }
         }
 
-        stopWatch.stop()
-        if (dispatchState.count > 0 || dispatchState.errCount > 0) {
-            int seconds = stopWatch.getTime(TimeUnit.SECONDS)
-            log.info("${prependToLogs}Dispatched [${dispatchState.count}] notification(s) with [${dispatchState.errCount}] error(s) in [${seconds}] seconds")
+        long durationNanos = System.nanoTime() - start
+        recordBatchMetrics(durationNanos, deliveries.size() - failed.size(), failed.size())
+        log.debug("Dispatched batch of [{}] notification(s): [{}] email(s) sent, [{}] failed in [{}] ms",
+                batch.size(), deliveries.size() - failed.size(), failed.size(), TimeUnit.NANOSECONDS.toMillis(durationNanos))
+    }
+
+    private PreparedNotification prepare(Notification notification, SettingsInit init, JsonSlurper slurper) {
+        String fromEmail = init.fromEmail
+
+        List<String> userIds
+        try {
+            userIds = (List<String>) slurper.parseText(notification.userId)
+        } catch (JsonException ex) {
+            log.warn("user id field [${notification.userId}] was not in the expected json format, this is expected for any notifications that existed prior to 1.6")
+            userIds = [notification.userId]
+        }
+
+        NotificationEmailBuilder.Res emailRes = notificationEmailBuilderManager.build(notification, init.formatting)
+        assert notification.userId?.size() > 0
+
+        if (PatternsUtil.isValidEmail(emailRes.replyToEmail)) {
+            fromEmail = emailRes.replyToEmail
+        } else if (emailRes.replyToEmail) {
+            log.warn("NotificationBuilder produced a replyTo email that is not a valid email address [{}], using the default configured value of [{}]", emailRes.replyToEmail, fromEmail)
         }
+        return new PreparedNotification(notification: notification, userIds: userIds, emailRes: emailRes, fromEmail: fromEmail)
     }
 
-    private String getEmail(String userId) {
-        String email = userAttrs.findEmailByUserId(userId)
-        if (!email) {
-            log.warn("unable to send notification to recipient [${userId}], no email address found")
+    private static EmailSendingService.OutgoingEmail toOutgoingEmail(PreparedNotification notification, List<String> to) {
+        NotificationEmailBuilder.Res emailRes = notification.emailRes
+        return new EmailSendingService.OutgoingEmail(subject: emailRes.subject, to: to, htmlBody: emailRes.html, plainTextBody: emailRes.plainText,
+                sentDate: notification.notification.requestedOn, fromEmail: notification.fromEmail, ccRecipients: emailRes.ccRecipients)
+    }
+
+    private Map<EmailSendingService.OutgoingEmail, Exception> send(List<EmailSendingService.OutgoingEmail> emails, JavaMailSender mailSender) {
+        Map<EmailSendingService.OutgoingEmail, Exception> failed = new IdentityHashMap<>()
+        List<List<EmailSendingService.OutgoingEmail>> perConnection = emails.collate(emailsPerConnection)
+        if (!dispatchPool || perConnection.size() <= 1) {
+            perConnection.each { failed.putAll(sendingService.sendEmails(it, mailSender)) }
+        } else {
+            List<Callable<Map<EmailSendingService.OutgoingEmail, Exception>>> toSubmit = perConnection.collect { List<EmailSendingService.OutgoingEmail> chunk ->
+                ThreadPoolUtils.callable { sendingService.sendEmails(chunk, mailSender) }
+            }
+            dispatchPool.submitAndGetResults(toSubmit).each { failed.putAll(it) }
         }
-        return email
+        return failed
     }
 
-    private List<String> getEmails(List<String> userIds) {
-        List<String> emails = []
-        userIds?.each {
-            String email = getEmail(it)
-            if (email) {
-                emails.add(email)
+    private void recordBatchMetrics(long durationNanos, int sent, int failed) {
+        if (meterRegistry) {
+            meterRegistry.timer('skills.notifications.dispatch.batch').record(durationNanos, TimeUnit.NANOSECONDS)
+            meterRegistry.counter('skills.notifications.emails.sent').increment(sent)
+            meterRegistry.counter('skills.notifications.emails.failed').increment(failed)
+        }
+    }
+
+    private Map<String, String> getEmails(Collection<String> userIds) {
+        Map<String, String> emailsByUserId = [:]
+        if (userIds) {
+            userAttrs.findEmailsByUserIds(userIds)?.each {
+                if (it.email) {
+                    emailsByUserId.put(it.userId, it.email)
+                }
+            }
+            userIds.each {
+                if (!emailsByUserId.containsKey(it)) {
+                    log.warn("unable to send notification to recipient [${it}], no email address found")
+                }
             }
         }
-        return emails
+        return emailsByUserId
     }
 
     private boolean removeIfOlderThanConfiguredRetainPeriod(Notification notification) {
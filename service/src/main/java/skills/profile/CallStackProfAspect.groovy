@@ -16,13 +16,18 @@
 package skills.profile
 
 import callStack.profiler.CProf
+import callStack.profiler.ProfileEvent
 import groovy.transform.CompileStatic
 import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.DistributionSummary
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
 import org.aspectj.lang.ProceedingJoinPoint
 import org.aspectj.lang.annotation.Around
 import org.aspectj.lang.annotation.Aspect
 import org.aspectj.lang.reflect.CodeSignature
 import org.aspectj.lang.reflect.MethodSignature
+import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.annotation.Value
 import org.springframework.boot.context.properties.ConfigurationProperties
 import org.springframework.stereotype.Component
@@ -30,6 +35,9 @@ import org.springframework.web.context.request.RequestContextHolder
 import org.springframework.web.context.request.ServletRequestAttributes
 
 import jakarta.servlet.http.HttpServletRequest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
 
 @Aspect
 @Component
@@ -47,31 +55,101 @@ class CallStackProfAspect {
     @Value('#{"${skills.prof.serverTimingAPI.enabled:false}"}')
     boolean serverTimeApiEnabled
 
+    /**
+     * Low-overhead mode meant to be left on: for every profiled method of an endpoint's call tree the total time spent
+     * in it during one request and its number of calls in that request are recorded as Micrometer meters tagged only
+     * by method name, and full call trees are logged for a sample of the requests.
+     *
+     * CProf folds repeated calls of a method into a single node of the tree, so a sample is the time per request and
+     * not the latency of a single call; divide by the calls per request for the per call average.
+     */
+    @Value('#{"${skills.prof.metrics.enabled:false}"}')
+    boolean metricsEnabled
+
+    @Value('#{"${skills.prof.metrics.treeSampleRate:0.0}"}')
+    double treeSampleRate
+
+    // guards against unbounded timer cardinality when profile names are built dynamically
+    @Value('#{"${skills.prof.metrics.maxMethods:1000}"}')
+    int maxMethods = 1000
+
     // override default minMillisToPrint value for specific endpoints
     Map<String,Integer> endpoints = [:]
 
+    @Autowired
+    MeterRegistry meterRegistry
+
+    private final Map<String, MethodMeters> metersByMethod = new ConcurrentHashMap<>()
+
+    private static class MethodMeters {
+        Timer timePerRequest
+        DistributionSummary callsPerRequest
+    }
+
     @Around("@within(EnableCallStackProf) || @annotation(EnableCallStackProf)")
     Object profile(ProceedingJoinPoint joinPoint) {
-        if (!enabled) {
+        if (!enabled && !metricsEnabled) {
             return joinPoint.proceed()
         }
 
         Object retVal
         CProf.clear()
-        String profileName = getProfileName(joinPoint)
+        // argument values are only needed in the printed tree so don't pay for building them otherwise
+        String profileName = enabled ? getProfileName(joinPoint) : getMethodName(joinPoint)
         CProf.start(profileName)
         try {
             retVal = joinPoint.proceed();
         } finally {
             CProf.stop(profileName)
+            if (metricsEnabled) {
+                recordMeters(CProf.rootEvent, getMethodName(joinPoint))
+            }
         }
 
-        if (CProf.rootEvent.getRuntimeInMillis() > getMinMillisToPrintValue(joinPoint)) {
+        if (enabled && CProf.rootEvent.getRuntimeInMillis() > getMinMillisToPrintValue(joinPoint)) {
             log.info("\nProfiling Endpoint: {}\n{}", getServletRequestPath(), CProf.prettyPrint())
+        } else if (metricsEnabled && treeSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < treeSampleRate) {
+            log.info("\nSampled Profile of Endpoint: {}\n{}", getServletRequestPath(), CProf.prettyPrint())
         }
         return retVal
     }
 
+    private void recordMeters(ProfileEvent event, String name) {
+        MethodMeters meters = getMeters(name)
+        if (meters) {
+            meters.timePerRequest.record(event.runtimeInMillis, TimeUnit.MILLISECONDS)
+            meters.callsPerRequest.record(Math.max(event.numOfInvocations, 1L))
+        }
+        event.children?.each { ProfileEvent child ->
+            recordMeters(child, child.name)
+        }
+    }
+
+    private MethodMeters getMeters(String method) {
+        MethodMeters meters = metersByMethod.get(method)
+        if (meters == null && metersByMethod.size() < maxMethods) {
+            meters = metersByMethod.computeIfAbsent(method, { String m ->
+                new MethodMeters(
+                        timePerRequest: Timer.builder('skills.profile.method.timePerRequest')
+                                .description('Total time spent in a @Profile annotated method during one endpoint request, summed over all of its calls in that request')
+                                .tag('method', m)
+                                .publishPercentileHistogram()
+                                .register(meterRegistry),
+                        callsPerRequest: DistributionSummary.builder('skills.profile.method.callsPerRequest')
+                                .description('Number of calls to a @Profile annotated method during one endpoint request')
+                                .tag('method', m)
+                                .register(meterRegistry)
+                )
+            })
+        }
+        return meters
+    }
+
+    private static String getMethodName(ProceedingJoinPoint joinPoint) {
+        CodeSignature codeSignature = (CodeSignature)joinPoint.getSignature()
+        return codeSignature.declaringType.simpleName + '.' + codeSignature.name
+    }
+
     private String getServletRequestPath() {
         HttpServletRequest httpServletRequest
         try {
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.quizLoading
+
+import groovy.transform.CompileStatic
+import groovy.transform.Immutable
+import skills.services.quiz.QuizQuestionType
+import skills.storage.model.QuizAnswerDef
+import skills.storage.model.QuizDef
+import skills.storage.model.QuizDefParent
+import skills.storage.model.QuizDefWithDescription
+import skills.storage.model.QuizQuestionDef
+import skills.storage.model.QuizSetting
+import skills.storage.repos.QuizAnswerDefRepo
+
+/**
+ * Immutable copy of everything a quiz run reads about a quiz's definition: the quiz itself, its quiz-level settings,
+ * questions and answers. Snapshots are served by {@link QuizDefinitionSnapshotCache}; {@link #version} identifies the
+ * state of the quiz the snapshot was loaded from.
+ */
+@CompileStatic
+class QuizDefinitionSnapshot {
+
+    @Immutable
+    static class Question {
+        Integer id
+        String quizId
+        String question
+        String answerHint
+        QuizQuestionType type
+        Integer displayOrder
+        String attributes
+    }
+
+    @Immutable
+    static class Answer implements QuizAnswerDefRepo.AnswerDefPartialInfo {
+        Integer id
+        String quizId
+        Integer questionRefId
+        QuizQuestionType questionType
+        String answer
+        String isCorrectAnswer
+        Integer displayOrder
+        String multiPartAnswer
+    }
+
+    final long version
+    final Integer quizRefId
+    final String quizId
+    final String name
+    final String description
+    final QuizDefParent.QuizType type
+    final Date created
+    final Date updated
+
+    // quiz-level settings: setting -> value
+    final Map<String, String> settings
+    // in the order they were loaded
+    final List<Question> questions
+    final Map<Integer, Question> questionsById
+    final Map<Integer, List<Answer>> answersByQuestionId
+    final Map<Integer, Answer> answersById
+
+    QuizDefinitionSnapshot(long version, QuizDefWithDescription quizDef, List<QuizSetting> quizSettings, List<QuizQuestionDef> questionDefs, List<QuizAnswerDef> answerDefs) {
+        this.version = version
+        this.quizRefId = quizDef.id
+        this.quizId = quizDef.quizId
+        this.name = quizDef.name
+        this.description = quizDef.description
+        this.type = quizDef.type
+        this.created = quizDef.created
+        this.updated = quizDef.updated
+
+        Map<String, String> settings = [:]
+        quizSettings?.each { QuizSetting quizSetting ->
+            if (quizSetting.userRefId == null) {
+                settings[quizSetting.setting] = quizSetting.value
+            }
+        }
+        this.settings = Collections.unmodifiableMap(settings)
+
+        List<Question> questions = []
+        Map<Integer, Question> questionsById = [:]
+        questionDefs?.each { QuizQuestionDef questionDef ->
+            Question question = toQuestion(questionDef)
+            questions.add(question)
+            questionsById[question.id] = question
+        }
+        this.questions = Collections.unmodifiableList(questions)
+        this.questionsById = Collections.unmodifiableMap(questionsById)
+
+        Map<Integer, List<Answer>> answersByQuestionId = [:]
+        Map<Integer, Answer> answersById = [:]
+        answerDefs?.each { QuizAnswerDef answerDef ->
+            Answer answer = toAnswer(answerDef, questionsById[answerDef.questionRefId]?.type)
+            answersByQuestionId.computeIfAbsent(answer.questionRefId, { Integer id -> new ArrayList<Answer>() }).add(answer)
+            answersById[answer.id] = answer
+        }
+        answersByQuestionId.replaceAll({ Integer id, List<Answer> answers -> Collections.unmodifiableList(answers) })
+        this.answersByQuestionId = Collections.unmodifiableMap(answersByQuestionId)
+        this.answersById = Collections.unmodifiableMap(answersById)
+    }
+
+    static Question toQuestion(QuizQuestionDef questionDef) {
+        return new Question(id: questionDef.id, quizId: questionDef.quizId, question: questionDef.question,
+                answerHint: questionDef.answerHint, type: questionDef.type, displayOrder: questionDef.displayOrder,
+                attributes: questionDef.attributes)
+    }
+
+    static Answer toAnswer(QuizAnswerDef answerDef, QuizQuestionType questionType) {
+        return new Answer(id: answerDef.id, quizId: answerDef.quizId, questionRefId: answerDef.questionRefId,
+                questionType: questionType, answer: answerDef.answer, isCorrectAnswer: answerDef.isCorrectAnswer,
+                displayOrder: answerDef.displayOrder, multiPartAnswer: answerDef.multiPartAnswer)
+    }
+
+    String getSetting(String setting) {
+        return settings.get(setting)
+    }
+
+    Integer getSettingAsInteger(String setting) {
+        return settings.containsKey(setting) ? Integer.valueOf(settings.get(setting)) : -1
+    }
+
+    boolean getSettingAsBoolean(String setting) {
+        return settings.get(setting)?.toBoolean() ?: false
+    }
+
+    boolean isSettingEnabled(String setting) {
+        return settings.containsKey(setting) && new QuizSetting(value: settings.get(setting)).isEnabled()
+    }
+
+    /**
+     * @return a new, detached {@link QuizDef} holding this snapshot's definition
+     */
+    QuizDef toQuizDef() {
+        return new QuizDef(id: quizRefId, quizId: quizId, name: name, type: type, created: created, updated: updated)
+    }
+}
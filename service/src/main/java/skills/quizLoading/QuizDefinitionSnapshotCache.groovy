@@ -0,0 +1,152 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.quizLoading
+
+import callStack.profiler.Profile
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import jakarta.annotation.PostConstruct
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import skills.storage.model.QuizDefWithDescription
+import skills.storage.repos.QuizAnswerDefRepo
+import skills.storage.repos.QuizDefWithDescRepo
+import skills.storage.repos.QuizQuestionDefRepo
+import skills.storage.repos.QuizSettingsRepo
+
+import java.time.Duration
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Opt-in cache of {@link QuizDefinitionSnapshot}s keyed by quiz id (skills.config.quizSnapshotCache.enabled=true), so
+ * that many users taking the same quiz at once do not each reload its definition, settings, questions and answers.
+ * When disabled every call loads a new snapshot.
+ *
+ * Every change to a quiz's definition, settings, questions or answers must call {@link #quizChanged(String)}, which
+ * bumps the quiz's version both right away and once the changing transaction completes; a snapshot is only served
+ * while its version is current. Invalidation is local to the node and expireAfterWriteSeconds bounds how long another
+ * node may serve a snapshot that predates a change made elsewhere.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class QuizDefinitionSnapshotCache {
+
+    static final String CACHE_NAME = 'skills.quizDefinitionSnapshots'
+
+    @Value('#{"${skills.config.quizSnapshotCache.enabled:false}"}')
+    Boolean enabled = false
+
+    @Value('#{"${skills.config.quizSnapshotCache.maxQuizzes:1000}"}')
+    long maxQuizzes = 1000
+
+    @Value('#{"${skills.config.quizSnapshotCache.expireAfterWriteSeconds:300}"}')
+    long expireAfterWriteSeconds = 300
+
+    @Autowired
+    QuizDefWithDescRepo quizDefWithDescRepo
+
+    @Autowired
+    QuizSettingsRepo quizSettingsRepo
+
+    @Autowired
+    QuizQuestionDefRepo quizQuestionRepo
+
+    @Autowired
+    QuizAnswerDefRepo quizAnswerRepo
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    private Cache<String, QuizDefinitionSnapshot> cache
+    private final ConcurrentHashMap<String, Long> versions = new ConcurrentHashMap<>()
+    private final AtomicLong versionSeq = new AtomicLong()
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            log.info("Enabling quiz definition snapshot cache: maxQuizzes=[{}], expireAfterWriteSeconds=[{}]", maxQuizzes, expireAfterWriteSeconds)
+            cache = Caffeine.newBuilder()
+                    .maximumSize(maxQuizzes)
+                    .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                    .recordStats()
+                    .build()
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME)
+        }
+    }
+
+    /**
+     * @return null if the quiz does not exist
+     */
+    @Profile
+    QuizDefinitionSnapshot get(String quizId) {
+        if (!enabled) {
+            return load(quizId, 0L)
+        }
+        String key = quizId.toLowerCase()
+        long version = versions.getOrDefault(key, 0L)
+        QuizDefinitionSnapshot snapshot = cache.getIfPresent(key)
+        if (snapshot == null || snapshot.version != version) {
+            snapshot = load(quizId, version)
+            if (snapshot != null) {
+                // if the quiz changed while loading, the snapshot carries an outdated version and is never served
+                cache.put(key, snapshot)
+            }
+        }
+        return snapshot
+    }
+
+    void quizChanged(String quizId) {
+        if (!enabled || !quizId) {
+            return
+        }
+        String key = quizId.toLowerCase()
+        bumpVersion(key)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCompletion(int status) {
+                    // drop anything loaded while the transaction was in flight
+                    bumpVersion(key)
+                }
+            })
+        }
+    }
+
+    void bumpVersion(String key) {
+        versions.put(key, versionSeq.incrementAndGet())
+        cache.invalidate(key)
+    }
+
+    private QuizDefinitionSnapshot load(String quizId, long version) {
+        QuizDefWithDescription quizDef = quizDefWithDescRepo.findByQuizIdIgnoreCase(quizId)
+        if (!quizDef) {
+            return null
+        }
+        return new QuizDefinitionSnapshot(version, quizDef,
+                quizSettingsRepo.findAllByQuizRefId(quizDef.id),
+                quizQuestionRepo.findAllByQuizIdIgnoreCase(quizDef.quizId),
+                quizAnswerRepo.findAllByQuizIdIgnoreCase(quizDef.quizId))
+    }
+}
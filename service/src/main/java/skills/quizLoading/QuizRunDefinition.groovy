@@ -0,0 +1,57 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.quizLoading
+
+import groovy.transform.CompileStatic
+import skills.storage.model.QuizDef
+import skills.storage.model.UserQuizAttempt
+import skills.storage.model.UserQuizQuestionAttempt
+import skills.storage.repos.QuizAnswerDefRepo
+
+/**
+ * What reporting and grading a quiz attempt read about the quiz's definition. {@link SnapshotQuizRunDefinition} serves
+ * it from a cached {@link QuizDefinitionSnapshot} while {@link RepoQuizRunDefinition} only queries what is asked for.
+ */
+@CompileStatic
+interface QuizRunDefinition {
+
+    QuizDef getQuizDef()
+
+    /**
+     * @return -1 when the setting is not configured
+     */
+    Integer getSettingAsInteger(String setting)
+
+    boolean getSettingAsBoolean(String setting)
+
+    boolean isSettingEnabled(String setting)
+
+    int getNumQuestions()
+
+    /**
+     * @return null when the answer does not exist
+     */
+    QuizAnswerDefRepo.AnswerDefPartialInfo getAnswerDefPartialInfo(Integer answerDefId)
+
+    List<Integer> getAnswerIds(Integer questionRefId)
+
+    /**
+     * @return definitions of the questions presented in the provided attempt
+     */
+    List<QuizDefinitionSnapshot.Question> getAttemptQuestions(UserQuizAttempt attempt, List<UserQuizQuestionAttempt> questionAttempts)
+
+    Map<Integer, List<QuizDefinitionSnapshot.Answer>> getAnswersByQuestionId(List<QuizDefinitionSnapshot.Question> questions)
+}
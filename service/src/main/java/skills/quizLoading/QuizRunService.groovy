@@ -52,6 +52,7 @@ import skills.services.userActions.DashboardAction
 import skills.services.userActions.DashboardItem
 import skills.services.userActions.UserActionInfo
 import skills.services.userActions.UserActionsHistoryService
+import skills.skillLoading.UserProgressSnapshotCache
 import skills.skillLoading.model.SlidesSummary
 import skills.storage.model.*
 import skills.storage.repos.*
@@ -69,6 +70,9 @@ class QuizRunService {
     @Autowired
     QuizDefWithDescRepo quizDefWithDescRepo
 
+    @Autowired
+    UserProgressSnapshotCache userProgressSnapshotCache
+
     @Autowired
     QuizDefRepo quizDefRepo
 
@@ -147,6 +151,9 @@ class QuizRunService {
     @Autowired
     TaskSchedulerService taskSchedulerService
 
+    @Autowired
+    QuizDefinitionSnapshotCache quizDefinitionSnapshotCache
+
     @Value('#{"${skills.config.ui.minimumSubjectPoints}"}')
     int minimumSubjectPoints
 
@@ -164,34 +171,27 @@ class QuizRunService {
 
     @Transactional
     QuizInfo loadQuizInfo(String userId, String quizId, String skillId = null, String projectId = null) {
-        QuizDefWithDescription quizDefWithDesc = quizDefWithDescRepo.findByQuizIdIgnoreCase(quizId)
-        if (!quizDefWithDesc) {
-            throw new SkillQuizException("Failed to find quiz id.", quizId, ErrorCode.BadParam)
-        }
-
-        List<QuizSetting> quizSettings = loadQuizSettings(quizDefWithDesc.id)
-        boolean multipleTakes = quizSettings?.find( { it.setting == QuizSettings.MultipleTakes.setting })?.value?.toBoolean()
+        QuizDefinitionSnapshot quizSnapshot = getQuizDefAndSettings(quizId)
+        boolean multipleTakes = quizSnapshot.getSettingAsBoolean(QuizSettings.MultipleTakes.setting)
 
         UserQuizAttemptRepo.UserQuizAttemptStats userAttemptsStats =
-                quizAttemptRepo.getUserAttemptsStats(userId, quizDefWithDesc.id,
+                quizAttemptRepo.getUserAttemptsStats(userId, quizSnapshot.quizRefId,
                         UserQuizAttempt.QuizAttemptStatus.INPROGRESS, UserQuizAttempt.QuizAttemptStatus.PASSED)
 
-        Integer numberOfQuestions = quizQuestionRepo.countByQuizId(quizId)
+        Integer numberOfQuestions = quizDefinitionSnapshotCache.enabled ? quizSnapshot.questions.size() : quizQuestionRepo.countByQuizId(quizId)
 
-        QuizSetting maxNumAttemptsSetting = quizSettings?.find( { it.setting == QuizSettings.MaxNumAttempts.setting })
-        QuizSetting minNumQuestionsToPassSetting = quizSettings?.find( { it.setting == QuizSettings.MinNumQuestionsToPass.setting })
-        QuizSetting quizLength = quizSettings?.find( { it.setting == QuizSettings.QuizLength.setting })
-        QuizSetting quizTimeLimit = quizSettings?.find( { it.setting == QuizSettings.QuizTimeLimit.setting })
-        QuizSetting onlyIncorrect = quizSettings?.find({it.setting == QuizSettings.RetakeIncorrectQuestionsOnly.setting})
-        QuizSetting showDescriptionOnQuizPage = quizSettings?.find({it.setting == QuizSettings.ShowDescriptionOnQuizPage.setting})
-        boolean showDescription = showDescriptionOnQuizPage?.value?.toBoolean()
+        String maxNumAttemptsSetting = quizSnapshot.getSetting(QuizSettings.MaxNumAttempts.setting)
+        String minNumQuestionsToPassSetting = quizSnapshot.getSetting(QuizSettings.MinNumQuestionsToPass.setting)
+        String quizLength = quizSnapshot.getSetting(QuizSettings.QuizLength.setting)
+        String quizTimeLimit = quizSnapshot.getSetting(QuizSettings.QuizTimeLimit.setting)
+        boolean showDescription = quizSnapshot.getSettingAsBoolean(QuizSettings.ShowDescriptionOnQuizPage.setting)
 
-        Integer quizLengthAsInteger = quizLength ? Integer.valueOf(quizLength.value) : 0
+        Integer quizLengthAsInteger = quizLength ? Integer.valueOf(quizLength) : 0
         Integer lengthSetting = quizLengthAsInteger > 0 ? quizLengthAsInteger : numberOfQuestions
-        boolean onlyIncorrectQuestions = onlyIncorrect?.value?.toBoolean()
+        boolean onlyIncorrectQuestions = quizSnapshot.getSettingAsBoolean(QuizSettings.RetakeIncorrectQuestionsOnly.setting)
 
         Integer numIncorrectQuestions = 0
-        QuizToSkillDefRepo.QuizAttemptInfo latestQuizAttempt = getLatestQuizAttempt(quizDefWithDesc.id, userId)
+        QuizToSkillDefRepo.QuizAttemptInfo latestQuizAttempt = getLatestQuizAttempt(quizSnapshot.quizRefId, userId)
         if(onlyIncorrectQuestions && latestQuizAttempt?.status == UserQuizAttempt.QuizAttemptStatus.FAILED) {
             numIncorrectQuestions = quizAttemptQuestionRepo.countWrongQuestionIdsForAttempt(latestQuizAttempt.attemptId)
         }
@@ -202,15 +202,15 @@ class QuizRunService {
 
         boolean canStartQuiz = true
         String errorMessage = null
-        List<QuizSkillResult> skills = quizToSkillDefRepo.getSkillsForQuizWithSubjects(quizDefWithDesc.id, userId)
+        List<QuizSkillResult> skills = quizToSkillDefRepo.getSkillsForQuizWithSubjects(quizSnapshot.quizRefId, userId)
         skills.forEach(skill -> {
           if(skill.subjectPoints < minimumSubjectPoints) {
               canStartQuiz = false
-              errorMessage = "This ${quizDefWithDesc.getType().toString()} is assigned to a Skill (${skill.skillId}) that does not have enough points to be completed. The Subject (${skill.subjectId}) that contains this skill must have at least ${ minimumSubjectPoints } points."
+              errorMessage = "This ${quizSnapshot.type.toString()} is assigned to a Skill (${skill.skillId}) that does not have enough points to be completed. The Subject (${skill.subjectId}) that contains this skill must have at least ${ minimumSubjectPoints } points."
           }
             if(skill.projectPoints < minimumProjectPoints) {
                 canStartQuiz = false
-                errorMessage = "This ${quizDefWithDesc.getType().toString()} is assigned to a Skill (${skill.skillId}) that does not have enough points to be completed. The Project (${skill.projectId}) that contains this skill must have at least ${ minimumProjectPoints } points."
+                errorMessage = "This ${quizSnapshot.type.toString()} is assigned to a Skill (${skill.skillId}) that does not have enough points to be completed. The Project (${skill.projectId}) that contains this skill must have at least ${ minimumProjectPoints } points."
             }
         })
 
@@ -223,19 +223,19 @@ class QuizRunService {
             needsGradingAttemptDate = needsGradingAttempt.updated
         }
 
-        String userCommunity = userCommunityService.getQuizUserCommunity(quizDefWithDesc.quizId)
+        String userCommunity = userCommunityService.getQuizUserCommunity(quizSnapshot.quizId)
         return new QuizInfo(
-                name: quizDefWithDesc.name,
-                description: InputSanitizer.unsanitizeForMarkdown(quizDefWithDesc.description),
-                quizType: quizDefWithDesc.getType().toString(),
+                name: quizSnapshot.name,
+                description: InputSanitizer.unsanitizeForMarkdown(quizSnapshot.description),
+                quizType: quizSnapshot.type.toString(),
                 isAttemptAlreadyInProgress: userAttemptsStats?.getIsAttemptAlreadyInProgress() ?: false,
                 userNumPreviousQuizAttempts: userAttemptsStats?.getUserNumPreviousQuizAttempts() ?: 0,
                 userQuizPassed: userAttemptsStats?.getUserQuizPassed() ?: false,
                 userLastQuizAttemptDate: userAttemptsStats?.getUserLastQuizAttemptCompleted() ?: null,
-                maxAttemptsAllowed: maxNumAttemptsSetting ? Integer.valueOf(maxNumAttemptsSetting.value) : -1,
-                minNumQuestionsToPass: minNumQuestionsToPassSetting ? Integer.valueOf(minNumQuestionsToPassSetting.value) : -1,
+                maxAttemptsAllowed: maxNumAttemptsSetting ? Integer.valueOf(maxNumAttemptsSetting) : -1,
+                minNumQuestionsToPass: minNumQuestionsToPassSetting ? Integer.valueOf(minNumQuestionsToPassSetting) : -1,
                 quizLength: lengthSetting,
-                quizTimeLimit: quizTimeLimit ? Integer.valueOf(quizTimeLimit.value) : -1,
+                quizTimeLimit: quizTimeLimit ? Integer.valueOf(quizTimeLimit) : -1,
                 multipleTakes: multipleTakes,
                 canStartQuiz: canStartQuiz,
                 errorMessage: errorMessage,
@@ -244,7 +244,7 @@ class QuizRunService {
                 onlyIncorrectQuestions: onlyIncorrectQuestions,
                 numIncorrectQuestions: numIncorrectQuestions,
                 showDescriptionOnQuizPage: showDescription,
-                slidesSummary: getSlidesSummary(quizDefWithDesc.quizId),
+                slidesSummary: getSlidesSummary(quizSnapshot.quizId),
                 userCommunity: userCommunity
         )
     }
@@ -264,7 +264,7 @@ class QuizRunService {
         return res
     }
 
-    private List<QuizQuestionDef> selectOnlyIncorrectQuestions(Integer quizId, String userId, List<QuizQuestionDef> questions) {
+    private List<QuizDefinitionSnapshot.Question> selectOnlyIncorrectQuestions(Integer quizId, String userId, List<QuizDefinitionSnapshot.Question> questions) {
         QuizToSkillDefRepo.QuizAttemptInfo latestQuizAttempt = getLatestQuizAttempt(quizId, userId)
         if(latestQuizAttempt?.status == UserQuizAttempt.QuizAttemptStatus.FAILED) {
             Integer latestQuizAttemptId = latestQuizAttempt?.attemptId
@@ -276,22 +276,21 @@ class QuizRunService {
         return questions
     }
 
-    private List<QuizQuestionInfo> loadQuizQuestionInfo(QuizDef quizDef, List<QuizSetting> quizSettings, String userId) {
-        List<QuizQuestionDef> dbQuestionDefs = quizQuestionRepo.findAllByQuizIdIgnoreCase(quizDef.quizId)
-        List<QuizAnswerDef> dbAnswersDef = quizAnswerRepo.findAllByQuizIdIgnoreCase(quizDef.quizId)
-        Map<Integer, List<QuizAnswerDef>> byQuizId = dbAnswersDef.groupBy { it.questionRefId }
+    private List<QuizQuestionInfo> loadQuizQuestionInfo(QuizDefinitionSnapshot quizSnapshot, String userId) {
+        // snapshot collections are shared and immutable, shuffle and sort copies
+        List<QuizDefinitionSnapshot.Question> dbQuestionDefs = new ArrayList<>(quizSnapshot.questions)
+        Map<Integer, List<QuizDefinitionSnapshot.Answer>> byQuizId = quizSnapshot.answersByQuestionId
 
-        QuizSetting quizLength = quizSettings?.find( { it.setting == QuizSettings.QuizLength.setting })
-        boolean randomizeQuestions = quizSettings?.find( { it.setting == QuizSettings.RandomizeQuestions.setting })?.value?.toBoolean()
-        boolean randomizeAnswers = quizSettings?.find( { it.setting == QuizSettings.RandomizeAnswers.setting })?.value?.toBoolean()
-        boolean forceRandomizationOfQuestions = quizLength?.value != null && Integer.valueOf(quizLength.value) < dbQuestionDefs.size()
-        QuizSetting onlyIncorrect = quizSettings?.find({it.setting == QuizSettings.RetakeIncorrectQuestionsOnly.setting})
-        boolean onlyIncorrectQuestions = onlyIncorrect?.value?.toBoolean()
-        Boolean showAnswerHintsOnRetakesOnly = quizSettings?.find( { it.setting == QuizSettings.ShowAnswerHintsOnRetakeAttemptsOnly.setting })?.value?.toBoolean()
-        Boolean includeAnswerHints = !showAnswerHintsOnRetakesOnly || isRetakeAttempt(quizDef, userId)
+        String quizLength = quizSnapshot.getSetting(QuizSettings.QuizLength.setting)
+        boolean randomizeQuestions = quizSnapshot.getSettingAsBoolean(QuizSettings.RandomizeQuestions.setting)
+        boolean randomizeAnswers = quizSnapshot.getSettingAsBoolean(QuizSettings.RandomizeAnswers.setting)
+        boolean forceRandomizationOfQuestions = quizLength != null && Integer.valueOf(quizLength) < dbQuestionDefs.size()
+        boolean onlyIncorrectQuestions = quizSnapshot.getSettingAsBoolean(QuizSettings.RetakeIncorrectQuestionsOnly.setting)
+        Boolean showAnswerHintsOnRetakesOnly = quizSnapshot.getSettingAsBoolean(QuizSettings.ShowAnswerHintsOnRetakeAttemptsOnly.setting)
+        Boolean includeAnswerHints = !showAnswerHintsOnRetakesOnly || isRetakeAttempt(quizSnapshot, userId)
 
         if(onlyIncorrectQuestions) {
-            dbQuestionDefs = selectOnlyIncorrectQuestions(quizDef.id, userId, dbQuestionDefs)
+            dbQuestionDefs = selectOnlyIncorrectQuestions(quizSnapshot.quizRefId, userId, dbQuestionDefs)
         }
 
         if(randomizeQuestions || forceRandomizationOfQuestions) {
@@ -300,7 +299,7 @@ class QuizRunService {
             dbQuestionDefs?.sort{it.getDisplayOrder()}
         }
         List<QuizQuestionInfo> questions = dbQuestionDefs?.collect {
-            List<QuizAnswerDef> quizAnswerDefs = byQuizId[it.id]
+            List<QuizDefinitionSnapshot.Answer> quizAnswerDefs = byQuizId[it.id] != null ? new ArrayList<>(byQuizId[it.id]) : null
             if(randomizeAnswers) {
                 quizAnswerDefs?.shuffle()
             }
@@ -348,8 +347,8 @@ class QuizRunService {
         }
         return questions
     }
-    private Boolean isRetakeAttempt(QuizDef quizDef, String userId) {
-        Boolean isRetakeAttempt = quizDef.type == QuizDef.QuizType.Quiz && quizAttemptRepo.getUserAttemptsStats(userId, quizDef.id,
+    private Boolean isRetakeAttempt(QuizDefinitionSnapshot quizSnapshot, String userId) {
+        Boolean isRetakeAttempt = quizSnapshot.type == QuizDef.QuizType.Quiz && quizAttemptRepo.getUserAttemptsStats(userId, quizSnapshot.quizRefId,
                 UserQuizAttempt.QuizAttemptStatus.INPROGRESS, UserQuizAttempt.QuizAttemptStatus.PASSED).userNumPreviousQuizAttempts > 0
         return isRetakeAttempt
     }
@@ -370,14 +369,13 @@ class QuizRunService {
 
     @Transactional
     QuizAttemptStartResult startQuizAttempt(String userId, String quizId, String skillId = null, String projectId = null) {
-        QuizDef quizDef = getQuizDef(quizId)
-        List<QuizSetting> quizSettings = loadQuizSettings(quizDef.id)
-        Integer quizTimeLimit = quizSettings?.find( { it.setting == QuizSettings.QuizTimeLimit.setting })?.value?.toInteger()
-        QuizSetting quizLength = quizSettings?.find( { it.setting == QuizSettings.QuizLength.setting })
+        QuizDefinitionSnapshot quizSnapshot = getQuizSnapshot(quizId)
+        Integer quizTimeLimit = quizSnapshot.getSetting(QuizSettings.QuizTimeLimit.setting)?.toInteger()
+        String quizLength = quizSnapshot.getSetting(QuizSettings.QuizLength.setting)
 
-        List<QuizQuestionInfo> questions = loadQuizQuestionInfo(quizDef, quizSettings, userId)
+        List<QuizQuestionInfo> questions = loadQuizQuestionInfo(quizSnapshot, userId)
         List<QuizQuestionInfo> questionsForQuiz = []
-        Integer quizLengthAsInteger = quizLength ? Integer.valueOf(quizLength.value) : 0
+        Integer quizLengthAsInteger = quizLength ? Integer.valueOf(quizLength) : 0
         Integer lengthSetting = quizLengthAsInteger > 0 ? quizLengthAsInteger : questions.size()
 
         validateNoPendingGradingAttempt(userId, quizId)
@@ -439,11 +437,11 @@ class QuizRunService {
         }
 
 
-        validateQuizAttempts(quizDef, userId, quizId, skillId, projectId)
-        int numQuestions = quizQuestionRepo.countByQuizId(quizDef.quizId)
-        QuizValidator.isTrue(numQuestions > 0, "Must have at least 1 question declared in order to start.", quizDef.quizId)
+        validateQuizAttempts(quizSnapshot, userId, quizId, skillId, projectId)
+        int numQuestions = quizSnapshot.questions.size()
+        QuizValidator.isTrue(numQuestions > 0, "Must have at least 1 question declared in order to start.", quizSnapshot.quizId)
 
-        Integer minNumQuestionsToPassConf = getMinNumQuestionsToPassSetting(quizDef.id)
+        Integer minNumQuestionsToPassConf = quizSnapshot.getSettingAsInteger(QuizSettings.MinNumQuestionsToPass.setting)
         Integer minNumQuestionsToPass = minNumQuestionsToPassConf > 0 ? minNumQuestionsToPassConf : numQuestions;
 
         LocalDateTime deadline = null
@@ -454,11 +452,12 @@ class QuizRunService {
 
         UserQuizAttempt userQuizAttempt = new UserQuizAttempt(
                 userId: userId,
-                quizDefinitionRefId: quizDef.id,
+                quizDefinitionRefId: quizSnapshot.quizRefId,
                 status: UserQuizAttempt.QuizAttemptStatus.INPROGRESS,
                 numQuestionsToPass: minNumQuestionsToPass,
                 started: start.toDate())
         UserQuizAttempt savedAttempt = quizAttemptRepo.saveAndFlush(userQuizAttempt)
+        userProgressSnapshotCache.userChanged(userId)
         log.info("Started new quiz attempt {}", savedAttempt)
 
         questionsForQuiz.each{ question ->
@@ -484,17 +483,17 @@ class QuizRunService {
     }
 
     @Profile
-    private void validateQuizAttempts(QuizDef quizDef, String userId, String quizId, String skillId = null, String projectId = null) {
-        UserQuizAttemptRepo.UserQuizAttemptStats userAttemptsStats = quizAttemptRepo.getUserAttemptsStats(userId, quizDef.id,
+    private void validateQuizAttempts(QuizDefinitionSnapshot quizSnapshot, String userId, String quizId, String skillId = null, String projectId = null) {
+        UserQuizAttemptRepo.UserQuizAttemptStats userAttemptsStats = quizAttemptRepo.getUserAttemptsStats(userId, quizSnapshot.quizRefId,
                 UserQuizAttempt.QuizAttemptStatus.INPROGRESS, UserQuizAttempt.QuizAttemptStatus.PASSED)
         Integer numCurrentAttempts = userAttemptsStats?.getUserNumPreviousQuizAttempts() ?: 0
-        boolean allowMultipleTakes = allowMultipleTakes(quizDef.id)
+        boolean allowMultipleTakes = quizSnapshot.getSettingAsBoolean(QuizSettings.MultipleTakes.setting)
         boolean aboutToExpire = false
 
         if (skillId && projectId) {
             aboutToExpire = skillExpiringSoon(skillId, projectId)
         }
-        if (quizDef.type == QuizDefParent.QuizType.Survey  && !allowMultipleTakes && !aboutToExpire) {
+        if (quizSnapshot.type == QuizDefParent.QuizType.Survey  && !allowMultipleTakes && !aboutToExpire) {
             if (numCurrentAttempts > 0) {
                 throw new SkillQuizException("User [${userId}] has already taken this survey", quizId, ErrorCode.BadParam)
             }
@@ -503,7 +502,7 @@ class QuizRunService {
                 throw new SkillQuizException("User [${userId}] already took and passed this quiz.", quizId, ErrorCode.UserQuizAttemptsExhausted)
             }
 
-            int numConfiguredAttempts = getMaxQuizAttemptsSetting(quizDef.id)
+            int numConfiguredAttempts = quizSnapshot.getSettingAsInteger(QuizSettings.MaxNumAttempts.setting)
             // anything 0 or below is considered to be unlimited attempts
             if (numConfiguredAttempts > 0 && numCurrentAttempts >= numConfiguredAttempts) {
                 throw new SkillQuizException("User [${userId}] exhausted [${numConfiguredAttempts}] available attempts for this quiz.", quizId, ErrorCode.UserQuizAttemptsExhausted)
@@ -527,45 +526,27 @@ class QuizRunService {
         ])
     }
 
-    @Profile
-    private Integer getMaxQuizAttemptsSetting(Integer quizRefId) {
-        return getQuizSettingAsInteger(quizRefId, QuizSettings.MaxNumAttempts.setting)
-    }
     @Profile
     private Integer getMinNumQuestionsToPassSetting(Integer quizRefId) {
         return getQuizSettingAsInteger(quizRefId, QuizSettings.MinNumQuestionsToPass.setting)
     }
     @Profile
-    private Integer getQuizLength(Integer quizRefId) {
-        return getQuizSettingAsInteger(quizRefId, QuizSettings.QuizLength.setting)
-    }
-    @Profile
-    private boolean allowMultipleTakes(Integer quizRefId) {
-        return getQuizSettingAsBoolean(quizRefId, QuizSettings.MultipleTakes.setting)
-    }
-    @Profile
-    private boolean alwaysShowCorrectAnswers(Integer quizRefId) {
-        return getQuizSettingAsBoolean(quizRefId, QuizSettings.AlwaysShowCorrectAnswers.setting)
-    }
-    @Profile
-    private boolean onlyIncorrectAnswers(Integer quizRefId) {
-        return getQuizSettingAsBoolean(quizRefId, QuizSettings.RetakeIncorrectQuestionsOnly.setting)
-    }
-    @Profile
     private Integer getQuizSettingAsInteger(Integer quizRefId, String setting) {
         QuizSetting quizSetting = quizSettingsRepo.findBySettingAndQuizRefId(setting, quizRefId)
         return quizSetting ? Integer.valueOf(quizSetting.value) : -1
     }
-    @Profile
-    private boolean getQuizSettingAsBoolean(Integer quizRefId, String setting) {
-        QuizSetting quizSetting = quizSettingsRepo.findBySettingAndQuizRefId(setting, quizRefId)
-        return quizSetting?.value?.toBoolean()
-    }
 
     boolean shouldQuizBeFailed(UserQuizAttempt attempt) {
         List<QuizSetting> quizSettings = loadQuizSettings(attempt.quizDefinitionRefId)
         Integer quizTimeLimit = quizSettings?.find( { it.setting == QuizSettings.QuizTimeLimit.setting })?.value?.toInteger()
+        return hasTimeLimitPassed(attempt, quizTimeLimit)
+    }
 
+    private boolean shouldQuizBeFailed(UserQuizAttempt attempt, QuizRunDefinition quizDefinition) {
+        return hasTimeLimitPassed(attempt, quizDefinition.getSettingAsInteger(QuizSettings.QuizTimeLimit.setting))
+    }
+
+    private boolean hasTimeLimitPassed(UserQuizAttempt attempt, Integer quizTimeLimit) {
         if (quizTimeLimit > 0) {
             LocalDateTime deadlineLocal = calculateDeadline(attempt.started.toLocalDateTime(), quizTimeLimit)
             if (hasQuizExpired(deadlineLocal)) {
@@ -592,14 +573,15 @@ class QuizRunService {
         }
 
         UserQuizAttempt inProgressAttempt = quizAttemptRepo.getByUserIdAndQuizIdAndState(userId, quizId, UserQuizAttempt.QuizAttemptStatus.INPROGRESS)
+        QuizRunDefinition quizDefinition = getQuizRunDefinition(quizId, inProgressAttempt?.quizDefinitionRefId)
         if (inProgressAttempt) {
-            if(shouldQuizBeFailed(inProgressAttempt)) {
+            if(shouldQuizBeFailed(inProgressAttempt, quizDefinition)) {
                 failQuizAttempt(userId, quizId, quizAttemptId)
                 throw new SkillQuizException("Deadline for [${quizAttemptId}] has expired", ErrorCode.BadParam)
             }
         }
 
-        QuizAnswerDefRepo.AnswerDefPartialInfo answerDefPartialInfo = getAnswerDefPartialInfo(quizId, answerDefId)
+        QuizAnswerDefRepo.AnswerDefPartialInfo answerDefPartialInfo = getAnswerDefPartialInfo(quizId, answerDefId, quizDefinition)
 
         if (answerDefPartialInfo.getQuestionType() == QuizQuestionType.TextInput) {
             if (quizReportAnswerReq.isSelected) {
@@ -613,12 +595,11 @@ class QuizRunService {
             } else {
                 QuizValidator.isTrue(StringUtils.isBlank(quizReportAnswerReq.getAnswerText()), "For TextInput type, if isSelected=false then the answer must be null or blank", quizId)
             }
-            QuizDef quizDef = getQuizDef(quizId)
-            handleReportingTextInputQuestion(quizDef, userId, quizAttemptId, answerDefId, quizReportAnswerReq)
+            handleReportingTextInputQuestion(quizDefinition.quizDef, userId, quizAttemptId, answerDefId, quizReportAnswerReq)
         } else if (answerDefPartialInfo.getQuestionType() == QuizQuestionType.Matching) {
             handleReportingMatchingQuestion(userId, quizAttemptId, answerDefId, quizReportAnswerReq, answerDefPartialInfo)
         } else {
-            handleReportingAChoiceBasedQuestion(userId, quizAttemptId, answerDefId, quizReportAnswerReq, answerDefPartialInfo)
+            handleReportingAChoiceBasedQuestion(userId, quizAttemptId, answerDefId, quizReportAnswerReq, answerDefPartialInfo, quizDefinition)
         }
     }
 
@@ -662,7 +643,7 @@ class QuizRunService {
         }
     }
 
-    private void handleReportingAChoiceBasedQuestion(String userId, Integer attemptId, Integer answerDefId, QuizReportAnswerReq quizReportAnswerReq, QuizAnswerDefRepo.AnswerDefPartialInfo answerDefPartialInfo) {
+    private void handleReportingAChoiceBasedQuestion(String userId, Integer attemptId, Integer answerDefId, QuizReportAnswerReq quizReportAnswerReq, QuizAnswerDefRepo.AnswerDefPartialInfo answerDefPartialInfo, QuizRunDefinition quizDefinition) {
         if (!quizReportAnswerReq.isSelected) {
             quizAttemptAnswerRepo.deleteByUserQuizAttemptRefIdAndQuizAnswerDefinitionRefId(attemptId, answerDefId)
         } else {
@@ -680,10 +661,10 @@ class QuizRunService {
                 log.warn("Answer was already persisted for user [{}] for answerDefId of [{}]", userId, answerDefId)
             }
 
-            List<QuizAnswerDefRepo.AnswerIdAndCorrectness> questions = quizAnswerRepo.getAnswerIdsAndCorrectnessIndicator(answerDefPartialInfo.getQuestionRefId())
-            assert questions
+            List<Integer> questionAnswerIds = quizDefinition.getAnswerIds(answerDefPartialInfo.getQuestionRefId())
+            assert questionAnswerIds
             if (answerDefPartialInfo.getQuestionType() == QuizQuestionType.SingleChoice || answerDefPartialInfo.getQuestionType() == QuizQuestionType.Rating) {
-                List<Integer> toRemove = questions.findAll { it.getAnswerRefId() != answerDefId }.collect { it.getAnswerRefId() }
+                List<Integer> toRemove = questionAnswerIds.findAll { it != answerDefId }
                 toRemove.each {
                     quizAttemptAnswerRepo.deleteByUserQuizAttemptRefIdAndQuizAnswerDefinitionRefId(attemptId, it)
                 }
@@ -765,6 +746,7 @@ class QuizRunService {
 
             userQuizAttempt.status = isQuizPassed ? UserQuizAttempt.QuizAttemptStatus.PASSED : UserQuizAttempt.QuizAttemptStatus.FAILED
             quizAttemptRepo.save(userQuizAttempt)
+            userProgressSnapshotCache.userChanged(userQuizAttempt.userId)
 
             if (gradeAnswerReq.notifyUser) {
                 quizNotificationService.sendGradedRequestNotification(quizDef, userQuizAttempt)
@@ -821,6 +803,7 @@ class QuizRunService {
         userQuizAttempt.status = UserQuizAttempt.QuizAttemptStatus.FAILED
         userQuizAttempt.completed = new Date()
         quizAttemptRepo.save(userQuizAttempt)
+        userProgressSnapshotCache.userChanged(userQuizAttempt.userId)
 
         gradedResult.associatedSkillResults = reportAnyAssociatedSkills(userQuizAttempt, quizDef)
         gradedResult.started = userQuizAttempt.started
@@ -843,7 +826,8 @@ class QuizRunService {
 
     @Transactional
     QuizGradedResult completeQuizAttempt(String userId, String quizId, Integer quizAttemptId) {
-        QuizDef quizDef = getQuizDef(quizId)
+        QuizRunDefinition quizDefinition = getQuizRunDefinition(quizId)
+        QuizDef quizDef = quizDefinition.quizDef
         boolean isSurvey = quizDef.type == QuizDefParent.QuizType.Survey
 
         if (quizAttemptRepo.checkQuizStatus(userId, quizAttemptId, quizId, UserQuizAttempt.QuizAttemptStatus.FAILED)) {
@@ -853,21 +837,20 @@ class QuizRunService {
         UserQuizAttempt userQuizAttempt = getQuizAttempt(quizAttemptId)
         validateAttempt(userQuizAttempt, quizDef, quizAttemptId, quizId, userId)
 
-        if(shouldQuizBeFailed(userQuizAttempt)) {
+        if(shouldQuizBeFailed(userQuizAttempt, quizDefinition)) {
             failQuizAttempt(userId, quizId, quizAttemptId)
             throw new SkillQuizException("Deadline for [${quizAttemptId}] has expired", ErrorCode.BadParam)
         }
 
-        List<QuizQuestionDef> dbQuestionDefs = quizQuestionRepo.findQuestionDefsForSpecificQuizAttempt(userQuizAttempt.id)?.sort { it.displayOrder }
-        List<QuizAnswerDef> dbAnswersDefs = quizAnswerRepo.findAllByQuestionRefIdIn(dbQuestionDefs.collect({it.id}))
-        Map<Integer, List<QuizAnswerDef>> answerDefByQuestionId = dbAnswersDefs.groupBy {it.questionRefId }
+        List<UserQuizQuestionAttempt> existingAttempt = quizQuestionAttemptRepo.findAllByUserQuizAttemptRefId(quizAttemptId)
+        List<QuizDefinitionSnapshot.Question> dbQuestionDefs = quizDefinition.getAttemptQuestions(userQuizAttempt, existingAttempt).sort { it.displayOrder }
+        Map<Integer, List<QuizDefinitionSnapshot.Answer>> answerDefByQuestionId = quizDefinition.getAnswersByQuestionId(dbQuestionDefs)
 
         Set<Integer> selectedAnswerIds = quizAttemptAnswerRepo.getSelectedAnswerIds(quizAttemptId).toSet()
-        List<UserQuizQuestionAttempt> existingAttempt = quizQuestionAttemptRepo.findAllByUserQuizAttemptRefId(quizAttemptId)
 
         Boolean needsManualGrading = false
-        List<QuizQuestionGradedResult> gradedQuestions = dbQuestionDefs.collect { QuizQuestionDef quizQuestionDef ->
-            List<QuizAnswerDef> quizAnswerDefs = answerDefByQuestionId[quizQuestionDef.id]
+        List<QuizQuestionGradedResult> gradedQuestions = dbQuestionDefs.collect { QuizDefinitionSnapshot.Question quizQuestionDef ->
+            List<QuizDefinitionSnapshot.Answer> quizAnswerDefs = answerDefByQuestionId[quizQuestionDef.id]
 
             List<Integer> correctIds = quizAnswerDefs.findAll({ Boolean.valueOf(it.isCorrectAnswer) }).collect { it.id }.sort()
             List<Integer> selectedIds = quizAnswerDefs.findAll { selectedAnswerIds.contains(it.id) }?.collect { it.id }
@@ -928,23 +911,23 @@ class QuizRunService {
 
             return new QuizQuestionGradedResult(questionId: quizQuestionDef.id, isCorrect: isCorrect, selectedAnswerIds: selectedIds, correctAnswerIds: correctIds, status: status)
         }
-        Integer quizLength = getQuizLength(quizDef.id)
+        Integer quizLength = quizDefinition.getSettingAsInteger(QuizSettings.QuizLength.setting)
         if(quizLength == -1) {
-            quizLength = quizQuestionRepo.countByQuizId(quizId)
+            quizLength = quizDefinition.numQuestions
         }
         int numCorrect = (int)gradedQuestions.count { it.isCorrect }
         int numQuestionsNeedGrading = (int)gradedQuestions.count { it.status == UserQuizQuestionAttempt.QuizQuestionStatus.NEEDS_GRADING }
-        Integer minNumQuestionsToPassConf = getMinNumQuestionsToPassSetting(quizDef.id)
+        Integer minNumQuestionsToPassConf = quizDefinition.getSettingAsInteger(QuizSettings.MinNumQuestionsToPass.setting)
         Integer minNumQuestionsToPass = minNumQuestionsToPassConf > 0 ? minNumQuestionsToPassConf : quizLength;
-        boolean onlyIncorrectQuestions = onlyIncorrectAnswers(quizDef.id)
+        boolean onlyIncorrectQuestions = quizDefinition.getSettingAsBoolean(QuizSettings.RetakeIncorrectQuestionsOnly.setting)
         if(onlyIncorrectQuestions) {
             Integer previouslyCorrect = quizLength - gradedQuestions.size()
             numCorrect = numCorrect + previouslyCorrect
         }
 
-        boolean showCorrectAnswers = alwaysShowCorrectAnswers(quizDef.id)
+        boolean showCorrectAnswers = quizDefinition.getSettingAsBoolean(QuizSettings.AlwaysShowCorrectAnswers.setting)
         boolean quizPassed = numCorrect >= minNumQuestionsToPass
-        boolean shouldHideQuestions = quizSettingsRepo.findBySettingAndQuizRefId(QuizSettings.HideCorrectAnswersOnCompletedQuiz.setting, quizDef.id)?.isEnabled()
+        boolean shouldHideQuestions = quizDefinition.isSettingEnabled(QuizSettings.HideCorrectAnswersOnCompletedQuiz.setting)
 
         boolean shouldReturnGradedRes = (quizPassed || showCorrectAnswers) && quizDef.type == QuizDefParent.QuizType.Quiz;
         QuizGradedResult gradedResult = new QuizGradedResult(passed: quizPassed, numQuestionsGotWrong: quizLength - numCorrect - numQuestionsNeedGrading,
@@ -960,6 +943,7 @@ class QuizRunService {
         userQuizAttempt.completed = new Date()
         userQuizAttempt.numQuestionsToPass = minNumQuestionsToPass
         quizAttemptRepo.save(userQuizAttempt)
+        userProgressSnapshotCache.userChanged(userQuizAttempt.userId)
 
         if(userQuizAttempt.status == UserQuizAttempt.QuizAttemptStatus.NEEDS_GRADING && needsManualGrading) {
             quizNotificationService.sendGradingRequestNotifications(quizDef, userId)
@@ -1095,6 +1079,38 @@ class QuizRunService {
         return new TableResult(totalCount: count, data: quizAttemptRowResults, count: count)
     }
 
+    private QuizDefinitionSnapshot getQuizSnapshot(String quizId) {
+        QuizDefinitionSnapshot quizSnapshot = quizDefinitionSnapshotCache.get(quizId)
+        if (!quizSnapshot) {
+            throw new SkillQuizException("Failed to find quiz id.", quizId, ErrorCode.BadParam)
+        }
+        return quizSnapshot
+    }
+
+    /**
+     * answers are reported one at a time, so without the snapshot cache each lookup is a targeted query rather than loading the whole quiz
+     */
+    private QuizRunDefinition getQuizRunDefinition(String quizId, Integer quizRefId = null) {
+        if (quizDefinitionSnapshotCache.enabled) {
+            return new SnapshotQuizRunDefinition(getQuizSnapshot(quizId), quizAnswerRepo)
+        }
+        return new RepoQuizRunDefinition(quizId, quizRefId, quizDefRepo, quizSettingsRepo, quizQuestionRepo, quizAnswerRepo)
+    }
+
+    /**
+     * without the snapshot cache only the quiz and its settings are loaded, the returned snapshot then has no questions or answers
+     */
+    private QuizDefinitionSnapshot getQuizDefAndSettings(String quizId) {
+        if (quizDefinitionSnapshotCache.enabled) {
+            return getQuizSnapshot(quizId)
+        }
+        QuizDefWithDescription quizDefWithDesc = quizDefWithDescRepo.findByQuizIdIgnoreCase(quizId)
+        if (!quizDefWithDesc) {
+            throw new SkillQuizException("Failed to find quiz id.", quizId, ErrorCode.BadParam)
+        }
+        return new QuizDefinitionSnapshot(0L, quizDefWithDesc, loadQuizSettings(quizDefWithDesc.id), null, null)
+    }
+
     QuizDef getQuizDef(String quizId) {
         QuizDef quizDef = quizDefRepo.findByQuizIdIgnoreCase(quizId)
         if (!quizDef) {
@@ -1109,8 +1125,8 @@ class QuizRunService {
         }
         return optionalUserQuizAttempt.get()
     }
-    private QuizAnswerDefRepo.AnswerDefPartialInfo getAnswerDefPartialInfo(String quizId, Integer answerDefId) {
-        QuizAnswerDefRepo.AnswerDefPartialInfo answerDefPartialInfo = quizAnswerRepo.getPartialDefByAnswerDefId(answerDefId)
+    private QuizAnswerDefRepo.AnswerDefPartialInfo getAnswerDefPartialInfo(String quizId, Integer answerDefId, QuizRunDefinition quizDefinition) {
+        QuizAnswerDefRepo.AnswerDefPartialInfo answerDefPartialInfo = quizDefinition.getAnswerDefPartialInfo(answerDefId)
         if (!answerDefPartialInfo) {
             throw new SkillQuizException("Provided answer id [${answerDefId}] does not exist", ErrorCode.BadParam)
         }
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.quizLoading
+
+import groovy.transform.CompileStatic
+import skills.controller.exceptions.ErrorCode
+import skills.controller.exceptions.SkillQuizException
+import skills.storage.model.QuizAnswerDef
+import skills.storage.model.QuizDef
+import skills.storage.model.QuizSetting
+import skills.storage.model.UserQuizAttempt
+import skills.storage.model.UserQuizQuestionAttempt
+import skills.storage.repos.QuizAnswerDefRepo
+import skills.storage.repos.QuizDefRepo
+import skills.storage.repos.QuizQuestionDefRepo
+import skills.storage.repos.QuizSettingsRepo
+
+/**
+ * Used when the quiz snapshot cache is disabled; answers are reported one at a time, so rather than loading the whole
+ * quiz each lookup runs a targeted query.
+ */
+@CompileStatic
+class RepoQuizRunDefinition implements QuizRunDefinition {
+
+    private final String quizId
+    private Integer quizRefId
+    private QuizDef quizDef
+
+    private final QuizDefRepo quizDefRepo
+    private final QuizSettingsRepo quizSettingsRepo
+    private final QuizQuestionDefRepo quizQuestionRepo
+    private final QuizAnswerDefRepo quizAnswerRepo
+
+    /**
+     * @param quizRefId when already known saves loading the quiz definition just to look up settings
+     */
+    RepoQuizRunDefinition(String quizId, Integer quizRefId, QuizDefRepo quizDefRepo, QuizSettingsRepo quizSettingsRepo,
+                          QuizQuestionDefRepo quizQuestionRepo, QuizAnswerDefRepo quizAnswerRepo) {
+        this.quizId = quizId
+        this.quizRefId = quizRefId
+        this.quizDefRepo = quizDefRepo
+        this.quizSettingsRepo = quizSettingsRepo
+        this.quizQuestionRepo = quizQuestionRepo
+        this.quizAnswerRepo = quizAnswerRepo
+    }
+
+    @Override
+    QuizDef getQuizDef() {
+        if (quizDef == null) {
+            quizDef = quizDefRepo.findByQuizIdIgnoreCase(quizId)
+            if (!quizDef) {
+                throw new SkillQuizException("Failed to find quiz id.", quizId, ErrorCode.BadParam)
+            }
+        }
+        return quizDef
+    }
+
+    private Integer getQuizRefId() {
+        if (quizRefId == null) {
+            quizRefId = getQuizDef().id
+        }
+        return quizRefId
+    }
+
+    @Override
+    Integer getSettingAsInteger(String setting) {
+        QuizSetting quizSetting = quizSettingsRepo.findBySettingAndQuizRefId(setting, getQuizRefId())
+        return quizSetting ? Integer.valueOf(quizSetting.value) : -1
+    }
+
+    @Override
+    boolean getSettingAsBoolean(String setting) {
+        QuizSetting quizSetting = quizSettingsRepo.findBySettingAndQuizRefId(setting, getQuizRefId())
+        return quizSetting?.value?.toBoolean() ?: false
+    }
+
+    @Override
+    boolean isSettingEnabled(String setting) {
+        QuizSetting quizSetting = quizSettingsRepo.findBySettingAndQuizRefId(setting, getQuizRefId())
+        return quizSetting?.isEnabled() ?: false
+    }
+
+    @Override
+    int getNumQuestions() {
+        return quizQuestionRepo.countByQuizId(quizId) ?: 0
+    }
+
+    @Override
+    QuizAnswerDefRepo.AnswerDefPartialInfo getAnswerDefPartialInfo(Integer answerDefId) {
+        return quizAnswerRepo.getPartialDefByAnswerDefId(answerDefId)
+    }
+
+    @Override
+    List<Integer> getAnswerIds(Integer questionRefId) {
+        return quizAnswerRepo.getAnswerIdsAndCorrectnessIndicator(questionRefId)
+                .collect { QuizAnswerDefRepo.AnswerIdAndCorrectness answer -> answer.getAnswerRefId() }
+    }
+
+    @Override
+    List<QuizDefinitionSnapshot.Question> getAttemptQuestions(UserQuizAttempt attempt, List<UserQuizQuestionAttempt> questionAttempts) {
+        return quizQuestionRepo.findQuestionDefsForSpecificQuizAttempt(attempt.id)
+                .collect { QuizDefinitionSnapshot.toQuestion(it) }
+    }
+
+    @Override
+    Map<Integer, List<QuizDefinitionSnapshot.Answer>> getAnswersByQuestionId(List<QuizDefinitionSnapshot.Question> questions) {
+        if (!questions) {
+            return [:]
+        }
+        Map<Integer, QuizDefinitionSnapshot.Question> questionsById = questions.collectEntries { [it.id, it] }
+        return quizAnswerRepo.findAllByQuestionRefIdIn(questions.collect { it.id })
+                .collect { QuizAnswerDef answerDef -> QuizDefinitionSnapshot.toAnswer(answerDef, questionsById.get(answerDef.questionRefId)?.type) }
+                .groupBy { QuizDefinitionSnapshot.Answer answer -> answer.questionRefId }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.quizLoading
+
+import groovy.transform.CompileStatic
+import skills.storage.model.QuizDef
+import skills.storage.model.UserQuizAttempt
+import skills.storage.model.UserQuizQuestionAttempt
+import skills.storage.repos.QuizAnswerDefRepo
+
+@CompileStatic
+class SnapshotQuizRunDefinition implements QuizRunDefinition {
+
+    private final QuizDefinitionSnapshot quizSnapshot
+    private final QuizAnswerDefRepo quizAnswerRepo
+    private QuizDef quizDef
+
+    SnapshotQuizRunDefinition(QuizDefinitionSnapshot quizSnapshot, QuizAnswerDefRepo quizAnswerRepo) {
+        this.quizSnapshot = quizSnapshot
+        this.quizAnswerRepo = quizAnswerRepo
+    }
+
+    @Override
+    QuizDef getQuizDef() {
+        if (quizDef == null) {
+            quizDef = quizSnapshot.toQuizDef()
+        }
+        return quizDef
+    }
+
+    @Override
+    Integer getSettingAsInteger(String setting) {
+        return quizSnapshot.getSettingAsInteger(setting)
+    }
+
+    @Override
+    boolean getSettingAsBoolean(String setting) {
+        return quizSnapshot.getSettingAsBoolean(setting)
+    }
+
+    @Override
+    boolean isSettingEnabled(String setting) {
+        return quizSnapshot.isSettingEnabled(setting)
+    }
+
+    @Override
+    int getNumQuestions() {
+        return quizSnapshot.questions.size()
+    }
+
+    @Override
+    QuizAnswerDefRepo.AnswerDefPartialInfo getAnswerDefPartialInfo(Integer answerDefId) {
+        // answers of other quizzes are not part of the snapshot, load those so that the mismatch can be reported
+        return quizSnapshot.answersById.get(answerDefId) ?: quizAnswerRepo.getPartialDefByAnswerDefId(answerDefId)
+    }
+
+    @Override
+    List<Integer> getAnswerIds(Integer questionRefId) {
+        return quizSnapshot.answersByQuestionId.get(questionRefId)?.collect { QuizDefinitionSnapshot.Answer answer -> answer.id }
+    }
+
+    @Override
+    List<QuizDefinitionSnapshot.Question> getAttemptQuestions(UserQuizAttempt attempt, List<UserQuizQuestionAttempt> questionAttempts) {
+        return questionAttempts
+                .collect { UserQuizQuestionAttempt questionAttempt -> quizSnapshot.questionsById.get(questionAttempt.quizQuestionDefinitionRefId) }
+                .findAll { it != null }
+    }
+
+    @Override
+    Map<Integer, List<QuizDefinitionSnapshot.Answer>> getAnswersByQuestionId(List<QuizDefinitionSnapshot.Question> questions) {
+        return quizSnapshot.answersByQuestionId
+    }
+}
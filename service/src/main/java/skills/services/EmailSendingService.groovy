@@ -18,6 +18,7 @@ package skills.services
 
 import groovy.util.logging.Slf4j
 import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.mail.MailSendException
 import org.springframework.mail.javamail.JavaMailSender
 import org.springframework.mail.javamail.MimeMessageHelper
 import org.springframework.stereotype.Component
@@ -47,50 +48,105 @@ class EmailSendingService {
     }
 
     void sendEmail(String subject, List<String> to, String htmlBody, String plainTextBody = null, Date sentDate = null, JavaMailSender sender = null, String sendFrom = null, List<String> ccRecipients) {
-
-        def emailSettingsInfo = emailSettings.fetchEmailSettings()
-        if (!sendFrom) {
-            sendFrom = emailSettingsInfo.fromEmail
+        JavaMailSender mailSender = sender ?: emailSettings.mailSender
+        MimeMessage message = createMessage(mailSender, getFromEmail(sendFrom),
+                new OutgoingEmail(subject: subject, to: to, htmlBody: htmlBody, plainTextBody: plainTextBody, sentDate: sentDate, ccRecipients: ccRecipients))
+        try {
+            mailSender.send(message)
+        } catch (Throwable t) {
+            log.error("Failed to email ${to}", t)
+            throw t
         }
+    }
 
-        String fromEmail = sendFrom
+    static class OutgoingEmail {
+        String subject
+        List<String> to
+        String htmlBody
+        String plainTextBody
+        Date sentDate
+        String fromEmail
+        List<String> ccRecipients
+    }
 
-        if (!fromEmail) {
-            fromEmail = FROM
+    /**
+     * Sends all of the provided emails over a single connection of the mail sender (rather than one connection per email).
+     * Failures are reported per email instead of being thrown.
+     *
+     * @return emails that could not be sent mapped to the failure
+     */
+    Map<OutgoingEmail, Exception> sendEmails(List<OutgoingEmail> emails, JavaMailSender sender = null) {
+        Map<OutgoingEmail, Exception> failed = new IdentityHashMap<>()
+        if (!emails) {
+            return failed
+        }
+        JavaMailSender mailSender = sender ?: emailSettings.mailSender
+        String defaultFromEmail = getFromEmail(null)
+
+        Map<MimeMessage, OutgoingEmail> emailByMessage = new IdentityHashMap<>()
+        List<MimeMessage> messages = []
+        emails.each { OutgoingEmail email ->
+            try {
+                MimeMessage message = createMessage(mailSender, email.fromEmail ?: defaultFromEmail, email)
+                messages.add(message)
+                emailByMessage.put(message, email)
+            } catch (Exception e) {
+                failed.put(email, e)
+            }
         }
 
-        JavaMailSender mailSender = sender
-        if (!mailSender) {
-            mailSender = emailSettings.mailSender
+        if (messages) {
+            try {
+                mailSender.send(messages.toArray(new MimeMessage[0]))
+            } catch (MailSendException e) {
+                Map<Object, Exception> failedMessages = e.failedMessages
+                if (failedMessages) {
+                    failedMessages.each { Object message, Exception cause ->
+                        OutgoingEmail email = emailByMessage.get(message)
+                        if (email) {
+                            failed.put(email, cause)
+                        }
+                    }
+                } else {
+                    emailByMessage.values().each { failed.put(it, e) }
+                }
+            } catch (Exception e) {
+                emailByMessage.values().each { failed.put(it, e) }
+            }
+        }
+        if (failed) {
+            log.error("Failed to send [${failed.size()}] out of [${emails.size()}] emails", failed.values().first())
         }
+        return failed
+    }
+
+    private String getFromEmail(String sendFrom) {
+        String fromEmail = sendFrom ?: emailSettings.fetchEmailSettings()?.fromEmail
+        return fromEmail ?: FROM
+    }
 
+    private static MimeMessage createMessage(JavaMailSender mailSender, String fromEmail, OutgoingEmail email) {
         MimeMessage message = mailSender.createMimeMessage()
-        MimeMessageHelper helper = plainTextBody ?
+        MimeMessageHelper helper = email.plainTextBody ?
                 new MimeMessageHelper(message, true, "UTF-8") :
                 new MimeMessageHelper(message, "UTF-8")
-        helper.setSubject(subject)
-        String[] toArr = to.toArray()
+        helper.setSubject(email.subject)
+        String[] toArr = email.to.toArray(new String[0])
         helper.setTo(toArr)
         helper.setFrom(fromEmail)
         helper.setReplyTo(fromEmail)
-        ccRecipients?.each {
+        email.ccRecipients?.each {
            helper.addCc(it)
         }
-        if (sentDate) {
-            helper.setSentDate(sentDate)
+        if (email.sentDate) {
+            helper.setSentDate(email.sentDate)
         }
-        if (plainTextBody) {
-
-            helper.setText(plainTextBody, htmlBody)
+        if (email.plainTextBody) {
+            helper.setText(email.plainTextBody, email.htmlBody)
         } else {
-            helper.setText(htmlBody, true)
-        }
-        try {
-            mailSender.send(message)
-        } catch (Throwable t) {
-            log.error("Failed to email ${toArr}", t)
-            throw t
+            helper.setText(email.htmlBody, true)
         }
+        return message
     }
 
     void sendEmailWithThymeleafTemplate(String subject, String to, String templateFileName, Context thymeleafContext, String plainTextBodyAlt = null) {
@@ -204,6 +204,7 @@ class GlobalBadgesService {
         DataIntegrityExceptionHandlers.dataIntegrityViolationExceptionHandler.handle(null) {
             globalBadgeLevelDefRepo.save(globalBadgeLevelDef)
         }
+        badgeAdminService.badgeDefinitionsChanged(badgeSkillDef)
 
         userActionsHistoryService.saveUserAction(new UserActionInfo(
                 action: DashboardAction.AssignLevel,
@@ -242,6 +243,7 @@ class GlobalBadgesService {
 
         DataIntegrityExceptionHandlers.dataIntegrityViolationExceptionHandler.handle(null) {
             globalBadgeLevelDefRepo.save(existing)
+            badgeAdminService.badgeDefinitionsChanged(badgeSkillDef)
             badgeAdminService.awardBadgeToUsersMeetingRequirements(badgeSkillDef)
         }
 
@@ -270,6 +272,7 @@ class GlobalBadgesService {
         globalBadgeLevelDefRepo.delete(globalBadgeLevelDef)
 
         SkillDef badgeSkillDef = skillDefRepo.findGlobalBadgeByBadgeId(badgeId)
+        badgeAdminService.badgeDefinitionsChanged(badgeSkillDef, [projectId as String])
         badgeAdminService.awardBadgeToUsersMeetingRequirements(badgeSkillDef)
 
         userActionsHistoryService.saveUserAction(new UserActionInfo(
@@ -321,12 +324,14 @@ class GlobalBadgesService {
     void assignGraphRelationship(String badgeSkillId, ContainerType skillType, String projectId,
                                  String relationshipSkillId, RelationshipType relationshipType) {
         ruleSetDefGraphService.assignGraphRelationship(null, badgeSkillId, skillType, projectId, relationshipSkillId, relationshipType)
+        badgeAdminService.badgeDefinitionsChanged(skillDefRepo.findGlobalBadgeByBadgeId(badgeSkillId))
     }
 
     @Transactional
     void removeGraphRelationship(String skillId, ContainerType skillType, String projectId,
                                  String relationshipSkillId, RelationshipType relationshipType){
         ruleSetDefGraphService.removeGraphRelationship(null, skillId, skillType, projectId, relationshipSkillId, relationshipType)
+        badgeAdminService.badgeDefinitionsChanged(skillDefRepo.findGlobalBadgeByBadgeId(skillId), [projectId])
     }
 
     @Transactional
@@ -49,6 +49,9 @@ class LevelDefinitionStorageService {
     @Value('#{"${skills.levels.max:25}"}')
     private int maxLevels
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     LevelDefRepo levelDefinitionRepository
 
@@ -291,6 +294,7 @@ class LevelDefinitionStorageService {
      */
     @Transactional(isolation = Isolation.SERIALIZABLE)
     LevelDef deleteLastLevel(String projectId, String skillId = null, boolean documentUserActionHistory = true) {
+        skillDefinitionCache.definitionsChanged(projectId)
         LevelDef removed
         LevelDefRes result = getLevelDefs(projectId, skillId)
         List<LevelDef> existingDefinitions = result?.levels
@@ -340,6 +344,7 @@ class LevelDefinitionStorageService {
 
     @Transactional(isolation = Isolation.SERIALIZABLE)
     LevelDef editLevel(String projectId, EditLevelRequest editLevelRequest, Integer level, String skillId = null, boolean documentUserActionHistory = true) {
+        skillDefinitionCache.definitionsChanged(projectId)
         SettingsResult setting = settingsService.getProjectSetting(projectId, Settings.LEVEL_AS_POINTS.settingName)
         assert editLevelRequest.name?.length() <= 50
         boolean asPoints = false
@@ -405,6 +410,7 @@ class LevelDefinitionStorageService {
 
     @Transactional(isolation = Isolation.SERIALIZABLE)
     LevelDef addNextLevel(String projectId, NextLevelRequest nextLevelRequest, String skillId = null, boolean documentUserActionHistory = true) {
+        skillDefinitionCache.definitionsChanged(projectId)
         SettingsResult setting = settingsService.getProjectSetting(projectId, Settings.LEVEL_AS_POINTS.settingName)
         assert nextLevelRequest.name?.length() <= 50
         boolean asPoints = false
@@ -482,6 +488,7 @@ class LevelDefinitionStorageService {
      * Levels belong to either project or skill; so only project OR skill must be provided
      */
     List<LevelDef> createDefault(String projectId, ProjDef projDef, SkillDefParent skillDef = null) {
+        skillDefinitionCache.definitionsChanged(projectId)
         SettingsResult setting = settingsService.getProjectSetting(projectId, Settings.LEVEL_AS_POINTS.settingName)
 
         assert projDef || skillDef
@@ -21,9 +21,9 @@ import groovy.util.logging.Slf4j
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
+import skills.services.locking.KeyedLockProvider
 import skills.storage.model.SkillsDBLock
 import skills.storage.repos.SkillsDBLockRepo
-import skills.storage.repos.nativeSql.PostgresQlNativeRepo
 
 @Slf4j
 @Service
@@ -34,7 +34,7 @@ class LockingService {
     SkillsDBLockRepo skillsDBLockRepo
 
     @Autowired
-    PostgresQlNativeRepo postgresQlNativeRepo
+    KeyedLockProvider keyedLockProvider
 
     SkillsDBLock lockGlobalSettings() {
         SkillsDBLock res = skillsDBLockRepo.findByLock("global_settings_lock")
@@ -112,8 +112,7 @@ class LockingService {
 
     SkillsDBLock lockForUserCreateOrUpdate(String userId) {
         String key = "update_" + userId
-        SkillsDBLock lock = postgresQlNativeRepo.insertLockOrSelectExisting(key)
-        return lock
+        return keyedLockProvider.lock(key)
     }
 
     SkillsDBLock lockForProjectExpiration() {
@@ -136,14 +135,12 @@ class LockingService {
 
     SkillsDBLock lockForSkillReporting(String userId, String projectId) {
         String key = "reportSkill_" + userId + projectId
-        SkillsDBLock lock = postgresQlNativeRepo.insertLockOrSelectExisting(key)
-        return lock
+        return keyedLockProvider.lock(key)
     }
 
     SkillsDBLock lockUserQuizAttempt(Integer quizAttemptId) {
         String key = "quizAttempt_" + quizAttemptId
-        SkillsDBLock lock = postgresQlNativeRepo.insertLockOrSelectExisting(key)
-        return lock
+        return keyedLockProvider.lock(key)
     }
 
     @Transactional
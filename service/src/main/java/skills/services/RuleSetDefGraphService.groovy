@@ -34,6 +34,9 @@ import skills.storage.repos.SkillRelDefRepo
 @Slf4j
 class RuleSetDefGraphService {
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     SkillRelDefRepo skillRelDefRepo
 
@@ -122,6 +125,7 @@ class RuleSetDefGraphService {
     @Transactional
     void assignGraphRelationship(String projectId, String skillId, SkillDef.ContainerType skillType,
                                  String relationshipProjectId, String relationshipSkillId, RelationshipType relationshipType, boolean validateEnabled = false) {
+        skillDefinitionCache.definitionsChanged(projectId)
         SkillDef skill1 = skillDefAccessor.getSkillDef(projectId, skillId, [skillType])
         SkillDef skill2 = skillDefAccessor.getSkillDef(relationshipProjectId, relationshipSkillId)
         if (validateEnabled && !skill2.enabled?.equalsIgnoreCase("true")) {
@@ -136,6 +140,7 @@ class RuleSetDefGraphService {
     void removeGraphRelationship(String projectId, String skillId, SkillDef.ContainerType skillType,
                                  String relationshipProjectId, String relationshipSkillId, RelationshipType relationshipType,
                                  boolean failOnMissingRel=true){
+        skillDefinitionCache.definitionsChanged(projectId)
 
         SkillDef skill1 = skillDefAccessor.getSkillDef(projectId, skillId, skillType ? [skillType] : [SkillDef.ContainerType.Skill, SkillDef.ContainerType.SkillsGroup, SkillDef.ContainerType.Badge])
         SkillDef skill2 = skillDefAccessor.getSkillDef(relationshipProjectId, relationshipSkillId, [SkillDef.ContainerType.Skill, SkillDef.ContainerType.SkillsGroup, SkillDef.ContainerType.Badge])
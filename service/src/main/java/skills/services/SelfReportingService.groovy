@@ -35,6 +35,7 @@ import skills.services.admin.UserCommunityService
 import skills.services.events.SkillEventsService
 import skills.services.events.pointsAndAchievements.InsufficientPointsValidator
 import skills.services.settings.SettingsService
+import skills.skillLoading.UserProgressSnapshotCache
 import skills.storage.model.Notification
 import skills.storage.model.ProjDef
 import skills.storage.model.SkillApproval
@@ -61,6 +62,9 @@ class SelfReportingService {
     @Autowired
     SkillApprovalRepo skillApprovalRepo
 
+    @Autowired
+    UserProgressSnapshotCache userProgressSnapshotCache
+
     @Autowired
     CustomValidator customValidator
 
@@ -277,6 +281,7 @@ class SelfReportingService {
             approval.rejectionAcknowledgedOn = new Date()
 
             skillApprovalRepo.save(approval);
+            userProgressSnapshotCache.userChanged(userId)
         } else {
             log.warn("Failed to find existing approval with id of [${approvalId}]. Could be a bug OR could be that it was removed by another admin or in a different tab:" +
                     " projectId=[${projectId}], userId=[${userId}], approvalId=[${approvalId}]")
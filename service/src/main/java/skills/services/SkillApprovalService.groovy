@@ -44,6 +44,7 @@ import skills.services.userActions.DashboardAction
 import skills.services.userActions.DashboardItem
 import skills.services.userActions.UserActionInfo
 import skills.services.userActions.UserActionsHistoryService
+import skills.skillLoading.UserProgressSnapshotCache
 import skills.storage.accessors.SkillDefAccessor
 import skills.storage.model.*
 import skills.storage.model.auth.RoleName
@@ -65,6 +66,9 @@ class SkillApprovalService {
     @Autowired
     SkillApprovalRepo skillApprovalRepo
 
+    @Autowired
+    UserProgressSnapshotCache userProgressSnapshotCache
+
     @Autowired
     SkillEventsService skillEventsService
 
@@ -321,6 +325,7 @@ class SkillApprovalService {
             it.approverUserId = userInfoService.currentUser.username
 
             skillApprovalRepo.save(it)
+            userProgressSnapshotCache.userChanged(it.userId)
 
             // send email
             Optional<SkillDef> optional = skillDefRepo.findById(it.skillRefId)
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import groovy.transform.CompileStatic
+import groovy.transform.EqualsAndHashCode
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import jakarta.annotation.PostConstruct
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionDefinition
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import org.springframework.transaction.support.TransactionTemplate
+import skills.services.events.UserSkillStateCache
+import skills.skillLoading.UserProgressSnapshotCache
+import skills.storage.repos.nativeSql.PostgresQlNativeRepo
+
+import java.time.Duration
+import java.util.function.Function
+
+/**
+ * Opt-in cache of the definitions needed to report a skill event (skills.config.definitionCache.enabled=true):
+ * skill definitions, parent relationships, project definitions, level definitions and skill attributes.
+ *
+ * Entries are keyed by the project's definitions version, which is stored in the project_definition_version table
+ * and incremented by every admin mutation of the project's definitions (see {@link #definitionsChanged(String)}).
+ * Nodes read the version at most once per transaction, so an update made on one node is picked up by all others
+ * as soon as it commits; entries of older versions are simply never read again and age out of the cache.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class SkillDefinitionCache {
+
+    static final String CACHE_NAME = 'skills.definitions'
+    private static final String TX_VERSIONS_RESOURCE = SkillDefinitionCache.name + '.versions'
+
+    @Value('#{"${skills.config.definitionCache.enabled:false}"}')
+    Boolean enabled = false
+
+    @Value('#{"${skills.config.definitionCache.maxSize:20000}"}')
+    long maxSize = 20000
+
+    @Value('#{"${skills.config.definitionCache.expireAfterWriteMinutes:60}"}')
+    long expireAfterWriteMinutes = 60
+
+    @Autowired
+    PostgresQlNativeRepo postgresQlNativeRepo
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    @Autowired
+    UserProgressSnapshotCache userProgressSnapshotCache
+
+    @Autowired
+    UserSkillStateCache userSkillStateCache
+
+    private Cache<DefinitionKey, Object> cache
+    private TransactionTemplate versionTransaction
+
+    @EqualsAndHashCode
+    static class DefinitionKey {
+        final String type
+        final String projectId
+        final long version
+        final Object id
+
+        DefinitionKey(String type, String projectId, long version, Object id) {
+            this.type = type
+            this.projectId = projectId
+            this.version = version
+            this.id = id
+        }
+
+        @Override
+        String toString() {
+            return "${type}:${projectId}:${version}:${id}"
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            log.info("Enabling skill definition cache: maxSize=[{}], expireAfterWriteMinutes=[{}]", maxSize, expireAfterWriteMinutes)
+            cache = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                    .recordStats()
+                    .build()
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME)
+            versionTransaction = new TransactionTemplate(transactionManager)
+            versionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW)
+        }
+    }
+
+    /**
+     * @param type kind of definition, each kind must use a distinct type
+     * @param id identifies the definition within the project
+     * @param loader invoked on cache miss; null results are returned but not cached
+     */
+    public <T> T get(String type, String projectId, Object id, Closure<T> loader) {
+        if (!enabled) {
+            return loader.call()
+        }
+        DefinitionKey key = new DefinitionKey(type, projectId, getVersion(projectId), id)
+        T res = (T) cache.getIfPresent(key)
+        if (res == null) {
+            res = loader.call()
+            if (res != null) {
+                cache.put(key, res)
+            }
+        }
+        return res
+    }
+
+    /**
+     * Must be called by every operation that changes definitions served by this cache. Increments the project's
+     * definitions version so that all nodes stop using the cached entries.
+     *
+     * Within a transaction the version is incremented by that transaction, so it becomes visible together with the
+     * change. Operations that write without a transaction (each statement committing on its own) must call this
+     * only after their last write; the version is then incremented in a transaction of its own.
+     */
+    void definitionsChanged(String projectId) {
+        userProgressSnapshotCache?.projectChanged(projectId)
+        userSkillStateCache?.projectChanged(projectId)
+        if (!enabled || !projectId) {
+            return
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            versionTransaction.executeWithoutResult {
+                postgresQlNativeRepo.incrementProjectDefinitionsVersion(projectId)
+            }
+            evict(projectId)
+            return
+        }
+        postgresQlNativeRepo.incrementProjectDefinitionsVersion(projectId)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            getTxVersions()?.remove(projectId)
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCompletion(int status) {
+                    // entries loaded by this transaction may hold uncommitted (or rolled back) definitions
+                    evict(projectId)
+                }
+            })
+        }
+    }
+
+    void evict(String projectId) {
+        userProgressSnapshotCache?.projectChanged(projectId)
+        userSkillStateCache?.projectChanged(projectId)
+        cache?.asMap()?.keySet()?.removeIf({ DefinitionKey key -> key.projectId == projectId })
+    }
+
+    private long getVersion(String projectId) {
+        Map<String, Long> txVersions = getTxVersions()
+        if (txVersions == null) {
+            return postgresQlNativeRepo.getProjectDefinitionsVersion(projectId)
+        }
+        return txVersions.computeIfAbsent(projectId, { String id -> postgresQlNativeRepo.getProjectDefinitionsVersion(id) } as Function<String, Long>)
+    }
+
+    // versions are read once per transaction; null when there is no active transaction
+    private static Map<String, Long> getTxVersions() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null
+        }
+        Map<String, Long> versions = (Map<String, Long>) TransactionSynchronizationManager.getResource(TX_VERSIONS_RESOURCE)
+        if (versions == null) {
+            versions = new HashMap<>()
+            TransactionSynchronizationManager.bindResource(TX_VERSIONS_RESOURCE, versions)
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TX_VERSIONS_RESOURCE)
+                }
+            })
+        }
+        return versions
+    }
+}
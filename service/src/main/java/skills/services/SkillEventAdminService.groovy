@@ -35,12 +35,12 @@ import skills.services.userActions.DashboardAction
 import skills.services.userActions.DashboardItem
 import skills.services.userActions.UserActionInfo
 import skills.services.userActions.UserActionsHistoryService
+import skills.skillLoading.LeaderboardRankIndex
+import skills.skillLoading.UserProgressSnapshotCache
 import skills.storage.accessors.ProjDefAccessor
 import skills.storage.model.*
 import skills.storage.repos.*
 import skills.tasks.TaskSchedulerService
-import skills.utils.MatomoReporter
-import skills.utils.MetricsLogger
 
 import java.util.concurrent.Callable
 
@@ -51,6 +51,12 @@ class SkillEventAdminService {
     @Autowired
     UserPerformedSkillRepo performedSkillRepository
 
+    @Autowired
+    UserProgressSnapshotCache userProgressSnapshotCache
+
+    @Autowired
+    UserSkillStateCache userSkillStateCache
+
     @Autowired
     UserPointsRepo userPointsRepo
 
@@ -79,19 +85,10 @@ class SkillEventAdminService {
     UserEventService userEventService
 
     @Autowired
-    private UserInfoService userInfoService
-
-    @Autowired
-    SkillEventPublisher skillEventPublisher
+    LeaderboardRankIndex leaderboardRankIndex
 
     @Autowired
-    MetricsLogger metricsLogger
-
-    @Autowired
-    MatomoReporter matomoReporter;
-
-    @Autowired
-    SkillEventsTransactionalService skillEventsTransactionalService
+    private UserInfoService userInfoService
 
     @Autowired
     SkillCatalogService skillCatalogService
@@ -120,6 +117,9 @@ class SkillEventAdminService {
     @Autowired
     BatchOperationsTransactionalAccessor batchOperationsTransactionalAccessor
 
+    @Autowired
+    BulkSkillEventsService bulkSkillEventsService
+
     @Value('#{"${skills.bulkUserLookup.minNumOfThreads:1}"}')
     Integer minNumOfThreads
 
@@ -134,7 +134,7 @@ class SkillEventAdminService {
     }
 
     @Profile
-    BulkSkillEventResult bulkReportSkills(String projectId, String skillId, List<String> userIds, Date incomingSkillDate) {
+    BulkSkillEventResult bulkReportSkills(String projectId, String skillId, List<String> userIds, Date incomingSkillDate, String importId = null) {
         // collect userIds outside of the DB transaction
         BulkUserLookupResult res = bulkLookupUserNames(userIds, projectId, skillId)
 
@@ -147,8 +147,11 @@ class SkillEventAdminService {
             )
         }
 
-        // report all skills as a single transaction
-        Map<String, SkillEventResult> results = bulkReportSkillsInternal(projectId, skillId, res.requestedUserIds, incomingSkillDate)
+        // each user is reported in its own transaction, users are fanned out across the bulk reporting pool
+        List<BulkSkillEventsService.UserResults> userResults = bulkSkillEventsService.reportSkillsForUsers(projectId, [skillId],
+                res.requestedUserIds.findAll { it != null }, incomingSkillDate, SkillEventsService.defaultSkillApprovalParams, false, true, importId)
+        List<SkillEventResult> results = userResults.findAll { !it.hasFailures() }.collect { it.results.first() }
+        List<String> userIdsErrored = res.userIdsErrored + userResults.findAll { it.hasFailures() }.collect { it.requestedUserId }
         if (!results) {
             log.warn("No skills were report for projectId [${projectId}], skillId [${skillId}], userIds [${userIds}]")
             return new BulkSkillEventResult(
@@ -158,16 +161,13 @@ class SkillEventAdminService {
             )
         }
 
-        // perform notification and metrics logging
-        performBulkReportSkillNotifications(results)
-
         BulkSkillEventResult bulkResult = new BulkSkillEventResult(
                 projectId: projectId,
                 skillId: skillId,
-                name: results.values().first().name,
-                userIdsAppliedCount: results.values().count { it.skillApplied },
-                userIdsNotAppliedCount: results.values().count { !it.skillApplied },
-                userIdsErrored: res.userIdsErrored,
+                name: results.first().name,
+                userIdsAppliedCount: results.count { it.skillApplied },
+                userIdsNotAppliedCount: results.count { !it.skillApplied },
+                userIdsErrored: userIdsErrored,
         )
 
         log.debug("Completed bulk skill report [${bulkResult}]")
@@ -194,20 +194,12 @@ class SkillEventAdminService {
         return res
     }
 
-    @Profile
-    @Transactional
-    Map<String, SkillEventResult> bulkReportSkillsInternal(String projectId, String skillId, List<String> userIds, Date incomingSkillDate) {
-        Map<String, SkillEventResult> results = [:]
-        for (String userId : userIds) {
-            SkillEventResult result = skillEventsTransactionalService.reportSkillInternal(projectId, skillId, userId, incomingSkillDate)
-            results.put(userId, result)
-        }
-        return results
-    }
-
     @Profile
     @Transactional
     RequestResult bulkDeleteSkillEventsForUser(String projectId, String userId) {
+        leaderboardRankIndex.invalidate(projectId)
+        userProgressSnapshotCache.userChanged(userId)
+        userSkillStateCache.userChanged(userId)
         performedSkillRepository.deleteAllByUserIdAndProjectId(userId, projectId)
         userEventService.removeAllEvents(projectId, userId)
         achievedLevelRepo.deleteAllByProjectIdAndUserId(projectId, userId)
@@ -483,6 +475,8 @@ class SkillEventAdminService {
         String projectId = performedSkill.projectId;
         String skillId = performedSkill.skillId
         String userId = performedSkill.userId
+        userProgressSnapshotCache.userChanged(userId)
+        userSkillStateCache.userChanged(userId)
 
         SkillDefMin skillDefinitionMin = getSkillDef(projectId, skillId)
         Long numExistingSkills = performedSkillRepository.countByUserIdAndProjectIdAndSkillId(userId, projectId, skillId) ?: 0
@@ -514,6 +508,7 @@ class SkillEventAdminService {
     }
 
     private SkillEventResult updateUserPointsAndAchievementsWhenPerformedSkillRemoved(String userId, SkillDefMin skillDefinitionMin, Long numExistingPerformedSkills) {
+        leaderboardRankIndex.invalidate(skillDefinitionMin.projectId)
         log.info("Updating points and achievements after skill was removed for userId=[{}], projectId=[{}], skillId=[{}], numExistingPerformedSkills=[{}]",
                 userId, skillDefinitionMin.projectId, skillDefinitionMin.skillId, numExistingPerformedSkills)
         updateUserPoints(userId, skillDefinitionMin, skillDefinitionMin.skillId)
@@ -542,18 +537,6 @@ class SkillEventAdminService {
         }
     }
 
-    @Profile
-    private void performBulkReportSkillNotifications(Map<String, SkillEventResult> results) {
-        results.each { String userId, SkillEventResult result ->
-            if (result.skillApplied) {
-                skillEventPublisher.publishSkillUpdate(result, userId)
-            }
-            metricsLogger.logSkillReported(userId, result)
-            matomoReporter.reportSkill(userId, result.projectId, result.skillId)
-        }
-    }
-
-
     @Profile
     private void deleteProjectLevelIfNecessary(String projectId, String userId, int numberOfExistingEvents) {
         List<UserAchievement> projAchievements = achievedLevelRepo.findAllByUserIdAndProjectIdAndSkillId(userId, projectId, null)
@@ -22,7 +22,9 @@ import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
 import skills.controller.exceptions.SkillsValidator
 import skills.controller.result.model.LevelDefinitionRes
+import skills.services.events.UserSkillStateCache
 import skills.services.settings.SettingsService
+import skills.skillLoading.LeaderboardRankIndex
 import skills.storage.model.SkillDef
 import skills.storage.repos.*
 import skills.storage.repos.nativeSql.PostgresQlNativeRepo
@@ -58,8 +60,15 @@ class UserAchievementsAndPointsManagement {
     @Autowired
     LevelDefinitionStorageService levelDefinitionStorageService
 
+    @Autowired
+    LeaderboardRankIndex leaderboardRankIndex
+
+    @Autowired
+    UserSkillStateCache userSkillStateCache
+
     @Transactional
     void handleSkillRemoval(SkillDef skillDef, SkillDef subject) {
+        leaderboardRankIndex.invalidate(skillDef.projectId)
         assert subject.type == SkillDef.ContainerType.Subject
         PostgresQlNativeRepo.decrementPointsForDeletedSkill(skillDef.projectId, skillDef.skillId, subject.skillId)
         userPointsRepo.deleteByProjectIdAndSkillId(skillDef.projectId, skillDef.skillId)
@@ -68,6 +77,7 @@ class UserAchievementsAndPointsManagement {
         userPointsRepo.deleteZeroPointEntries(skillDef.projectId)
 
         userPerformedSkillRepo.deleteByProjectIdAndSkillId(skillDef.projectId, skillDef.skillId)
+        userSkillStateCache.projectChanged(skillDef.projectId)
         userAchievedLevelRepo.deleteByProjectIdAndSkillId(skillDef.projectId, skillDef.skillId)
         //don't leave any achievements if a user no longer has any entries in user_points
         userAchievedLevelRepo.deleteAchievementsWithNoPoints(skillDef.projectId)
@@ -75,6 +85,7 @@ class UserAchievementsAndPointsManagement {
 
     @Transactional
     void handleSubjectRemoval(SkillDef subject) {
+        leaderboardRankIndex.invalidate(subject.projectId)
         PostgresQlNativeRepo.updateOverallScoresBySummingUpAllChildSubjects(subject.projectId, SkillDef.ContainerType.Subject)
         userPointsRepo.removeOrphanedProjectPoints(subject.projectId)
         userAchievedLevelRepo.deleteAchievementsWithNoPoints(subject.projectId)
@@ -82,6 +93,7 @@ class UserAchievementsAndPointsManagement {
 
     @Profile
     void adjustUserPointsAfterModification(SkillDef skill) {
+        leaderboardRankIndex.invalidate(skill.projectId)
         log.info("Updating all UserPoints for [{}]-[{}]", skill.projectId, skill.skillId)
         PostgresQlNativeRepo.updateUserPointsForASkill(skill.projectId, skill.skillId)
 
@@ -95,6 +107,7 @@ class UserAchievementsAndPointsManagement {
 
     @Transactional
     void handlePointIncrementUpdate(String projectId, String subjectId, String skillId, int incrementDelta){
+        leaderboardRankIndex.invalidate(projectId)
         SkillsValidator.isTrue(
                 skillDefRepo.existsByProjectIdAndSkillIdAndTypeInAllIgnoreCase(projectId, skillId, [SkillDef.ContainerType.Skill, SkillDef.ContainerType.SkillsGroup]),
                 "Skill does not exist",
@@ -116,6 +129,7 @@ class UserAchievementsAndPointsManagement {
 
     @Transactional
     void updatePointsWhenOccurrencesAreDecreased(String projectId, String subjectId, String skillId, int pointIncrement, int newOccurrences, int previousOccurrences){
+        leaderboardRankIndex.invalidate(projectId)
         if (log.isDebugEnabled()){
             log.debug("Update points as occurrences were decreased. projectId=[${projectId}], subjectId=[${subjectId}], skillId=[${skillId}], pointIncrement=[${pointIncrement}], newOccurrences=[$numOccurrences], previousOccurrences=[${previousOccurrences}]")
         }
@@ -130,6 +144,7 @@ class UserAchievementsAndPointsManagement {
             log.debug("Remove extra entries from UserPerformedSkill. projectId=[${projectId}], numEventsToKeep=[${numEventsToKeep}], skillId=[${skillId}]")
         }
         PostgresQlNativeRepo.removeExtraEntriesOfUserPerformedSkillByUser(projectId, skillId, numEventsToKeep)
+        userSkillStateCache.projectChanged(projectId)
     }
 
     @Profile
@@ -249,6 +264,35 @@ class UserAchievementsAndPointsManagement {
         }
     }
 
+    @Profile
+    void removeSubjectLevelAchievementsIfTheseUsersDoNotQualify(List<String> userIds, SkillDef subject) {
+        List<LevelDefinitionRes> levels = levelDefinitionStorageService.getLevels(subject.projectId, subject.skillId)
+        boolean skillsDefined = levels[0].pointsFrom != null
+        if (skillsDefined) {
+            levels.each {
+                int numUpdated = userAchievedLevelRepo.removeSubjectLevelAchievementsIfTheseUsersDoNotQualify(userIds, subject.id, it.level, it.pointsFrom)
+                log.info("Remove subject's level achievements for [{}] users, projectId=[{}], subjectId=[{}({})], level=[{}], pointsFromExclusive=[{}]. Num rows updated = [{}]",
+                        userIds.size(), subject.projectId, subject.skillId, subject.id, it.level, it.pointsFrom, numUpdated)
+            }
+        } else {
+            int numDeleted = userAchievedLevelRepo.deleteAllBySkillRefIdInAndUserIdIn([subject.id], userIds)
+            log.info("There are no skills defined for projectId=[{}], subjectId=[{}({})]. Removed [{}] subject achievements of [{}] users",
+                    subject.projectId, subject.skillId, subject.id, numDeleted, userIds.size())
+        }
+    }
+
+    @Profile
+    void removeProjectLevelAchievementsIfTheseUsersDoNotQualify(List<String> userIds, String projectId) {
+        List<LevelDefinitionRes> levels = levelDefinitionStorageService.getLevels(projectId)
+        levels?.each {
+            if (it.pointsFrom) {
+                int numUpdated = userAchievedLevelRepo.removeProjectLevelAchievementsIfTheseUsersDoNotQualify(userIds, projectId, it.level, it.pointsFrom)
+                log.info("Remove project's level achievements for [{}] users, projectId=[{}], level=[{}], pointsFromExclusive=[{}]. Num rows removed = [{}]",
+                        userIds.size(), projectId, it.level, it.pointsFrom, numUpdated)
+            }
+        }
+    }
+
     @Transactional
     @Profile
     void removeProjectLevelAchievementsIfUsersDoNotQualify(String projectId) {
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionDefinition
+import org.springframework.transaction.support.TransactionTemplate
+import skills.services.locking.PostgresAdvisoryKeyedLockProvider
+import skills.storage.model.DailyEventsWeek
+import skills.storage.repos.UserEventsRepo
+
+import javax.sql.DataSource
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.sql.ResultSet
+import java.time.Duration
+import java.time.LocalDateTime
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Compacts DAILY user events older than compactDailyEventsOlderThan into WEEKLY events using set-based statements.
+ *
+ * Work is split into chunks of up to weeksPerChunk weeks of a single project; each chunk is moved by one
+ * delete-returning/insert statement in its own short transaction, so reporting is never blocked for long and the
+ * remaining DAILY rows always reflect outstanding work - an interrupted run simply resumes on the next invocation.
+ * Chunks touch disjoint rows and can optionally be processed by numWorkers parallel workers.
+ *
+ * Only one node compacts at a time: the run is guarded by a session-level postgres advisory lock held on a dedicated
+ * auto-commit connection, so no transaction stays open for the duration of the run and vacuum can reclaim the
+ * DAILY rows deleted by each chunk as soon as it commits. If another node holds the lock the run is skipped.
+ * Must not be called within a transaction.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class UserEventCompactionService {
+
+    @Value('#{"${skills.config.compactDailyEventsOlderThan:30}"}')
+    int maxDailyDays = 30
+
+    @Value('#{"${skills.config.eventCompaction.weeksPerChunk:4}"}')
+    int weeksPerChunk = 4
+
+    @Value('#{"${skills.config.eventCompaction.numWorkers:1}"}')
+    int numWorkers = 1
+
+    static final long COMPACTION_LOCK_KEY = PostgresAdvisoryKeyedLockProvider.hash('event_compaction_lock')
+
+    @Autowired
+    UserEventsRepo userEventsRepo
+
+    @Autowired
+    DataSource dataSource
+
+    @Autowired
+    UserEventsWriteBehindBuffer userEventsWriteBehindBuffer
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    static class CompactionChunk {
+        String projectId
+        Date fromTime
+        Date toTime
+    }
+
+    static class CompactionProgress {
+        Date olderThan
+        Date started
+        Date completed
+        int totalChunks
+        final AtomicInteger completedChunks = new AtomicInteger()
+        final AtomicInteger failedChunks = new AtomicInteger()
+        final AtomicLong weeklyRowsWritten = new AtomicLong()
+    }
+
+    private volatile CompactionProgress lastProgress
+
+    CompactionProgress getLastProgress() {
+        return lastProgress
+    }
+
+    void compactDailyEvents() {
+        Connection lockConnection = dataSource.getConnection()
+        try {
+            lockConnection.setAutoCommit(true)
+            if (!advisoryLock(lockConnection, 'pg_try_advisory_lock')) {
+                log.info("event compaction is already running on another node, skipping this run")
+                return
+            }
+            try {
+                doCompactDailyEvents()
+            } finally {
+                advisoryLock(lockConnection, 'pg_advisory_unlock')
+            }
+        } finally {
+            lockConnection.close()
+        }
+    }
+
+    private static boolean advisoryLock(Connection connection, String function) {
+        PreparedStatement statement = connection.prepareStatement("select ${function}(?)".toString())
+        try {
+            statement.setLong(1, COMPACTION_LOCK_KEY)
+            ResultSet res = statement.executeQuery()
+            res.next()
+            return res.getBoolean(1)
+        } finally {
+            statement.close()
+        }
+    }
+
+    private void doCompactDailyEvents() {
+        userEventsWriteBehindBuffer.flush()
+
+        Date olderThan = LocalDateTime.now().minusDays(maxDailyDays).toDate()
+        List<CompactionChunk> chunks = buildChunks(userEventsRepo.findWeeksWithDailyEventsOlderThan(olderThan), olderThan)
+        CompactionProgress progress = new CompactionProgress(olderThan: olderThan, started: new Date(), totalChunks: chunks.size())
+        lastProgress = progress
+        log.info("beginning compaction of daily events older than [{}] into weekly events, [{}] chunks using [{}] workers", olderThan, chunks.size(), numWorkers)
+
+        if (numWorkers > 1 && chunks.size() > 1) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(numWorkers, chunks.size()))
+            try {
+                chunks.each { CompactionChunk chunk ->
+                    executor.submit({ compactChunk(chunk, progress) } as Runnable)
+                }
+            } finally {
+                executor.shutdown()
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)
+            }
+        } else {
+            chunks.each { CompactionChunk chunk -> compactChunk(chunk, progress) }
+        }
+
+        progress.completed = new Date()
+        log.info("Compacted [{}/{}] chunks ([{}] failed) into [{}] weekly rows in [{}]",
+                progress.completedChunks.get(), progress.totalChunks, progress.failedChunks.get(), progress.weeklyRowsWritten.get(),
+                Duration.ofMillis(progress.completed.time - progress.started.time))
+    }
+
+    private List<CompactionChunk> buildChunks(List<DailyEventsWeek> weeks, Date olderThan) {
+        List<CompactionChunk> chunks = []
+        Map<String, List<DailyEventsWeek>> byProject = weeks.groupBy { DailyEventsWeek week -> week.projectId }
+        byProject.each { String projectId, List<DailyEventsWeek> projectWeeks ->
+            projectWeeks.collate(weeksPerChunk).each { List<DailyEventsWeek> chunkWeeks ->
+                Date endOfLastWeek = (chunkWeeks.last().weekStart.toLocalDateTime().plusDays(7)).toDate()
+                chunks.add(new CompactionChunk(projectId: projectId, fromTime: chunkWeeks.first().weekStart,
+                        toTime: endOfLastWeek.before(olderThan) ? endOfLastWeek : olderThan))
+            }
+        }
+        return chunks
+    }
+
+    private void compactChunk(CompactionChunk chunk, CompactionProgress progress) {
+        TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager)
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW)
+        Timer.Sample sample = Timer.start(meterRegistry)
+        try {
+            Integer numWeeklyRows = (Integer) chunkTransaction.execute {
+                userEventsRepo.compactDailyEventsIntoWeekly(chunk.projectId, chunk.fromTime, chunk.toTime)
+            }
+            progress.weeklyRowsWritten.addAndGet(numWeeklyRows ?: 0)
+            int completed = progress.completedChunks.incrementAndGet()
+            meterRegistry.counter('skills.userEvents.compaction.weeklyRows').increment(numWeeklyRows ?: 0)
+            log.debug("compacted chunk [{}] [{} - {}] into [{}] weekly rows, [{}/{}] chunks done",
+                    chunk.projectId, chunk.fromTime, chunk.toTime, numWeeklyRows, completed, progress.totalChunks)
+        } catch (Throwable t) {
+            // rows of a failed chunk remain DAILY and will be picked up by the next run
+            progress.failedChunks.incrementAndGet()
+            log.error("Failed to compact daily events for project [${chunk.projectId}] between [${chunk.fromTime}] and [${chunk.toTime}]", t)
+        } finally {
+            sample.stop(meterRegistry.timer('skills.userEvents.compaction.chunk.latency'))
+        }
+    }
+}
@@ -21,7 +21,6 @@ import groovy.util.logging.Slf4j
 import jakarta.persistence.EntityManager
 import jakarta.persistence.PersistenceContext
 import org.apache.commons.lang3.Validate
-import org.apache.commons.lang3.time.StopWatch
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.annotation.Value
 import org.springframework.stereotype.Component
@@ -64,7 +63,10 @@ class UserEventService {
     SkillDefRepo skillDefRepo
 
     @Autowired
-    LockingService lockingService
+    UserEventsWriteBehindBuffer userEventsWriteBehindBuffer
+
+    @Autowired
+    UserEventCompactionService userEventCompactionService
 
     private static final List<ContainerType> ALLOWABLE_CONTAINER_TYPES = [ContainerType.Skill, ContainerType.Subject]
 
@@ -261,45 +263,20 @@ class UserEventService {
     @Transactional
     public void recordEvent(String projectId, Integer skillRefId, String userId, Date date, Integer eventCount = 1, EventType type = EventType.DAILY) {
         Date start = StartDateUtil.computeStartDate(date, type)
+        if (EventType.DAILY == type && userEventsWriteBehindBuffer.isEnabled()) {
+            userEventsWriteBehindBuffer.add(projectId, skillRefId, userId, start, type, eventCount)
+            return
+        }
         Integer weekNumber = WeekNumberUtil.getWeekNumber(start)
         PostgresQlNativeRepo.createOrUpdateUserEvent(projectId, skillRefId, userId, start, type.toString(), eventCount,  weekNumber)
     }
 
     /**
      * Compacts daily events older than compactDailyEventsOlderThan into weekly events.
+     * Must not be called within a transaction - see {@link UserEventCompactionService}
      */
-    @CompileStatic
-    @Transactional
     public void compactDailyEvents() {
-        lockingService.lockEventCompaction()
-
-        LocalDateTime dateTime = LocalDateTime.now().minusDays(maxDailyDays)
-        log.info("beginning compaction of daily events older than [${dateTime}] into weekly events")
-
-        int totalProcessed = 0
-        StopWatch sw = new StopWatch()
-        sw.start()
-
-        userEventsRepo.findAllByEventTypeAndEventTimeLessThan(EventType.DAILY, dateTime.toDate()).withCloseable { Stream<UserEvent> stream ->
-            stream.forEach({ UserEvent userEvent ->
-                totalProcessed++
-                recordEvent(userEvent.projectId, userEvent.skillRefId, userEvent.userId, userEvent.eventTime, userEvent.count, EventType.WEEKLY)
-                entityManager.detach(userEvent)
-                if (totalProcessed % 50000 == 0) {
-                    log.info("compacted $totalProcessed daily user events so far")
-                }
-            })
-        }
-        sw.stop()
-        Duration duration = Duration.of(sw.getTime(), ChronoUnit.MILLIS)
-
-        log.info("Compacted [${totalProcessed}] rows in [${duration}], deleting input events now")
-        sw.reset()
-        sw.start()
-        userEventsRepo.deleteByEventTypeAndEventTimeLessThan(EventType.DAILY, dateTime.toDate())
-        sw.stop()
-        duration = Duration.of(sw.getTime(), ChronoUnit.MILLIS)
-        log.info("Deleted compacted input events in [${duration}]")
+        userEventCompactionService.compactDailyEvents()
     }
 
     /**
@@ -311,6 +288,7 @@ class UserEventService {
      */
     @Transactional
     public void removeEvent(Date performedOn, String userId, Integer skillRefId) {
+        userEventsWriteBehindBuffer.flush()
         Date dailyEventTime = StartDateUtil.computeStartDate(performedOn, EventType.DAILY)
         Date weeklyEventTime = StartDateUtil.computeStartDate(performedOn, EventType.WEEKLY)
 
@@ -329,10 +307,12 @@ class UserEventService {
     }
 
     void removeAllEvents(String projectId, String userId) {
+        userEventsWriteBehindBuffer.flush()
         userEventsRepo.deleteAllByUserIdAndProjectId(userId, projectId);
     }
 
     void removeAllEvents(String userId, List<Integer> skillRefIds) {
+        userEventsWriteBehindBuffer.flush()
         userEventsRepo.deleteAllByUserIdAndSkillRefIdIn(userId, skillRefIds);
     }
 
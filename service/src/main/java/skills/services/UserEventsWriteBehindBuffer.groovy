@@ -0,0 +1,231 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services
+
+import groovy.transform.CompileStatic
+import groovy.transform.EqualsAndHashCode
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
+import jakarta.annotation.PostConstruct
+import jakarta.annotation.PreDestroy
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionDefinition
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import org.springframework.transaction.support.TransactionTemplate
+import skills.storage.model.EventType
+import skills.storage.repos.nativeSql.PostgresQlNativeRepo
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+import static skills.storage.repos.nativeSql.PostgresQlNativeRepo.UserEventCount
+
+/**
+ * Opt-in write-behind buffer for DAILY user_events metrics (skills.config.userEvents.writeBehind.enabled=true).
+ *
+ * Counts are aggregated in memory per (projectId, skillRefId, userId, eventTime, eventType) and flushed every
+ * flushIntervalMs as multi-row upserts, in their own transactions, so that reporting skill events no longer
+ * performs a user_events write. A flush is also triggered early once maxBufferedKeys distinct rows are buffered,
+ * and on shutdown. On an ungraceful shutdown at most flushIntervalMs worth of counts can be lost, which is
+ * acceptable since user_events are only used for metrics. Counts recorded within a transaction are only buffered
+ * once that transaction commits, so rolled back (and retried) skill events are not counted.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class UserEventsWriteBehindBuffer {
+
+    @Value('#{"${skills.config.userEvents.writeBehind.enabled:false}"}')
+    Boolean enabled = false
+
+    @Value('#{"${skills.config.userEvents.writeBehind.flushIntervalMs:5000}"}')
+    long flushIntervalMs = 5000
+
+    @Value('#{"${skills.config.userEvents.writeBehind.maxBufferedKeys:50000}"}')
+    int maxBufferedKeys = 50000
+
+    @Value('#{"${skills.config.userEvents.writeBehind.flushBatchSize:500}"}')
+    int flushBatchSize = 500
+
+    @Autowired
+    PostgresQlNativeRepo postgresQlNativeRepo
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    @EqualsAndHashCode
+    static class UserEventKey implements Comparable<UserEventKey> {
+        final String projectId
+        final Integer skillRefId
+        final String userId
+        final Date eventTime
+        final EventType eventType
+
+        UserEventKey(String projectId, Integer skillRefId, String userId, Date eventTime, EventType eventType) {
+            this.projectId = projectId
+            this.skillRefId = skillRefId
+            this.userId = userId
+            this.eventTime = eventTime
+            this.eventType = eventType
+        }
+
+        // consistent ordering of upserted rows avoids deadlocks between concurrent flushes on different nodes
+        @Override
+        int compareTo(UserEventKey o) {
+            return userId <=> o.userId ?: projectId <=> o.projectId ?: skillRefId <=> o.skillRefId ?: eventTime <=> o.eventTime ?: eventType <=> o.eventType
+        }
+    }
+
+    private final ConcurrentHashMap<UserEventKey, Integer> counts = new ConcurrentHashMap<>()
+    private final AtomicBoolean earlyFlushRequested = new AtomicBoolean(false)
+    private final Object flushLock = new Object()
+    private ScheduledExecutorService scheduler
+    private TransactionTemplate transactionTemplate
+
+    private Timer flushTimer
+    private Counter flushedRowsCounter
+    private Counter droppedRowsCounter
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            log.info("Enabling user events write-behind buffer: flushIntervalMs=[{}], maxBufferedKeys=[{}], flushBatchSize=[{}]",
+                    flushIntervalMs, maxBufferedKeys, flushBatchSize)
+            transactionTemplate = new TransactionTemplate(transactionManager)
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW)
+
+            flushTimer = Timer.builder('skills.userEvents.writeBehind.flush.latency').register(meterRegistry)
+            flushedRowsCounter = meterRegistry.counter('skills.userEvents.writeBehind.flushed.rows')
+            droppedRowsCounter = meterRegistry.counter('skills.userEvents.writeBehind.dropped.rows')
+            Gauge.builder('skills.userEvents.writeBehind.buffered.rows', counts, { Map map -> (double) map.size() })
+                    .register(meterRegistry)
+
+            scheduler = Executors.newSingleThreadScheduledExecutor({ Runnable r ->
+                Thread t = new Thread(r, 'user-events-write-behind')
+                t.daemon = true
+                return t
+            })
+            scheduler.scheduleWithFixedDelay({ flushQuietly() } as Runnable, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS)
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler) {
+            scheduler.shutdown()
+            scheduler.awaitTermination(30, TimeUnit.SECONDS)
+            log.info("Flushing [{}] buffered user events on shutdown", counts.size())
+            flushQuietly()
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled
+    }
+
+    void add(String projectId, Integer skillRefId, String userId, Date eventTime, EventType eventType, Integer eventCount) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCommit() {
+                    addNow(projectId, skillRefId, userId, eventTime, eventType, eventCount)
+                }
+            })
+            return
+        }
+        addNow(projectId, skillRefId, userId, eventTime, eventType, eventCount)
+    }
+
+    void addNow(String projectId, Integer skillRefId, String userId, Date eventTime, EventType eventType, Integer eventCount) {
+        counts.merge(new UserEventKey(projectId, skillRefId, userId, eventTime, eventType), eventCount, { Integer a, Integer b -> a + b })
+        if (counts.size() >= maxBufferedKeys && !scheduler.isShutdown() && earlyFlushRequested.compareAndSet(false, true)) {
+            scheduler.execute({ flushQuietly() } as Runnable)
+        }
+    }
+
+    /**
+     * Writes all currently buffered counts to the database; safe to call concurrently with add().
+     * Called before operations that read or mutate user_events so they observe every recorded event.
+     */
+    void flush() {
+        if (!enabled) {
+            return
+        }
+        synchronized (flushLock) {
+            earlyFlushRequested.set(false)
+            List<UserEventKey> keys = new ArrayList<>(counts.keySet()).sort()
+            if (!keys) {
+                return
+            }
+            long start = System.nanoTime()
+            keys.collate(flushBatchSize).each { List<UserEventKey> chunk ->
+                List<UserEventCount> rows = []
+                chunk.each { UserEventKey key ->
+                    // remove is atomic with merge, so any count added after this point will be picked up by the next flush
+                    Integer count = counts.remove(key)
+                    if (count) {
+                        rows.add(new UserEventCount(projectId: key.projectId, skillRefId: key.skillRefId, userId: key.userId,
+                                eventTime: key.eventTime, eventType: key.eventType.toString(), count: count,
+                                weekNumber: WeekNumberUtil.getWeekNumber(key.eventTime)))
+                    }
+                }
+                writeRows(rows)
+            }
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+        }
+    }
+
+    private void writeRows(List<UserEventCount> rows) {
+        try {
+            transactionTemplate.executeWithoutResult { postgresQlNativeRepo.createOrUpdateUserEvents(rows) }
+            flushedRowsCounter.increment(rows.size())
+        } catch (Throwable t) {
+            // most likely a row referencing a skill, project or user removed since the event was buffered;
+            // write rows one at a time so only the offending rows are dropped
+            log.warn("Failed to flush [${rows.size()}] user events as a batch, retrying row by row. Error: [${t.message}]")
+            rows.each { UserEventCount row ->
+                try {
+                    transactionTemplate.executeWithoutResult { postgresQlNativeRepo.createOrUpdateUserEvents([row]) }
+                    flushedRowsCounter.increment()
+                } catch (Throwable rowFailure) {
+                    droppedRowsCounter.increment()
+                    log.warn("Dropping buffered user event [projectId=${row.projectId}, skillRefId=${row.skillRefId}, userId=${row.userId}, eventTime=${row.eventTime}, count=${row.count}]. Error: [${rowFailure.message}]")
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush()
+        } catch (Throwable t) {
+            log.error("Failed to flush buffered user events", t)
+        }
+    }
+}
@@ -122,6 +122,9 @@ class BadgeAdminService {
     @Autowired
     SettingsService settingsService
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Transactional()
     void saveBadge(String projectId, String originalBadgeId, BadgeRequest badgeRequest, SkillDef.ContainerType type = SkillDef.ContainerType.Badge, boolean performCustomValidation=true) {
         if (performCustomValidation && projectId) {
@@ -171,6 +174,7 @@ class BadgeAdminService {
             if (!Boolean.valueOf(skillDefinition.enabled) && Boolean.valueOf(badgeRequest.enabled)) {
                 identifyEligibleUsers = true
             }
+            badgeDefinitionsChanged(skillDefinition)
             Props.copy(badgeRequest, skillDefinition)
             skillDefinition.skillId = badgeRequest.badgeId
         } else {
@@ -293,6 +297,7 @@ class BadgeAdminService {
         assert badgeDefinition, "DELETE FAILED -> no badge with project id [$projectId] and badge id [$badgeId]"
         assert badgeDefinition.type == type
 
+        badgeDefinitionsChanged(badgeDefinition)
         ruleSetDefGraphService.deleteSkillWithItsDescendants(badgeDefinition)
 
         if (projectId == null) {
@@ -483,6 +488,22 @@ class BadgeAdminService {
         return res
     }
 
+    /**
+     * Badge requirements used when reporting skill events are cached by the projects of the badge's skills and
+     * project levels (see BadgeRequirementsIndex). Projects that no longer feed the badge, for example after a
+     * requirement was removed, must be supplied via removedFromProjectIds.
+     */
+    void badgeDefinitionsChanged(SkillDefParent badge, Collection<String> removedFromProjectIds = []) {
+        if (badge.projectId) {
+            skillDefinitionCache.definitionsChanged(badge.projectId)
+            return
+        }
+        Set<String> projectIds = new HashSet<>(getRequiredBadgeSkills(badge.id).collect { it.projectId })
+        projectIds.addAll(globalBadgeLevelDefRepo.findAllByBadgeId(badge.skillId).collect { it.projectId })
+        projectIds.addAll(removedFromProjectIds)
+        projectIds.each { skillDefinitionCache.definitionsChanged(it) }
+    }
+
     private List<SkillDef> getRequiredBadgeSkills(Integer badgeId) {
         return skillDefRepo.findChildSkillsByIdAndRelationshipType(badgeId, SkillRelDef.RelationshipType.BadgeRequirement)
     }
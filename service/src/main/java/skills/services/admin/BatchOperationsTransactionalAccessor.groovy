@@ -27,8 +27,12 @@ import skills.services.RuleSetDefinitionScoreUpdater
 import skills.services.UserAchievementsAndPointsManagement
 import skills.services.settings.Settings
 import skills.services.settings.SettingsService
+import skills.services.SkillDefinitionCache
+import skills.services.events.UserSkillStateCache
+import skills.skillLoading.LeaderboardRankIndex
 import skills.storage.model.SkillDef
 import skills.storage.model.SkillRelDef
+import skills.storage.repos.ExpiredUserAchievementRepo
 import skills.storage.repos.SkillDefRepo
 import skills.storage.repos.SkillRelDefRepo
 import skills.storage.repos.UserAchievedLevelRepo
@@ -41,6 +45,9 @@ import skills.storage.repos.nativeSql.PostgresQlNativeRepo
 @Slf4j
 class BatchOperationsTransactionalAccessor {
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     SkillDefRepo skillDefRepo
 
@@ -80,6 +87,15 @@ class BatchOperationsTransactionalAccessor {
     @Autowired
     UserCommunityService userCommunityService
 
+    @Autowired
+    LeaderboardRankIndex leaderboardRankIndex
+
+    @Autowired
+    UserSkillStateCache userSkillStateCache
+
+    @Autowired
+    ExpiredUserAchievementRepo expiredUserAchievementRepo
+
     @Transactional
     @Profile
     void enableSkills(List<SkillDef> disabledImportedSkills) {
@@ -87,6 +103,7 @@ class BatchOperationsTransactionalAccessor {
             it.enabled = Boolean.TRUE.toString()
         }
         skillDefRepo.saveAll(disabledImportedSkills)
+        disabledImportedSkills.collect { it.projectId }.unique().each { skillDefinitionCache.definitionsChanged(it) }
     }
 
     /**
@@ -129,6 +146,7 @@ class BatchOperationsTransactionalAccessor {
     @Transactional
     @Profile
     void updateSubjectTotalPoints(String projectId, String subjectId, Boolean enabledSkillsOnly = false) {
+        skillDefinitionCache.definitionsChanged(projectId)
         ruleSetDefinitionScoreUpdater.updateSubjectTotalPoints(projectId, subjectId, enabledSkillsOnly)
     }
 
@@ -136,12 +154,14 @@ class BatchOperationsTransactionalAccessor {
     @Transactional
     @Profile
     void updateGroupTotalPoints(String projectId, String groupId, Boolean enabledSkillsOnly = false) {
+        skillDefinitionCache.definitionsChanged(projectId)
         ruleSetDefinitionScoreUpdater.updateGroupTotalPoints(projectId, groupId, enabledSkillsOnly)
     }
 
     @Transactional
     @Profile
     void updateProjectsTotalPoints(String projectId, Boolean enabledSkillsOnly = false) {
+        skillDefinitionCache.definitionsChanged(projectId)
         skillDefRepo.updateProjectsTotalPoints(projectId, enabledSkillsOnly)
     }
 
@@ -180,6 +200,7 @@ class BatchOperationsTransactionalAccessor {
     @Transactional
     @Profile
     Integer createSubjectUserPointsForTheNewUsers(String toProjectId, String toSubjectId) {
+        leaderboardRankIndex.invalidate(toProjectId)
         log.info("Creating UserPoints for the new users for [{}-{}] subject", toProjectId, toSubjectId)
         int numRows = userPointsRepo.createSubjectUserPointsForTheNewUsers(toProjectId, toSubjectId)
         log.info("Created [{}] UserPoints for the new users for [{}-{}] subject", numRows, toProjectId, toSubjectId)
@@ -191,6 +212,7 @@ class BatchOperationsTransactionalAccessor {
     @Transactional
     @Profile
     Integer createSubjectUserPointsForSingleNewUser(String userId, String toProjectId, String toSubjectId) {
+        leaderboardRankIndex.invalidate(toProjectId)
         log.info("Creating UserPoints for the new users for [{}-{}] subject", toProjectId, toSubjectId)
         int numRows = userPointsRepo.createSubjectUserPointsForSingleNewUser(userId, toProjectId, toSubjectId)
         log.info("Created [{}] UserPoints for the new users for [{}-{}] subject", numRows, toProjectId, toSubjectId)
@@ -259,6 +281,7 @@ class BatchOperationsTransactionalAccessor {
     @Transactional
     @Profile
     void updateUserPointsForSubject(String projectId, String subjectId, Boolean enabledSkillsOnly = false) {
+        leaderboardRankIndex.invalidate(projectId)
         log.info("Updating UserPoints for subject: projectId=[{}], subjectId=[{}]", projectId, subjectId)
         PostgresQlNativeRepo.updateUserPointsForSubject(projectId, subjectId, enabledSkillsOnly)
         log.info("Completed updating UserPoints for subject: projectId=[{}], subjectId=[{}]", projectId, subjectId)
@@ -332,6 +355,7 @@ class BatchOperationsTransactionalAccessor {
     @Transactional
     @Profile
     void createProjectUserPointsForTheNewUsers(String toProjectId) {
+        leaderboardRankIndex.invalidate(toProjectId)
         log.info("Creating UserPoints for the new users for [{}] project", toProjectId)
         userPointsRepo.createProjectUserPointsForTheNewUsers(toProjectId)
         log.info("Competed creating UserPoints for the new users for [{}] project", toProjectId)
@@ -340,6 +364,7 @@ class BatchOperationsTransactionalAccessor {
     @Transactional
     @Profile
     void createProjectUserPointsForSingleNewUser(String userId, String toProjectId) {
+        leaderboardRankIndex.invalidate(toProjectId)
         log.info("Creating UserPoints for the new users for [{}] project for user [{}]", toProjectId, userId)
         userPointsRepo.createProjectUserPointsForSingleNewUser(userId, toProjectId)
         log.info("Competed creating UserPoints for the new users for [{}] project for user [{}]", toProjectId, userId)
@@ -348,6 +373,7 @@ class BatchOperationsTransactionalAccessor {
     @Transactional
     @Profile
     void updateUserPointsForProject(String projectId) {
+        leaderboardRankIndex.invalidate(projectId)
         log.info("Updating UserPoints for the existing users for [{}] project", projectId)
         PostgresQlNativeRepo.updateUserPointsForProject(projectId)
         log.info("Completed updating UserPoints for the existing users for [{}] project", projectId)
@@ -372,6 +398,8 @@ class BatchOperationsTransactionalAccessor {
     @Transactional
     @Profile
     void batchRemovePerformedSkillsForUserAndSpecificSkills(String userId, String projectId, List<Integer> skillRefIds) {
+        leaderboardRankIndex.invalidate(projectId)
+        userSkillStateCache.userChanged(userId)
         userPerformedSkillRepo.deleteAllByUserIdAndSkillRefIdIn(userId, skillRefIds)
         userEventsRepo.deleteAllByUserIdAndSkillRefIdIn(userId, skillRefIds)
         userPointsRepo.deleteAllByUserIdAndSkillRefIdIn(userId, skillRefIds)
@@ -387,6 +415,44 @@ class BatchOperationsTransactionalAccessor {
         userAchievementsAndPointsManagement.removeProjectLevelAchievementsIfUserDoesNotQualify(userId, projectId)
     }
 
+    /**
+     * Set-based counterpart of removing every event of a skill one by one for the given users: moves their
+     * achievements of the skill to expired_user_achievement, deletes their events and points for the skill and
+     * adjusts subject/project points, levels, group and badge achievements with a fixed number of statements
+     * regardless of the number of users. Each call commits on its own so that large expirations are applied in chunks.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    @Profile
+    void expireSkillAchievementsAndRemoveEventsForUsers(SkillDef skill, List<String> userIds) {
+        String projectId = skill.projectId
+        leaderboardRankIndex.invalidate(projectId)
+        userSkillStateCache.projectChanged(projectId)
+        SkillDef subject = ruleSetDefGraphService.getMySubjectParent(skill.id)
+
+        expiredUserAchievementRepo.expireAchievementsForSkillAndUsers(skill.id, userIds)
+        userPointsRepo.subtractSkillPointsFromSubjectAndProjectForUsers(projectId, subject.id, skill.id, userIds)
+        userPointsRepo.deleteAllBySkillRefIdAndUserIdIn(skill.id, userIds)
+        userPointsRepo.deleteNonPositivePointsForUsers(projectId, userIds)
+        int numEventsRemoved = userPerformedSkillRepo.deleteAllBySkillRefIdAndUserIdIn(skill.id, userIds)
+        userEventsRepo.deleteAllBySkillRefIdAndUserIdIn(skill.id, userIds)
+
+        List<Integer> achievementsToRemove = []
+        SkillDef group = ruleSetDefGraphService.getMyGroupParent(skill.id)
+        if (group) {
+            achievementsToRemove.add(group.id)
+        }
+        List<SkillDef> badges = skillRelDefRepo.findParentByChildIdInAndTypes([skill.id], SkillDef.ContainerType.Badge, [SkillRelDef.RelationshipType.BadgeRequirement])
+        achievementsToRemove.addAll(badges.findAll { BadgeUtils.withinActiveTimeframe(it) }.collect { it.id })
+        achievementsToRemove.addAll(skillRelDefRepo.getGlobalBadgeIdsForSkills([skill.id]))
+        if (achievementsToRemove) {
+            userAchievedLevelRepo.deleteAllBySkillRefIdInAndUserIdIn(achievementsToRemove.unique(), userIds)
+        }
+
+        userAchievementsAndPointsManagement.removeSubjectLevelAchievementsIfTheseUsersDoNotQualify(userIds, subject)
+        userAchievementsAndPointsManagement.removeProjectLevelAchievementsIfTheseUsersDoNotQualify(userIds, projectId)
+        log.info("Expired achievements and removed [{}] events of [{}] users for skill [{}-{}]", numEventsRemoved, userIds.size(), projectId, skill.skillId)
+    }
+
     @Profile
     private void removeGlobalBadgeAchievementsForSkillsAndSpecificUser(List<Integer> skillRefIds, String userId) {
         List<Integer> badgesSkillIsUsedIn = skillRelDefRepo.getGlobalBadgeIdsForSkills(skillRefIds)
@@ -21,7 +21,6 @@ import skills.controller.result.model.DependencyCheckResult
 import skills.controller.result.model.SkillDefGraphRes
 import skills.controller.result.model.SkillsGraphRes
 import skills.storage.model.SkillDef
-import skills.utils.Props
 
 class CircularLearningPathChecker {
 
@@ -146,11 +145,20 @@ class CircularLearningPathChecker {
         // when following all of badges for a given skill, keep track which badge Id is follow
         String circularCheckBadgeLoadedDueToPreviousSkillFollowingRouteOfBadgeId = null
 
+        // called for every step of the walk, so fields are copied explicitly rather than reflectively
         @Override
         protected Object clone() throws CloneNotSupportedException {
-            SkillInfo copy = new SkillInfo()
-            Props.copy(this, copy)
-            return copy
+            return new SkillInfo(
+                    projectId: projectId,
+                    skillId: skillId,
+                    name: name,
+                    type: type,
+                    belongsToBadge: belongsToBadge,
+                    belongsToBadgeId: belongsToBadgeId,
+                    circularCheckProvidedBecauseFollowingSkillsUnderBadge: circularCheckProvidedBecauseFollowingSkillsUnderBadge,
+                    circularCheckBadgeLoadedDueToPreviousSkill: circularCheckBadgeLoadedDueToPreviousSkill,
+                    circularCheckBadgeLoadedDueToPreviousSkillFollowingRouteOfBadgeId: circularCheckBadgeLoadedDueToPreviousSkillFollowingRouteOfBadgeId,
+            )
         }
     }
     @Profile
@@ -160,10 +168,11 @@ class CircularLearningPathChecker {
             return new DependencyCheckResult()
         }
 
+        Map<Integer, SkillDefGraphRes> nodesById = existingGraph.nodes.collectEntries { [(it.id): it] }
         List<SkillDefGraphResPair> edgePairs = existingGraph.edges.collect { SkillsGraphRes.Edge edge ->
             new SkillDefGraphResPair(
-                    node: existingGraph.nodes.find { it.id == edge.fromId },
-                    prerequisite: existingGraph.nodes.find { it.id == edge.toId },
+                    node: nodesById.get(edge.fromId),
+                    prerequisite: nodesById.get(edge.toId),
             )
         }
         if (performAlreadyExistCheck) {
@@ -0,0 +1,264 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.admin
+
+import groovy.transform.CompileStatic
+import skills.storage.model.SkillDef
+import skills.storage.repos.SkillRelDefRepo
+
+/**
+ * Id-indexed (SkillDef.id) adjacency representation of a project's learning path together with the project's badge
+ * membership and a topological order of the learning path items (prerequisites are always ordered before their
+ * dependents). The order is maintained incrementally as prerequisites are added (Pearce-Kelly), so only the items
+ * between the two ends of a new prerequisite are ever visited.
+ *
+ * {@link #checkAddition} answers the common case - a skill-to-skill prerequisite that neither creates a circular
+ * learning path nor reaches any badge on the path - and leaves everything else (existing prerequisite, cycles, badge
+ * rules, cross-project items) to {@link CircularLearningPathChecker}, which produces the detailed failure results.
+ *
+ * Instances are not thread-safe on their own, {@link LearningPathGraphCache} synchronizes on the graph.
+ */
+@CompileStatic
+class LearningPathGraph {
+
+    static class Node {
+        Integer refId
+        String projectId
+        String skillId
+        SkillDef.ContainerType type
+    }
+
+    static enum AdditionCheck {
+        NoCycle, FullCheckRequired
+    }
+
+    final String projectId
+
+    private final Map<Integer, Node> nodes = [:]
+    private final Map<Integer, Set<Integer>> prerequisites = [:]
+    private final Map<Integer, Set<Integer>> dependents = [:]
+    private final Map<Integer, Set<Integer>> badgesBySkill = [:]
+    private int numBadgeNodes = 0
+
+    private final Map<Integer, Integer> order = [:]
+    private int nextOrder = 0
+    // false when the stored learning path already has a cycle, every check then goes through the full checker
+    private boolean ordered = true
+
+    // identifies the relationships this graph was built from, see SkillRelDefRepo.getRelationshipsSignature
+    private long numRelationships
+    private Integer maxRelationshipId
+
+    LearningPathGraph(String projectId) {
+        this.projectId = projectId
+    }
+
+    static LearningPathGraph build(String projectId,
+                                   SkillRelDefRepo.RelationshipsSignature signature,
+                                   List<SkillRelDefRepo.LearningPathEdge> dependencies,
+                                   List<SkillRelDefRepo.LearningPathEdge> badgeRequirements) {
+        LearningPathGraph graph = new LearningPathGraph(projectId)
+        dependencies.each { SkillRelDefRepo.LearningPathEdge edge ->
+            Integer dependent = graph.addNode(edge.parentRefId, edge.parentProjectId, edge.parentSkillId, edge.parentType)
+            Integer prerequisite = graph.addNode(edge.childRefId, edge.childProjectId, edge.childSkillId, edge.childType)
+            graph.link(dependent, prerequisite)
+        }
+        badgeRequirements.each { SkillRelDefRepo.LearningPathEdge edge ->
+            graph.badgesBySkill.computeIfAbsent(edge.childRefId, { new HashSet<Integer>() }).add(edge.parentRefId)
+        }
+        graph.computeOrder()
+        graph.numRelationships = signature.numRelationships ?: 0L
+        graph.maxRelationshipId = signature.maxRelationshipId
+        return graph
+    }
+
+    boolean matches(SkillRelDefRepo.RelationshipsSignature signature) {
+        long num = signature.numRelationships ?: 0L
+        return numRelationships == num && maxRelationshipId == signature.maxRelationshipId
+    }
+
+    AdditionCheck checkAddition(Node dependent, Node prerequisite) {
+        if (!ordered || dependent.type == SkillDef.ContainerType.Badge || prerequisite.type == SkillDef.ContainerType.Badge) {
+            return AdditionCheck.FullCheckRequired
+        }
+        if (prerequisites.get(dependent.refId)?.contains(prerequisite.refId)) {
+            return AdditionCheck.FullCheckRequired
+        }
+        if (numBadgeNodes > 0) {
+            return checkPrerequisitesWithoutBadges(dependent, prerequisite)
+        }
+
+        Integer dependentOrder = order.get(dependent.refId)
+        Integer prerequisiteOrder = order.get(prerequisite.refId)
+        if (dependentOrder == null || prerequisiteOrder == null || prerequisiteOrder < dependentOrder) {
+            return AdditionCheck.NoCycle
+        }
+        // prerequisite is currently ordered after the dependent: a cycle only if it already (transitively) depends on it
+        Set<Integer> visited = new HashSet<>()
+        boolean reachesPrerequisite = !collect(dependent.refId, dependents, visited, prerequisite.refId) { Integer id -> order.get(id) <= prerequisiteOrder }
+        return reachesPrerequisite ? AdditionCheck.FullCheckRequired : AdditionCheck.NoCycle
+    }
+
+    /**
+     * With badges on the learning path, badge rules only come into play if the walk from the new prerequisite meets
+     * a badge or a skill of a badge on the path. Walks all (transitive) prerequisites of the new prerequisite.
+     */
+    private AdditionCheck checkPrerequisitesWithoutBadges(Node dependent, Node prerequisite) {
+        Set<Integer> visited = new HashSet<>()
+        Deque<Integer> toVisit = new ArrayDeque<>()
+        toVisit.push(prerequisite.refId)
+        while (!toVisit.isEmpty()) {
+            Integer id = toVisit.pop()
+            if (!visited.add(id)) {
+                continue
+            }
+            if (id == dependent.refId) {
+                return AdditionCheck.FullCheckRequired
+            }
+            Node node = nodes.get(id) ?: prerequisite
+            if (node.type == SkillDef.ContainerType.Badge || node.projectId != projectId || isInBadgeOnPath(id)) {
+                return AdditionCheck.FullCheckRequired
+            }
+            prerequisites.get(id)?.each { Integer next -> toVisit.push(next) }
+        }
+        return AdditionCheck.NoCycle
+    }
+
+    private boolean isInBadgeOnPath(Integer skillRefId) {
+        Set<Integer> badges = badgesBySkill.get(skillRefId)
+        return badges && badges.any { Integer badgeRefId -> nodes.containsKey(badgeRefId) }
+    }
+
+    void addEdge(Node dependent, Node prerequisite, Integer relationshipId) {
+        Integer dependentId = addNode(dependent.refId, dependent.projectId, dependent.skillId, dependent.type)
+        Integer prerequisiteId = addNode(prerequisite.refId, prerequisite.projectId, prerequisite.skillId, prerequisite.type)
+        link(dependentId, prerequisiteId)
+        if (ordered) {
+            reorder(dependentId, prerequisiteId)
+        }
+        numRelationships++
+        if (maxRelationshipId == null || relationshipId > maxRelationshipId) {
+            maxRelationshipId = relationshipId
+        }
+    }
+
+    private Integer addNode(Integer refId, String nodeProjectId, String skillId, SkillDef.ContainerType type) {
+        if (!nodes.containsKey(refId)) {
+            nodes.put(refId, new Node(refId: refId, projectId: nodeProjectId, skillId: skillId, type: type))
+            if (type == SkillDef.ContainerType.Badge) {
+                numBadgeNodes++
+            }
+            // a new item has no prerequisites yet, it can go anywhere in the order
+            order.put(refId, nextOrder++)
+        }
+        return refId
+    }
+
+    private void link(Integer dependent, Integer prerequisite) {
+        prerequisites.computeIfAbsent(dependent, { new HashSet<Integer>() }).add(prerequisite)
+        dependents.computeIfAbsent(prerequisite, { new HashSet<Integer>() }).add(dependent)
+    }
+
+    // Kahn's algorithm, prerequisites first
+    private void computeOrder() {
+        Map<Integer, Integer> numRemainingPrerequisites = [:]
+        Deque<Integer> ready = new ArrayDeque<>()
+        nodes.keySet().each { Integer id ->
+            int num = prerequisites.get(id)?.size() ?: 0
+            numRemainingPrerequisites.put(id, num)
+            if (num == 0) {
+                ready.add(id)
+            }
+        }
+        order.clear()
+        nextOrder = 0
+        while (!ready.isEmpty()) {
+            Integer id = ready.poll()
+            order.put(id, nextOrder++)
+            dependents.get(id)?.each { Integer dependent ->
+                int remaining = numRemainingPrerequisites.get(dependent) - 1
+                numRemainingPrerequisites.put(dependent, remaining)
+                if (remaining == 0) {
+                    ready.add(dependent)
+                }
+            }
+        }
+        ordered = order.size() == nodes.size()
+        if (!ordered) {
+            // keep every node addressable, the order is simply not used anymore
+            nodes.keySet().each { Integer id -> order.putIfAbsent(id, nextOrder++) }
+        }
+    }
+
+    // Pearce-Kelly: only the items ordered between the two ends of the new prerequisite are shifted
+    private void reorder(Integer dependent, Integer prerequisite) {
+        int lowerBound = order.get(dependent)
+        int upperBound = order.get(prerequisite)
+        if (upperBound < lowerBound) {
+            return
+        }
+        Set<Integer> forward = new HashSet<>()
+        if (!collect(dependent, dependents, forward, prerequisite) { Integer id -> order.get(id) <= upperBound }) {
+            ordered = false
+            return
+        }
+        Set<Integer> backward = new HashSet<>()
+        collect(prerequisite, prerequisites, backward, null) { Integer id -> order.get(id) >= lowerBound }
+
+        List<Integer> backwardSorted = backward.sort(false) { Integer id -> order.get(id) }
+        List<Integer> forwardSorted = forward.sort(false) { Integer id -> order.get(id) }
+        List<Integer> slots = (backward + forward).collect { Integer id -> order.get(id) }.sort()
+        int slot = 0
+        (backwardSorted + forwardSorted).each { Integer id -> order.put(id, slots.get(slot++)) }
+    }
+
+    /**
+     * Depth-first walk from start over the given adjacency, limited to the items accepted by withinBounds.
+     * @return false if stopAt was reached
+     */
+    private static boolean collect(Integer start, Map<Integer, Set<Integer>> adjacency, Set<Integer> visited, Integer stopAt,
+                                   Closure<Boolean> withinBounds) {
+        Deque<Integer> toVisit = new ArrayDeque<>()
+        toVisit.push(start)
+        while (!toVisit.isEmpty()) {
+            Integer id = toVisit.pop()
+            if (id == stopAt) {
+                return false
+            }
+            if (!visited.add(id)) {
+                continue
+            }
+            adjacency.get(id)?.each { Integer next ->
+                if (!visited.contains(next) && withinBounds.call(next)) {
+                    toVisit.push(next)
+                }
+            }
+        }
+        return true
+    }
+
+    int getNumNodes() {
+        return nodes.size()
+    }
+
+    boolean isOrdered() {
+        return ordered
+    }
+
+    boolean isOrderedBefore(Integer refId, Integer otherRefId) {
+        return order.get(refId) < order.get(otherRefId)
+    }
+}
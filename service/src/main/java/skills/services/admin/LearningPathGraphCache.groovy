@@ -0,0 +1,148 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.admin
+
+import callStack.profiler.Profile
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import jakarta.annotation.PostConstruct
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import skills.storage.model.SkillDef
+import skills.storage.model.SkillRelDef
+import skills.storage.repos.SkillRelDefRepo
+
+/**
+ * Per project {@link LearningPathGraph}s used by {@link SkillsDepsService} to skip the full circular learning path
+ * check when a new prerequisite can not possibly violate any of the learning path rules.
+ *
+ * Every lookup first compares the graph against the project's relationships signature (number and max id of the
+ * learning path and badge relationships), so learning path and badge changes made anywhere - other nodes, deleted
+ * skills, rolled back transactions - cause the graph to be rebuilt rather than a stale graph to be used.
+ * Prerequisites added through {@link SkillsDepsService} are applied to the cached graph once their transaction
+ * commits.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class LearningPathGraphCache {
+
+    static final String CACHE_NAME = 'skills.learningPath.graphs'
+    private static final List<SkillRelDef.RelationshipType> SIGNATURE_TYPES = [SkillRelDef.RelationshipType.Dependence, SkillRelDef.RelationshipType.BadgeRequirement]
+
+    @Value('#{"${skills.learningPath.graphCache.enabled:true}"}')
+    Boolean enabled = true
+
+    @Value('#{"${skills.learningPath.graphCache.maxProjects:1000}"}')
+    long maxProjects = 1000
+
+    @Autowired
+    SkillRelDefRepo skillRelDefRepo
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    private Cache<String, LearningPathGraph> cache
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            log.info("Enabling learning path graph cache: maxProjects=[{}]", maxProjects)
+            cache = Caffeine.newBuilder()
+                    .maximumSize(maxProjects)
+                    .recordStats()
+                    .build()
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME)
+        }
+    }
+
+    /**
+     * @return true if adding prereqSkillDef as a prerequisite of skillDef can not create a circular learning path or
+     * violate any of the badge rules; false means that the full check must be performed
+     */
+    @Profile
+    boolean canAddWithoutFullCheck(SkillDef skillDef, SkillDef prereqSkillDef) {
+        if (!enabled) {
+            return false
+        }
+        LearningPathGraph graph = getGraph(skillDef.projectId)
+        synchronized (graph) {
+            return graph.checkAddition(toNode(skillDef), toNode(prereqSkillDef)) == LearningPathGraph.AdditionCheck.NoCycle
+        }
+    }
+
+    void edgeAdded(SkillDef skillDef, SkillDef prereqSkillDef, Integer relationshipId) {
+        if (!enabled) {
+            return
+        }
+        LearningPathGraph.Node dependent = toNode(skillDef)
+        LearningPathGraph.Node prerequisite = toNode(prereqSkillDef)
+        Closure apply = {
+            LearningPathGraph graph = cache.getIfPresent(skillDef.projectId)
+            if (graph) {
+                synchronized (graph) {
+                    graph.addEdge(dependent, prerequisite, relationshipId)
+                }
+            }
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCommit() {
+                    apply.call()
+                }
+            })
+        } else {
+            apply.call()
+        }
+    }
+
+    void invalidate(String projectId) {
+        if (enabled) {
+            cache.invalidate(projectId)
+        }
+    }
+
+    @Profile
+    private LearningPathGraph getGraph(String projectId) {
+        SkillRelDefRepo.RelationshipsSignature signature = skillRelDefRepo.getRelationshipsSignature(projectId, SIGNATURE_TYPES)
+        LearningPathGraph graph = cache.getIfPresent(projectId)
+        boolean upToDate = false
+        if (graph) {
+            synchronized (graph) {
+                upToDate = graph.matches(signature)
+            }
+        }
+        if (!upToDate) {
+            graph = LearningPathGraph.build(projectId, signature,
+                    skillRelDefRepo.findLearningPathEdges(projectId, SkillRelDef.RelationshipType.Dependence),
+                    skillRelDefRepo.findLearningPathEdges(projectId, SkillRelDef.RelationshipType.BadgeRequirement))
+            cache.put(projectId, graph)
+        }
+        return graph
+    }
+
+    private static LearningPathGraph.Node toNode(SkillDef skillDef) {
+        return new LearningPathGraph.Node(refId: skillDef.id, projectId: skillDef.projectId, skillId: skillDef.skillId, type: skillDef.type)
+    }
+}
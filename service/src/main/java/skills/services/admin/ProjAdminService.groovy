@@ -42,6 +42,8 @@ import skills.services.userActions.DashboardAction
 import skills.services.userActions.DashboardItem
 import skills.services.userActions.UserActionInfo
 import skills.services.userActions.UserActionsHistoryService
+import skills.services.SkillDefinitionCache
+import skills.skillLoading.LeaderboardRankIndex
 import skills.storage.accessors.ProjDefAccessor
 import skills.storage.model.*
 import skills.storage.model.auth.RoleName
@@ -61,6 +63,9 @@ class ProjAdminService {
     static final String keepInCatalogSetting = "keep_in_catalog"
     public static final String PINNED = "pinned"
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     ProjDefRepo projDefRepo
 
@@ -142,6 +147,9 @@ class ProjAdminService {
     @Autowired
     ArchivedUsersRepo archivedUserRepo
 
+    @Autowired
+    LeaderboardRankIndex leaderboardRankIndex
+
     @Transactional()
     void saveProject(String originalProjectId, ProjectRequest projectRequest, String userIdParam = null) {
         assert projectRequest?.projectId
@@ -160,6 +168,9 @@ class ProjAdminService {
         final boolean isEdit = projectDefinition
         String previousName = projectDefinition?.name
         String previousProjId = projectDefinition?.projectId
+        if (previousProjId) {
+            skillDefinitionCache.definitionsChanged(previousProjId)
+        }
 
         ProjDefParent savedProjDef
         if (isEdit) {
@@ -289,6 +300,8 @@ class ProjAdminService {
         }
 
         projDefRepo.deleteByProjectIdIgnoreCase(projectId)
+        leaderboardRankIndex.invalidate(projectId)
+        skillDefinitionCache.evict(projectId)
         log.debug("Deleted project with id [{}]", projectId)
 
         userActionsHistoryService.saveUserAction(new UserActionInfo(
@@ -755,6 +768,7 @@ class ProjAdminService {
 
     @Transactional
     void archiveUsers(String projectId, ArchiveUsersRequest archiveUsersRequest) {
+        leaderboardRankIndex.invalidate(projectId)
         archivedUserRepo.saveAll(archiveUsersRequest.userIds.collect { new ArchivedUser(projectId: projectId, userId: it) })
         userActionsHistoryService.saveUserActions(archiveUsersRequest.userIds.collect { userId ->
             return new UserActionInfo(
@@ -767,6 +781,7 @@ class ProjAdminService {
 
     @Transactional
     void restoreArchiveUser(String projectId, String userId) {
+        leaderboardRankIndex.invalidate(projectId)
         ArchivedUser archivedUser = archivedUserRepo.findByProjectIdAndUserId(projectId, userId)
         assert archivedUser, "RESTORE FAILED -> no archived user found for projectId [$projectId], userId [$userId] and roleName [$roleName]"
 
@@ -28,6 +28,7 @@ import skills.services.attributes.SkillAttributeService
 import skills.services.events.SkillDate
 import skills.services.events.pointsAndAchievements.ImportedSkillsAchievementsHandler
 import skills.services.settings.SettingsService
+import skills.services.SkillDefinitionCache
 import skills.storage.accessors.ProjDefAccessor
 import skills.storage.model.SkillDef
 import skills.storage.model.SkillDefMin
@@ -42,6 +43,9 @@ import skills.tasks.config.TaskConfig
 @Slf4j
 class SkillCatalogFinalizationService {
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     ProjDefAccessor projDefAccessor
 
@@ -163,6 +167,9 @@ class SkillCatalogFinalizationService {
         } catch (Throwable t) {
             updateState(projectId, FinalizeState.FAILED)
             throw new TaskConfig.DoNotRetryAsyncTaskException("Failed to finalize [${projectId}] project", t)
+        } finally {
+            // statements above commit one at a time, so only bump the definitions version once all of them are written
+            skillDefinitionCache.definitionsChanged(projectId)
         }
 
         long end = System.currentTimeMillis()
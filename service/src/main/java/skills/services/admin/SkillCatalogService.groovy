@@ -43,6 +43,7 @@ import skills.services.userActions.DashboardAction
 import skills.services.userActions.DashboardItem
 import skills.services.userActions.UserActionInfo
 import skills.services.userActions.UserActionsHistoryService
+import skills.services.SkillDefinitionCache
 import skills.storage.accessors.ProjDefAccessor
 import skills.storage.accessors.SkillDefAccessor
 import skills.storage.model.*
@@ -66,6 +67,9 @@ class SkillCatalogService {
     @Value('#{"${skills.config.ui.maxSkillsPerSubject}"}')
     int maxSubjectSkills
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     ExportedSkillRepo exportedSkillRepo
 
@@ -312,7 +316,9 @@ class SkillCatalogService {
         return maxValue + 1
     }
 
+    @Transactional
     void importSkillFromCatalog(String projectIdFrom, String skillIdFrom, String projectIdTo, SkillDef subjectTo, String groupId, boolean isReusedSkill = false) {
+        skillDefinitionCache.definitionsChanged(projectIdTo)
         if (!isReusedSkill) {
             boolean inCatalog = isAvailableInCatalog(projectIdFrom, skillIdFrom)
             SkillsValidator.isTrue(inCatalog, "Skill [${skillIdFrom}] from project [${projectIdFrom}] has not been shared to the catalog and may not be imported")
@@ -376,6 +382,7 @@ class SkillCatalogService {
     @Transactional
     @Profile
     void importSkillsFromCatalog(String projectIdTo, String subjectIdTo, List<CatalogSkill> listOfSkills, String groupIdTo = null, boolean isReusedSkill = false) {
+        skillDefinitionCache.definitionsChanged(projectIdTo)
         if (skillCatalogFinalizationService.getCurrentState(projectIdTo) == SkillCatalogFinalizationService.FinalizeState.RUNNING) {
             throw new SkillException("Cannot import skills in the middle of the finalization process", projectIdTo)
         }
@@ -48,6 +48,7 @@ import skills.services.userActions.DashboardAction
 import skills.services.userActions.DashboardItem
 import skills.services.userActions.UserActionInfo
 import skills.services.userActions.UserActionsHistoryService
+import skills.services.SkillDefinitionCache
 import skills.skillLoading.SkillsLoader
 import skills.storage.accessors.SkillDefAccessor
 import skills.storage.model.*
@@ -60,6 +61,9 @@ import skills.utils.Props
 @Slf4j
 class SkillsAdminService {
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     LockingService lockingService
 
@@ -162,6 +166,7 @@ class SkillsAdminService {
     @Transactional()
     @Profile
     SaveSkillTmpRes saveSkill(String originalSkillId, SkillRequest skillRequest, boolean performCustomValidation=true, String groupId=null, boolean validateVideoAttrs = true) {
+        skillDefinitionCache.definitionsChanged(skillRequest.projectId)
         lockingService.lockProject(skillRequest.projectId)
 
         validateSkillVersion(skillRequest)
@@ -450,6 +455,7 @@ class SkillsAdminService {
     @Transactional()
     @Profile
     List<SaveSkillService.SkillInBatchUpdateRes> batchUpdateSkills(String projectId, MultiSkillUpdateRequest updateRequest) {
+        skillDefinitionCache.definitionsChanged(projectId)
         validate(updateRequest, projectId)
         skillRequestValidator.validateMultiSkillUpdateRequest(projectId, updateRequest)
         List<String> skillIds = updateRequest.skills
@@ -718,6 +724,7 @@ class SkillsAdminService {
 
     @Transactional
     void deleteSkill(String projectId, String skillId, boolean trackUserActionHistory = true) {
+        skillDefinitionCache.definitionsChanged(projectId)
         log.debug("Deleting skill with project id [{}] and skill id [{}]", projectId, skillId)
         SkillDef skillDefinition = skillDefRepo.findByProjectIdAndSkillIdIgnoreCaseAndTypeIn(projectId, skillId, [SkillDef.ContainerType.Skill, SkillDef.ContainerType.SkillsGroup])
         assert skillDefinition, "DELETE FAILED -> no skill with project find with projectId=[$projectId], skillId=[$skillId]"
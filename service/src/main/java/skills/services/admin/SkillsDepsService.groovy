@@ -82,6 +82,9 @@ class SkillsDepsService {
     @Autowired
     SkillsAdminService skillsAdminService
 
+    @Autowired
+    LearningPathGraphCache learningPathGraphCache
+
 
     @Transactional(readOnly = true)
     boolean checkIfSkillInAnotherProjectPartOfLearningPath(String projId, String otherProj, String otherProjSkillId) {
@@ -119,7 +122,8 @@ class SkillsDepsService {
         }
 
         validateLearningPathItemAndThrowException(skillDef, prereqSkillDef)
-        skillRelDefRepo.save(new SkillRelDef(parent: skillDef, child: prereqSkillDef, type: SkillRelDef.RelationshipType.Dependence))
+        SkillRelDef relDef = skillRelDefRepo.save(new SkillRelDef(parent: skillDef, child: prereqSkillDef, type: SkillRelDef.RelationshipType.Dependence))
+        learningPathGraphCache.edgeAdded(skillDef, prereqSkillDef, relDef.id)
 
         userActionsHistoryService.saveUserAction(new UserActionInfo(
                 action: DashboardAction.Create,
@@ -139,6 +143,7 @@ class SkillsDepsService {
     void removeLearningPathItem(String projectId, String dependentSkillId, String dependencyProjectId, String dependencySkillId) {
         ruleSetDefGraphService.removeGraphRelationship(projectId, dependentSkillId, null,
                 dependencyProjectId, dependencySkillId, SkillRelDef.RelationshipType.Dependence)
+        learningPathGraphCache.invalidate(projectId)
 
         userActionsHistoryService.saveUserAction(new UserActionInfo(
                 action: DashboardAction.Delete,
@@ -158,12 +163,14 @@ class SkillsDepsService {
     void removeAllLearningPathItemsBySkillId(String projectId, String skillId) {
         def relationships = skillRelDefRepo.findAllDependenciesForSkillIdAndProjectId(projectId, skillId)
         skillRelDefRepo.deleteAllById(relationships.collect{it.id})
+        learningPathGraphCache.invalidate(projectId)
     }
 
     @Transactional()
     void removeAllLearningPathItemsBySkillIdAndProjectId(String projectId, String skillId, String originalProjectId) {
         def relationships = skillRelDefRepo.findAllDependenciesForSkillIdAndProjectIdForProject(projectId, skillId, originalProjectId)
         skillRelDefRepo.deleteAllById(relationships.collect{it.id})
+        learningPathGraphCache.invalidate(projectId)
     }
 
     static class GraphSkillDefEdge {
@@ -372,6 +379,11 @@ class SkillsDepsService {
             return new DependencyCheckResult(possible: false, failureType: DependencyCheckResult.FailureType.SkillVersion, reason: msg)
         }
 
+        // the vast majority of new prerequisites can not violate any of the rules, only walk the full graph when they might
+        if (learningPathGraphCache.canAddWithoutFullCheck(skillDef, prereqSkillDef)) {
+            return new DependencyCheckResult()
+        }
+
         SkillsGraphRes existingGraph = getDependentSkillsGraph(skillDef.projectId)
         List<CircularLearningPathChecker.BadgeAndSkills> loadedBadges = loadBadgeSkills(skillDef.projectId)
 
@@ -32,6 +32,7 @@ import skills.services.userActions.DashboardAction
 import skills.services.userActions.DashboardItem
 import skills.services.userActions.UserActionInfo
 import skills.services.userActions.UserActionsHistoryService
+import skills.services.SkillDefinitionCache
 import skills.storage.accessors.ProjDefAccessor
 import skills.storage.model.*
 import skills.storage.repos.ProjDefRepo
@@ -45,6 +46,9 @@ import skills.utils.Props
 @Slf4j
 class SubjAdminService {
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     ProjDefRepo projDefRepo
 
@@ -98,6 +102,7 @@ class SubjAdminService {
 
     @Transactional()
     void saveSubject(String projectId, String origSubjectId, SubjectRequest subjectRequest, boolean performCustomValidation = true) {
+        skillDefinitionCache.definitionsChanged(projectId)
         lockingService.lockProject(projectId)
 
         CustomValidationResult customValidationResult = customValidator.validate(subjectRequest, projectId)
@@ -203,6 +208,7 @@ class SubjAdminService {
 
     @Transactional
     void deleteSubject(String projectId, String subjectId) {
+        skillDefinitionCache.definitionsChanged(projectId)
         log.debug("Deleting subject with project id [{}] and subject id [{}]", projectId, subjectId)
         SkillDef subjectDefinition = skillDefRepo.findByProjectIdAndSkillIdIgnoreCaseAndType(projectId, subjectId, SkillDef.ContainerType.Subject)
         assert subjectDefinition, "DELETE FAILED -> no subject with project id [$projectId] and subjet id [$subjectId]"
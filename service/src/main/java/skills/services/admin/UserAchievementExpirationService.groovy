@@ -16,6 +16,7 @@
 package skills.services.admin
 
 import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.annotation.Value
 import org.springframework.context.annotation.Lazy
@@ -33,18 +34,20 @@ import skills.services.FeatureService
 import skills.services.SkillEventAdminService
 import skills.services.attributes.ExpirationAttrs
 import skills.services.attributes.SkillAttributeService
+import skills.skillLoading.UserProgressSnapshotCache
 import skills.storage.model.Notification
 import skills.storage.model.SkillAttributesDef
-import skills.storage.model.UserAchievement
-import skills.storage.model.UserPerformedSkill
+import skills.storage.model.SkillDef
 import skills.storage.model.auth.RoleName
 import skills.storage.model.auth.UserRole
 import skills.storage.repos.*
 import skills.tasks.config.TaskConfig
 
+import java.time.LocalDate
 import java.time.LocalDateTime
 import java.time.ZoneId
 import java.time.format.DateTimeFormatter
+import java.util.concurrent.TimeUnit
 
 import static java.time.temporal.TemporalAdjusters.lastDayOfMonth
 import static skills.storage.model.SkillAttributesDef.SkillAttributesType.AchievementExpiration
@@ -102,9 +105,24 @@ class UserAchievementExpirationService {
     @Autowired
     UIConfigProperties uiConfigProperties
 
+    @Autowired
+    BatchOperationsTransactionalAccessor batchOperationsTransactionalAccessor
+
+    @Autowired
+    QuizToSkillDefRepo quizToSkillDefRepo
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    @Autowired
+    UserProgressSnapshotCache userProgressSnapshotCache
+
     @Value('#{"${skills.config.dailySkillExpirationNotificationThreshold:0.1}"}')
     Double dailySkillExpirationNotificationThreshold = 0.1
 
+    @Value('#{"${skills.config.achievementExpiration.batchSize:500}"}')
+    int expirationBatchSize = 500
+
     TableResult findAllExpiredAchievements(String projectId, String userId, String skillName, PageRequest pageRequest) {
         Page<ExpiredSkillRes> results = expiredUserAchievementRepo.findAllExpiredAchievements(projectId, userId, skillName, pageRequest)
         def totalExpirations = results.getTotalElements()
@@ -119,18 +137,27 @@ class UserAchievementExpirationService {
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     void checkAndExpireIfNecessary(SkillAttributesDef skillAttributesDef) {
+        long start = System.nanoTime()
+        try {
+            doCheckAndExpireIfNecessary(skillAttributesDef)
+        } finally {
+            // not tagged by skill to keep the number of time series bounded, the skill is logged instead
+            long durationNanos = System.nanoTime() - start
+            meterRegistry.timer('skills.achievementExpiration.duration').record(durationNanos, TimeUnit.NANOSECONDS)
+            log.info("Checked expiration for skill: ${skillAttributesDef.skillRefId} in [${TimeUnit.NANOSECONDS.toMillis(durationNanos)}] ms")
+        }
+    }
+
+    private void doCheckAndExpireIfNecessary(SkillAttributesDef skillAttributesDef) {
         LocalDateTime now = LocalDateTime.now()
         ExpirationAttrs expirationAttrs = skillAttributeService.convertAttrs(skillAttributesDef, ExpirationAttrs)
         log.info("Checking expiration for skill: ${skillAttributesDef.skillRefId}, expiration attributes: ${expirationAttrs}")
         if (expirationAttrs.expirationType == ExpirationAttrs.YEARLY || expirationAttrs.expirationType == ExpirationAttrs.MONTHLY) {
             LocalDateTime nextExpirationDate = expirationAttrs.nextExpirationDate.toLocalDateTime()
             if (nextExpirationDate.isBefore(now)) {
-                List<String> usersWithExpiredAchievements = []
-                if (expirationAttrs.emailNotificationsEnabled) {
-                    // if notification is enabled, get users with expired achievements before moving them to expired
-                    usersWithExpiredAchievements = expiredUserAchievementRepo.findUserIdsWithSkillRefId(skillAttributesDef.skillRefId)
-                }
-                expireAchievementsForSkill(skillAttributesDef.skillRefId)
+                // users with events must be looked up before the events are removed
+                List<String> usersWithExpiredAchievements = expiredUserAchievementRepo.findUserIdsWithSkillRefId(skillAttributesDef.skillRefId)
+                expireAchievementsForSkill(skillAttributesDef.skillRefId, usersWithExpiredAchievements)
 
                 // update nextExpirationDate
                 expirationAttrs.nextExpirationDate = getNextExpirationDate(expirationAttrs)?.toDate()
@@ -141,14 +168,12 @@ class UserAchievementExpirationService {
                 // notify users about expired achievements
                 if (expirationAttrs.emailNotificationsEnabled && featureService.isEmailServiceFeatureEnabled()) {
                     SkillDefRepo.SkillProjectAndSubjectIdsAndNames skillProjectAndSubjectIdsAndNames = skillDefRepo.getSkillProjectAndSubjectIdsAndNamesBySkillRefId(skillAttributesDef.skillRefId)
-                    log.info("Sending expiration emails for [${usersWithExpiredAchievements.size()}] users for skill: ${skillAttributesDef.skillRefId}")
-                    usersWithExpiredAchievements.each { userId ->
-                        if (!isUserStillPermitted(skillProjectAndSubjectIdsAndNames.projectId, userId)) {
-                            return
-                        }
+                    List<String> usersToNotify = filterPermittedUsers(skillProjectAndSubjectIdsAndNames.projectId, usersWithExpiredAchievements)
+                    log.info("Sending expiration emails for [${usersToNotify.size()}] users for skill: ${skillAttributesDef.skillRefId}")
+                    if (usersToNotify) {
                         String publicUrl = featureService.getPublicUrl()
                         Notifier.NotificationRequest request = new Notifier.NotificationRequest(
-                                userIds: [userId],
+                                userIds: usersToNotify,
                                 type: Notification.Type.SkillExpiration.toString(),
                                 keyValParams: [
                                         skillName        : skillProjectAndSubjectIdsAndNames.skillName,
@@ -160,7 +185,7 @@ class UserAchievementExpirationService {
                                         communityHeaderDescriptor: uiConfigProperties.ui.defaultCommunityDescriptor
                                 ]
                         )
-                        log.info("Sending skill expiration notification to user [${userId}] for skill [${skillProjectAndSubjectIdsAndNames.skillId}] - expiring on [${nextExpirationDate.format(DateTimeFormatter.ISO_DATE)}]")
+                        log.info("Sending skill expiration notification to [${usersToNotify.size()}] users for skill [${skillProjectAndSubjectIdsAndNames.skillId}] - expiring on [${nextExpirationDate.format(DateTimeFormatter.ISO_DATE)}]")
                         notifier.sendNotification(request)
                     }
                 }
@@ -175,59 +200,105 @@ class UserAchievementExpirationService {
                 // For daily expiration, find achievements that will expire within N days
                 int days = calculateNotificationDays(expirationAttrs.every)
                 LocalDateTime expirationThreshold = achievedOnOlderThan.plusDays(days)
-                List<UserAchievement> achievementsThatWillExpire = expiredUserAchievementRepo.findUserAchievementsBySkillRefIdWithMostRecentUserPerformedSkillBefore(
+                List<ExpiredUserAchievementRepo.ExpiringAchievement> achievementsThatWillExpire = expiredUserAchievementRepo.findExpiringAchievements(
                     skillAttributesDef.skillRefId, expirationThreshold.toDate()
-                )
+                ).findAll { it.expirationNotificationState != EXPIRATION_WARNING_NOTIFICATION_SENT }
+                List<String> permittedUsers = filterPermittedUsers(skillProjectAndSubjectIdsAndNames.projectId, achievementsThatWillExpire.collect { it.userId })
+                Set<String> permittedUsersLookup = new HashSet<>(permittedUsers)
+                achievementsThatWillExpire = achievementsThatWillExpire.findAll { permittedUsersLookup.contains(it.userId) }
                 log.info("Sending warning emails for [${achievementsThatWillExpire.size()}] achievements for skill: ${skillAttributesDef.skillRefId}")
-                achievementsThatWillExpire.each { UserAchievement achievement ->
-                    if (achievement.expirationNotificationState != EXPIRATION_WARNING_NOTIFICATION_SENT && isUserStillPermitted(achievement.projectId, achievement.userId)) {
-                        String publicUrl = featureService.getPublicUrl()
-                        UserPerformedSkill mostRecentUPS = userPerformedSkillRepo.findTopBySkillRefIdAndUserIdOrderByPerformedOnDesc(skillAttributesDef.skillRefId, achievement.userId)
-                        LocalDateTime retentionDeadline = LocalDateTime.ofInstant((mostRecentUPS.performedOn + expirationAttrs.every).toInstant(), ZoneId.systemDefault())
-                        Notifier.NotificationRequest request = new Notifier.NotificationRequest(
-                                userIds: [achievement.userId],
-                                type: Notification.Type.SkillDailyExpirationWarning.toString(),
-                                keyValParams: [
-                                        skillName           : skillProjectAndSubjectIdsAndNames.skillName,
-                                        projectName         : skillProjectAndSubjectIdsAndNames.projectName,
-                                        retentionDeadline   : formatWithOrdinal(retentionDeadline),
-                                        skillTrainingUrl    : buildSkillTrainingUrl(publicUrl, skillProjectAndSubjectIdsAndNames),
-                                        contactProjectUrl   : "${publicUrl}progress-and-rankings/projects/${skillProjectAndSubjectIdsAndNames.projectId}?openContact=true",
-                                        communityHeaderDescriptor: uiConfigProperties.ui.defaultCommunityDescriptor
-                                ]
-                        )
-                        log.info("Sending daily skill expiration warning to user [${achievement.userId}] for skill [${achievement.skillId}] - expiring on [${retentionDeadline.format(DateTimeFormatter.ISO_DATE)}]")
-                        notifier.sendNotification(request)
 
-                        achievement.expirationNotificationState = EXPIRATION_WARNING_NOTIFICATION_SENT
-                        userAchievementRepo.save(achievement)
-                    }
+                // users whose achievements expire on the same day share a single notification request
+                Map<LocalDate, List<ExpiredUserAchievementRepo.ExpiringAchievement>> byRetentionDeadline = achievementsThatWillExpire.groupBy { ExpiredUserAchievementRepo.ExpiringAchievement achievement ->
+                    LocalDateTime.ofInstant((achievement.mostRecentPerformedOn + expirationAttrs.every).toInstant(), ZoneId.systemDefault()).toLocalDate()
+                }
+                String publicUrl = featureService.getPublicUrl()
+                byRetentionDeadline.each { LocalDate retentionDeadline, List<ExpiredUserAchievementRepo.ExpiringAchievement> achievements ->
+                    Notifier.NotificationRequest request = new Notifier.NotificationRequest(
+                            userIds: achievements.collect { it.userId },
+                            type: Notification.Type.SkillDailyExpirationWarning.toString(),
+                            keyValParams: [
+                                    skillName           : skillProjectAndSubjectIdsAndNames.skillName,
+                                    projectName         : skillProjectAndSubjectIdsAndNames.projectName,
+                                    retentionDeadline   : formatWithOrdinal(retentionDeadline.atStartOfDay()),
+                                    skillTrainingUrl    : buildSkillTrainingUrl(publicUrl, skillProjectAndSubjectIdsAndNames),
+                                    contactProjectUrl   : "${publicUrl}progress-and-rankings/projects/${skillProjectAndSubjectIdsAndNames.projectId}?openContact=true",
+                                    communityHeaderDescriptor: uiConfigProperties.ui.defaultCommunityDescriptor
+                            ]
+                    )
+                    log.info("Sending daily skill expiration warning to [${achievements.size()}] users for skill [${skillProjectAndSubjectIdsAndNames.skillId}] - expiring on [${retentionDeadline.format(DateTimeFormatter.ISO_DATE)}]")
+                    notifier.sendNotification(request)
+                }
+                achievementsThatWillExpire.collect { it.id }.collate(expirationBatchSize).each { List<Integer> ids ->
+                    expiredUserAchievementRepo.updateExpirationNotificationState(ids, EXPIRATION_WARNING_NOTIFICATION_SENT)
                 }
+                meterRegistry.counter('skills.achievementExpiration.warnings').increment(achievementsThatWillExpire.size())
             }
         } else if (expirationAttrs.expirationType != ExpirationAttrs.NEVER) {
             log.error("Unexpected expirationType [${expirationAttrs?.expirationType}] - ${expirationAttrs}")
         }
     }
 
-    private void expireAchievementsForSkill(Integer skillRefId) {
-        // move user_achievements for skillRefId to expired_user_achievements
-        expiredUserAchievementRepo.expireAchievementsForSkill(skillRefId)
+    private void expireAchievementsForSkill(Integer skillRefId, List<String> usersWithEvents) {
+        SkillDef skill = skillDefRepo.findById(skillRefId).get()
+        if (canExpireInBulk(skill)) {
+            expireInChunks(skill, usersWithEvents)
+            // achievements of users that no longer have any events
+            expiredUserAchievementRepo.expireAchievementsForSkill(skillRefId)
+        } else {
+            // move user_achievements for skillRefId to expired_user_achievements
+            expiredUserAchievementRepo.expireAchievementsForSkill(skillRefId)
 
-        // remove all skill events for this skill
-        skillEventAdminService.deleteAllSkillEventsForSkill(skillRefId)
+            // remove all skill events for this skill
+            skillEventAdminService.deleteAllSkillEventsForSkill(skillRefId)
+        }
+        userProgressSnapshotCache.projectChanged(skill.projectId)
     }
 
     private void expireAchievementsForSkillAchievedBefore(Integer skillRefId, Date expirationDate) {
         // find any UserAchievement's for this skill where the most recent associated UserPerformedSkill.performedOn is older than the expiration date
-        List<UserAchievement> expiredUserAchievements = expiredUserAchievementRepo.findUserAchievementsBySkillRefIdWithMostRecentUserPerformedSkillBefore(skillRefId, expirationDate)
+        List<ExpiredUserAchievementRepo.ExpiringAchievement> expiredUserAchievements = expiredUserAchievementRepo.findExpiringAchievements(skillRefId, expirationDate)
 
         log.info("Expiring [${expiredUserAchievements.size()}] achievements for skill: ${skillRefId}, expiration date: ${expirationDate}")
-        expiredUserAchievements.each { ua ->
-            // move this user_achievement record to the expired_user_achievements table
-            expiredUserAchievementRepo.expireAchievementById(ua.id)
-            // remove all skill events for this skill and user
-            skillEventAdminService.deleteAllSkillEventsForSkillAndUser(skillRefId, ua.userId)
+        if (!expiredUserAchievements) {
+            return
+        }
+        SkillDef skill = skillDefRepo.findById(skillRefId).get()
+        if (canExpireInBulk(skill)) {
+            expireInChunks(skill, expiredUserAchievements.collect { it.userId }.unique())
+        } else {
+            expiredUserAchievements.each { ua ->
+                // move this user_achievement record to the expired_user_achievements table
+                expiredUserAchievementRepo.expireAchievementById(ua.id)
+                // remove all skill events for this skill and user
+                skillEventAdminService.deleteAllSkillEventsForSkillAndUser(skillRefId, ua.userId)
+            }
+        }
+        userProgressSnapshotCache.projectChanged(skill.projectId)
+    }
+
+    // propagation to catalog copies and removal of quiz attempts are only handled when removing events one at a time
+    private boolean canExpireInBulk(SkillDef skill) {
+        return !skill.copiedFrom &&
+                !skillDefRepo.findSkillDefMinCopiedFrom(skill.id) &&
+                !quizToSkillDefRepo.getQuizRefIdsBySkillRefId(skill.id)
+    }
+
+    private void expireInChunks(SkillDef skill, List<String> userIds) {
+        int numProcessed = 0
+        userIds.collate(expirationBatchSize).each { List<String> chunk ->
+            batchOperationsTransactionalAccessor.expireSkillAchievementsAndRemoveEventsForUsers(skill, chunk)
+            numProcessed += chunk.size()
+            log.info("Expiration progress for skill [{}-{}]: processed [{}] of [{}] users", skill.projectId, skill.skillId, numProcessed, userIds.size())
+        }
+        meterRegistry.counter('skills.achievementExpiration.users').increment(numProcessed)
+    }
+
+    private List<String> filterPermittedUsers(String projectId, List<String> userIds) {
+        if (!userIds || (!inviteOnlyProjectService.isInviteOnlyProject(projectId) && !userCommunityService.isUserCommunityOnlyProject(projectId))) {
+            return userIds
         }
+        return userIds.findAll { String userId -> isUserStillPermitted(projectId, userId) }
     }
 
     private LocalDateTime getNextExpirationDate(ExpirationAttrs expirationAttrs) {
@@ -32,6 +32,7 @@ import skills.services.userActions.DashboardAction
 import skills.services.userActions.DashboardItem
 import skills.services.userActions.UserActionInfo
 import skills.services.userActions.UserActionsHistoryService
+import skills.services.SkillDefinitionCache
 import skills.storage.accessors.SkillDefAccessor
 import skills.storage.model.SkillDef
 import skills.storage.model.SkillRelDef
@@ -47,6 +48,9 @@ import static skills.storage.model.SkillDef.ContainerType.Subject
 @Slf4j
 class SkillsMoveService {
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     SkillRelDefRepo skillRelDefRepo
 
@@ -83,6 +87,7 @@ class SkillsMoveService {
     @Transactional
     @Profile
     void moveSkills(String projectId, SkillsActionRequest skillMoveRequest) {
+        skillDefinitionCache.definitionsChanged(projectId)
         skillCatalogFinalizationService.validateNotInFinalizationState(projectId, "Cannot move skills while finalization is running")
         skillCatalogFinalizationService.validateFinalizationIsNotPending(projectId, "Cannot move skills while finalization is pending")
 
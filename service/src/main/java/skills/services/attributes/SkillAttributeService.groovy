@@ -20,6 +20,7 @@ import groovy.util.logging.Slf4j
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
+import skills.services.SkillDefinitionCache
 import skills.services.userActions.DashboardAction
 import skills.services.userActions.DashboardItem
 import skills.services.userActions.UserActionInfo
@@ -37,6 +38,9 @@ import skills.utils.InputSanitizer
 @Slf4j
 class SkillAttributeService {
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     SkillDefAccessor skillDefAccessor
 
@@ -104,7 +108,9 @@ class SkillAttributeService {
         ))
     }
 
+    @Transactional
     void saveExpirationAttrs(String projectId, String skillId, ExpirationAttrs skillExpirationAttrs) {
+        skillDefinitionCache.definitionsChanged(projectId)
         userActionsHistoryService.saveUserAction(new UserActionInfo(
                 action: DashboardAction.Create,
                 item: DashboardItem.ExpirationSettings,
@@ -117,6 +123,7 @@ class SkillAttributeService {
 
     @Transactional
     void deleteExpirationAttrs(String projectId, String skillId) {
+        skillDefinitionCache.definitionsChanged(projectId)
         deleteAttrs(projectId, skillId, SkillAttributesDef.SkillAttributesType.AchievementExpiration)
     }
 
@@ -125,8 +132,10 @@ class SkillAttributeService {
         return skillExpirationAttrs
     }
     Boolean isMotivationalSkill(String projectId, String skillId) {
-        ExpirationAttrs expirationAttrs = getExpirationAttrs(projectId, skillId)
-        return expirationAttrs?.expirationType == ExpirationAttrs.DAILY
+        return skillDefinitionCache.get('motivationalSkill', projectId, skillId) {
+            ExpirationAttrs expirationAttrs = getExpirationAttrs(projectId, skillId)
+            return expirationAttrs?.expirationType == ExpirationAttrs.DAILY
+        }
     }
 
     void saveBadgeBonusAwardAttrs(String projectId, String skillId, BonusAwardAttrs bonusAwardAttrs) {
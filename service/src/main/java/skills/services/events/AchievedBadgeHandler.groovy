@@ -22,7 +22,6 @@ import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Component
 import skills.quizLoading.QuizRunService
 import skills.services.BadgeUtils
-import skills.storage.model.SkillDef
 import skills.storage.model.SkillDefMin
 import skills.storage.model.SkillRelDef
 import skills.storage.model.UserAchievement
@@ -47,24 +46,32 @@ class AchievedBadgeHandler {
     @Autowired
     QuizRunService quizRunService
 
+    @Autowired
+    BadgeRequirementsIndex badgeRequirementsIndex
+
     @Profile
     void checkForBadges(SkillEventResult res, String userId, SkillDefMin currentSkillDef, SkillDate skillDate) {
-        List<SkillDefMin> parents = skillEventsSupportRepo.findParentSkillsByChildIdAndType(currentSkillDef.id, [SkillRelDef.RelationshipType.BadgeRequirement])
+        List<BadgeRequirementsIndex.BadgeRequirements> candidates = badgeRequirementsIndex.getBadges(currentSkillDef).findAll { BadgeRequirementsIndex.BadgeRequirements badgeRequirements ->
+            SkillDefMin badge = badgeRequirements.badge
+            BadgeUtils.withinActiveTimeframe(badge) && (badge.enabled == null || Boolean.valueOf(badge.enabled))
+        }
+        if (!candidates) {
+            return
+        }
 
-        parents.each { SkillDefMin skillDefMin ->
-            if (skillDefMin.type == SkillDef.ContainerType.Badge && BadgeUtils.withinActiveTimeframe(skillDefMin) &&
-                    (skillDefMin.enabled == null || Boolean.valueOf(skillDefMin.enabled)) ) {
-                SkillDefMin badge = skillDefMin
-                Long nonAchievedChildren = achievedLevelRepo.countNonAchievedChildren(userId, badge.projectId, badge.skillId, SkillRelDef.RelationshipType.BadgeRequirement)
-                if (nonAchievedChildren == 0) {
-                    List<UserAchievement> badges = achievedLevelRepo.findAllByUserIdAndProjectIdAndSkillId(userId, badge.projectId, badge.skillId)
-                    if (!badges) {
-                        Date achievedOn = getAchievedOnDate(userId, badge, skillDate)
-                        UserAchievement badgeAchievement = new UserAchievement(userId: userId.toLowerCase(), projectId: badge.projectId, skillId: badge.skillId, skillRefId: badge?.id, achievedOn: achievedOn)
-                        achievedLevelRepo.save(badgeAchievement)
-                        res.completed.add(new CompletionItem(type: CompletionTypeUtil.getCompletionType(badge.type), id: badge.skillId, name: badge.name))
-                        quizRunService.checkForDependentQuizzes(res, userId, badge)
-                    }
+        Set<Integer> achieved = badgeRequirementsIndex.loadAchievedSkillRefIds(userId, candidates)
+        // the current skill's achievement may have just been recorded by this transaction
+        achieved.add(currentSkillDef.id)
+        candidates.each { BadgeRequirementsIndex.BadgeRequirements badgeRequirements ->
+            SkillDefMin badge = badgeRequirements.badge
+            if (!achieved.contains(badge.id) && achieved.containsAll(badgeRequirements.requiredSkillRefIds)) {
+                List<UserAchievement> badges = achievedLevelRepo.findAllByUserIdAndProjectIdAndSkillId(userId, badge.projectId, badge.skillId)
+                if (!badges) {
+                    Date achievedOn = getAchievedOnDate(userId, badge, skillDate)
+                    UserAchievement badgeAchievement = new UserAchievement(userId: userId.toLowerCase(), projectId: badge.projectId, skillId: badge.skillId, skillRefId: badge?.id, achievedOn: achievedOn)
+                    achievedLevelRepo.save(badgeAchievement)
+                    res.completed.add(new CompletionItem(type: CompletionTypeUtil.getCompletionType(badge.type), id: badge.skillId, name: badge.name))
+                    quizRunService.checkForDependentQuizzes(res, userId, badge)
                 }
             }
         }
@@ -52,33 +52,48 @@ class AchievedGlobalBadgeHandler {
     @Autowired
     SkillsLoader skillsLoader
 
+    @Autowired
+    BadgeRequirementsIndex badgeRequirementsIndex
+
 
     @Profile
     void checkForGlobalBadges(SkillEventResult res, String userId, String projectId, SkillDefMin currentSkillDef) {
-        List<SkillDefMin> globalBadges = skillEventsSupportRepo.findGlobalBadgesForProjectIdAndSkillId(projectId, currentSkillDef.skillId)
-        if (globalBadges) {
-            // make the processing order predictable
-            globalBadges = globalBadges.sort { it.skillId }
+        // sorted by skill id to make the processing order predictable
+        List<BadgeRequirementsIndex.BadgeRequirements> globalBadges = badgeRequirementsIndex.getGlobalBadges(projectId, currentSkillDef).findAll { BadgeRequirementsIndex.BadgeRequirements badgeRequirements ->
+            SkillDefMin globalBadge = badgeRequirements.badge
+            if (globalBadge.enabled != null && !Boolean.valueOf(globalBadge.enabled)) {
+                log.debug("global badge [{}] isn't enabled yet, cannot be checked for achievement", globalBadge.skillId)
+                return false
+            }
+            return true
+        }
+        if (!globalBadges) {
+            return
+        }
 
-            badgeCheckLoop: for (SkillDefMin globalBadge : globalBadges) {
-                if(globalBadge.enabled != null && !Boolean.valueOf(globalBadge.enabled)) {
-                    log.debug("global badge [{}] isn't enabled yet, cannot be checked for achievement", globalBadge.skillId)
-                    continue;
-                }
-                // first check required project levels
-                if (!achievedLevelRepo.didUserAchieveAllGlobalBadgeLevels(globalBadge.skillId, userId)){
-                    continue badgeCheckLoop
-                }
+        Map<String, Integer> projectLevels = badgeRequirementsIndex.loadProjectLevels(userId, globalBadges)
+        Set<Integer> achieved = null
+        for (BadgeRequirementsIndex.BadgeRequirements badgeRequirements : globalBadges) {
+            // first check required project levels
+            boolean allLevelsAchieved = badgeRequirements.requiredProjectLevels.every { String levelProjectId, Integer level ->
+                Integer achievedLevel = projectLevels[levelProjectId]
+                achievedLevel != null && achievedLevel >= level
+            }
+            if (!allLevelsAchieved) {
+                continue
+            }
 
-                // all project level requirements met, check required skills
-                Long nonAchievedChildren = achievedLevelRepo.countNonAchievedGlobalSkills(userId, globalBadge.skillId, SkillRelDef.RelationshipType.BadgeRequirement)
-                if (nonAchievedChildren == 0) {
-                    if (!achievedLevelRepo.existsByUserIdAndSkillIdAndProjectIdIsNull(userId, globalBadge.skillId)) {
-                        UserAchievement groupAchievement = new UserAchievement(userId: userId.toLowerCase(), projectId: null,
-                                skillId: globalBadge.skillId, skillRefId: globalBadge?.id, achievedOn: new Date())
-                        achievedLevelRepo.save(groupAchievement)
-                        res.completed.add(new CompletionItem(type: CompletionTypeUtil.getCompletionType(globalBadge.type), id: globalBadge.skillId, name: globalBadge.name))
-                    }
+            // all project level requirements met, check required skills
+            if (achieved == null) {
+                achieved = badgeRequirementsIndex.loadAchievedSkillRefIds(userId, globalBadges)
+            }
+            SkillDefMin globalBadge = badgeRequirements.badge
+            if (!achieved.contains(globalBadge.id) && achieved.containsAll(badgeRequirements.requiredSkillRefIds)) {
+                if (!achievedLevelRepo.existsByUserIdAndSkillIdAndProjectIdIsNull(userId, globalBadge.skillId)) {
+                    UserAchievement groupAchievement = new UserAchievement(userId: userId.toLowerCase(), projectId: null,
+                            skillId: globalBadge.skillId, skillRefId: globalBadge?.id, achievedOn: new Date())
+                    achievedLevelRepo.save(groupAchievement)
+                    res.completed.add(new CompletionItem(type: CompletionTypeUtil.getCompletionType(globalBadge.type), id: globalBadge.skillId, name: globalBadge.name))
                 }
             }
         }
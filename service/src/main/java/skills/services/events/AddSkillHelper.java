@@ -57,6 +57,9 @@ public class AddSkillHelper {
     @Autowired
     ReportEventsValidateHelper reportEventsValidateHelper;
 
+    @Autowired
+    SkillEventsGroupCommitService skillEventsGroupCommitService;
+
     public SkillEventResult addSkill(String projectId, String skillId, SkillEventRequest skillEventRequest) {
         String requestedUserId = skillEventRequest != null ? skillEventRequest.getUserId() : null;
         Long requestedTimestamp = skillEventRequest != null ? skillEventRequest.getTimestamp() : null;
@@ -89,17 +92,19 @@ public class AddSkillHelper {
         CProf.start(prof);
         try {
             final Date dataParam = incomingDate;
-            Closure<SkillEventResult> closure = new Closure<SkillEventResult>(null) {
-                @Override
-                public SkillEventResult call() {
-                    SkillEventsService.SkillApprovalParams skillApprovalParams = (skillEventRequest !=null && skillEventRequest.getApprovalRequestedMsg() != null) ?
-                            new SkillEventsService.SkillApprovalParams(skillEventRequest.getApprovalRequestedMsg()) : SkillEventsService.getDefaultSkillApprovalParams();
-                    skillApprovalParams.setForAnotherUser(forAnotherUser);
-                    skillApprovalParams.setDoNotRequireApproval(skillEventRequest != null && skillEventRequest.getDoNotRequireApproval() != null ? skillEventRequest.getDoNotRequireApproval() : false);
-                    return skillsManagementFacade.reportSkill(projectId, skillId, userId, notifyIfSkillNotApplied, dataParam, skillApprovalParams);
-                }
-            };
-            result = (SkillEventResult) RetryUtil.withRetry(3, false, closure);
+            if (skillEventsGroupCommitService.isEnabled()) {
+                // group-commit ingestion handles retries itself by re-applying failed batches one event at a time
+                result = skillEventsGroupCommitService.reportSkill(projectId, skillId, userId, notifyIfSkillNotApplied, dataParam, buildApprovalParams(skillEventRequest, forAnotherUser));
+            } else {
+                Closure<SkillEventResult> closure = new Closure<SkillEventResult>(null) {
+                    @Override
+                    public SkillEventResult call() {
+                        SkillEventsService.SkillApprovalParams skillApprovalParams = buildApprovalParams(skillEventRequest, forAnotherUser);
+                        return skillsManagementFacade.reportSkill(projectId, skillId, userId, notifyIfSkillNotApplied, dataParam, skillApprovalParams);
+                    }
+                };
+                result = (SkillEventResult) RetryUtil.withRetry(3, false, closure);
+            }
         } catch(SkillException ske) {
             if (ske.getErrorCode() == ErrorCode.SkillNotFound) {
                 projectErrorService.invalidSkillReported(projectId, skillId);
@@ -111,6 +116,14 @@ public class AddSkillHelper {
         return result;
     }
 
+    private SkillEventsService.SkillApprovalParams buildApprovalParams(SkillEventRequest skillEventRequest, boolean forAnotherUser) {
+        SkillEventsService.SkillApprovalParams skillApprovalParams = (skillEventRequest !=null && skillEventRequest.getApprovalRequestedMsg() != null) ?
+                new SkillEventsService.SkillApprovalParams(skillEventRequest.getApprovalRequestedMsg()) : new SkillEventsService.SkillApprovalParams();
+        skillApprovalParams.setForAnotherUser(forAnotherUser);
+        skillApprovalParams.setDoNotRequireApproval(skillEventRequest != null && skillEventRequest.getDoNotRequireApproval() != null ? skillEventRequest.getDoNotRequireApproval() : false);
+        return skillApprovalParams;
+    }
+
     private String toDateString(Long timestamp) {
         if (timestamp != null) {
             return DTF.print(timestamp);
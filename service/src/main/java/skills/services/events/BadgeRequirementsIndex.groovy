@@ -0,0 +1,147 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.events
+
+import callStack.profiler.Profile
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.stereotype.Component
+import skills.services.SkillDefinitionCache
+import skills.storage.model.GlobalBadgeLevelDef
+import skills.storage.model.SkillDef
+import skills.storage.model.SkillDefMin
+import skills.storage.model.SkillRelDef
+import skills.storage.repos.GlobalBadgeLevelDefRepo
+import skills.storage.repos.SkillEventsSupportRepo
+import skills.storage.repos.UserAchievedLevelRepo
+
+/**
+ * Reverse index from a skill to the badges and global badges it counts towards, along with everything each of those
+ * badges requires, so that {@link AchievedBadgeHandler} and {@link AchievedGlobalBadgeHandler} can decide completion
+ * of all candidate badges against a single lookup of the user's achievements instead of querying each badge.
+ *
+ * Entries are served from {@link SkillDefinitionCache} and keyed by the project of the reported skill; badge mutations
+ * must therefore call {@link SkillDefinitionCache#definitionsChanged(String)} for every project the badge's skills
+ * and levels belong to.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class BadgeRequirementsIndex {
+
+    @Autowired
+    SkillEventsSupportRepo skillEventsSupportRepo
+
+    @Autowired
+    GlobalBadgeLevelDefRepo globalBadgeLevelDefRepo
+
+    @Autowired
+    UserAchievedLevelRepo achievedLevelRepo
+
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
+    static class BadgeRequirements {
+        final SkillDefMin badge
+        final Set<Integer> requiredSkillRefIds
+        // only populated for global badges: project id -> minimum level
+        final Map<String, Integer> requiredProjectLevels
+
+        BadgeRequirements(SkillDefMin badge, Set<Integer> requiredSkillRefIds, Map<String, Integer> requiredProjectLevels) {
+            this.badge = badge
+            this.requiredSkillRefIds = Collections.unmodifiableSet(requiredSkillRefIds)
+            this.requiredProjectLevels = Collections.unmodifiableMap(requiredProjectLevels)
+        }
+    }
+
+    /**
+     * @return project badges that require the provided skill
+     */
+    @Profile
+    List<BadgeRequirements> getBadges(SkillDefMin skill) {
+        return skillDefinitionCache.get('badgeRequirements', skill.projectId, skill.id) {
+            List<SkillDefMin> badges = skillEventsSupportRepo.findParentSkillsByChildIdAndType(skill.id, [SkillRelDef.RelationshipType.BadgeRequirement])
+                    .findAll { it.type == SkillDef.ContainerType.Badge }
+            return buildRequirements(badges, [:])
+        }
+    }
+
+    /**
+     * @return global badges that require the provided skill or a level of its project, sorted by skill id
+     */
+    @Profile
+    List<BadgeRequirements> getGlobalBadges(String projectId, SkillDefMin skill) {
+        return skillDefinitionCache.get('globalBadgeRequirements', projectId, skill.skillId) {
+            List<SkillDefMin> badges = skillEventsSupportRepo.findGlobalBadgesForProjectIdAndSkillId(projectId, skill.skillId) ?: []
+            Map<String, Map<String, Integer>> levelsByBadge = [:]
+            badges.each { SkillDefMin badge ->
+                Map<String, Integer> levels = [:]
+                globalBadgeLevelDefRepo.findAllByBadgeId(badge.skillId).each { GlobalBadgeLevelDef levelDef ->
+                    levels[levelDef.projectId] = levelDef.level
+                }
+                levelsByBadge[badge.skillId] = levels
+            }
+            return buildRequirements(badges.sort(false) { it.skillId }, levelsByBadge)
+        }
+    }
+
+    /**
+     * Loads which of the provided skills (or badges) the user achieved with a single query.
+     */
+    @Profile
+    Set<Integer> loadAchievedSkillRefIds(String userId, Collection<BadgeRequirements> requirements) {
+        Set<Integer> skillRefIds = new HashSet<>()
+        requirements.each { BadgeRequirements badgeRequirements ->
+            skillRefIds.add(badgeRequirements.badge.id)
+            skillRefIds.addAll(badgeRequirements.requiredSkillRefIds)
+        }
+        if (!skillRefIds) {
+            return new HashSet<Integer>()
+        }
+        return new HashSet<Integer>(achievedLevelRepo.findAchievedSkillRefIds(userId, skillRefIds))
+    }
+
+    /**
+     * @return project id -> highest level the user achieved for the projects required by the provided global badges
+     */
+    @Profile
+    Map<String, Integer> loadProjectLevels(String userId, Collection<BadgeRequirements> requirements) {
+        Set<String> projectIds = new HashSet<>()
+        requirements.each { projectIds.addAll(it.requiredProjectLevels.keySet()) }
+        if (!projectIds) {
+            return Collections.emptyMap()
+        }
+        Map<String, Integer> res = [:]
+        achievedLevelRepo.findMaxProjectLevels(userId, projectIds).each { UserAchievedLevelRepo.ProjectLevel projectLevel ->
+            res[projectLevel.projectId] = projectLevel.level
+        }
+        return res
+    }
+
+    private List<BadgeRequirements> buildRequirements(List<SkillDefMin> badges, Map<String, Map<String, Integer>> levelsByBadge) {
+        if (!badges) {
+            return Collections.emptyList()
+        }
+        Map<Integer, Set<Integer>> childrenByBadge = [:]
+        skillEventsSupportRepo.findChildIdsByParentIdsAndType(badges.collect { it.id }, SkillRelDef.RelationshipType.BadgeRequirement).each {
+            childrenByBadge.computeIfAbsent(it.parentId, { Integer id -> new HashSet<Integer>() }).add(it.childId)
+        }
+        return Collections.unmodifiableList(badges.collect { SkillDefMin badge ->
+            new BadgeRequirements(badge, childrenByBadge[badge.id] ?: new HashSet<Integer>(), levelsByBadge[badge.skillId] ?: new HashMap<String, Integer>())
+        })
+    }
+}
@@ -42,6 +42,9 @@ class BatchReportService {
     @Autowired
     BatchReportSkillEventProcessor skillEventProcessor
 
+    @Autowired
+    BulkSkillEventsService bulkSkillEventsService
+
     @Autowired
     UserAttrsRepo userAttrsRepo
 
@@ -62,26 +65,32 @@ class BatchReportService {
 
         Map<String, List<UserInfo>> userInfoCache = Collections.synchronizedMap(new HashMap<>())
         Map<String, String> userIdForDisplayCache = Collections.synchronizedMap(new HashMap<>())
-        userIdLoop: for(String userIdToProcessTmp : batchSkillEventRequest.getUserIds()) {
+        SkillEventsService.SkillApprovalParams skillApprovalParams = new SkillEventsService.SkillApprovalParams(forAnotherUser: true, doNotRequireApproval: true)
+        List<BulkSkillEventsService.UserResults> userResults = bulkSkillEventsService.reportSkillsForUsers(projectId, skillIds, batchSkillEventRequest.getUserIds(),
+                incomingDate, skillApprovalParams, true, false, batchSkillEventRequest.getImportId()) { String userIdToProcessTmp ->
             String userIdToProcess = InputSanitizer.sanitizeNoSafeList(userIdToProcessTmp)
-            for (String skillId : skillIds) {
-                SkillEventResult result = null
-                try {
-                    if (!userIdToProcess || !userIdToProcessTmp?.equalsIgnoreCase(userIdToProcess)) {
-                        throw new SkillException("Provided user id [${userIdToProcessTmp}] is not in a supported format")
-                    }
-                    result = skillEventProcessor.processSkillForUserInItsOwnTransaction(projectId, skillId, userIdToProcess, incomingDate,
-                            batchSkillEventRequest.getUserSuggestOption(), userInfoCache, userIdForDisplayCache)
-                } catch(SkillException ske) {
+            if (!userIdToProcess || !userIdToProcessTmp?.equalsIgnoreCase(userIdToProcess)) {
+                throw new SkillException("Provided user id [${userIdToProcessTmp}] is not in a supported format")
+            }
+            return skillEventProcessor.getUserName(userIdToProcess, batchSkillEventRequest.getUserSuggestOption(), userInfoCache)
+        }
+
+        for (BulkSkillEventsService.UserResults userResult : userResults) {
+            String userIdToProcess = InputSanitizer.sanitizeNoSafeList(userResult.requestedUserId)
+            skillIds.eachWithIndex { String skillId, int i ->
+                SkillEventResult result = userResult.results.get(i)
+                if (result) {
+                    skillEventProcessor.handleUserIdForDisplay(userIdForDisplayCache, userResult.userId, result)
+                } else {
+                    SkillException ske = userResult.failuresBySkillId.get(skillId)
                     log.error("Error applying skill [{}], user [{}], error [{}]", skillId, userIdToProcess, ske.getMessage())
 
                     if (ske.getErrorCode() == ErrorCode.SkillNotFound) {
                         projectErrorService.invalidSkillReported(projectId, skillId)
                     }
                     result = createNewEventResult(ske.getMessage(), projectId, skillId, userIdToProcess)
-                } finally {
-                    results.add(result)
                 }
+                results.add(result)
             }
         }
 
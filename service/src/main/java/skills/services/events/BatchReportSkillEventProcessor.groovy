@@ -21,8 +21,6 @@ import org.apache.commons.collections4.CollectionUtils
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.annotation.Value
 import org.springframework.stereotype.Component
-import org.springframework.transaction.annotation.Propagation
-import org.springframework.transaction.annotation.Transactional
 import skills.auth.AuthMode
 import skills.auth.UserInfo
 import skills.auth.UserInfoService
@@ -34,9 +32,6 @@ import skills.storage.repos.UserAttrsRepo
 @Slf4j
 class BatchReportSkillEventProcessor {
 
-    @Autowired
-    SkillEventsService skillsManagementFacade;
-
     @Autowired(required = false)
     PkiUserLookup pkiUserLookup;
 
@@ -54,23 +49,7 @@ class BatchReportSkillEventProcessor {
 
     private final static String notFoundToken = "ST_TOKEN_USER_NOT_FOUND"
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    @Profile
-    SkillEventResult processSkillForUserInItsOwnTransaction(String projectId, String skillId, String userId, Date incomingDate, String userSuggestOption,
-                                                            Map<String, List<UserInfo>> userInfoCache,
-                                                            Map<String, String> userIdForDisplayCache) {
-        String userIdToProcess = getUserName(userId, userSuggestOption, userInfoCache);
-        SkillEventsService.SkillApprovalParams skillApprovalParams = SkillEventsService.getDefaultSkillApprovalParams();
-        skillApprovalParams.setForAnotherUser(true);
-        skillApprovalParams.setDoNotRequireApproval(true)
-        SkillEventResult res = skillsManagementFacade.reportSkill(projectId, skillId, userIdToProcess, true, incomingDate, skillApprovalParams);
-
-        handleUserIdForDisplay(userIdForDisplayCache, userIdToProcess, res)
-
-        return res
-    }
-
-    private void handleUserIdForDisplay(Map<String, String> userIdForDisplayCache, String userIdToProcess, SkillEventResult res) {
+    void handleUserIdForDisplay(Map<String, String> userIdForDisplayCache, String userIdToProcess, SkillEventResult res) {
         String userIdForDisplay = userIdForDisplayCache.get(userIdToProcess)
         if (userIdForDisplay) {
             if (userIdForDisplay != notFoundToken) {
@@ -84,7 +63,7 @@ class BatchReportSkillEventProcessor {
     }
 
     @Profile
-    private String getUserName(String userIdToProcess, String userSuggestOption, Map<String, List<UserInfo>> userInfoCache) {
+    String getUserName(String userIdToProcess, String userSuggestOption, Map<String, List<UserInfo>> userInfoCache) {
         boolean isPki = authMode == AuthMode.PKI
         String idType = isPki ? "DN" : "ID"
         log.debug("UserId To Process=[{}], Mode=[{}], dnCheckStr=[{}]", userIdToProcess, authMode, dnCheckStr)
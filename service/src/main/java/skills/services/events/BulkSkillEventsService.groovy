@@ -0,0 +1,221 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.events
+
+import callStack.profiler.Profile
+import callStack.utils.CachedThreadPool
+import callStack.utils.ThreadPoolUtils
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
+import jakarta.annotation.PostConstruct
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Service
+import skills.controller.exceptions.ErrorCode
+import skills.controller.exceptions.SkillException
+
+import java.util.concurrent.Callable
+import java.util.concurrent.TimeUnit
+
+import static skills.services.events.SkillEventsService.SkillApprovalParams
+import static skills.services.events.SkillEventsTransactionalService.BatchedSkillEvent
+
+/**
+ * Engine for reporting the same set of skills for many users at once (bulk skill reporting and manual batch imports).
+ *
+ * Users are fanned out across a bounded worker pool; all of the events of a single user are applied in one transaction
+ * via {@link SkillEventsTransactionalService#reportSkillsBatchInternal} so the user-project lock is acquired once and
+ * points/achievements are updated once per user rather than once per event. Definitions are served from the
+ * {@link skills.services.SkillDefinitionCache} so they are only loaded once for the whole import. If the transaction of
+ * a user fails, that user's events are re-applied one at a time so an invalid event never affects the others.
+ *
+ * Progress of each import can be tracked by an optional, caller-provided import id.
+ */
+@Service
+@Slf4j
+class BulkSkillEventsService {
+
+    @Value('#{"${skills.bulkReport.minNumOfThreads:1}"}')
+    int minNumOfThreads = 1
+
+    @Value('#{"${skills.bulkReport.maxNumOfThreads:4}"}')
+    int maxNumOfThreads = 4
+
+    @Value('#{"${skills.bulkReport.progressRetentionMinutes:60}"}')
+    long progressRetentionMinutes = 60
+
+    @Autowired
+    SkillEventsTransactionalService skillEventsTransactionalService
+
+    @Autowired
+    SkillEventsService skillEventsService
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    private CachedThreadPool pool
+    private Cache<String, BulkReportProgress> progressByImportId
+
+    static class UserResults {
+        String requestedUserId
+        // null if the requested user id could not be resolved
+        String userId
+        // one entry per requested skill id, in the requested order; null when the event failed
+        List<SkillEventResult> results = []
+        Map<String, SkillException> failuresBySkillId = [:]
+
+        boolean hasFailures() {
+            return !failuresBySkillId.isEmpty()
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        pool = new CachedThreadPool('bulk-skill-events', minNumOfThreads, maxNumOfThreads)
+        progressByImportId = Caffeine.newBuilder()
+                .expireAfterWrite(progressRetentionMinutes, TimeUnit.MINUTES)
+                .build()
+    }
+
+    BulkReportProgress getProgress(String projectId, String importId) {
+        BulkReportProgress progress = progressByImportId.getIfPresent(progressKey(projectId, importId))
+        if (!progress) {
+            throw new SkillException("Import [${importId}] was not found", projectId, null, ErrorCode.BadParam)
+        }
+        return progress
+    }
+
+    /**
+     * @param resolveUserId optional closure that maps the requested user id to the id to report for (e.g. a PKI lookup);
+     *                      it is executed on the worker thread and any SkillException it throws fails all of that user's events
+     * @param notifyIfNotApplied post-commit notifications are published for results that were not applied only when true
+     * @param failFast when true the first user is applied on the calling thread before fanning out, and if all of its events fail
+     *                 the error is thrown - problems that are not user specific (unknown skill, insufficient points) then fail the
+     *                 whole request instead of being repeated for every user
+     */
+    @Profile
+    List<UserResults> reportSkillsForUsers(String projectId, List<String> skillIds, List<String> userIds, Date incomingSkillDate,
+                                          SkillApprovalParams approvalParams, Boolean notifyIfNotApplied, boolean failFast, String importId = null,
+                                          Closure<String> resolveUserId = null) {
+        BulkReportProgress progress = new BulkReportProgress(importId: importId, projectId: projectId, totalUsers: userIds.size())
+        if (importId) {
+            progressByImportId.put(progressKey(projectId, importId), progress)
+        }
+
+        long start = System.currentTimeMillis()
+        List<UserResults> res = []
+        List<String> toFanOut = userIds
+        if (failFast && userIds) {
+            UserResults first = reportForUser(projectId, skillIds, userIds.first(), incomingSkillDate, approvalParams, notifyIfNotApplied, resolveUserId)
+            if (first.failuresBySkillId.size() == skillIds.size() && first.userId != null) {
+                progress.completed = new Date()
+                throw first.failuresBySkillId.values().first()
+            }
+            updateProgress(progress, first)
+            res.add(first)
+            toFanOut = userIds.drop(1)
+        }
+
+        List<Callable<UserResults>> toSubmit = toFanOut.collect { String requestedUserId ->
+            ThreadPoolUtils.callable {
+                UserResults userResults = reportForUser(projectId, skillIds, requestedUserId, incomingSkillDate, approvalParams, notifyIfNotApplied, resolveUserId)
+                updateProgress(progress, userResults)
+                return userResults
+            }
+        }
+        try {
+            if (toSubmit) {
+                res.addAll(pool.submitAndGetResults(toSubmit))
+            }
+        } finally {
+            progress.completed = new Date()
+        }
+
+        meterRegistry.counter('skills.bulkReport.events').increment(skillIds.size() * userIds.size())
+        log.info("Bulk reported [{}] skills for [{}] users in project [{}] in [{}] ms, [{}] users had failures",
+                skillIds.size(), userIds.size(), projectId, System.currentTimeMillis() - start, progress.erroredUsers.get())
+        return res
+    }
+
+    private UserResults reportForUser(String projectId, List<String> skillIds, String requestedUserId, Date incomingSkillDate,
+                                      SkillApprovalParams approvalParams, Boolean notifyIfNotApplied, Closure<String> resolveUserId) {
+        UserResults userResults = new UserResults(requestedUserId: requestedUserId)
+        String userId
+        try {
+            userId = resolveUserId ? resolveUserId.call(requestedUserId) : requestedUserId
+            userResults.userId = userId
+        } catch (SkillException ske) {
+            log.warn("Failed to resolve user [{}] while bulk reporting skills for project [{}]: [{}]", requestedUserId, projectId, ske.message)
+            skillIds.each { String skillId ->
+                userResults.results.add(null)
+                userResults.failuresBySkillId.put(skillId, ske)
+            }
+            return userResults
+        }
+
+        List<BatchedSkillEvent> events = skillIds.collect { String skillId ->
+            new BatchedSkillEvent(skillId: skillId, incomingSkillDate: incomingSkillDate, approvalParams: approvalParams)
+        }
+        List<SkillEventResult> results = null
+        try {
+            results = skillEventsTransactionalService.reportSkillsBatchInternal(projectId, userId, events)
+        } catch (Throwable t) {
+            log.debug("Reporting [{}] skills for user [{}] in a single transaction failed, applying individually. Error: [{}]", skillIds.size(), userId, t.message)
+        }
+
+        if (results != null) {
+            userResults.results.addAll(results)
+        } else {
+            skillIds.each { String skillId ->
+                try {
+                    userResults.results.add(skillEventsTransactionalService.reportSkillInternal(projectId, skillId, userId, incomingSkillDate, approvalParams))
+                } catch (SkillException ske) {
+                    userResults.results.add(null)
+                    userResults.failuresBySkillId.put(skillId, ske)
+                } catch (Exception e) {
+                    log.error("Failed to report skill [${skillId}] for user [${userId}] in project [${projectId}]", e)
+                    userResults.results.add(null)
+                    userResults.failuresBySkillId.put(skillId, new SkillException(e.message, e, projectId, skillId))
+                }
+            }
+        }
+
+        userResults.results.each { SkillEventResult result ->
+            if (result) {
+                skillEventsService.afterSkillReported(result, userId, notifyIfNotApplied)
+            }
+        }
+        return userResults
+    }
+
+    private static void updateProgress(BulkReportProgress progress, UserResults userResults) {
+        userResults.results.each { SkillEventResult result ->
+            if (result) {
+                (result.skillApplied ? progress.appliedEvents : progress.notAppliedEvents).incrementAndGet()
+            }
+        }
+        if (userResults.hasFailures()) {
+            progress.erroredUsers.incrementAndGet()
+        }
+        progress.processedUsers.incrementAndGet()
+    }
+
+    private static String progressKey(String projectId, String importId) {
+        return "${projectId}|${importId}".toString()
+    }
+}
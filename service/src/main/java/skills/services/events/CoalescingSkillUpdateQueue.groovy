@@ -0,0 +1,176 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.events
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.BiConsumer
+
+/**
+ * Per-user mailboxes of pending skill updates. The first update queued for a user schedules delivery of that user's
+ * mailbox windowMs later; everything that arrives for the user in the meantime is delivered in the same flush.
+ * Updates for a skill that is already pending are merged into the pending update, so a user gets at most one update
+ * per skill per window. Each mailbox holds at most maxPendingPerUser skills, once full the oldest pending update is
+ * dropped.
+ */
+@CompileStatic
+@Slf4j
+class CoalescingSkillUpdateQueue {
+
+    static class Mailbox {
+        final LinkedHashMap<String, SkillEventResult> pending = new LinkedHashMap<>()
+        // set once the mailbox was flushed and removed, offers then go to a new mailbox
+        boolean closed = false
+    }
+
+    private final long windowMs
+    private final int maxPendingPerUser
+    private final BiConsumer<String, List<SkillEventResult>> delivery
+    private final ScheduledExecutorService scheduler
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>()
+
+    private final AtomicInteger numPending = new AtomicInteger()
+    private final AtomicLong numReceived = new AtomicLong()
+    private final AtomicLong numDelivered = new AtomicLong()
+    private final AtomicLong numDropped = new AtomicLong()
+
+    CoalescingSkillUpdateQueue(long windowMs, int maxPendingPerUser, int numThreads, BiConsumer<String, List<SkillEventResult>> delivery) {
+        this.windowMs = windowMs
+        this.maxPendingPerUser = maxPendingPerUser
+        this.delivery = delivery
+        AtomicInteger threadNum = new AtomicInteger()
+        this.scheduler = Executors.newScheduledThreadPool(numThreads, { Runnable r ->
+            Thread t = new Thread(r, "event-publisher-coalescing-${threadNum.incrementAndGet()}".toString())
+            t.daemon = true
+            return t
+        })
+    }
+
+    void offer(String userId, SkillEventResult result) {
+        numReceived.incrementAndGet()
+        String key = "${result.projectId}|${result.skillId}".toString()
+        while (true) {
+            Mailbox mailbox = mailboxes.computeIfAbsent(userId, { new Mailbox() })
+            boolean scheduleFlush = false
+            synchronized (mailbox) {
+                if (mailbox.closed) {
+                    continue
+                }
+                SkillEventResult previous = mailbox.pending.remove(key)
+                if (previous != null) {
+                    mailbox.pending.put(key, merge(previous, result))
+                } else {
+                    if (mailbox.pending.size() >= maxPendingPerUser) {
+                        Iterator<Map.Entry<String, SkillEventResult>> oldest = mailbox.pending.entrySet().iterator()
+                        SkillEventResult dropped = oldest.next().value
+                        oldest.remove()
+                        numPending.decrementAndGet()
+                        numDropped.incrementAndGet()
+                        log.warn("More than [{}] skill updates pending for user [{}], dropped update [{}]", maxPendingPerUser, userId, dropped)
+                    }
+                    scheduleFlush = mailbox.pending.isEmpty()
+                    mailbox.pending.put(key, result)
+                    numPending.incrementAndGet()
+                }
+            }
+            if (scheduleFlush) {
+                scheduler.schedule({ flush(userId, mailbox) } as Runnable, windowMs, TimeUnit.MILLISECONDS)
+            }
+            return
+        }
+    }
+
+    private void flush(String userId, Mailbox mailbox) {
+        List<SkillEventResult> results
+        synchronized (mailbox) {
+            results = new ArrayList<>(mailbox.pending.values())
+            mailbox.pending.clear()
+            mailbox.closed = true
+            mailboxes.remove(userId, mailbox)
+        }
+        numPending.addAndGet(-results.size())
+        numDelivered.addAndGet(results.size())
+        try {
+            delivery.accept(userId, results)
+        } catch (Throwable t) {
+            log.error("Failed to deliver [${results.size()}] skill updates to user [${userId}]", t)
+        }
+    }
+
+    /**
+     * Points earned are summed and completions accumulated; everything else reflects the latest update, unless the
+     * latest event was not applied while an earlier one was.
+     */
+    static SkillEventResult merge(SkillEventResult previous, SkillEventResult latest) {
+        SkillEventResult merged = new SkillEventResult(
+                success: latest.success,
+                projectId: latest.projectId,
+                skillId: latest.skillId,
+                name: latest.name,
+                pointsEarned: previous.pointsEarned + latest.pointsEarned,
+                totalPointsEarned: latest.totalPointsEarned,
+                totalPoints: latest.totalPoints,
+                numOccurrencesToCompletion: latest.numOccurrencesToCompletion,
+                skillApplied: latest.skillApplied,
+                explanation: latest.explanation,
+                completed: ((previous.completed ?: []) + (latest.completed ?: [])).unique(false),
+                selfReportType: latest.selfReportType,
+                userId: latest.userId,
+                userIdForDisplay: latest.userIdForDisplay,
+        )
+        if (!latest.skillApplied && previous.skillApplied) {
+            merged.skillApplied = true
+            merged.explanation = previous.explanation
+            merged.totalPointsEarned = Math.max(previous.totalPointsEarned, latest.totalPointsEarned)
+        }
+        return merged
+    }
+
+    int getNumPending() {
+        return numPending.get()
+    }
+
+    long getNumReceived() {
+        return numReceived.get()
+    }
+
+    long getNumDelivered() {
+        return numDelivered.get()
+    }
+
+    long getNumDropped() {
+        return numDropped.get()
+    }
+
+    /**
+     * @return number of received updates per delivered update
+     */
+    double getCoalescingRatio() {
+        long delivered = numDelivered.get()
+        return delivered ? (numReceived.get() - numPending.get() - numDropped.get()) / (double) delivered : 1d
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow()
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.events
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.MeterRegistry
+import jakarta.annotation.PostConstruct
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import skills.tasks.TaskSchedulerService
+import skills.tasks.data.ImportedSkillAchievements
+
+/**
+ * Opt-in (skills.config.catalogPropagation.coalesce.enabled=true) replacement for scheduling one
+ * ImportedSkillAchievement task per importing project for every applied event of an exported catalog skill.
+ * Events are collected per (user, original skill) for the duration of the reporting transaction and scheduled right
+ * before it commits as a single task that replays all of them against every importing project in one transaction.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class ImportedSkillsPropagationQueue {
+
+    private static final String TX_PENDING_RESOURCE = ImportedSkillsPropagationQueue.name + '.pending'
+
+    @Value('#{"${skills.config.catalogPropagation.coalesce.enabled:false}"}')
+    Boolean enabled = false
+
+    @Autowired
+    TaskSchedulerService taskSchedulerService
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    private Counter eventsCounter
+    private Counter tasksCounter
+
+    static class Pending {
+        final String userId
+        final Integer originalSkillId
+        final List<Integer> importedSkillIds
+        final List<ImportedSkillAchievements.Event> events = []
+
+        Pending(String userId, Integer originalSkillId, List<Integer> importedSkillIds) {
+            this.userId = userId
+            this.originalSkillId = originalSkillId
+            this.importedSkillIds = importedSkillIds
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            log.info("Enabling coalesced catalog propagation")
+            eventsCounter = meterRegistry.counter('skills.catalog.propagation.reported')
+            tasksCounter = meterRegistry.counter('skills.catalog.propagation.scheduled')
+        }
+    }
+
+    void add(String userId, Integer originalSkillId, List<Integer> importedSkillIds, SkillDate skillDate, boolean requestedSkillCompleted, boolean isMotivationalSkill) {
+        ImportedSkillAchievements.Event event = new ImportedSkillAchievements.Event(
+                incomingSkillDate: skillDate,
+                thisRequestCompletedOriginalSkill: requestedSkillCompleted,
+                isMotivationalSkill: isMotivationalSkill,
+                reportedOn: System.currentTimeMillis(),
+        )
+        eventsCounter.increment()
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            schedule(userId, originalSkillId, importedSkillIds, [event])
+            return
+        }
+
+        Map<String, Pending> pending = getTxPending()
+        String key = "${userId}|${originalSkillId}".toString()
+        Pending forSkill = pending.get(key)
+        if (forSkill == null) {
+            forSkill = new Pending(userId, originalSkillId, importedSkillIds)
+            pending.put(key, forSkill)
+        }
+        forSkill.events.add(event)
+    }
+
+    void schedule(String userId, Integer originalSkillId, List<Integer> importedSkillIds, List<ImportedSkillAchievements.Event> events) {
+        taskSchedulerService.scheduleImportedSkillAchievements(userId, originalSkillId, importedSkillIds, events)
+        tasksCounter.increment()
+    }
+
+    private Map<String, Pending> getTxPending() {
+        Map<String, Pending> pending = (Map<String, Pending>) TransactionSynchronizationManager.getResource(TX_PENDING_RESOURCE)
+        if (pending == null) {
+            // keep the order in which skills were first reported
+            Map<String, Pending> newPending = new LinkedHashMap<>()
+            TransactionSynchronizationManager.bindResource(TX_PENDING_RESOURCE, newPending)
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void beforeCommit(boolean readOnly) {
+                    // still within the reporting transaction so the tasks are only persisted if it commits
+                    newPending.values().each { Pending forSkill ->
+                        schedule(forSkill.userId, forSkill.originalSkillId, forSkill.importedSkillIds, forSkill.events)
+                    }
+                    newPending.clear()
+                }
+
+                @Override
+                void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TX_PENDING_RESOURCE)
+                }
+            })
+            pending = newPending
+        }
+        return pending
+    }
+}
@@ -19,7 +19,11 @@ import callStack.profiler.Profile
 import callStack.utils.CachedThreadPool
 import callStack.utils.ThreadPoolUtils
 import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.FunctionCounter
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
 import jakarta.annotation.PostConstruct
+import jakarta.annotation.PreDestroy
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.annotation.Value
 import org.springframework.context.event.EventListener
@@ -33,6 +37,7 @@ import org.springframework.web.client.RestTemplate
 import skills.websocket.SubscribedDestinationRegistry
 
 import java.util.concurrent.RejectedExecutionException
+import java.util.function.BiConsumer
 import java.util.regex.Pattern
 
 @Component
@@ -59,11 +64,34 @@ class SkillEventPublisher {
     @Value('#{"${skills.event.messaging.enabled:true}"}')
     Boolean enabled = true
 
+    /**
+     * When enabled, updates are queued in per-user mailboxes and delivered coalescingWindowMs after the first pending
+     * update of that user, so a burst of events (bulk reporting, imports) results in a single update per skill instead
+     * of one message per event. See {@link CoalescingSkillUpdateQueue}.
+     */
+    @Value('#{"${skills.event.messaging.coalesce.enabled:false}"}')
+    Boolean coalesce = false
+
+    @Value('#{"${skills.event.messaging.coalesce.windowMs:250}"}')
+    long coalescingWindowMs = 250
+
+    @Value('#{"${skills.event.messaging.coalesce.maxPendingPerUser:100}"}')
+    int maxPendingPerUser = 100
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry
+
     private CachedThreadPool pool
+    private CoalescingSkillUpdateQueue coalescingQueue
 
     @PostConstruct
     void init() {
-        if (enabled) {
+        if (enabled && coalesce) {
+            log.info("Enabling coalescing event messaging: windowMs=[{}], maxPendingPerUser=[{}]", coalescingWindowMs, maxPendingPerUser)
+            coalescingQueue = new CoalescingSkillUpdateQueue(coalescingWindowMs, maxPendingPerUser, minNumOfThreads,
+                    { String userId, List<SkillEventResult> results -> sendToUser(userId, results) } as BiConsumer<String, List<SkillEventResult>>)
+            registerCoalescingMetrics()
+        } else if (enabled) {
             log.info("Enabling event messaging thread pool")
             pool = new CachedThreadPool('event-publisher]', minNumOfThreads, maxNumOfThreads, queueCapacity)
         } else {
@@ -71,30 +99,41 @@ class SkillEventPublisher {
         }
     }
 
+    private void registerCoalescingMetrics() {
+        if (!meterRegistry) {
+            return
+        }
+        Gauge.builder('skills.event.messaging.coalesce.pending', coalescingQueue, { CoalescingSkillUpdateQueue queue -> (double) queue.numPending })
+                .description('Number of skill updates waiting to be delivered')
+                .register(meterRegistry)
+        Gauge.builder('skills.event.messaging.coalesce.ratio', coalescingQueue, { CoalescingSkillUpdateQueue queue -> queue.coalescingRatio })
+                .description('Number of reported skill updates per delivered message')
+                .register(meterRegistry)
+        FunctionCounter.builder('skills.event.messaging.coalesce.received', coalescingQueue, { CoalescingSkillUpdateQueue queue -> (double) queue.numReceived })
+                .register(meterRegistry)
+        FunctionCounter.builder('skills.event.messaging.coalesce.delivered', coalescingQueue, { CoalescingSkillUpdateQueue queue -> (double) queue.numDelivered })
+                .register(meterRegistry)
+        FunctionCounter.builder('skills.event.messaging.coalesce.dropped', coalescingQueue, { CoalescingSkillUpdateQueue queue -> (double) queue.numDropped })
+                .description('Skill updates dropped because the user had too many pending updates')
+                .register(meterRegistry)
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coalescingQueue?.shutdown()
+    }
+
     @Profile
     void publishSkillUpdate(SkillEventResult result, String userId) {
         if (enabled) {
+            if (coalescingQueue) {
+                coalescingQueue.offer(userId, result)
+                return
+            }
             try {
                 // report to external service in a separate thread
                 pool.submit([ThreadPoolUtils.callable {
-                    log.debug("Reporting user skill for user [{}}], result [{}}]", userId, result)
-                    if (brokerAvailable) {
-                        if (result.projectId) {
-                            messagingTemplate.convertAndSendToUser(userId, "/queue/${result.projectId}-skill-updates", result)
-                        } else {
-                            List<String> destinations = destinationRegistry.getAllDestinationsForUser(userId)
-                            if (log.isDebugEnabled()) {
-                                log.debug("got [${destinations?.size()}] subscribed destinations for user [$userId]")
-                            }
-                            destinations = destinations?.unique()
-                            destinations?.each {
-                                it = it.replace("/user", "")
-                                messagingTemplate.convertAndSendToUser(userId, it, result)
-                            }
-                        }
-                    } else {
-                        log.warn("Failed to publish skill update since the broker is unavailable. user [${userId}], result [${result}]")
-                    }
+                    sendToUser(userId, [result])
                 }])
             } catch (RejectedExecutionException ree) {
                 log.error("Queue is full with [${queueCapacity}] items, unable to send message. user [${userId}], result [${result}]")
@@ -102,6 +141,35 @@ class SkillEventPublisher {
         }
     }
 
+    private void sendToUser(String userId, List<SkillEventResult> results) {
+        List<String> userDestinations = null
+        results.each { SkillEventResult result ->
+            log.debug("Reporting user skill for user [{}}], result [{}}]", userId, result)
+            if (brokerAvailable) {
+                if (result.projectId) {
+                    messagingTemplate.convertAndSendToUser(userId, "/queue/${result.projectId}-skill-updates", result)
+                } else {
+                    if (userDestinations == null) {
+                        userDestinations = getUserDestinations(userId)
+                    }
+                    userDestinations.each {
+                        messagingTemplate.convertAndSendToUser(userId, it, result)
+                    }
+                }
+            } else {
+                log.warn("Failed to publish skill update since the broker is unavailable. user [${userId}], result [${result}]")
+            }
+        }
+    }
+
+    private List<String> getUserDestinations(String userId) {
+        List<String> destinations = destinationRegistry.getAllDestinationsForUser(userId)
+        if (log.isDebugEnabled()) {
+            log.debug("got [${destinations?.size()}] subscribed destinations for user [$userId]")
+        }
+        return destinations ? destinations.unique().collect { it.replace("/user", "") } : []
+    }
+
     @EventListener
     void handleBrokerAvailabilityEvent(BrokerAvailabilityEvent event) {
         log.info("BrokerAvailabilityEvent ["+event+"]")
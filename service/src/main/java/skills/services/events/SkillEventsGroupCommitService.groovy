@@ -0,0 +1,273 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.events
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.DistributionSummary
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
+import jakarta.annotation.PostConstruct
+import jakarta.annotation.PreDestroy
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Service
+import skills.controller.exceptions.ErrorCode
+import skills.controller.exceptions.SkillException
+import skills.controller.exceptions.SkillExceptionBuilder
+import skills.utils.RetryUtil
+
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+import static skills.services.events.SkillEventsService.SkillApprovalParams
+import static skills.services.events.SkillEventsTransactionalService.BatchedSkillEvent
+
+/**
+ * Optional group-commit ingestion mode for reported skill events (skills.events.groupCommit.enabled=true).
+ *
+ * Events are accepted into bounded in-memory queues partitioned by (userId, projectId), so all events for
+ * a given user and project are always handled by the same worker and in the order they were received.
+ * Each worker drains up to batchSize events (waiting at most lingerMs for a batch to fill) and applies every
+ * user-project group of the batch in a single transaction - one lock acquisition and one commit per group.
+ * Callers block on a future that is completed once their group has been committed. If a group fails, its
+ * transaction is rolled back and each event of that group is re-applied individually using the regular path,
+ * so a single bad event never affects the outcome of the others.
+ */
+@Service
+@CompileStatic
+@Slf4j
+class SkillEventsGroupCommitService {
+
+    @Value('#{"${skills.events.groupCommit.enabled:false}"}')
+    Boolean enabled = false
+
+    @Value('#{"${skills.events.groupCommit.numWorkers:4}"}')
+    int numWorkers = 4
+
+    @Value('#{"${skills.events.groupCommit.queueCapacity:10000}"}')
+    int queueCapacity = 10000
+
+    @Value('#{"${skills.events.groupCommit.batchSize:50}"}')
+    int batchSize = 50
+
+    @Value('#{"${skills.events.groupCommit.lingerMs:5}"}')
+    long lingerMs = 5
+
+    @Value('#{"${skills.events.groupCommit.resultTimeoutMs:60000}"}')
+    long resultTimeoutMs = 60000
+
+    @Autowired
+    SkillEventsTransactionalService skillEventsTransactionalService
+
+    @Autowired
+    SkillEventsService skillEventsService
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    private List<Partition> partitions = []
+    private volatile boolean running = false
+
+    private DistributionSummary batchSizeSummary
+    private Timer commitTimer
+
+    static class QueuedSkillEvent {
+        String projectId
+        String skillId
+        String userId
+        Boolean notifyIfNotApplied
+        Date incomingSkillDate
+        SkillApprovalParams approvalParams
+        CompletableFuture<SkillEventResult> future = new CompletableFuture<>()
+
+        String getPartitionKey() {
+            return userId + projectId
+        }
+    }
+
+    private class Partition implements Runnable {
+        final BlockingQueue<QueuedSkillEvent> queue
+        final Thread thread
+
+        Partition(int num, int capacity) {
+            queue = new ArrayBlockingQueue<>(capacity)
+            thread = new Thread(this, "skill-events-group-commit-${num}".toString())
+            thread.daemon = true
+        }
+
+        @Override
+        void run() {
+            while (running || !queue.isEmpty()) {
+                try {
+                    List<QueuedSkillEvent> batch = nextBatch(queue)
+                    if (batch) {
+                        applyBatch(batch)
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt()
+                    break
+                } catch (Throwable t) {
+                    log.error("Unexpected failure in group-commit worker [${Thread.currentThread().name}]", t)
+                }
+            }
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            int capacityPerWorker = Math.max(1, (int) (queueCapacity / numWorkers))
+            log.info("Enabling group-commit skill event ingestion: numWorkers=[{}], queueCapacity=[{}], batchSize=[{}], lingerMs=[{}]",
+                    numWorkers, queueCapacity, batchSize, lingerMs)
+            batchSizeSummary = DistributionSummary.builder('skills.events.groupCommit.batch.size')
+                    .description('Number of events applied in a single group-commit transaction')
+                    .register(meterRegistry)
+            commitTimer = Timer.builder('skills.events.groupCommit.commit.latency')
+                    .description('Time to apply and commit a single group-commit transaction')
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+            Gauge.builder('skills.events.groupCommit.queue.depth', this, { SkillEventsGroupCommitService service -> (double) service.getQueueDepth() })
+                    .description('Number of reported events waiting to be applied')
+                    .register(meterRegistry)
+
+            running = true
+            numWorkers.times { int num ->
+                Partition partition = new Partition(num, capacityPerWorker)
+                partitions.add(partition)
+                partition.thread.start()
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (running) {
+            log.info("Stopping group-commit skill event ingestion, [{}] queued events will be drained", getQueueDepth())
+            running = false
+            partitions.each { Partition partition ->
+                partition.thread.join(TimeUnit.SECONDS.toMillis(30))
+            }
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled && running
+    }
+
+    int getQueueDepth() {
+        return (int) partitions.sum(0) { Partition partition -> partition.queue.size() }
+    }
+
+    SkillEventResult reportSkill(String projectId, String skillId, String userId, Boolean notifyIfNotApplied, Date incomingSkillDate, SkillApprovalParams approvalParams) {
+        QueuedSkillEvent event = new QueuedSkillEvent(projectId: projectId, skillId: skillId, userId: userId,
+                notifyIfNotApplied: notifyIfNotApplied, incomingSkillDate: incomingSkillDate, approvalParams: approvalParams)
+        Partition partition = partitions.get(Math.floorMod(event.partitionKey.hashCode(), partitions.size()))
+        if (!partition.queue.offer(event)) {
+            meterRegistry.counter('skills.events.groupCommit.rejected').increment()
+            throw new SkillExceptionBuilder()
+                    .msg("Too many skill events are queued, please retry later")
+                    .logLevel(SkillException.SkillExceptionLogLevel.WARN)
+                    .printStackTrace(false)
+                    .doNotRetry(true)
+                    .errorCode(ErrorCode.TooManyRequests)
+                    .projectId(projectId).skillId(skillId).userId(userId).build()
+        }
+
+        try {
+            return event.future.get(resultTimeoutMs, TimeUnit.MILLISECONDS)
+        } catch (ExecutionException ee) {
+            throw ee.cause
+        } catch (TimeoutException te) {
+            throw new SkillException("Timed out after [${resultTimeoutMs}] ms waiting for the skill event to be applied", te, projectId, skillId)
+        }
+    }
+
+    private List<QueuedSkillEvent> nextBatch(BlockingQueue<QueuedSkillEvent> queue) {
+        QueuedSkillEvent first = queue.poll(1, TimeUnit.SECONDS)
+        if (!first) {
+            return null
+        }
+        List<QueuedSkillEvent> batch = [first]
+        long lingerUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs)
+        while (batch.size() < batchSize) {
+            long remaining = lingerUntil - System.nanoTime()
+            QueuedSkillEvent next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll()
+            if (!next) {
+                break
+            }
+            batch.add(next)
+        }
+        return batch
+    }
+
+    private void applyBatch(List<QueuedSkillEvent> batch) {
+        Map<String, List<QueuedSkillEvent>> byUserAndProject = batch.groupBy { QueuedSkillEvent event -> event.partitionKey }
+        byUserAndProject.values().each { List<QueuedSkillEvent> group ->
+            applyGroup(group)
+        }
+    }
+
+    private void applyGroup(List<QueuedSkillEvent> group) {
+        QueuedSkillEvent first = group.first()
+        List<BatchedSkillEvent> events = group.collect { QueuedSkillEvent event ->
+            new BatchedSkillEvent(skillId: event.skillId, incomingSkillDate: event.incomingSkillDate, approvalParams: event.approvalParams)
+        }
+
+        List<SkillEventResult> results
+        long start = System.nanoTime()
+        try {
+            results = skillEventsTransactionalService.reportSkillsBatchInternal(first.projectId, first.userId, events)
+        } catch (Throwable t) {
+            log.warn("Group-commit of [{}] events for user [{}] and project [{}] failed, applying individually. Error: [{}]",
+                    group.size(), first.userId, first.projectId, t.message)
+        }
+        commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+        batchSizeSummary.record(group.size())
+
+        if (results != null) {
+            group.eachWithIndex { QueuedSkillEvent event, int i ->
+                SkillEventResult result = results.get(i)
+                try {
+                    skillEventsService.afterSkillReported(result, event.userId, event.notifyIfNotApplied)
+                } catch (Throwable t) {
+                    log.error("Failed post-commit processing for user [${event.userId}], result [${result}]", t)
+                }
+                event.future.complete(result)
+            }
+        } else {
+            group.each { QueuedSkillEvent event ->
+                reportIndividually(event)
+            }
+        }
+    }
+
+    private void reportIndividually(QueuedSkillEvent event) {
+        try {
+            SkillEventResult result = (SkillEventResult) RetryUtil.withRetry(3, false) {
+                skillEventsService.reportSkill(event.projectId, event.skillId, event.userId, event.notifyIfNotApplied, event.incomingSkillDate, event.approvalParams)
+            }
+            event.future.complete(result)
+        } catch (Throwable t) {
+            event.future.completeExceptionally(t)
+        }
+    }
+}
@@ -70,12 +70,19 @@ class SkillEventsService {
     @Profile
     SkillEventResult reportSkill(String projectId, String skillId, String userId, Boolean notifyIfNotApplied, Date incomingSkillDate, SkillApprovalParams skillApprovalParams = defaultSkillApprovalParams) {
         SkillEventResult result = skillEventsTransactionalService.reportSkillInternal(projectId, skillId, userId, incomingSkillDate, skillApprovalParams)
+        afterSkillReported(result, userId, notifyIfNotApplied)
+        return result
+    }
+
+    /**
+     * Must only be called once the transaction that produced the result has been committed
+     */
+    void afterSkillReported(SkillEventResult result, String userId, Boolean notifyIfNotApplied) {
         if (notifyIfNotApplied || result.skillApplied) {
             skillEventPublisher.publishSkillUpdate(result, userId)
         }
         metricsLogger.logSkillReported(userId, result)
         matomoReporter.reportSkill(userId, result.projectId, result.skillId)
-        return result
     }
 
     @Async
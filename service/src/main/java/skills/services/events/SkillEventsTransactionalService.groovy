@@ -20,6 +20,7 @@ import groovy.transform.CompileStatic
 import groovy.util.logging.Slf4j
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.annotation.Value
+import org.springframework.data.domain.PageRequest
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
 import skills.auth.AuthMode
@@ -35,6 +36,7 @@ import skills.services.admin.SkillsGroupAdminService
 import skills.services.attributes.SkillAttributeService
 import skills.services.events.pointsAndAchievements.PointsAndAchievementsHandler
 import skills.services.userActions.UserActionsHistoryService
+import skills.skillLoading.UserProgressSnapshotCache
 import skills.storage.model.*
 import skills.storage.repos.*
 import skills.tasks.TaskSchedulerService
@@ -58,6 +60,9 @@ class SkillEventsTransactionalService {
     @Autowired
     UserPerformedSkillRepo performedSkillRepository
 
+    @Autowired
+    UserProgressSnapshotCache userProgressSnapshotCache
+
     @Autowired
     SkillEventsSupportRepo skillEventsSupportRepo
 
@@ -124,56 +129,57 @@ class SkillEventsTransactionalService {
     @Autowired
     QuizRunService quizRunService
 
-    @Transactional
-    void notifyUserOfAchievements(String userId){
-        try {
-            List<UserAchievement> pendingNotificationAchievements = achievedLevelRepo.findAllByUserIdAndNotifiedOrderByCreatedAsc(userId, Boolean.FALSE.toString())
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
 
-            SkillEventResult ser
+    @Autowired
+    UserSkillStateCache userSkillStateCache
 
-            pendingNotificationAchievements?.each {
-                SkillDefMin skill
+    @Autowired
+    ImportedSkillsPropagationQueue importedSkillsPropagationQueue
 
-                if(it.projectId && it.skillId) {
-                    skill = skillEventsSupportRepo.findByProjectIdAndSkillId(it.projectId, it.skillId)
-                } else if (it.skillId) {
-                    skill = skillEventsSupportRepo.findBySkillRefId(it.skillRefId)
-                }
+    /**
+     * Resolves all of the user's pending achievements with a single query (achievement + skill definition + user points)
+     * and publishes them as one coalesced result.
+     */
+    @Transactional
+    void notifyUserOfAchievements(String userId){
+        try {
+            List<UserAchievedLevelRepo.PendingNotification> pendingNotifications = achievedLevelRepo.findPendingNotifications(userId)
+            if (!pendingNotifications) {
+                return
+            }
 
-                if (!ser) {
-                    ser = new SkillEventResult(projectId: it.projectId, skillId: it.skillId, name: skill? skill.name : 'OVERALL')
-                    ser.completed = []
-                }
+            UserAchievedLevelRepo.PendingNotification first = pendingNotifications.first()
+            SkillEventResult ser = new SkillEventResult(projectId: first.projectId, skillId: first.skillId, name: first.skillName ?: 'OVERALL')
+            ser.completed = []
 
+            pendingNotifications.each {
                 CompletionItem completionItem
                 if (it.level != null) {
-                    UserPoints points = userPointsRepo.findByProjectIdAndUserIdAndSkillId(it.projectId, userId, it.skillId)
-
                     completionItem = new CompletionItem(
-                            level: it.level, name: skill?.name ?: "OVERALL",
-                            id: points?.skillId ?: "OVERALL",
-                            type: points?.skillId ? CompletionItemType.Subject : CompletionItemType.Overall)
-                } else {
-                    if(skill && SkillDef.ContainerType.Skill == skill.type) {
-                        completionItem = new CompletionItem(type: CompletionItemType.Skill, id: skill.skillId, name: skill.name)
+                            level: it.level, name: it.skillName ?: "OVERALL",
+                            id: it.pointsSkillId ?: "OVERALL",
+                            type: it.pointsSkillId ? CompletionItemType.Subject : CompletionItemType.Overall)
+                } else if (it.defSkillId) {
+                    if (SkillDef.ContainerType.Skill == it.skillType) {
+                        completionItem = new CompletionItem(type: CompletionItemType.Skill, id: it.defSkillId, name: it.skillName)
                     } else {
                         //why doesn't CompletionTypeUtil support Skill?
-                        completionItem = new CompletionItem(type: CompletionTypeUtil.getCompletionType(skill.type), id: skill.skillId, name: skill.name)
+                        completionItem = new CompletionItem(type: CompletionTypeUtil.getCompletionType(it.skillType), id: it.defSkillId, name: it.skillName)
                     }
+                } else {
+                    log.warn("Unable to find definition for pending achievement [{}] of user [{}], projectId=[{}], skillId=[{}]", it.id, userId, it.projectId, it.skillId)
                 }
 
                 if (completionItem) {
                     ser.completed.add(completionItem)
                 }
-
-                it.notified = Boolean.TRUE.toString()
             }
 
-            if (ser) {
-                ser.explanation = PENDING_NOTIFICATION_EXPLANATION
-                skillEventPublisher.publishSkillUpdate(ser, userId)
-                achievedLevelRepo.saveAll(pendingNotificationAchievements)
-            }
+            ser.explanation = PENDING_NOTIFICATION_EXPLANATION
+            skillEventPublisher.publishSkillUpdate(ser, userId)
+            achievedLevelRepo.markNotified(pendingNotifications.collect { it.id })
         } catch (Exception e) {
             log.error("unable to notify user [${userId}] of pending achievements", e)
             throw e
@@ -183,6 +189,35 @@ class SkillEventsTransactionalService {
     @Profile
     @Transactional
     SkillEventResult reportSkillInternal(String projectId, String skillId, String userId, Date incomingSkillDateParam, SkillApprovalParams approvalParams = SkillEventsService.defaultSkillApprovalParams) {
+        return doReportSkill(projectId, skillId, userId, incomingSkillDateParam, approvalParams, null)
+    }
+
+    /**
+     * Applies a batch of events that all belong to the same user and project in a single transaction;
+     * the user-project lock is acquired once up-front so every event in the batch is applied under it.
+     * Any failure rolls back the whole batch - callers are expected to fall back to reporting the events individually.
+     */
+    @Profile
+    @Transactional
+    List<SkillEventResult> reportSkillsBatchInternal(String projectId, String userId, List<BatchedSkillEvent> events) {
+        assert projectId
+        assert userId
+
+        lockTransaction(userId, projectId)
+        List<SkillEventResult> results = []
+        events.each { BatchedSkillEvent event ->
+            results.add(doReportSkill(projectId, event.skillId, userId, event.incomingSkillDate, event.approvalParams, projectId))
+        }
+        return results
+    }
+
+    static class BatchedSkillEvent {
+        String skillId
+        Date incomingSkillDate
+        SkillApprovalParams approvalParams = SkillEventsService.defaultSkillApprovalParams
+    }
+
+    private SkillEventResult doReportSkill(String projectId, String skillId, String userId, Date incomingSkillDateParam, SkillApprovalParams approvalParams, String alreadyLockedProjectId) {
         assert projectId
         assert skillId
 
@@ -195,6 +230,7 @@ class SkillEventsTransactionalService {
         }
 
         SkillDate skillDate = new SkillDate(date: incomingSkillDateParam ?: new Date(), isProvided: incomingSkillDateParam != null)
+        userProgressSnapshotCache?.userChanged(userId)
 
         SkillDefMin skillDefinition = getSkillDef(userId, projectId, skillId)
         if (skillDefinition.enabled != null && !Boolean.valueOf(skillDefinition.enabled)) {
@@ -220,8 +256,18 @@ class SkillEventsTransactionalService {
         Boolean isMotivationalSkill = skillAttributeService.isMotivationalSkill(projectId, skillId)
         SkillEventResult res = new SkillEventResult(projectId: projectId, skillId: skillId, name: skillDefinition.name, selfReportType: skillDefinition.getSelfReportingType()?.toString(), userId: userId)
 
-        long numExistingSkills = getNumExistingSkills(userId, projectId, skillId)
-        AppliedCheckRes checkRes = checkIfSkillApplied(userId, numExistingSkills, skillDate.date, skillDefinition, isMotivationalSkill)
+        // most events for skills that reached their maximum points or whose time window is full can be rejected without
+        // touching the database; events that pass are always re-checked under the lock below
+        UserSkillStateCache.Handle cachedState = isMotivationalSkill ? null : userSkillStateCache?.get(userId, projectId, skillId)
+        AppliedCheckRes checkRes = checkIfRejectedByCachedState(cachedState?.state, skillDate.date, skillDefinition)
+        long numExistingSkills = 0
+        if (checkRes.skillApplied) {
+            numExistingSkills = getNumExistingSkills(userId, projectId, skillId)
+            checkRes = checkIfSkillApplied(userId, numExistingSkills, skillDate.date, skillDefinition, isMotivationalSkill, cachedState?.state?.dependenciesSatisfied)
+            if (cachedState != null && cachedState.state == null) {
+                userSkillStateCache.loaded(cachedState, numExistingSkills, loadRecentPerformedOn(userId, projectId, skillId, numExistingSkills, skillDefinition))
+            }
+        }
         if (!checkRes.skillApplied) {
             // record event should happen AFTER the lock OR if it does not need the lock;
             // otherwise there is a chance of a deadlock (although unlikely); this can happen because record event
@@ -237,7 +283,9 @@ class SkillEventsTransactionalService {
          * Check if skill needs to be applied, if so then we'll need to db-lock to enforce cross-service lock;
          * once transaction is locked must redo all of the checks
          */
-        lockTransaction(userId, projectId)
+        if (alreadyLockedProjectId != projectId) {
+            lockTransaction(userId, projectId)
+        }
 
         final boolean isApprovalRequest = approvalParams && !approvalParams.disableChecks &&
                 skillDefinition.getSelfReportingType() == SkillDef.SelfReportingType.Approval
@@ -293,6 +341,9 @@ class SkillEventsTransactionalService {
                 skillId: skillId, projectId: skillDefinition.projectId,
                 performedOn: skillDate.date, skillRefId: skillDefinition.id)
         savePerformedSkill(performedSkill)
+        if (cachedState != null) {
+            userSkillStateCache.applied(cachedState, numExistingSkills + 1, skillDate.date, skillDefinition.numMaxOccurrencesIncrementInterval)
+        }
 
         res.pointsEarned = skillDefinition.pointIncrement
         res.totalPointsEarned = ((int)numExistingSkills + 1) * skillDefinition.pointIncrement
@@ -327,6 +378,10 @@ class SkillEventsTransactionalService {
     private void scheduleImportedSkills(SkillDefMin skillDefinition, String userId, SkillDate skillDate, boolean requestedSkillCompleted, boolean isMotivationalSkill) {
         List<Integer> importedSkillIds = skillDefRepo.findSkillDefIdsByCopiedFrom(skillDefinition.id)
         if (importedSkillIds) {
+            if (importedSkillsPropagationQueue?.enabled) {
+                importedSkillsPropagationQueue.add(userId, skillDefinition.id, importedSkillIds, skillDate, requestedSkillCompleted, isMotivationalSkill)
+                return
+            }
             importedSkillIds.each { Integer importedSkillId ->
                 taskSchedulerService.scheduleImportedSkillAchievement(userId, importedSkillId, skillDate, requestedSkillCompleted, isMotivationalSkill)
             }
@@ -345,7 +400,35 @@ class SkillEventsTransactionalService {
     }
 
     @Profile
-    private AppliedCheckRes checkIfSkillApplied(String userId, long numExistingSkills, Date incomingSkillDate, SkillDefMin skillDefinition, Boolean isMotivationalSkill) {
+    private AppliedCheckRes checkIfRejectedByCachedState(UserSkillStateCache.SkillState state, Date incomingSkillDate, SkillDefMin skillDefinition) {
+        AppliedCheckRes res = new AppliedCheckRes()
+        if (state == null) {
+            return res
+        }
+        if (hasReachedMaxPoints(state.numOccurrences, skillDefinition)) {
+            res.skillApplied = false
+            res.explanation = "This skill reached its maximum points"
+            return res
+        }
+        TimeWindowHelper.TimeWindowRes timeWindowRes = timeWindowHelper.checkTimeWindowOfKnownEvents(skillDefinition, incomingSkillDate, state.recentPerformedOn)
+        if (timeWindowRes.isFull()) {
+            res.skillApplied = false
+            res.explanation = timeWindowRes.msg
+        }
+        return res
+    }
+
+    @Profile
+    private List<Date> loadRecentPerformedOn(String userId, String projectId, String skillId, long numExistingSkills, SkillDefMin skillDefinition) {
+        boolean timeWindowEnabled = skillDefinition.pointIncrementInterval > 0 && skillDefinition.numMaxOccurrencesIncrementInterval > 0
+        if (!timeWindowEnabled || numExistingSkills == 0 || hasReachedMaxPoints(numExistingSkills, skillDefinition)) {
+            return []
+        }
+        return performedSkillRepository.findRecentPerformedOn(userId, projectId, skillId, PageRequest.of(0, skillDefinition.numMaxOccurrencesIncrementInterval))
+    }
+
+    @Profile
+    private AppliedCheckRes checkIfSkillApplied(String userId, long numExistingSkills, Date incomingSkillDate, SkillDefMin skillDefinition, Boolean isMotivationalSkill, Boolean dependenciesSatisfied = false) {
         AppliedCheckRes res = new AppliedCheckRes()
         if (!isMotivationalSkill && hasReachedMaxPoints(numExistingSkills, skillDefinition)) {
             res.skillApplied = false
@@ -360,11 +443,14 @@ class SkillEventsTransactionalService {
             return res
         }
 
-        CheckDependenciesHelper.DependencyCheckRes dependencyCheckRes = checkDependenciesHelper.check(userId, skillDefinition.projectId, skillDefinition.skillId)
-        if (dependencyCheckRes.hasNotAchievedDependents) {
-            res.skillApplied = false
-            res.explanation = dependencyCheckRes.msg
-            return res
+        // prerequisites stay satisfied once they were, unless they change; in which case the check under the lock catches it
+        if (!dependenciesSatisfied) {
+            CheckDependenciesHelper.DependencyCheckRes dependencyCheckRes = checkDependenciesHelper.check(userId, skillDefinition.projectId, skillDefinition.skillId)
+            if (dependencyCheckRes.hasNotAchievedDependents) {
+                res.skillApplied = false
+                res.explanation = dependencyCheckRes.msg
+                return res
+            }
         }
 
         if (skillDefinition.groupId && (!Boolean.valueOf(skillDefinition.enabled) || !skillsGroupAdminService.isParentSkillsGroupEnabled(skillDefinition.projectId, skillDefinition.groupId))) {
@@ -389,7 +475,9 @@ class SkillEventsTransactionalService {
 
     @Profile
     private SkillDefMin getSkillDef(String userId, String projectId, String skillId) {
-        SkillDefMin skillDefinition = skillEventsSupportRepo.findByProjectIdAndSkillIdAndType(projectId, skillId, SkillDef.ContainerType.Skill)
+        SkillDefMin skillDefinition = skillDefinitionCache.get('skillDef', projectId, skillId) {
+            skillEventsSupportRepo.findByProjectIdAndSkillIdAndType(projectId, skillId, SkillDef.ContainerType.Skill)
+        }
         if (!skillDefinition) {
             throw new SkillExceptionBuilder()
                     .msg("Failed to report skill event because skill definition does not exist.")
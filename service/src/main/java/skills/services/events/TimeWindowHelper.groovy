@@ -26,6 +26,8 @@ import skills.storage.model.SkillDefMin
 import skills.storage.repos.SkillEventsSupportRepo
 import skills.storage.repos.UserPerformedSkillRepo
 
+import java.util.concurrent.TimeUnit
+
 @Component
 @Slf4j
 @CompileStatic
@@ -76,6 +78,22 @@ class TimeWindowHelper {
         new TimeWindowRes(full: isFull, msg: msg)
     }
 
+    /**
+     * Same check as {@link #checkTimeWindow} against the provided (possibly partial) performedOn dates instead of
+     * the database; since dates may be missing a window that is not full here may still be full in the database.
+     */
+    TimeWindowRes checkTimeWindowOfKnownEvents(SkillDefMin skillDefinition, Date incomingSkillDate, List<Date> knownPerformedOn) {
+        if (skillDefinition.pointIncrementInterval <= 0 || !knownPerformedOn) {
+            return disabled
+        }
+        long windowMillis = TimeUnit.MINUTES.toMillis(skillDefinition.pointIncrementInterval)
+        long checkStart = incomingSkillDate.time - windowMillis
+        long checkEnd = incomingSkillDate.time + windowMillis
+        long count = knownPerformedOn.count { Date performedOn -> performedOn.time > checkStart && performedOn.time < checkEnd } as long
+        boolean isFull = count > 0 && count >= skillDefinition.numMaxOccurrencesIncrementInterval
+        return new TimeWindowRes(full: isFull, msg: isFull ? buildMsg(skillDefinition, count) : null)
+    }
+
     private String buildMsg(SkillDefMin skillDef, Long count){
         "This skill was already performed ${count > 1 ? "${count} out of ${count} times " : ""}within the configured time period (within the last ${timeWindowPrettyPrint(skillDef)})".toString()
     }
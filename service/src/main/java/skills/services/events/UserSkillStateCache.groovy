@@ -0,0 +1,218 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.events
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import jakarta.annotation.PostConstruct
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+
+import java.time.Duration
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.BiFunction
+import java.util.function.Function
+
+/**
+ * Opt-in cache of what reported skill events are checked against (skills.config.userSkillStateCache.enabled=true):
+ * the number of occurrences a user has for a skill, the most recent performedOn dates (up to the skill's
+ * numMaxOccurrencesIncrementInterval) and whether the skill's prerequisites were already satisfied. It lets
+ * {@link SkillEventsTransactionalService} reject events for skills that reached their maximum points or whose time
+ * window is full without querying the database.
+ *
+ * The cache is only ever used to reject events before the user-project lock is taken; events that pass are
+ * re-checked against the database under the lock as before. States are only written once the transaction that read
+ * them commits, so they never reflect uncommitted or rolled back data, and never claim more occurrences than the user
+ * had at some point. Removing events must call {@link #userChanged(String)} (or {@link #projectChanged(String)} when
+ * it spans users); like the other caches invalidation is local to the node and expireAfterWriteSeconds bounds how long
+ * events removed on another node may still count.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class UserSkillStateCache {
+
+    static final String CACHE_NAME = 'skills.userSkillStates'
+    private static final String TX_USERS_RESOURCE = UserSkillStateCache.name + '.users'
+
+    @Value('#{"${skills.config.userSkillStateCache.enabled:false}"}')
+    Boolean enabled = false
+
+    @Value('#{"${skills.config.userSkillStateCache.maxUsers:50000}"}')
+    long maxUsers = 50000
+
+    @Value('#{"${skills.config.userSkillStateCache.expireAfterWriteSeconds:60}"}')
+    long expireAfterWriteSeconds = 60
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    private Cache<String, UserStates> cache
+    private final ConcurrentHashMap<String, Long> projectGenerations = new ConcurrentHashMap<>()
+    private final AtomicLong generationSeq = new AtomicLong()
+
+    static class SkillState {
+        final long numOccurrences
+        // most recent first
+        final List<Date> recentPerformedOn
+        final boolean dependenciesSatisfied
+
+        SkillState(long numOccurrences, List<Date> recentPerformedOn, boolean dependenciesSatisfied) {
+            this.numOccurrences = numOccurrences
+            this.recentPerformedOn = Collections.unmodifiableList(recentPerformedOn)
+            this.dependenciesSatisfied = dependenciesSatisfied
+        }
+    }
+
+    /**
+     * Identifies the state of a user's skill as of the time it was read; writes through a stale handle (the user or
+     * project was invalidated since) are never read again.
+     */
+    static class Handle {
+        final UserStates userStates
+        final String key
+        final SkillState state
+
+        Handle(UserStates userStates, String key, SkillState state) {
+            this.userStates = userStates
+            this.key = key
+            this.state = state
+        }
+    }
+
+    static class UserStates {
+        final ConcurrentHashMap<String, SkillState> states = new ConcurrentHashMap<>()
+    }
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            log.info("Enabling user skill state cache: maxUsers=[{}], expireAfterWriteSeconds=[{}]", maxUsers, expireAfterWriteSeconds)
+            cache = Caffeine.newBuilder()
+                    .maximumSize(maxUsers)
+                    .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                    .recordStats()
+                    .build()
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME)
+        }
+    }
+
+    /**
+     * @return null when the cache is disabled; otherwise a handle whose state is null if nothing is cached yet
+     */
+    Handle get(String userId, String projectId, String skillId) {
+        if (!enabled) {
+            return null
+        }
+        String key = "${projectId}|${skillId}|${projectGenerations.getOrDefault(projectId, 0L)}".toString()
+        UserStates userStates = cache.get(userId.toLowerCase(), { String u -> new UserStates() } as Function<String, UserStates>)
+        return new Handle(userStates, key, userStates.states.get(key))
+    }
+
+    /**
+     * Records the state read by the current transaction, applied once the transaction commits.
+     */
+    void loaded(Handle handle, long numOccurrences, List<Date> recentPerformedOn) {
+        afterCommit {
+            handle.userStates.states.putIfAbsent(handle.key, new SkillState(numOccurrences, recentPerformedOn, false))
+        }
+    }
+
+    /**
+     * Records an occurrence applied by the current transaction after all of the checks passed under the lock,
+     * applied once the transaction commits.
+     */
+    void applied(Handle handle, long numOccurrences, Date performedOn, int maxRecentPerformedOn) {
+        afterCommit {
+            handle.userStates.states.compute(handle.key, { String key, SkillState current ->
+                List<Date> recent = new ArrayList<>(current ? current.recentPerformedOn : Collections.<Date>emptyList())
+                recent.add(performedOn)
+                recent.sort(Collections.reverseOrder())
+                if (recent.size() > maxRecentPerformedOn) {
+                    recent = new ArrayList<>(recent.subList(0, Math.max(0, maxRecentPerformedOn)))
+                }
+                return new SkillState(Math.max(numOccurrences, current ? current.numOccurrences : 0L), recent, true)
+            } as BiFunction<String, SkillState, SkillState>)
+        }
+    }
+
+    void userChanged(String userId) {
+        if (!enabled || !userId) {
+            return
+        }
+        String user = userId.toLowerCase()
+        cache.invalidate(user)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Set<String> txUsers = getTxUsers()
+            if (txUsers.isEmpty()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    void afterCompletion(int status) {
+                        // drop anything read while the transaction was in flight
+                        cache.invalidateAll(txUsers)
+                        TransactionSynchronizationManager.unbindResourceIfPossible(TX_USERS_RESOURCE)
+                    }
+                })
+            }
+            txUsers.add(user)
+        }
+    }
+
+    void projectChanged(String projectId) {
+        if (!enabled || !projectId) {
+            return
+        }
+        projectGenerations.put(projectId, generationSeq.incrementAndGet())
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCompletion(int status) {
+                    projectGenerations.put(projectId, generationSeq.incrementAndGet())
+                }
+            })
+        }
+    }
+
+    private static void afterCommit(Closure apply) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCommit() {
+                    apply.call()
+                }
+            })
+        } else {
+            apply.call()
+        }
+    }
+
+    private static Set<String> getTxUsers() {
+        Set<String> users = (Set<String>) TransactionSynchronizationManager.getResource(TX_USERS_RESOURCE)
+        if (users == null) {
+            users = new HashSet<>()
+            TransactionSynchronizationManager.bindResource(TX_USERS_RESOURCE, users)
+        }
+        return users
+    }
+}
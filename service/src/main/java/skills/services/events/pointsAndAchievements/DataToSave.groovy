@@ -35,4 +35,6 @@ class DataToSave {
     Integer skillsGroupDefId
     Integer subjectDefId
     String userId
+    String projectId
+    String subjectId
 }
@@ -52,7 +52,8 @@ class PointsAndAchievementsBuilder {
 
     @Profile
     PointsAndAchievementsResult build() {
-        dataToSave = new DataToSave(pointIncrement: pointIncrement, subjectDefId: loadedData.subjectDefId, numChildSkillsRequired: loadedData.numChildSkillsRequired, skillsGroupDefId: loadedData.skillsGroupDefId, userId: userId)
+        dataToSave = new DataToSave(pointIncrement: pointIncrement, subjectDefId: loadedData.subjectDefId, numChildSkillsRequired: loadedData.numChildSkillsRequired, skillsGroupDefId: loadedData.skillsGroupDefId, userId: userId,
+                projectId: projectId, subjectId: loadedData.parentDefs?.find { it.type == SkillDef.ContainerType.Subject }?.skillId)
 
         // any parent that exist must get points added
         dataToSave.toAddPointsTo.addAll(loadedData.tinyUserPoints)
@@ -20,6 +20,7 @@ import groovy.transform.CompileStatic
 import groovy.util.logging.Slf4j
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Component
+import skills.services.SkillDefinitionCache
 import skills.services.admin.SkillsGroupAdminService
 import skills.storage.model.LevelDefInterface
 import skills.storage.model.SkillDefMin
@@ -41,9 +42,12 @@ class PointsAndAchievementsDataLoader {
     @Autowired
     SkillsGroupAdminService skillsGroupAdminService
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Profile
     LoadedData loadData(String projectId, String userId, SkillDefMin skillDef){
-        List<SkillEventsSupportRepo.TinySkillDef> parentDefs = loadParents(skillDef)
+        List<SkillEventsSupportRepo.TinySkillDef> parentDefs = new ArrayList<>(loadParents(projectId, skillDef.id))
 
         // handle skills group with less than all skills required
         Integer skillsGroupDefId
@@ -52,7 +56,7 @@ class PointsAndAchievementsDataLoader {
         if (skillDef.groupId) {
             // skills group child, check parent and if numSkillsRequired then need to load siblings to determine which contribute to points
             assert parentDefs && parentDefs.size() == 1 && parentDefs.first().type == SkillDef.ContainerType.SkillsGroup && parentDefs.first().skillId == skillDef.groupId
-            parentDefs.addAll(loadParents(parentDefs.first().id))
+            parentDefs.addAll(loadParents(projectId, parentDefs.first().id))
             if (parentDefs.first().numSkillsRequired > 0 && Boolean.valueOf(parentDefs.first().enabled)) {
                 skillsGroupDefId = parentDefs.first().id
                 numChildSkillsRequired = parentDefs.first().numSkillsRequired
@@ -71,7 +75,7 @@ class PointsAndAchievementsDataLoader {
 
         SkillEventsSupportRepo.TinyProjectDef tinyProjectDef = loadProject(projectId)
         List<Integer> parentIds = parentDefs.collect { it.id }
-        List<LevelDefInterface> tinyLevels = loadLevels(parentIds, tinyProjectDef)
+        List<LevelDefInterface> tinyLevels = loadLevels(projectId, parentIds, tinyProjectDef)
 
         List<SkillEventsSupportRepo.TinyUserAchievement> tinyUserAchievements = loadAchievements(userId, projectId, skillRefIds)
 
@@ -89,13 +93,17 @@ class PointsAndAchievementsDataLoader {
     }
 
     @Profile
-    private List<LevelDefInterface> loadLevels(List<Integer> parentIds, SkillEventsSupportRepo.TinyProjectDef tinyProjectDef) {
-        skillEventsSupportRepo.findLevelsBySkillIdsOrByProjectId(parentIds, tinyProjectDef.id)
+    private List<LevelDefInterface> loadLevels(String projectId, List<Integer> parentIds, SkillEventsSupportRepo.TinyProjectDef tinyProjectDef) {
+        skillDefinitionCache.get('levels', projectId, parentIds) {
+            skillEventsSupportRepo.findLevelsBySkillIdsOrByProjectId(parentIds, tinyProjectDef.id)
+        }
     }
 
     @Profile
     private SkillEventsSupportRepo.TinyProjectDef loadProject(String projectId) {
-        skillEventsSupportRepo.getTinyProjectDef(projectId)
+        skillDefinitionCache.get('projectDef', projectId, projectId) {
+            skillEventsSupportRepo.getTinyProjectDef(projectId)
+        }
     }
 
     @Profile
@@ -103,13 +111,11 @@ class PointsAndAchievementsDataLoader {
         skillEventsSupportRepo.findTinyUserPointsProjectIdAndUserIdAndSkills(projectId, userId, skillRefIds)
     }
 
+    // cached lists are shared and must not be modified
     @Profile
-    private List<SkillEventsSupportRepo.TinySkillDef> loadParents(SkillDefMin skillDef) {
-        loadParents(skillDef.id)
-    }
-
-    @Profile
-    private List<SkillEventsSupportRepo.TinySkillDef> loadParents(Integer skillRefId) {
-        skillEventsSupportRepo.findTinySkillDefsParentsByChildIdAndTypeIn(skillRefId, [SkillRelDef.RelationshipType.RuleSetDefinition, SkillRelDef.RelationshipType.SkillsGroupRequirement])
+    private List<SkillEventsSupportRepo.TinySkillDef> loadParents(String projectId, Integer skillRefId) {
+        skillDefinitionCache.get('parents', projectId, skillRefId) {
+            skillEventsSupportRepo.findTinySkillDefsParentsByChildIdAndTypeIn(skillRefId, [SkillRelDef.RelationshipType.RuleSetDefinition, SkillRelDef.RelationshipType.SkillsGroupRequirement])
+        }
     }
 }
@@ -20,6 +20,7 @@ import groovy.transform.CompileStatic
 import groovy.util.logging.Slf4j
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Component
+import skills.skillLoading.LeaderboardRankIndex
 import skills.storage.model.UserAchievement
 import skills.storage.model.UserPoints
 import skills.storage.repos.SkillEventsSupportRepo
@@ -40,11 +41,15 @@ class PointsAndAchievementsSaver {
     @Autowired
     UserAchievedLevelRepo userAchievedLevelRepo
 
+    @Autowired
+    LeaderboardRankIndex leaderboardRankIndex
+
     @Profile
     void save(DataToSave dataToSave) {
         saveNewPoints(dataToSave)
         addToExistingPoints(dataToSave)
         saveAchievements(dataToSave)
+        leaderboardRankIndex?.onPointsSaved(dataToSave)
     }
 
     @Profile
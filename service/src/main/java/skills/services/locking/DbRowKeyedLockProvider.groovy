@@ -0,0 +1,41 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.locking
+
+import groovy.transform.CompileStatic
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
+import org.springframework.stereotype.Component
+import skills.storage.model.SkillsDBLock
+import skills.storage.repos.nativeSql.PostgresQlNativeRepo
+
+/**
+ * Inserts (or selects and row-locks an existing) row in skills_db_locks table for each key;
+ * rows are removed periodically by {@link skills.services.ScheduledDbLockCleanup}
+ */
+@Component
+@CompileStatic
+@ConditionalOnProperty(name = KeyedLockProvider.PROVIDER_PROP, havingValue = 'db', matchIfMissing = true)
+class DbRowKeyedLockProvider implements KeyedLockProvider {
+
+    @Autowired
+    PostgresQlNativeRepo postgresQlNativeRepo
+
+    @Override
+    SkillsDBLock lock(String key) {
+        return postgresQlNativeRepo.insertLockOrSelectExisting(key)
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.locking
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
+import org.springframework.dao.CannotAcquireLockException
+import org.springframework.stereotype.Component
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import skills.storage.model.SkillsDBLock
+
+import jakarta.annotation.PostConstruct
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+
+/**
+ * In-process fast path backed by one re-entrant lock per key; the lock is released once the current transaction
+ * completes (commit or rollback). Locks are weakly referenced so they are reclaimed once no thread holds or waits on them,
+ * and distinct keys never share a lock, so taking several keys in one transaction cannot deadlock on an unrelated key.
+ *
+ * Unlike the database providers there is no deadlock detector, so acquisition gives up after
+ * skills.config.locking.jvmLockTimeoutSeconds and throws {@link CannotAcquireLockException} which rolls back the transaction.
+ *
+ * IMPORTANT: only provides mutual exclusion within a single JVM, so it must only be used for single-node deployments.
+ */
+@Component
+@CompileStatic
+@Slf4j
+@ConditionalOnProperty(name = KeyedLockProvider.PROVIDER_PROP, havingValue = 'jvm')
+class JvmKeyedLockProvider implements KeyedLockProvider {
+
+    @Value('#{"${skills.config.locking.jvmLockTimeoutSeconds:30}"}')
+    long lockTimeoutSeconds = 30
+
+    private Cache<String, ReentrantLock> locks
+
+    @PostConstruct
+    void init() {
+        log.warn("Using in-process locks with [{}] seconds timeout, this is only safe for single-node deployments", lockTimeoutSeconds)
+        locks = Caffeine.newBuilder().weakValues().build()
+    }
+
+    @Override
+    SkillsDBLock lock(String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Lock for key [${key}] must be acquired within an active transaction")
+        }
+        ReentrantLock lock = locks.get(key, { String k -> new ReentrantLock() })
+        boolean acquired
+        try {
+            acquired = lock.tryLock(lockTimeoutSeconds, TimeUnit.SECONDS)
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt()
+            throw new CannotAcquireLockException("Interrupted while waiting for lock [${key}]", e)
+        }
+        if (!acquired) {
+            throw new CannotAcquireLockException("Failed to acquire lock [${key}] within [${lockTimeoutSeconds}] seconds")
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            void afterCompletion(int status) {
+                lock.unlock()
+            }
+        })
+        return null
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.locking
+
+import groovy.transform.CompileStatic
+import skills.storage.model.SkillsDBLock
+
+/**
+ * Acquires an exclusive lock for an arbitrary key; the lock is held until the current transaction completes,
+ * so it must always be called within an active transaction.
+ *
+ * Selected via skills.config.locking.provider:
+ *  - db (default) - row in the skills_db_locks table, see {@link DbRowKeyedLockProvider}
+ *  - advisory - postgres transaction-level advisory lock, see {@link PostgresAdvisoryKeyedLockProvider}
+ *  - jvm - in-process per-key locks, only valid for single-node deployments, see {@link JvmKeyedLockProvider}
+ */
+@CompileStatic
+interface KeyedLockProvider {
+
+    static final String PROVIDER_PROP = 'skills.config.locking.provider'
+
+    /**
+     * @return the lock row when backed by skills_db_locks table, null otherwise
+     */
+    SkillsDBLock lock(String key)
+}
@@ -23,6 +23,7 @@ import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
 import skills.controller.exceptions.QuizValidator
 import skills.controller.request.model.TextInputAiGradingConfRequest
+import skills.quizLoading.QuizDefinitionSnapshotCache
 import skills.quizLoading.QuizRunService
 import skills.services.attributes.TextInputAiGradingAttrs
 import skills.services.userActions.DashboardAction
@@ -43,6 +44,9 @@ class QuizAttributesService {
     @Autowired
     QuizRunService quizRunService
 
+    @Autowired
+    QuizDefinitionSnapshotCache quizDefinitionSnapshotCache
+
     @Autowired
     QuizValidatorService quizValidatorService
 
@@ -79,6 +83,7 @@ class QuizAttributesService {
                 minimumConfidenceLevel: gradingConfRequest.minimumConfidenceLevel,
         )
         quizQuestionRepo.saveTextInputAiGradingAttrs(quizId, questionId, mapper.writeValueAsString(textInputAiGradingAttrs))
+        quizDefinitionSnapshotCache.quizChanged(quizId)
         if (gradingConfRequest.enabled && !aiGradingWasPreviouslyEnabled) {
             quizRunService.scheduleTextInputAiGradingRequest(quizId, questionId, textInputAiGradingAttrs)
         }
@@ -38,6 +38,7 @@ import skills.controller.exceptions.SkillQuizException
 import skills.controller.request.model.*
 import skills.controller.result.model.*
 import skills.quizLoading.QuizAssociatedSkillsService
+import skills.quizLoading.QuizDefinitionSnapshotCache
 import skills.quizLoading.QuizSettings
 import skills.services.*
 import skills.services.admin.DataIntegrityExceptionHandlers
@@ -99,6 +100,9 @@ class QuizDefService {
     @Autowired
     QuizSettingsService quizSettingsService
 
+    @Autowired
+    QuizDefinitionSnapshotCache quizDefinitionSnapshotCache
+
     @Autowired
     LockingService lockingService
 
@@ -425,6 +429,7 @@ class QuizDefService {
                 quizDefWithDescription = quizDefWithDescRepo.save(quizDefWithDescription)
             }
             log.debug("Saved [{}]", quizDefWithDescription)
+            quizDefinitionSnapshotCache.quizChanged(previousQuizId)
         } else {
             quizDefWithDescription = new QuizDefWithDescription(quizId: newQuizId, name: quizDefRequest.name,
                     description: quizDefRequest.description, type: QuizDefParent.QuizType.valueOf(quizDefRequest.type))
@@ -528,6 +533,7 @@ class QuizDefService {
         ))
 
         quizAnswerRepo.delete(quizQuestionDef)
+        quizDefinitionSnapshotCache.quizChanged(quizDef.quizId)
     }
 
     void updateQuizSetting(Integer quizId, String quizDefQuizId, String setting) {
@@ -577,6 +583,7 @@ class QuizDefService {
         }
 
         addSavedQuestionUserAction(quizDef.quizId, savedQuestion, savedAnswers, isEdit)
+        quizDefinitionSnapshotCache.quizChanged(quizDef.quizId)
 
         attachmentService.updateAttachmentsAttrsBasedOnUuidsInMarkdown(savedQuestion.question, null, quizDef.quizId, null)
 
@@ -794,11 +801,13 @@ class QuizDefService {
             mutableDisplayOrder.eachWithIndex{ QuizQuestionDefRepo.DisplayOrder entry, int i ->
                 quizQuestionRepo.updateDisplayOrder(entry.getId(), i)
             }
+            quizDefinitionSnapshotCache.quizChanged(quizDef.quizId)
         }
     }
 
     void deleteVideoAttrs(String quizId, Integer questionId) {
       quizQuestionRepo.deleteVideoAttrs(quizId, questionId)
+      quizDefinitionSnapshotCache.quizChanged(quizId)
     }
 
     @Transactional
@@ -815,6 +824,7 @@ class QuizDefService {
     @Transactional
     void saveVideoAttributesForQuestion(String quizId, Integer questionId, SkillVideoAttrs videoAttrs) {
         quizQuestionRepo.saveVideoAttributes(quizId, questionId, mapper.writeValueAsString(videoAttrs))
+        quizDefinitionSnapshotCache.quizChanged(quizId)
     }
 
     @Transactional
@@ -1378,6 +1388,7 @@ class QuizDefService {
             throw new SkillQuizException("Not allowed to remove quiz when assigned to at least 1 skill", quizDef.quizId, ErrorCode.InternalError)
         }
         int numRemoved = quizDefRepo.deleteByQuizIdIgnoreCase(quizDef.quizId)
+        quizDefinitionSnapshotCache.quizChanged(quizDef.quizId)
         log.debug("Deleted project with id [{}]. Removed [{}] record", quizId, numRemoved)
         userActionsHistoryService.saveUserAction(new UserActionInfo(
                 action: DashboardAction.Delete,
@@ -32,6 +32,7 @@ import skills.controller.request.model.QuizPreference
 import skills.controller.request.model.QuizSettingsRequest
 import skills.controller.result.model.QuizPreferenceRes
 import skills.controller.result.model.QuizSettingsRes
+import skills.quizLoading.QuizDefinitionSnapshotCache
 import skills.quizLoading.QuizSettings
 import skills.quizLoading.QuizUserPreferences
 import skills.services.admin.UserCommunityService
@@ -55,6 +56,9 @@ class QuizSettingsService {
     @Autowired
     QuizSettingsRepo quizSettingsRepo
 
+    @Autowired
+    QuizDefinitionSnapshotCache quizDefinitionSnapshotCache
+
     @Autowired
     QuizDefRepo quizDefRepo
 
@@ -115,6 +119,7 @@ class QuizSettingsService {
                 ))
             }
         }
+        quizDefinitionSnapshotCache.quizChanged(quizId)
     }
 
     @Transactional
@@ -31,6 +31,7 @@ import skills.services.RuleSetDefGraphService
 import skills.services.UserAchievementsAndPointsManagement
 import skills.services.admin.BatchOperationsTransactionalAccessor
 import skills.services.admin.UserCommunityService
+import skills.services.events.UserSkillStateCache
 import skills.storage.model.QuizDef
 import skills.storage.model.QuizToSkillDef
 import skills.storage.model.SkillDef
@@ -81,6 +82,9 @@ class QuizToSkillService {
     @Autowired
     UserCommunityService userCommunityService
 
+    @Autowired
+    UserSkillStateCache userSkillStateCache
+
     @Transactional
     void handleQuizToSkillRelationship(SkillDef savedSkill, SkillRequest skillRequest){
         QuizDef quizDef = getQuizDef(skillRequest.quizId)
@@ -166,6 +170,7 @@ class QuizToSkillService {
 
         long userPerformedSkillNumRemoved = userPerformedSkillRepo.deleteBySkillRefId(skillRefId)
         log.info("Removed [{}] UserPerformedSkill records for skill.id=[{}]", userPerformedSkillNumRemoved, skillRefId)
+        userSkillStateCache.projectChanged(skillDef.projectId)
         long userPointsNumRemoved = userPointsRepo.deleteBySkillRefId(skillRefId)
         log.info("Removed [{}] UserUserPointsPerformedSkill records for skill.id=[{}]", userPointsNumRemoved, skillRefId)
         int numAchievementsRemoved = userAchievedRepo.deleteAllBySkillRefId(skillRefId)
@@ -21,6 +21,7 @@ import org.springframework.stereotype.Component
 import skills.services.LevelUtils
 import skills.services.settings.SettingChangedListener
 import skills.services.settings.Settings
+import skills.services.SkillDefinitionCache
 import skills.storage.model.LevelDef
 import skills.storage.model.ProjDef
 import skills.storage.model.Setting
@@ -37,6 +38,9 @@ class LevelPointsSettingListener implements SettingChangedListener{
 
     static final int MIN_TOTAL_POINTS_REQUIRED_TO_SWITCH = 100
 
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
     @Autowired
     ProjDefRepo projDefRepo
 
@@ -61,6 +65,7 @@ class LevelPointsSettingListener implements SettingChangedListener{
     @Transactional
     @Override
     void execute(Setting previousValue, skills.controller.request.model.SettingsRequest setting) {
+        skillDefinitionCache.definitionsChanged(setting.projectId)
         ProjDef project = projDefRepo.findByProjectId(setting.projectId)
 
         LevelUtils levelUtils = new LevelUtils()
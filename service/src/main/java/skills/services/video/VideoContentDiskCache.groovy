@@ -0,0 +1,247 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.video
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.github.benmanes.caffeine.cache.RemovalCause
+import com.github.benmanes.caffeine.cache.RemovalListener
+import com.github.benmanes.caffeine.cache.Weigher
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import jakarta.annotation.PostConstruct
+import jakarta.annotation.PreDestroy
+import org.apache.commons.lang3.StringUtils
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionStatus
+import org.springframework.transaction.support.TransactionCallback
+import org.springframework.transaction.support.TransactionTemplate
+import skills.storage.model.Attachment
+import skills.storage.repos.AttachmentRepo
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Opt-in, node-local disk cache of video attachment content (skills.config.videoDiskCache.enabled=true).
+ *
+ * Attachment content never changes for a given uuid, so files are keyed by uuid and never need to be invalidated.
+ * The cache is bounded by total size and evicts the least recently used files. On a miss the caller streams from
+ * the database while the whole attachment is copied to disk in the background (at most once per uuid at a time);
+ * subsequent range requests are served from the file with positional FileChannel reads into the caller's reusable buffer.
+ * The servlet response is a plain OutputStream rather than a channel, so this is not zero-copy - the gain is not
+ * going to the database and not allocating per request.
+ *
+ * A cached file may be evicted and deleted at any time; {@link #open} therefore treats a file that is already gone as a miss.
+ *
+ * The index is kept in memory only, so anything left in the cache directory by a previous run is removed on startup.
+ * The directory must therefore not be shared between nodes.
+ */
+@Service
+@CompileStatic
+@Slf4j
+class VideoContentDiskCache {
+
+    static final String CACHE_NAME = 'skills.video.diskCache'
+
+    @Value('#{"${skills.config.videoDiskCache.enabled:false}"}')
+    Boolean enabled = false
+
+    @Value('${skills.config.videoDiskCache.dir:}')
+    String dir
+
+    @Value('#{"${skills.config.videoDiskCache.maxSizeInMb:2048}"}')
+    long maxSizeInMb = 2048
+
+    @Value('#{"${skills.config.videoDiskCache.numLoaderThreads:2}"}')
+    int numLoaderThreads = 2
+
+    @Autowired
+    AttachmentRepo attachmentRepo
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    static class CachedContent {
+        final String uuid
+        final Path path
+        final long size
+
+        CachedContent(String uuid, Path path, long size) {
+            this.uuid = uuid
+            this.path = path
+            this.size = size
+        }
+    }
+
+    private Path cacheDir
+    private Cache<String, CachedContent> cache
+    private final Set<String> loading = ConcurrentHashMap.newKeySet()
+    private ThreadPoolExecutor loaderExecutor
+    private TransactionTemplate transactionTemplate
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            cacheDir = StringUtils.isNotBlank(dir) ? Paths.get(dir) : Paths.get(System.getProperty('java.io.tmpdir'), 'skills-video-cache')
+            log.info("Enabling video disk cache: dir=[{}], maxSizeInMb=[{}], numLoaderThreads=[{}]", cacheDir, maxSizeInMb, numLoaderThreads)
+            Files.createDirectories(cacheDir)
+            cacheDir.toFile().listFiles()?.each { File leftover -> leftover.delete() }
+
+            // weights are in KB so that files over 2GB can still be weighed
+            cache = Caffeine.newBuilder()
+                    .maximumWeight(maxSizeInMb * 1024)
+                    .weigher({ String uuid, CachedContent content -> (int) Math.min((long) Integer.MAX_VALUE, (content.size >> 10) + 1L) } as Weigher<String, CachedContent>)
+                    .removalListener({ String uuid, CachedContent content, RemovalCause cause ->
+                        // a replaced entry points at the same file as its replacement
+                        if (cause != RemovalCause.REPLACED) {
+                            deleteQuietly(content?.path)
+                        }
+                    } as RemovalListener<String, CachedContent>)
+                    .recordStats()
+                    .build()
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME)
+            Gauge.builder('skills.video.diskCache.size.bytes', this, { VideoContentDiskCache diskCache -> (double) diskCache.getSizeInBytes() })
+                    .register(meterRegistry)
+
+            transactionTemplate = new TransactionTemplate(transactionManager)
+            transactionTemplate.setReadOnly(true)
+            loaderExecutor = new ThreadPoolExecutor(numLoaderThreads, numLoaderThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(100))
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        loaderExecutor?.shutdownNow()
+    }
+
+    long getSizeInBytes() {
+        return cache ? (long) cache.asMap().values().sum(0L) { CachedContent content -> content.size } : 0L
+    }
+
+    /**
+     * @return channel opened on the cached content or null when the attachment is not (yet) cached, in which case the content
+     * is loaded into the cache in the background; the caller must close the returned channel
+     */
+    FileChannel open(Attachment attachment) {
+        if (!enabled) {
+            return null
+        }
+        CachedContent content = cache.getIfPresent(attachment.uuid)
+        if (content != null && content.size == attachment.size) {
+            try {
+                // once opened the content stays readable even if the file is evicted and deleted while streaming
+                return FileChannel.open(content.path, StandardOpenOption.READ)
+            } catch (NoSuchFileException e) {
+                log.debug("Cached content of video with uuid=[{}] was removed, reloading it", attachment.uuid)
+                cache.asMap().remove(attachment.uuid, content)
+            }
+        }
+        scheduleLoad(attachment.uuid)
+        return null
+    }
+
+    static void transferTo(FileChannel channel, long start, long length, OutputStream outputStream, byte[] buffer) {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer)
+        long position = start
+        long end = start + length
+        while (position < end) {
+            byteBuffer.clear()
+            byteBuffer.limit((int) Math.min((long) buffer.length, end - position))
+            int read = channel.read(byteBuffer, position)
+            if (read <= 0) {
+                throw new IOException("Failed to read cached video content at position [${position}]")
+            }
+            outputStream.write(buffer, 0, read)
+            position += read
+        }
+    }
+
+    private void scheduleLoad(String uuid) {
+        if (!loading.add(uuid)) {
+            return
+        }
+        try {
+            loaderExecutor.execute({
+                try {
+                    load(uuid)
+                } catch (Throwable t) {
+                    log.warn("Failed to cache content of video with uuid=[{}]: {}", uuid, t.message)
+                } finally {
+                    loading.remove(uuid)
+                }
+            } as Runnable)
+        } catch (RejectedExecutionException ree) {
+            loading.remove(uuid)
+            log.debug("Video disk cache loader queue is full, not caching uuid=[{}]", uuid)
+        }
+    }
+
+    private void load(String uuid) {
+        Path tmp = Files.createTempFile(cacheDir, uuid, '.tmp')
+        try {
+            Long size = transactionTemplate.execute({ TransactionStatus status ->
+                Attachment attachment = attachmentRepo.findByUuid(uuid)
+                if (!attachment) {
+                    return null
+                }
+                try (InputStream inputStream = attachment.content.getBinaryStream()) {
+                    Files.copy(inputStream, tmp, StandardCopyOption.REPLACE_EXISTING)
+                }
+                return attachment.size
+            } as TransactionCallback<Long>)
+            if (size == null || Files.size(tmp) != size) {
+                return
+            }
+            Path target = cacheDir.resolve(uuid)
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+            cache.put(uuid, new CachedContent(uuid, target, size))
+            log.debug("Cached [{}] bytes of video with uuid=[{}]", size, uuid)
+        } finally {
+            deleteQuietly(tmp)
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path) {
+            try {
+                Files.deleteIfExists(path)
+            } catch (IOException e) {
+                log.debug("Failed to delete [${path}]", e)
+            }
+        }
+    }
+}
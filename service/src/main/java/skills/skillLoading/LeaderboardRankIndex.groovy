@@ -0,0 +1,451 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.skillLoading
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Tags
+import io.micrometer.core.instrument.Timer
+import jakarta.annotation.PostConstruct
+import jakarta.annotation.PreDestroy
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import org.springframework.transaction.support.TransactionTemplate
+import skills.services.events.pointsAndAchievements.DataToSave
+import skills.storage.model.UserAttrs
+import skills.storage.model.UserPoints
+import skills.storage.repos.ArchivedUsersRepo
+import skills.storage.repos.SkillEventsSupportRepo
+import skills.storage.repos.UserAttrsRepo
+import skills.storage.repos.UserPointsRepo
+
+import java.time.LocalDateTime
+import java.time.ZoneOffset
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.stream.Stream
+
+/**
+ * Opt-in in-memory leaderboard rank index (skills.config.leaderboard.rankIndex.enabled=true).
+ *
+ * Intended for single-node deployments: each node keeps its own index and only applies the points saved on that node.
+ * An index that missed updates (events reported to another node, writes that bypassed the index) is detected by
+ * consistency checks against the database: the requesting user's points as loaded by the caller, and every
+ * verifyIntervalSeconds the number of users. When a check fails the request falls back to the database queries and the
+ * index is rebuilt, so with multiple nodes ranks stay correct but indices are rebuilt often; leave it disabled
+ * (the default) whenever more than one node serves requests.
+ *
+ * One {@link UserScoreTree} is kept per (projectId, subjectId) - null subjectId for overall project points - holding
+ * every non-archived user that has points. Indices are built lazily, in the background, on first use; until an index
+ * is ready (or whenever it is disabled) callers fall back to the database queries. Once built, an index is kept up to
+ * date after every committed {@link DataToSave}; an incremental update that does not line up with what the index holds
+ * (for example, points that were lowered by an admin operation) discards the index so that it is rebuilt. Admin
+ * operations that bulk-recompute points must call {@link #invalidate(String)}, and every index is also rebuilt once it
+ * is older than maxAgeMinutes. Users that are new to an index are looked up and added on the index builder thread
+ * rather than on the thread that reported the event.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class LeaderboardRankIndex {
+
+    @Value('#{"${skills.config.leaderboard.rankIndex.enabled:false}"}')
+    Boolean enabled = false
+
+    @Value('#{"${skills.config.leaderboard.rankIndex.maxAgeMinutes:30}"}')
+    int maxAgeMinutes = 30
+
+    @Value('#{"${skills.config.leaderboard.rankIndex.verifyIntervalSeconds:30}"}')
+    int verifyIntervalSeconds = 30
+
+    @Autowired
+    UserPointsRepo userPointsRepo
+
+    @Autowired
+    UserAttrsRepo userAttrsRepo
+
+    @Autowired
+    ArchivedUsersRepo archivedUsersRepo
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    private final ConcurrentHashMap<String, ScoreIndex> indices = new ConcurrentHashMap<>()
+    private ExecutorService buildExecutor
+    private Timer buildTimer
+
+    static class PointsUpdate {
+        String projectId
+        String subjectId
+        String userId
+        // null when the user did not have points before this update
+        Integer previousPoints
+        int points
+    }
+
+    static class ScoreIndex {
+        final String projectId
+        final String subjectId
+        UserScoreTree tree = new UserScoreTree()
+        volatile boolean ready = false
+        long builtAt
+        volatile long verifiedAt
+        boolean hasArchivedUsers
+        List<PointsUpdate> pendingUpdates = []
+        // users being added on the builder thread, the index may legitimately lag the database for them
+        final Set<String> pendingAdds = new HashSet<>()
+
+        ScoreIndex(String projectId, String subjectId) {
+            this.projectId = projectId
+            this.subjectId = subjectId
+        }
+
+        synchronized int size() {
+            return tree.size()
+        }
+
+        synchronized boolean contains(String userId) {
+            return tree.contains(userId)
+        }
+
+        synchronized Integer getPoints(String userId) {
+            return tree.getPoints(userId)
+        }
+
+        synchronized int countRankedAbove(int points, LocalDateTime firstSeen) {
+            return tree.countRankedAbove(points, toNanos(firstSeen))
+        }
+
+        synchronized List<String> getUserIds(int fromRank, int num) {
+            return tree.getUserIds(fromRank, num)
+        }
+
+        synchronized Integer findNextHigherPoints(int points) {
+            return tree.findNextHigherPoints(points)
+        }
+
+        synchronized Integer findNextLowerPoints(int points) {
+            return tree.findNextLowerPoints(points)
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            log.info("Enabling leaderboard rank index: maxAgeMinutes=[{}]. The index is node-local and must only be enabled for single-node deployments", maxAgeMinutes)
+            buildExecutor = Executors.newSingleThreadExecutor({ Runnable r ->
+                Thread thread = new Thread(r, 'leaderboard-rank-index-builder')
+                thread.daemon = true
+                return thread
+            })
+            buildTimer = Timer.builder('skills.leaderboard.rankIndex.build.latency')
+                    .description('Time to load a leaderboard rank index from the database')
+                    .register(meterRegistry)
+            meterRegistry.gaugeMapSize('skills.leaderboard.rankIndex.indices', Tags.empty(), indices)
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        buildExecutor?.shutdownNow()
+    }
+
+    /**
+     * @return a ready to use index, or null if the caller should fall back to the database
+     */
+    ScoreIndex getIndex(String projectId, String subjectId) {
+        return getIndex(projectId, subjectId, null, 0)
+    }
+
+    /**
+     * same as {@link #getIndex(String, String)} but also checks the index against the requesting user's points as
+     * currently stored in the database
+     */
+    ScoreIndex getIndex(String projectId, String subjectId, String userId, int userPoints) {
+        if (!enabled) {
+            return null
+        }
+        String key = key(projectId, subjectId)
+        ScoreIndex index = indices.get(key)
+        if (index?.ready && System.currentTimeMillis() - index.builtAt > TimeUnit.MINUTES.toMillis(maxAgeMinutes)) {
+            indices.remove(key, index)
+            index = null
+        }
+        if (index == null) {
+            index = startBuild(key, projectId, subjectId)
+        }
+        String result = !index.ready ? 'fallback' : (isConsistent(key, index, userId, userPoints) ? 'index' : 'stale')
+        meterRegistry.counter('skills.leaderboard.rankIndex.requests', 'result', result).increment()
+        return result == 'index' ? index : null
+    }
+
+    private ScoreIndex startBuild(String key, String projectId, String subjectId) {
+        ScoreIndex newIndex = new ScoreIndex(projectId, subjectId)
+        ScoreIndex existing = indices.putIfAbsent(key, newIndex)
+        if (existing != null) {
+            return existing
+        }
+        buildExecutor.submit({ build(newIndex) } as Runnable)
+        return newIndex
+    }
+
+    /**
+     * @return false if the caller must use the database; an index that disagrees with the database is discarded and rebuilt
+     */
+    private boolean isConsistent(String key, ScoreIndex index, String userId, int userPoints) {
+        String mismatch = null
+        boolean hasPendingAdds
+        synchronized (index) {
+            hasPendingAdds = !index.pendingAdds.isEmpty()
+            if (userId) {
+                String lowerUserId = userId.toLowerCase()
+                Integer indexed = index.tree.getPoints(lowerUserId)
+                // archived users are not in the index
+                boolean maybeArchived = indexed == null && index.hasArchivedUsers
+                if (!maybeArchived && (indexed ?: 0) != userPoints) {
+                    if (index.pendingAdds.contains(lowerUserId)) {
+                        return false
+                    }
+                    mismatch = "user [${lowerUserId}] has [${userPoints}] points but the index holds [${indexed}]".toString()
+                }
+            }
+        }
+        long now = System.currentTimeMillis()
+        if (mismatch == null && now - index.verifiedAt >= TimeUnit.SECONDS.toMillis(verifyIntervalSeconds)) {
+            long numUsers = index.subjectId ?
+                    userPointsRepo.countNonArchivedUsersByProjectIdAndSkillId(index.projectId, index.subjectId) :
+                    userPointsRepo.countNonArchivedUsersByProjectId(index.projectId)
+            int indexSize = index.size()
+            if (numUsers == indexSize) {
+                index.verifiedAt = now
+            } else if (hasPendingAdds) {
+                // users are still being added, check again on the next request
+                return false
+            } else {
+                mismatch = "database has [${numUsers}] users but the index holds [${indexSize}]".toString()
+            }
+        }
+        if (mismatch != null) {
+            log.info("Leaderboard rank index for [{}] is out of sync with the database ({}), falling back to the database while it is rebuilt", key, mismatch)
+            if (indices.remove(key, index)) {
+                startBuild(key, index.projectId, index.subjectId)
+            }
+            return false
+        }
+        return true
+    }
+
+    /**
+     * discards all of the project's indices, they are rebuilt on next use; when called within a transaction
+     * indices are discarded again after commit so that a rebuild never observes uncommitted state
+     */
+    void invalidate(String projectId) {
+        if (!enabled) {
+            return
+        }
+        doInvalidate(projectId)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCommit() {
+                    doInvalidate(projectId)
+                }
+            })
+        }
+    }
+
+    /**
+     * keeps the built indices current with the points saved while reporting a skill event; applied after commit
+     */
+    void onPointsSaved(DataToSave dataToSave) {
+        if (!enabled || !dataToSave.projectId) {
+            return
+        }
+        List<PointsUpdate> updates = collectUpdates(dataToSave)
+        if (!updates) {
+            return
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCommit() {
+                    apply(updates)
+                }
+            })
+        } else {
+            apply(updates)
+        }
+    }
+
+    private List<PointsUpdate> collectUpdates(DataToSave dataToSave) {
+        String userId = dataToSave.userId.toLowerCase()
+        List<PointsUpdate> updates = []
+        dataToSave.toSave.each { UserPoints userPoints ->
+            if (userPoints.skillRefId == null || userPoints.skillRefId == dataToSave.subjectDefId) {
+                updates.add(new PointsUpdate(projectId: dataToSave.projectId, subjectId: userPoints.skillId, userId: userId,
+                        previousPoints: null, points: userPoints.points))
+            }
+        }
+        dataToSave.toAddPointsTo.each { SkillEventsSupportRepo.TinyUserPoints existing ->
+            if (existing.skillRefId == null || existing.skillRefId == dataToSave.subjectDefId) {
+                updates.add(new PointsUpdate(projectId: dataToSave.projectId, subjectId: existing.skillRefId == null ? null : dataToSave.subjectId,
+                        userId: userId, previousPoints: existing.points, points: existing.points + dataToSave.pointIncrement))
+            }
+        }
+        return updates
+    }
+
+    private void apply(List<PointsUpdate> updates) {
+        try {
+            updates.each { PointsUpdate update -> apply(update) }
+        } catch (Throwable t) {
+            log.error("Failed to update leaderboard rank index for project [${updates.first().projectId}], index will be rebuilt", t)
+            doInvalidate(updates.first().projectId)
+        }
+    }
+
+    private void apply(PointsUpdate update) {
+        String key = key(update.projectId, update.subjectId)
+        ScoreIndex index = indices.get(key)
+        if (index == null) {
+            return
+        }
+        synchronized (index) {
+            if (!index.ready) {
+                index.pendingUpdates.add(update)
+                return
+            }
+            Integer current = index.tree.getPoints(update.userId)
+            if (current != null) {
+                if (current == update.previousPoints || (update.previousPoints == null && current < update.points)) {
+                    index.tree.put(update.userId, update.points, index.tree.getFirstSeen(update.userId))
+                } else if (current < update.points) {
+                    log.debug("Leaderboard rank index for [{}] is out of sync for user [{}]: expected [{}] points but found [{}]",
+                            key, update.userId, update.previousPoints, current)
+                    indices.remove(key, index)
+                }
+                // else a later update was already applied
+                return
+            }
+            index.pendingAdds.add(update.userId)
+        }
+        // users not in the index yet are either new or archived; keep their lookups off the reporting thread
+        try {
+            buildExecutor.submit({ addUser(index, update) } as Runnable)
+        } catch (RejectedExecutionException ree) {
+            synchronized (index) {
+                index.pendingAdds.remove(update.userId)
+            }
+            log.debug("Unable to add user [{}] to leaderboard rank index [{}], executor is shut down", update.userId, key)
+        }
+    }
+
+    private void addUser(ScoreIndex index, PointsUpdate update) {
+        try {
+            if (index.hasArchivedUsers && archivedUsersRepo.existsByProjectIdAndUserId(update.projectId, update.userId)) {
+                return
+            }
+            synchronized (index) {
+                Integer current = index.tree.getPoints(update.userId)
+                if (current != null) {
+                    // added by an earlier update for the same user
+                    if (current < update.points) {
+                        index.tree.put(update.userId, update.points, index.tree.getFirstSeen(update.userId))
+                    }
+                    return
+                }
+            }
+            UserAttrs userAttrs = userAttrsRepo.findByUserIdIgnoreCase(update.userId)
+            synchronized (index) {
+                if (!index.tree.contains(update.userId) && userAttrs) {
+                    index.tree.put(update.userId, update.points, toNanos(userAttrs.created))
+                }
+            }
+        } catch (Throwable t) {
+            log.error("Failed to add user [${update.userId}] to leaderboard rank index for project [${update.projectId}], index will be rebuilt", t)
+            doInvalidate(update.projectId)
+        } finally {
+            synchronized (index) {
+                index.pendingAdds.remove(update.userId)
+            }
+        }
+    }
+
+    private void build(ScoreIndex index) {
+        String key = key(index.projectId, index.subjectId)
+        try {
+            long start = System.nanoTime()
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager)
+            transactionTemplate.readOnly = true
+            UserScoreTree loaded = new UserScoreTree()
+            transactionTemplate.executeWithoutResult {
+                Stream<UserPointsRepo.RankIndexEntry> entries = index.subjectId ?
+                        userPointsRepo.streamRankIndexEntries(index.projectId, index.subjectId) :
+                        userPointsRepo.streamRankIndexEntries(index.projectId)
+                entries.withCloseable {
+                    entries.forEach({ UserPointsRepo.RankIndexEntry entry ->
+                        loaded.put(entry.userId, entry.points, toNanos(entry.userFirstSeenTimestamp))
+                    })
+                }
+                index.hasArchivedUsers = archivedUsersRepo.existsByProjectId(index.projectId)
+            }
+
+            List<PointsUpdate> pending
+            synchronized (index) {
+                index.tree = loaded
+                pending = index.pendingUpdates
+                index.pendingUpdates = []
+                index.builtAt = System.currentTimeMillis()
+                index.verifiedAt = index.builtAt
+                index.ready = true
+            }
+            // updates committed while loading; the loaded snapshot may or may not already include them
+            pending.each { PointsUpdate update ->
+                apply(new PointsUpdate(projectId: update.projectId, subjectId: update.subjectId, userId: update.userId,
+                        previousPoints: null, points: update.points))
+            }
+            buildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+            log.info("Built leaderboard rank index for [{}] with [{}] users", key, index.size())
+        } catch (Throwable t) {
+            log.error("Failed to build leaderboard rank index for [${key}]", t)
+            indices.remove(key, index)
+        }
+    }
+
+    private void doInvalidate(String projectId) {
+        String prefix = key(projectId, null)
+        indices.keySet().removeIf({ String key -> key.startsWith(prefix) })
+    }
+
+    private static String key(String projectId, String subjectId) {
+        return "${projectId}|${subjectId ?: ''}".toString()
+    }
+
+    private static long toNanos(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + dateTime.nano
+    }
+}
@@ -75,6 +75,9 @@ class RankingLoader {
     @Autowired
     ArchivedUsersRepo archivedUsersRepo
 
+    @Autowired
+    LeaderboardRankIndex leaderboardRankIndex
+
     @Profile
     SkillsRanking getUserSkillsRanking(String projectId, String userId, String subjectId = null) {
         // always calculate total number of users
@@ -130,12 +133,27 @@ class RankingLoader {
                 throw new SkillException("Leaderboard type of [${LeaderboardRes.Type.tenAroundMe}] is not supported for opted-out users. Requested user is [${userId}]", projectId)
             }
             int myPoints = userPointsRepository.findByProjectIdAndUserIdAndSkillId(projectId, userId, subjectId)?.points ?: 0
-            int numWithHigherScore = subjectId ?
-                    userPointsRepository.calculateNumUsersWithHigherScoreAndIfScoreTheSameThenAfterUserCreateDate(projectId, subjectId, myPoints, userAttrs.created) :
-                    userPointsRepository.calculateNumUsersWithHigherScoreAndIfScoreTheSameThenAfterUserCreateDate(projectId, myPoints, userAttrs.created)
+            LeaderboardRankIndex.ScoreIndex rankIndex = leaderboardRankIndex.getIndex(projectId, subjectId, userAttrs.userId, myPoints)
+            int numWithHigherScore
+            if (rankIndex) {
+                numWithHigherScore = rankIndex.countRankedAbove(myPoints, userCreatedDate)
+            } else {
+                numWithHigherScore = subjectId ?
+                        userPointsRepository.calculateNumUsersWithHigherScoreAndIfScoreTheSameThenAfterUserCreateDate(projectId, subjectId, myPoints, userAttrs.created) :
+                        userPointsRepository.calculateNumUsersWithHigherScoreAndIfScoreTheSameThenAfterUserCreateDate(projectId, myPoints, userAttrs.created)
+            }
             int rank = numWithHigherScore + 1
             if (rank <= 5) {
                 res = getTop10Users(projectId, userAttrs, optOutInfo, subjectId)
+            } else if (rankIndex) {
+                res = []
+                // 5 above
+                res.addAll(convertToRankedUserRes(loadRankedUsers(projectId, subjectId, rankIndex.getUserIds(rank - 5, 5)), rank - 5, userId))
+                // requested user
+                res.add(createRankedUserForThisUser(rank, userAttrs, myPoints))
+                // 5 below; the requested user is not in the index if they don't have any points yet
+                int firstBelow = rankIndex.contains(userAttrs.userId) ? rank + 1 : rank
+                res.addAll(convertToRankedUserRes(loadRankedUsers(projectId, subjectId, rankIndex.getUserIds(firstBelow, 5)), rank + 1, userId))
             } else {
                 res = []
 
@@ -163,6 +181,20 @@ class RankingLoader {
         return new LeaderboardRes(rankedUsers: res, availablePoints: getAvailablePoints(projectId, subjectId), optedOut: optOutInfo.isPersonalOptOut())
     }
 
+    @Profile
+    private List<UserPointsRepo.RankedUserRes> loadRankedUsers(String projectId, String subjectId, List<String> userIds) {
+        if (!userIds) {
+            return []
+        }
+        List<UserPointsRepo.RankedUserRes> loaded = subjectId ?
+                userPointsRepository.findUsersForLeaderboardByUserIds(projectId, subjectId, userIds) :
+                userPointsRepository.findUsersForLeaderboardByUserIds(projectId, userIds)
+        // preserve the order of the rank index
+        Map<String, UserPointsRepo.RankedUserRes> byUserId = [:]
+        loaded.each { byUserId.put(it.userId, it) }
+        return userIds.collect { byUserId.get(it) }.findAll { it != null }
+    }
+
     private RankedUserRes createRankedUserForThisUser(int rank, UserAttrs userAttrs, int myPoints) {
         new RankedUserRes(rank: rank, userId: userAttrs.userIdForDisplay, firstName: userAttrs.firstName, lastName: userAttrs.lastName,
                 nickname: userAttrs.nickname, isItMe: true, points: myPoints, userFirstSeenTimestamp: userAttrs.created.toInstant(ZoneOffset.UTC).toEpochMilli())
@@ -250,6 +282,10 @@ class RankingLoader {
 
     @Profile
     private long findNumberOfUsers(String projectId, String subjectId) {
+        LeaderboardRankIndex.ScoreIndex rankIndex = leaderboardRankIndex.getIndex(projectId, subjectId)
+        if (rankIndex) {
+            return rankIndex.size()
+        }
         if (subjectId) {
             return userPointsRepository.countNonArchivedUsersByProjectIdAndSkillId(projectId, subjectId)
         }
@@ -263,13 +299,19 @@ class RankingLoader {
         int myLevel = myLevels ? myLevels.collect({ it.level }).max() : 0
 
         final int currentPts = usersPoints?.points ?: 0
-        List<UserPoints> next = findHighestUserPoints(projectId, currentPts, subjectId)
-        Integer pointsToPassNextUser = next ? next.first().points - currentPts : -1
+        // the rank index does not hold archived users, which are still considered here
+        LeaderboardRankIndex.ScoreIndex rankIndex = leaderboardRankIndex.getIndex(projectId, subjectId, userId, currentPts)
+        if (rankIndex?.hasArchivedUsers) {
+            rankIndex = null
+        }
+
+        Integer nextPoints = rankIndex ? rankIndex.findNextHigherPoints(currentPts) : findHighestUserPoints(projectId, currentPts, subjectId)
+        Integer pointsToPassNextUser = nextPoints != null ? nextPoints - currentPts : -1
 
         Integer pointsAnotherUserToPassMe = -1
         if (currentPts) {
-            List<UserPoints> previous = findLowestUserPoints(projectId, currentPts, subjectId)
-            pointsAnotherUserToPassMe = previous ? currentPts - previous.first().points : -1
+            Integer previousPoints = rankIndex ? rankIndex.findNextLowerPoints(currentPts) : findLowestUserPoints(projectId, currentPts, subjectId)
+            pointsAnotherUserToPassMe = previousPoints != null ? currentPts - previousPoints : -1
         }
 
         return new SkillsRankingDistribution(myLevel: myLevel, myPoints: usersPoints?.points ?: 0,
@@ -290,16 +332,16 @@ class RankingLoader {
 
     @CompileStatic
     @Profile
-    private List<UserPoints> findLowestUserPoints(String projectId, int points, String subjectId) {
+    private Integer findLowestUserPoints(String projectId, int points, String subjectId) {
         List<UserPoints> previous = userPointsRepository.findByProjectIdAndSkillIdAndPointsLessThan(projectId, subjectId, points, PageRequest.of(0, 1, Sort.Direction.DESC, "points"))
-        previous
+        previous ? previous.first().points : null
     }
 
     @CompileStatic
     @Profile
-    private List<UserPoints> findHighestUserPoints(String projectId, int points, String subjectId) {
+    private Integer findHighestUserPoints(String projectId, int points, String subjectId) {
         List<UserPoints> next = userPointsRepository.findByProjectIdAndSkillIdAndPointsGreaterThan(projectId, subjectId, points, PageRequest.of(0, 1, Sort.Direction.ASC, "points"))
-        next
+        next ? next.first().points : null
     }
 
     @CompileStatic
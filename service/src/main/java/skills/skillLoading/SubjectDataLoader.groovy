@@ -119,16 +119,52 @@ class SubjectDataLoader {
         childrenWithUserPoints = childrenWithUserPoints?.sort({ it.skillDef.displayOrder })
 
         List<UserPointsRepo.SkillRefIdWithPoints> todaysUserPoints = loadChildrenDayPoints(userId, skillDefWithExtra.id, relationshipTypes, new Date().clearTime())
-
         List<UserPointsRepo.SkillWithChildAndAchievementIndicator> allProjectDepsAndAchievements = loadAllDepsWithAchievementIndicator(userId, projectId, version)
-        Map<Integer, List<UserPointsRepo.SkillWithChildAndAchievementIndicator>> byParentId = allProjectDepsAndAchievements.groupBy { it.parentId }
 
-        List<SkillsAndPoints> skillsAndPoints = childrenWithUserPoints.collect { SkillDefAndUserPoints skillDefAndUserPoints ->
-            UserPointsRepo.SkillRefIdWithPoints todaysPoints = todaysUserPoints.find({
-                it.skillRefId == skillDefAndUserPoints.skillDef.id
-            })
+        List<SkillsAndPoints> skillsAndPoints = assembleSkillsAndPoints(childrenWithUserPoints, todaysUserPoints, allProjectDepsAndAchievements)
+
+        updateLastViewedSkill(skillsAndPoints, userId, projectId)
+
+        skillsAndPoints = handleGroupSkills(skillsAndPoints, relationshipTypes)
+        skillsAndPoints = handleGroupDescriptions(projectId, skillsAndPoints, relationshipTypes)
+        skillsAndPoints = handleBadges(projectId, skillsAndPoints)
+        skillsAndPoints = handleSkillTags(projectId, skillsAndPoints)
+        skillsAndPoints = handleSkillQuizInfo(skillsAndPoints, userId)
+        skillsAndPoints = handleAchievements(projectId, userId, skillsAndPoints)
+        skillsAndPoints = handleSkillExpirations(projectId, userId, skillsAndPoints)
+
+        new SkillsData(childrenWithPoints: skillsAndPoints)
+    }
+
+    /**
+     * Builds skillRefId-keyed indexes of the day points and dependencies once, then assembles every child in a single
+     * pass so the cost is linear in the number of skills under the subject.
+     */
+    static List<SkillsAndPoints> assembleSkillsAndPoints(List<SkillDefAndUserPoints> childrenWithUserPoints,
+                                                         List<UserPointsRepo.SkillRefIdWithPoints> todaysUserPoints,
+                                                         List<UserPointsRepo.SkillWithChildAndAchievementIndicator> allProjectDepsAndAchievements) {
+        Map<Integer, Integer> todaysPointsBySkillRefId = new HashMap<>(capacityFor(todaysUserPoints?.size() ?: 0))
+        todaysUserPoints?.each {
+            if (it.points) {
+                todaysPointsBySkillRefId.put(it.skillRefId, it.points)
+            }
+        }
+
+        Map<Integer, SkillDependencySummary> dependencyInfoByParentId = new HashMap<>()
+        allProjectDepsAndAchievements?.each {
+            SkillDependencySummary summary = dependencyInfoByParentId.get(it.parentId)
+            if (summary == null) {
+                summary = new SkillDependencySummary(numDirectDependents: 0, achieved: true)
+                dependencyInfoByParentId.put(it.parentId, summary)
+            }
+            summary.numDirectDependents++
+            summary.achieved = summary.achieved && it.getAchievementId() != null
+        }
 
-            int todayPoints = todaysPoints?.points ? todaysPoints.points : 0
+        List<SkillsAndPoints> skillsAndPoints = new ArrayList<>(childrenWithUserPoints?.size() ?: 0)
+        childrenWithUserPoints?.each { SkillDefAndUserPoints skillDefAndUserPoints ->
+            Integer todaysPoints = todaysPointsBySkillRefId.get(skillDefAndUserPoints.skillDef.id)
+            int todayPoints = todaysPoints ?: 0
             int points = skillDefAndUserPoints?.points ? skillDefAndUserPoints.points.points : 0
 
             if (skillDefAndUserPoints.skillDef.copiedFrom != null && skillDefAndUserPoints.skillDef.selfReportingType) {
@@ -142,30 +178,16 @@ class SubjectDataLoader {
                 }
             }
 
-            List<UserPointsRepo.SkillWithChildAndAchievementIndicator> dependents = byParentId[skillDefAndUserPoints.skillDef.id]
-            SkillDependencySummary dependencyInfo
-            if (dependents) {
-                dependencyInfo = dependents ? new SkillDependencySummary(
-                        numDirectDependents: dependents.size(),
-                        achieved: !dependents.find { it.getAchievementId() == null }
-                ) : null
-            }
-            new SkillsAndPoints(skillDef: skillDefAndUserPoints.skillDef, points: points, todaysPoints: todayPoints, dependencyInfo: dependencyInfo,
+            SkillDependencySummary dependencyInfo = dependencyInfoByParentId.get(skillDefAndUserPoints.skillDef.id)
+            skillsAndPoints.add(new SkillsAndPoints(skillDef: skillDefAndUserPoints.skillDef, points: points, todaysPoints: todayPoints, dependencyInfo: dependencyInfo,
                     copiedFromProjectName: skillDefAndUserPoints.copiedFromProjectName, approval: skillDefAndUserPoints.approval, attributes: skillDefAndUserPoints.attributes,
-                    approverUserIdForDisplay: skillDefAndUserPoints.approverUserIdForDisplay)
+                    approverUserIdForDisplay: skillDefAndUserPoints.approverUserIdForDisplay))
         }
+        return skillsAndPoints
+    }
 
-        updateLastViewedSkill(skillsAndPoints, userId, projectId)
-
-        skillsAndPoints = handleGroupSkills(skillsAndPoints, relationshipTypes)
-        skillsAndPoints = handleGroupDescriptions(projectId, skillsAndPoints, relationshipTypes)
-        skillsAndPoints = handleBadges(projectId, skillsAndPoints)
-        skillsAndPoints = handleSkillTags(projectId, skillsAndPoints)
-        skillsAndPoints = handleSkillQuizInfo(skillsAndPoints, userId)
-        skillsAndPoints = handleAchievements(projectId, userId, skillsAndPoints)
-        skillsAndPoints = handleSkillExpirations(projectId, userId, skillsAndPoints)
-
-        new SkillsData(childrenWithPoints: skillsAndPoints)
+    private static int capacityFor(int numItems) {
+        return (int) (numItems / 0.75f) + 1
     }
 
     @Profile
@@ -203,11 +225,17 @@ class SubjectDataLoader {
             List<String> skillIds = collectSkillIds(skillsAndPoints)
             List<UserAchievement> achievedSkills = achievedLevelRepository.getAchievedDateByUserIdAndProjectIdAndSkillBatch(userId, projectId, skillIds)
             if (achievedSkills) {
+                Map<String, Date> firstAchievedOnBySkillId = new HashMap<>(capacityFor(achievedSkills.size()))
+                achievedSkills.each { UserAchievement achievement ->
+                    Date current = firstAchievedOnBySkillId.get(achievement.skillId)
+                    if (current == null || (achievement.achievedOn != null && achievement.achievedOn.before(current))) {
+                        firstAchievedOnBySkillId.put(achievement.skillId, achievement.achievedOn)
+                    }
+                }
                 skillsAndPoints.each { it ->
-                    List<UserAchievement> achievements = achievedSkills.findAll{skill -> skill.skillId == it.skillDef.skillId}
-                    if(achievements) {
-                        achievements?.sort { skill -> skill.achievedOn }
-                        it.achievedOn = achievements.first()?.achievedOn
+                    Date achievedOn = firstAchievedOnBySkillId.get(it.skillDef.skillId)
+                    if (achievedOn) {
+                        it.achievedOn = achievedOn
                     }
                 }
             }
@@ -218,13 +246,19 @@ class SubjectDataLoader {
     private List<SkillsAndPoints> handleSkillExpirations(String projectId, String userId, List<SkillsAndPoints> skillsAndPoints) {
         if(projectId) {
             List<String> skillIds = collectUnachievedSkillIds(skillsAndPoints)
-            def expiredSkills = expiredUserAchievementRepo.findMostRecentExpirationForAllSkills(projectId, userId, skillIds)
+            List<ExpiredUserAchievement> expiredSkills = expiredUserAchievementRepo.findMostRecentExpirationForAllSkills(projectId, userId, skillIds)
             if (expiredSkills) {
+                Map<String, Date> firstExpiredOnBySkillId = new HashMap<>(capacityFor(expiredSkills.size()))
+                expiredSkills.each { ExpiredUserAchievement expiration ->
+                    Date current = firstExpiredOnBySkillId.get(expiration.skillId)
+                    if (current == null || (expiration.expiredOn != null && expiration.expiredOn.before(current))) {
+                        firstExpiredOnBySkillId.put(expiration.skillId, expiration.expiredOn)
+                    }
+                }
                 skillsAndPoints.each { it ->
-                    def expirations = expiredSkills.findAll{skill -> skill.skillId == it.skillDef.skillId}
-                    if(expirations) {
-                        expirations?.sort { skill -> skill.expiredOn }
-                        it.expiredOn = expirations.first()?.expiredOn
+                    Date expiredOn = firstExpiredOnBySkillId.get(it.skillDef.skillId)
+                    if (expiredOn) {
+                        it.expiredOn = expiredOn
                     }
                 }
             }
@@ -390,7 +424,7 @@ class SubjectDataLoader {
         }
     }
 
-    private static class SkillDefAndUserPoints {
+    static class SkillDefAndUserPoints {
         SkillDef skillDef
         UserPoints points
         String copiedFromProjectName
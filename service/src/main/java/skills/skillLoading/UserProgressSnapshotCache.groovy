@@ -0,0 +1,204 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.skillLoading
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import jakarta.annotation.PostConstruct
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.http.HttpStatus
+import org.springframework.http.ResponseEntity
+import org.springframework.stereotype.Component
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+
+import java.time.Duration
+import java.time.LocalDate
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.Function
+import java.util.function.Supplier
+
+/**
+ * Opt-in cache of the per-user progress summaries served to the client display (skills.config.summaryCache.enabled=true).
+ *
+ * Snapshots are grouped by user: whenever anything that affects a user's progress is written (skill events, event
+ * removal, approvals, quiz attempts) {@link #userChanged(String)} drops every snapshot of that user, both right away and
+ * once the writing transaction completes. Admin changes to a project bump that project's generation
+ * ({@link #projectChanged(String)}) and changes that span projects, such as global badges and quizzes, bump the global
+ * generation ({@link #allChanged()}); generations are part of the snapshot key, so older snapshots are never read
+ * again. Keys also carry the requested version and the current day since summaries report today's points.
+ *
+ * Every snapshot is given an ETag that is unique to this node, so clients polling with If-None-Match get a 304 for as
+ * long as the snapshot is valid. Invalidation is local to each node; expireAfterWriteSeconds bounds how long another
+ * node may serve a snapshot that predates a change made elsewhere.
+ */
+@Component
+@CompileStatic
+@Slf4j
+class UserProgressSnapshotCache {
+
+    static final String CACHE_NAME = 'skills.userProgressSnapshots'
+    private static final String TX_USERS_RESOURCE = UserProgressSnapshotCache.name + '.users'
+
+    @Value('#{"${skills.config.summaryCache.enabled:false}"}')
+    Boolean enabled = false
+
+    @Value('#{"${skills.config.summaryCache.maxUsers:20000}"}')
+    long maxUsers = 20000
+
+    @Value('#{"${skills.config.summaryCache.expireAfterWriteSeconds:300}"}')
+    long expireAfterWriteSeconds = 300
+
+    @Value('#{"${skills.config.summaryCache.maxSnapshotsPerUser:64}"}')
+    int maxSnapshotsPerUser = 64
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    private Cache<String, UserSnapshots> cache
+    private final ConcurrentHashMap<String, Long> projectGenerations = new ConcurrentHashMap<>()
+    private final AtomicLong generationSeq = new AtomicLong()
+    private volatile long globalGeneration = 0
+    private final AtomicLong snapshotSeq = new AtomicLong()
+    private final String nodeId = Long.toHexString(new Random().nextLong())
+
+    static class Snapshot<T> {
+        final T value
+        // null when the cache is disabled
+        final String etag
+
+        Snapshot(T value, String etag) {
+            this.value = value
+            this.etag = etag
+        }
+    }
+
+    private static class UserSnapshots {
+        final ConcurrentHashMap<String, Snapshot> snapshots = new ConcurrentHashMap<>()
+    }
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            log.info("Enabling user progress snapshot cache: maxUsers=[{}], expireAfterWriteSeconds=[{}]", maxUsers, expireAfterWriteSeconds)
+            cache = Caffeine.newBuilder()
+                    .maximumSize(maxUsers)
+                    .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                    .recordStats()
+                    .build()
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME)
+        }
+    }
+
+    /**
+     * @param type kind of summary, each kind must use a distinct type
+     * @param id identifies the summary within the project (e.g. subject id), may be null
+     */
+    public <T> Snapshot<T> get(String userId, String projectId, String type, String id, Integer version, Supplier<T> loader) {
+        if (!enabled) {
+            return new Snapshot<T>(loader.get(), null)
+        }
+        String key = "${projectId}|${type}|${id}|${version}|${projectGenerations.getOrDefault(projectId, 0L)}|${globalGeneration}|${LocalDate.now()}".toString()
+        UserSnapshots userSnapshots = cache.get(userId.toLowerCase(), { String u -> new UserSnapshots() } as Function<String, UserSnapshots>)
+        Snapshot<T> snapshot = (Snapshot<T>) userSnapshots.snapshots.get(key)
+        if (snapshot == null) {
+            snapshot = new Snapshot<T>(loader.get(), "W/\"${nodeId}-${Long.toHexString(snapshotSeq.incrementAndGet())}\"".toString())
+            if (userSnapshots.snapshots.size() >= maxSnapshotsPerUser) {
+                // keys of older generations are never read again
+                userSnapshots.snapshots.clear()
+            }
+            // if the user was invalidated while loading, userSnapshots is no longer referenced by the cache and this is a no-op
+            userSnapshots.snapshots.put(key, snapshot)
+        }
+        return snapshot
+    }
+
+    /**
+     * Builds the response for a snapshot: 304 when the client already holds it, otherwise 200 with its ETag.
+     */
+    static <T> ResponseEntity<T> toResponse(Snapshot<T> snapshot, String ifNoneMatch) {
+        if (snapshot.etag == null) {
+            return ResponseEntity.ok(snapshot.value)
+        }
+        if (ifNoneMatch) {
+            for (String tag : ifNoneMatch.split(',')) {
+                if (tag.trim() == snapshot.etag) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag).build()
+                }
+            }
+        }
+        return ResponseEntity.ok().eTag(snapshot.etag).body(snapshot.value)
+    }
+
+    void userChanged(String userId) {
+        if (!enabled || !userId) {
+            return
+        }
+        String user = userId.toLowerCase()
+        cache.invalidate(user)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Set<String> txUsers = getTxUsers()
+            if (txUsers.isEmpty()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    void afterCompletion(int status) {
+                        // drop anything loaded while the transaction was in flight
+                        cache.invalidateAll(txUsers)
+                        TransactionSynchronizationManager.unbindResourceIfPossible(TX_USERS_RESOURCE)
+                    }
+                })
+            }
+            txUsers.add(user)
+        }
+    }
+
+    void projectChanged(String projectId) {
+        if (!enabled || !projectId) {
+            return
+        }
+        projectGenerations.put(projectId, generationSeq.incrementAndGet())
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                void afterCompletion(int status) {
+                    projectGenerations.put(projectId, generationSeq.incrementAndGet())
+                }
+            })
+        }
+    }
+
+    void allChanged() {
+        if (!enabled) {
+            return
+        }
+        globalGeneration = generationSeq.incrementAndGet()
+    }
+
+    private static Set<String> getTxUsers() {
+        Set<String> users = (Set<String>) TransactionSynchronizationManager.getResource(TX_USERS_RESOURCE)
+        if (users == null) {
+            users = new HashSet<>()
+            TransactionSynchronizationManager.bindResource(TX_USERS_RESOURCE, users)
+        }
+        return users
+    }
+}
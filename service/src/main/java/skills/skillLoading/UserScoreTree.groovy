@@ -0,0 +1,245 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.skillLoading
+
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.ThreadLocalRandom
+
+/**
+ * Order-statistic tree (a size-augmented treap) of users ordered the same way the leaderboard is ranked:
+ * points descending, then the time the user was first seen ascending, then userId.
+ *
+ * Every operation is O(log n) expected. The class is not thread-safe, callers are expected to synchronize.
+ */
+@CompileStatic
+class UserScoreTree {
+
+    private static class Node {
+        final String userId
+        final int points
+        final long firstSeen
+        final int priority = ThreadLocalRandom.current().nextInt()
+        Node left
+        Node right
+        int size = 1
+
+        Node(String userId, int points, long firstSeen) {
+            this.userId = userId
+            this.points = points
+            this.firstSeen = firstSeen
+        }
+    }
+
+    private Node root
+    private final Map<String, Node> byUserId = new HashMap<>()
+
+    int size() {
+        return size(root)
+    }
+
+    boolean contains(String userId) {
+        return byUserId.containsKey(userId)
+    }
+
+    Integer getPoints(String userId) {
+        return byUserId.get(userId)?.points
+    }
+
+    Long getFirstSeen(String userId) {
+        return byUserId.get(userId)?.firstSeen
+    }
+
+    void put(String userId, int points, long firstSeen) {
+        remove(userId)
+        Node node = new Node(userId, points, firstSeen)
+        root = insert(root, node)
+        byUserId.put(userId, node)
+    }
+
+    void remove(String userId) {
+        Node existing = byUserId.remove(userId)
+        if (existing) {
+            root = remove(root, existing)
+        }
+    }
+
+    /**
+     * number of users with more points, or with the same points but first seen before the provided time
+     */
+    int countRankedAbove(int points, long firstSeen) {
+        int count = 0
+        Node node = root
+        while (node) {
+            if (compare(points, firstSeen, null, node) > 0) {
+                count += size(node.left) + 1
+                node = node.right
+            } else {
+                node = node.left
+            }
+        }
+        return count
+    }
+
+    /**
+     * smallest number of points that is greater than the provided points, null if no user has more points
+     */
+    Integer findNextHigherPoints(int points) {
+        Integer res = null
+        Node node = root
+        while (node) {
+            if (node.points > points) {
+                res = node.points
+                node = node.right
+            } else {
+                node = node.left
+            }
+        }
+        return res
+    }
+
+    /**
+     * largest number of points that is less than the provided points, null if no user has fewer points
+     */
+    Integer findNextLowerPoints(int points) {
+        Integer res = null
+        Node node = root
+        while (node) {
+            if (node.points < points) {
+                res = node.points
+                node = node.left
+            } else {
+                node = node.right
+            }
+        }
+        return res
+    }
+
+    /**
+     * userIds ranked in [fromRank, fromRank + num), ranks are 1-based
+     */
+    List<String> getUserIds(int fromRank, int num) {
+        List<String> res = []
+        for (int rank = Math.max(1, fromRank); rank < fromRank + num && rank <= size(); rank++) {
+            res.add(select(rank - 1).userId)
+        }
+        return res
+    }
+
+    private Node select(int index) {
+        Node node = root
+        while (node) {
+            int leftSize = size(node.left)
+            if (index < leftSize) {
+                node = node.left
+            } else if (index == leftSize) {
+                return node
+            } else {
+                index -= leftSize + 1
+                node = node.right
+            }
+        }
+        return null
+    }
+
+    private static int compare(int points, long firstSeen, String userId, Node node) {
+        if (points != node.points) {
+            return points > node.points ? -1 : 1
+        }
+        if (firstSeen != node.firstSeen) {
+            return firstSeen < node.firstSeen ? -1 : 1
+        }
+        // null userId sorts before every user with the same points and first seen time
+        return userId == null ? -1 : userId <=> node.userId
+    }
+
+    private static int compare(Node a, Node b) {
+        return compare(a.points, a.firstSeen, a.userId, b)
+    }
+
+    private static int size(Node node) {
+        return node ? node.size : 0
+    }
+
+    private static Node update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1
+        return node
+    }
+
+    private static Node insert(Node node, Node item) {
+        if (node == null) {
+            return item
+        }
+        if (item.priority > node.priority) {
+            List<Node> parts = split(node, item)
+            item.left = parts[0]
+            item.right = parts[1]
+            return update(item)
+        }
+        if (compare(item, node) < 0) {
+            node.left = insert(node.left, item)
+        } else {
+            node.right = insert(node.right, item)
+        }
+        return update(node)
+    }
+
+    private static Node remove(Node node, Node item) {
+        if (node == null) {
+            return null
+        }
+        int cmp = compare(item, node)
+        if (cmp == 0) {
+            return merge(node.left, node.right)
+        }
+        if (cmp < 0) {
+            node.left = remove(node.left, item)
+        } else {
+            node.right = remove(node.right, item)
+        }
+        return update(node)
+    }
+
+    // splits into nodes ordered before the key and nodes ordered after it
+    private static List<Node> split(Node node, Node key) {
+        if (node == null) {
+            return [null, null] as List<Node>
+        }
+        if (compare(node, key) < 0) {
+            List<Node> parts = split(node.right, key)
+            node.right = parts[0]
+            return [update(node), parts[1]] as List<Node>
+        }
+        List<Node> parts = split(node.left, key)
+        node.left = parts[1]
+        return [parts[0], update(node)] as List<Node>
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right
+        }
+        if (right == null) {
+            return left
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right)
+            return update(left)
+        }
+        right.left = merge(left, right.left)
+        return update(right)
+    }
+}
@@ -39,4 +39,6 @@ interface ArchivedUsersRepo extends CrudRepository<ArchivedUser, Long> {
     ArchivedUser findByProjectIdAndUserId(String projectId, String userId)
 
     Boolean existsByProjectIdAndUserId(String projectId, String userId)
+
+    Boolean existsByProjectId(String projectId)
 }
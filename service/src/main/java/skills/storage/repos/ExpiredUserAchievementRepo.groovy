@@ -53,6 +53,40 @@ interface ExpiredUserAchievementRepo extends CrudRepository<ExpiredUserAchieveme
     ''', nativeQuery = true)
     void expireAchievementById(Integer id)
 
+    @Modifying
+    @Query(value = '''
+        WITH expired_rows AS (
+        DELETE FROM user_achievement ua
+        WHERE ua.skill_ref_id = :skillRefId AND ua.user_id IN (:userIds)
+        RETURNING user_id, project_id, skill_id, skill_ref_id, level, points_when_achieved, created, updated, expiration_notification_state)
+                INSERT INTO expired_user_achievement (user_id, project_id, skill_id, skill_ref_id, level, points_when_achieved, created, updated, expiration_notification_state)
+                SELECT user_id, project_id, skill_id, skill_ref_id, level, points_when_achieved, created, updated, expiration_notification_state FROM expired_rows;
+    ''', nativeQuery = true)
+    void expireAchievementsForSkillAndUsers(@Param("skillRefId") Integer skillRefId, @Param("userIds") List<String> userIds)
+
+    static interface ExpiringAchievement {
+        Integer getId()
+        String getUserId()
+        @Nullable
+        String getExpirationNotificationState()
+        Date getMostRecentPerformedOn()
+    }
+
+    @Query(value = '''
+        SELECT ua.id as id, ua.user_id as userId, ua.expiration_notification_state as expirationNotificationState, max(ups.performed_on) as mostRecentPerformedOn
+        FROM user_achievement ua
+             INNER JOIN user_performed_skill ups ON ups.skill_ref_id = ua.skill_ref_id AND ups.user_id = ua.user_id
+        WHERE ua.skill_ref_id = :skillRefId
+        GROUP BY ua.id, ua.user_id, ua.expiration_notification_state
+        HAVING max(ups.performed_on) < :olderThanDate
+        ORDER BY ua.id
+    ''', nativeQuery = true)
+    List<ExpiringAchievement> findExpiringAchievements(@Param("skillRefId") Integer skillRefId, @Param("olderThanDate") Date olderThanDate)
+
+    @Modifying
+    @Query('''update UserAchievement set expirationNotificationState = :state where id in (:ids)''')
+    void updateExpirationNotificationState(@Param("ids") List<Integer> ids, @Param("state") String state)
+
     @Query(value = '''
         SELECT ua
         FROM UserAchievement ua
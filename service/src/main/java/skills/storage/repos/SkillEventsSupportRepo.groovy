@@ -57,6 +57,11 @@ interface SkillEventsSupportRepo extends CrudRepository<SkillDef, Long> {
         Integer getLevel()
     }
 
+    static interface TinyRelationship {
+        Integer getParentId()
+        Integer getChildId()
+    }
+
     @Query('''SELECT
         s.id as id,
         s.skillId as skillId,
@@ -275,6 +280,15 @@ interface SkillEventsSupportRepo extends CrudRepository<SkillDef, Long> {
             srd.type in (?2)''')
     List<SkillDefMin> findParentSkillsByChildIdAndType(Integer childId, List<SkillRelDef.RelationshipType> type)
 
+    @Query('''SELECT
+        srd.parent.id as parentId,
+        srd.child.id as childId
+        from SkillRelDef srd
+        where
+            srd.parent.id in (?1) and
+            srd.type = ?2''')
+    List<TinyRelationship> findChildIdsByParentIdsAndType(Collection<Integer> parentIds, SkillRelDef.RelationshipType type)
+
 
     @Query('''SELECT 
         p.totalPoints as totalPoints,
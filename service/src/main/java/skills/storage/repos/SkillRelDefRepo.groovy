@@ -459,6 +459,41 @@ interface SkillRelDefRepo extends CrudRepository<SkillRelDef, Integer> {
         ''')
     List<Object[]> getGraph(String projectId, SkillRelDef.RelationshipType type)
 
+    static interface LearningPathEdge {
+        Integer getId()
+        Integer getParentRefId()
+        String getParentProjectId()
+        String getParentSkillId()
+        SkillDef.ContainerType getParentType()
+        Integer getChildRefId()
+        String getChildProjectId()
+        String getChildSkillId()
+        SkillDef.ContainerType getChildType()
+    }
+
+    @Query('''select srd.id as id,
+            parent.id as parentRefId, parent.projectId as parentProjectId, parent.skillId as parentSkillId, parent.type as parentType,
+            child.id as childRefId, child.projectId as childProjectId, child.skillId as childSkillId, child.type as childType
+        from SkillRelDef srd, SkillDef parent, SkillDef child
+        where srd.parent = parent
+            and srd.child = child
+            and srd.type = ?2
+            and parent.projectId = ?1''')
+    List<LearningPathEdge> findLearningPathEdges(String projectId, SkillRelDef.RelationshipType type)
+
+    static interface RelationshipsSignature {
+        Long getNumRelationships()
+        @Nullable
+        Integer getMaxRelationshipId()
+    }
+
+    @Query('''select count(srd.id) as numRelationships, max(srd.id) as maxRelationshipId
+        from SkillRelDef srd, SkillDef parent
+        where srd.parent = parent
+            and srd.type in ?2
+            and parent.projectId = ?1''')
+    RelationshipsSignature getRelationshipsSignature(String projectId, List<SkillRelDef.RelationshipType> types)
+
 
     @Query(value='''
         WITH RECURSIVE subj_skills (parentId, childId) AS (
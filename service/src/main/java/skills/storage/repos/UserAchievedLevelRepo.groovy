@@ -42,6 +42,45 @@ interface UserAchievedLevelRepo extends CrudRepository<UserAchievement, Integer>
 
     List<UserAchievement> findAllByUserIdAndNotifiedOrderByCreatedAsc(String userId, String notified)
 
+    static interface PendingNotification {
+        Integer getId()
+        String getProjectId()
+        String getSkillId()
+        @Nullable
+        Integer getLevel()
+        @Nullable
+        String getSkillName()
+        @Nullable
+        String getDefSkillId()
+        @Nullable
+        SkillDef.ContainerType getSkillType()
+        @Nullable
+        String getPointsSkillId()
+    }
+
+    @Query('''select ua.id as id,
+        ua.projectId as projectId,
+        ua.skillId as skillId,
+        ua.level as level,
+        sd.name as skillName,
+        sd.skillId as defSkillId,
+        sd.type as skillType,
+        up.skillId as pointsSkillId
+        from UserAchievement ua
+        left join SkillDef sd on ua.skillId is not null and (
+            (ua.projectId is not null and sd.projectId = ua.projectId and sd.skillId = ua.skillId)
+            or (ua.projectId is null and sd.id = ua.skillRefId))
+        left join UserPoints up on ua.level is not null and up.userId = ua.userId
+            and (up.projectId = ua.projectId or (up.projectId is null and ua.projectId is null))
+            and (up.skillId = ua.skillId or (up.skillId is null and ua.skillId is null))
+        where ua.userId = ?1 and ua.notified = 'false'
+        order by ua.created asc''')
+    List<PendingNotification> findPendingNotifications(String userId)
+
+    @Modifying
+    @Query('''update UserAchievement ua set ua.notified = 'true', ua.updated = CURRENT_TIMESTAMP where ua.id in ?1''')
+    void markNotified(List<Integer> ids)
+
     @Nullable
     @Query('''select ua.userId from UserAchievement ua where ua.projectId = ?1 and ua.skillId = ?2''')
     List<String> findAllAchievementsForProjectAndSkill(String projectId, String skillId, Pageable pageable)
@@ -191,6 +230,20 @@ interface UserAchievedLevelRepo extends CrudRepository<UserAchievement, Integer>
       sdParent.projectId is null and sdParent.skillId=?2 and ua.id is null and srd.type=?3''')
     Long countNonAchievedGlobalSkills(String userId, String skillId, SkillRelDef.RelationshipType type)
 
+    @Query('''select distinct ua.skillRefId from UserAchievement ua where ua.userId = ?1 and ua.skillRefId in (?2)''')
+    List<Integer> findAchievedSkillRefIds(String userId, Collection<Integer> skillRefIds)
+
+    static interface ProjectLevel {
+        String getProjectId()
+        Integer getLevel()
+    }
+
+    @Query('''select ua.projectId as projectId, max(ua.level) as level
+        from UserAchievement ua
+        where ua.userId = ?1 and ua.skillId is null and ua.level is not null and ua.projectId in (?2)
+        group by ua.projectId''')
+    List<ProjectLevel> findMaxProjectLevels(String userId, Collection<String> projectIds)
+
     @Query('''select sdParent.name as label, count(ua) as countRes
     from SkillDef sdParent, SkillRelDef srd, SkillDef sdChild, UserAchievement ua
       where srd.parent.id = sdParent.id and srd.child.id=sdChild.id and sdChild.skillId=ua.skillId and ua.level is null and 
@@ -724,6 +777,50 @@ select badgeDef.name as name,
     @Modifying
     Integer deleteAllBySkillRefIdInAndUserId(List<Integer> skillRefId, String userId)
 
+    @Modifying
+    @Query('''delete from UserAchievement ua where ua.skillRefId in ?1 and ua.userId in ?2''')
+    int deleteAllBySkillRefIdInAndUserIdIn(List<Integer> skillRefIds, List<String> userIds)
+
+    @Modifying
+    @Query(value = '''delete
+                from user_achievement uaOuter
+                where uaOuter.id = ANY (select ua.id
+                        from user_achievement ua
+                                 left join user_points up
+                                           on (ua.skill_ref_id = up.skill_ref_id and ua.user_id = up.user_id)
+                        where ua.skill_ref_id = :subjectRefId
+                          and ua.user_id in (:userIds)
+                          and ua.level = :level
+                          and (up.points < :fromPoints or up.points is null)
+                        )''', nativeQuery = true)
+    int removeSubjectLevelAchievementsIfTheseUsersDoNotQualify(
+            @Param('userIds') List<String> userIds,
+            @Param('subjectRefId') Integer subjectRefId,
+            @Param('level') Integer level,
+            @Param('fromPoints') Integer fromPointsExclusive)
+
+    @Modifying
+    @Query(value = '''delete
+                from user_achievement uaOuter
+                where uaOuter.id = ANY (select ua.id
+                        from user_achievement ua
+                                 left join user_points up
+                                           on (ua.project_id = up.project_id
+                                                   and ua.skill_ref_id is null
+                                                   and up.skill_ref_id is null
+                                                   and ua.user_id = up.user_id)
+                        where ua.project_id = :projectId
+                          and ua.user_id in (:userIds)
+                          and ua.skill_ref_id is null
+                          and ua.level = :level
+                          and (up.points < :fromPoints or up.points is null)
+                        )''', nativeQuery = true)
+    int removeProjectLevelAchievementsIfTheseUsersDoNotQualify(
+            @Param('userIds') List<String> userIds,
+            @Param('projectId') String projectId,
+            @Param('level') Integer level,
+            @Param('fromPoints') Integer fromPointsExclusive)
+
     static interface AchievementItem {
         Date getAchievedOn()
 
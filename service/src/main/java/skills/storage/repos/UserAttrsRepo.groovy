@@ -43,6 +43,14 @@ interface UserAttrsRepo extends CrudRepository<UserAttrs, Integer> {
     @Query(value='''select attrs.email from user_attrs attrs where attrs.user_id = ?1''', nativeQuery = true)
     String findEmailByUserId(String userId)
 
+    static interface UserIdAndEmail {
+        String getUserId()
+        String getEmail()
+    }
+    @Nullable
+    @Query(value='''select attrs.user_id userId, attrs.email email from user_attrs attrs where attrs.user_id in ?1''', nativeQuery = true)
+    List<UserIdAndEmail> findEmailsByUserIds(Collection<String> userIds)
+
     @Query("SELECT DISTINCT(ua.userId) from UserAttrs ua where lower(ua.userId) LIKE %?1% order by ua.userId asc" )
     List<String> findDistinctUserIdForDisplay(String userUserIdForDisplayQuery, Pageable pageable)
 
@@ -23,6 +23,7 @@ import org.springframework.data.jpa.repository.QueryHints
 import org.springframework.data.repository.CrudRepository
 import org.springframework.data.repository.query.Param
 import org.springframework.lang.Nullable
+import skills.storage.model.DailyEventsWeek
 import skills.storage.model.DayCountItem
 import skills.storage.model.EventCount
 import skills.storage.model.EventType
@@ -505,10 +506,47 @@ interface UserEventsRepo extends CrudRepository<UserEvent, Integer> {
 
     void deleteByEventTypeAndEventTimeLessThan(EventType type, Date start)
 
+    @Query(value = '''
+        SELECT DISTINCT ue.project_id AS projectId,
+               CAST(CAST(ue.event_time AS date) - CAST(EXTRACT(DOW FROM ue.event_time) AS int) AS timestamp) AS weekStart
+        FROM user_events ue
+        WHERE ue.event_type = 'DAILY' AND ue.event_time < :olderThan
+        ORDER BY projectId, weekStart
+    ''', nativeQuery = true)
+    List<DailyEventsWeek> findWeeksWithDailyEventsOlderThan(@Param("olderThan") Date olderThan)
+
+    /**
+     * Moves DAILY events of a single project within [from, to) into their WEEKLY (Sunday based) rows in one statement;
+     * deleted rows are exactly the rows that get aggregated so events reported concurrently are never lost.
+     * Week start and week number computations must stay consistent with StartDateUtil and WeekNumberUtil.
+     *
+     * @return number of WEEKLY rows inserted or updated
+     */
+    @Modifying
+    @Query(value = '''
+        WITH moved AS (
+            DELETE FROM user_events
+            WHERE event_type = 'DAILY' AND project_id = :projectId AND event_time >= :fromTime AND event_time < :toTime
+            RETURNING project_id, skill_ref_id, user_id, count,
+                CAST(CAST(event_time AS date) - CAST(EXTRACT(DOW FROM event_time) AS int) AS timestamp) AS week_start
+        )
+        INSERT INTO user_events (project_id, skill_ref_id, user_id, event_time, count, event_type, week_number)
+        SELECT moved.project_id, moved.skill_ref_id, moved.user_id, moved.week_start, SUM(moved.count), 'WEEKLY',
+               (CAST(moved.week_start AS date) - DATE '1970-01-04') / 7
+        FROM moved
+        GROUP BY moved.project_id, moved.skill_ref_id, moved.user_id, moved.week_start
+        ON CONFLICT ON CONSTRAINT user_events_unique_row DO UPDATE SET count = user_events.count + excluded.count
+    ''', nativeQuery = true)
+    int compactDailyEventsIntoWeekly(@Param("projectId") String projectId, @Param("fromTime") Date fromTime, @Param("toTime") Date toTime)
+
     void deleteAllByUserIdAndProjectId(String projectId, String userId)
 
     void deleteAllByUserIdAndSkillRefIdIn(String userId, List<Integer> skillRefIds)
 
+    @Modifying
+    @Query('''delete from UserEvent ue where ue.skillRefId = ?1 and ue.userId in ?2''')
+    int deleteAllBySkillRefIdAndUserIdIn(Integer skillRefId, List<String> userIds)
+
     @Nullable
     UserEvent findByUserIdAndSkillRefIdAndEventTimeAndEventType(String userId, Integer skillRefId, Date eventTime, EventType type)
 
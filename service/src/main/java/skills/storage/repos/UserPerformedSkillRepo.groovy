@@ -18,6 +18,7 @@ package skills.storage.repos
 import groovy.transform.CompileStatic
 import org.springframework.data.domain.Pageable
 import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Modifying
 import org.springframework.data.jpa.repository.Query
 import org.springframework.data.repository.query.Param
 import org.springframework.lang.Nullable
@@ -81,6 +82,10 @@ interface UserPerformedSkillRepo extends JpaRepository<UserPerformedSkill, Integ
     void deleteAllByUserIdAndProjectId(String userId, String projectId)
     void deleteAllByUserIdAndSkillRefIdIn(String userId, List<Integer> skillRefIds)
 
+    @Modifying
+    @Query('''delete from UserPerformedSkill ups where ups.skillRefId = ?1 and ups.userId in ?2''')
+    int deleteAllBySkillRefIdAndUserIdIn(Integer skillRefId, List<String> userIds)
+
     @Query('''select count(u.id) from UserPerformedSkill u
               where 
               u.skillRefId in (
@@ -129,6 +134,18 @@ interface UserPerformedSkillRepo extends JpaRepository<UserPerformedSkill, Integ
               u.performedOn < ?5''')
     Long countByUserIdAndProjectIdAndSkillIdAndPerformedOnGreaterThanAndPerformedOnLessThan(String userId, String projectId, String skillId, Date startDate, Date endDate)
 
+    @Query('''select u.performedOn from UserPerformedSkill u
+              where
+              u.skillRefId in (
+                select case when s.copiedFrom is not null then s.copiedFrom else s.id end as id from SkillDef s
+                where s.projectId = ?2 and
+                s.skillId = ?3 and
+                s.enabled = 'true'
+              ) and
+              u.userId = ?1
+              order by u.performedOn desc''')
+    List<Date> findRecentPerformedOn(String userId, String projectId, String skillId, Pageable pageable)
+
     Boolean existsByUserId(String userId)
 
     @Query('''select true from UserPerformedSkill up 
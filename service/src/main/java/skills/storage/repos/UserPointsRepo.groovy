@@ -664,6 +664,40 @@ interface UserPointsRepo extends CrudRepository<UserPoints, Integer> {
             ''')
     List<RankedUserRes>  findUsersForLeaderboardPointsMoreOrEqual(String projectId, Integer points, LocalDateTime createdDate, Pageable pageable)
 
+    @Query('''SELECT 
+                    p.userId as userId, 
+                    p.points as points,
+                    uAttrs.userIdForDisplay as userIdForDisplay,
+                    uAttrs.firstName as userFirstName,
+                    uAttrs.lastName as userLastName,
+                    uAttrs.nickname as userNickname,
+                    uAttrs.created as userFirstSeenTimestamp
+                from UserPoints p, UserAttrs uAttrs
+                where
+                    p.userId = uAttrs.userId and
+                    p.projectId=?1 and 
+                    p.skillId=?2 and
+                    p.userId in ?3
+            ''')
+    List<RankedUserRes> findUsersForLeaderboardByUserIds(String projectId, String subjectId, List<String> userIds)
+
+    @Query('''SELECT 
+                    p.userId as userId, 
+                    p.points as points,
+                    uAttrs.userIdForDisplay as userIdForDisplay,
+                    uAttrs.firstName as userFirstName,
+                    uAttrs.lastName as userLastName,
+                    uAttrs.nickname as userNickname,
+                    uAttrs.created as userFirstSeenTimestamp
+                from UserPoints p, UserAttrs uAttrs
+                where
+                    p.userId = uAttrs.userId and
+                    p.projectId=?1 and 
+                    p.skillId is null and
+                    p.userId in ?2
+            ''')
+    List<RankedUserRes> findUsersForLeaderboardByUserIds(String projectId, List<String> userIds)
+
     @Query('''SELECT DISTINCT(p.userId) from UserPoints p 
                 where
                     p.projectId =?1 and
@@ -685,11 +719,70 @@ interface UserPointsRepo extends CrudRepository<UserPoints, Integer> {
                 and not exists (select 1 from ArchivedUser au where au.userId = up.userId and au.projectId = up.projectId)''' )
     long countNonArchivedUsersByProjectIdAndSkillId(String projectId, String skillId)
 
+    static interface RankIndexEntry {
+        String getUserId()
+        Integer getPoints()
+        LocalDateTime getUserFirstSeenTimestamp()
+    }
+
+    @QueryHints(
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000")
+    )
+    @Query('''SELECT 
+                    p.userId as userId, 
+                    p.points as points,
+                    uAttrs.created as userFirstSeenTimestamp
+                from UserPoints p, UserAttrs uAttrs
+                where
+                    p.userId = uAttrs.userId and
+                    p.projectId=?1 and 
+                    p.skillId is null and 
+                    not exists (select 1 from ArchivedUser au where au.userId = p.userId and au.projectId = p.projectId)''' )
+    Stream<RankIndexEntry> streamRankIndexEntries(String projectId)
+
+    @QueryHints(
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000")
+    )
+    @Query('''SELECT 
+                    p.userId as userId, 
+                    p.points as points,
+                    uAttrs.created as userFirstSeenTimestamp
+                from UserPoints p, UserAttrs uAttrs
+                where
+                    p.userId = uAttrs.userId and
+                    p.projectId=?1 and 
+                    p.skillId=?2 and 
+                    not exists (select 1 from ArchivedUser au where au.userId = p.userId and au.projectId = p.projectId)''' )
+    Stream<RankIndexEntry> streamRankIndexEntries(String projectId, String skillId)
+
     void deleteByProjectIdAndSkillId(String projectId, String skillId)
     Long deleteBySkillRefId(Integer skillRefId)
     void deleteAllByProjectIdAndUserId(String projectId, String userId)
     void deleteAllByUserIdAndSkillRefIdIn(String userId, List<Integer> skillRefId)
 
+    @Modifying
+    @Query('''delete from UserPoints up where up.skillRefId = ?1 and up.userId in ?2''')
+    int deleteAllBySkillRefIdAndUserIdIn(Integer skillRefId, List<String> userIds)
+
+    @Modifying
+    @Query('''delete from UserPoints up where up.projectId = ?1 and up.userId in ?2 and up.points <= 0''')
+    int deleteNonPositivePointsForUsers(String projectId, List<String> userIds)
+
+    // removes the skill's points from the subject's and the project's totals of the given users
+    @Modifying
+    @Query(value = '''
+            update user_points up set points = up.points - skillPoints.points
+            from user_points skillPoints
+            where skillPoints.skill_ref_id = :skillRefId
+              and skillPoints.user_id in (:userIds)
+              and up.user_id = skillPoints.user_id
+              and up.project_id = :projectId
+              and (up.skill_ref_id = :subjectRefId or up.skill_ref_id is null)''', nativeQuery = true)
+    int subtractSkillPointsFromSubjectAndProjectForUsers(@Param("projectId") String projectId,
+                                                          @Param("subjectRefId") Integer subjectRefId,
+                                                          @Param("skillRefId") Integer skillRefId,
+                                                          @Param("userIds") List<String> userIds)
+
     @Query('''SELECT count(p) from UserPoints p where 
             p.projectId=?1 and 
             p.skillId=?2 and 
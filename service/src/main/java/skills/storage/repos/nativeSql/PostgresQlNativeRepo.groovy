@@ -463,6 +463,76 @@ class PostgresQlNativeRepo {
         query.executeUpdate()
     }
 
+    /**
+     * Multi-row version of createOrUpdateUserEvent; events must not contain duplicate
+     * (userId, projectId, skillRefId, eventTime, eventType) rows as a single upsert cannot update the same row twice
+     */
+    void createOrUpdateUserEvents(List<UserEventCount> events) {
+        if (!events) {
+            return
+        }
+        StringBuilder sql = new StringBuilder('''
+           INSERT INTO user_events (
+            project_id,
+            skill_ref_id,
+            user_id,
+            event_time,
+            count,
+            event_type,
+            week_number
+           ) VALUES ''')
+        events.eachWithIndex { UserEventCount event, int i ->
+            if (i > 0) {
+                sql.append(', ')
+            }
+            sql.append("(:projectId${i}, :skillRefId${i}, :userId${i}, :start${i}, :count${i}, :type${i}, :weekNumber${i})")
+        }
+        sql.append(' ON CONFLICT ON CONSTRAINT user_events_unique_row DO UPDATE SET count = user_events.count+excluded.count')
+
+        Query query = entityManager.createNativeQuery(sql.toString())
+        events.eachWithIndex { UserEventCount event, int i ->
+            query.setParameter("projectId${i}".toString(), event.projectId)
+            query.setParameter("skillRefId${i}".toString(), event.skillRefId)
+            query.setParameter("userId${i}".toString(), event.userId)
+            query.setParameter("start${i}".toString(), event.eventTime)
+            query.setParameter("count${i}".toString(), event.count)
+            query.setParameter("type${i}".toString(), event.eventType)
+            query.setParameter("weekNumber${i}".toString(), event.weekNumber)
+        }
+        query.executeUpdate()
+    }
+
+    static class DueScheduledTasks {
+        String taskName
+        long count
+        Object oldestExecutionTime
+    }
+
+    /**
+     * @return db-scheduler executions that are due but not yet picked, grouped by task name
+     */
+    List<DueScheduledTasks> getDueScheduledTasks() {
+        Query query = entityManager.createNativeQuery('''
+                select task_name, count(*), min(execution_time)
+                from scheduled_tasks
+                where picked = false and execution_time <= :now
+                group by task_name''')
+        query.setParameter("now", new Date())
+        return query.getResultList().collect {
+            new DueScheduledTasks(taskName: it[0], count: ((Number) it[1]).longValue(), oldestExecutionTime: it[2])
+        }
+    }
+
+    static class UserEventCount {
+        String projectId
+        Integer skillRefId
+        String userId
+        Date eventTime
+        String eventType
+        Integer weekNumber
+        Integer count
+    }
+
     long countUsers(QueryUsersCriteria queryUsersCriteria) {
         String sql = QueryUserCriteriaHelper.generateCountSql(queryUsersCriteria)
         if (!sql) {
@@ -503,6 +573,27 @@ class PostgresQlNativeRepo {
         return skillsDBLockRepo.insertLockOrSelectExisting(lockKey)
     }
 
+    void advisoryXactLock(long lockKey) {
+        Query query = entityManager.createNativeQuery('select 1 from pg_advisory_xact_lock(:lockKey)')
+        query.setParameter("lockKey", lockKey)
+        query.getSingleResult()
+    }
+
+    Long getProjectDefinitionsVersion(String projectId) {
+        Query query = entityManager.createNativeQuery('select version from project_definition_version where project_id = :projectId')
+        query.setParameter("projectId", projectId)
+        List res = query.getResultList()
+        return res ? ((Number) res.first()).longValue() : 0L
+    }
+
+    void incrementProjectDefinitionsVersion(String projectId) {
+        Query query = entityManager.createNativeQuery("""
+                insert into project_definition_version (project_id, version) values (:projectId, nextval('project_definition_version_seq'))
+                on conflict (project_id) do update set version = excluded.version""")
+        query.setParameter("projectId", projectId)
+        query.executeUpdate()
+    }
+
 
     List<SkillDefPartial> getSkillsWithCatalogStatusExplodeSkillGroups(String projectId, String subjectId) {
         skillRelDefRepo.getSkillsWithCatalogStatusExplodeSkillGroups(projectId, subjectId)
@@ -0,0 +1,230 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.tasks
+
+import com.github.kagkarlsson.scheduler.task.ExecutionContext
+import com.github.kagkarlsson.scheduler.task.TaskInstance
+import com.github.kagkarlsson.scheduler.task.VoidExecutionHandler
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
+import jakarta.annotation.PostConstruct
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.scheduling.annotation.Scheduled
+import org.springframework.stereotype.Component
+import org.springframework.transaction.annotation.Transactional
+import skills.storage.repos.nativeSql.PostgresQlNativeRepo
+
+import java.time.Instant
+import java.time.LocalDateTime
+import java.time.OffsetDateTime
+import java.time.ZoneId
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Per task type execution policy for the one-time tasks scheduled through {@link TaskSchedulerService}.
+ *
+ * Every execution is timed and the due (not yet picked) executions of each task type are sampled periodically and
+ * exposed as metrics. Priorities are stored with each execution (db-scheduler's priority column) so that every node
+ * polls due executions of higher priority task types first.
+ *
+ * Optionally a node defers an execution, by rescheduling it deferSeconds later, when it is already running
+ * maxConcurrent executions of that task type. A node always allows one execution of each task type so that every type
+ * keeps making progress, and only executions that have not failed yet are deferred so that the retry count of a failing
+ * execution is never lost; limits apply to each node separately.
+ *
+ * Priorities and limits are configured as comma separated taskName:value pairs, for example
+ * skills.config.tasks.maxConcurrent=imported-skill-achievement:1,imported-skill-achievements:1
+ */
+@Component
+@Slf4j
+class TaskExecutionPolicy {
+
+    @Value('#{"${skills.config.tasks.priorities:grade-text-input-using-ai:100,finalize-catalog-imports:90,catalog-skill-updated:50,remove-skill-events-for-user:50,imported-skill-achievements:10,imported-skill-achievement:10}"}')
+    String prioritiesConf = 'grade-text-input-using-ai:100,finalize-catalog-imports:90,catalog-skill-updated:50,remove-skill-events-for-user:50,imported-skill-achievements:10,imported-skill-achievement:10'
+
+    @Value('#{"${skills.config.tasks.maxConcurrent:}"}')
+    String maxConcurrentConf = ''
+
+    @Value('#{"${skills.config.tasks.deferSeconds:5}"}')
+    int deferSeconds = 5
+
+    @Autowired(required = false)
+    PostgresQlNativeRepo postgresQlNativeRepo
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    static class DueTasks {
+        volatile long count
+        volatile double oldestAgeSeconds
+    }
+
+    private Map<String, Integer> priorities = [:]
+    private Map<String, Integer> maxConcurrent = [:]
+    private final Map<String, Integer> running = [:]
+    private final ConcurrentHashMap<String, DueTasks> dueTasks = new ConcurrentHashMap<>()
+
+    @PostConstruct
+    void init() {
+        priorities = parse(prioritiesConf)
+        maxConcurrent = parse(maxConcurrentConf)
+        log.info("Task priorities={}", priorities)
+        if (maxConcurrent) {
+            log.info("Enabling task execution limits: maxConcurrent={}, deferSeconds=[{}]", maxConcurrent, deferSeconds)
+        }
+    }
+
+    /**
+     * Wraps the handler of a one-time task so that its executions are timed and subject to this policy; must be paired
+     * with {@link skills.tasks.config.TaskConfig.DeferOnExecutionLimitHandler} as the task's failure handler.
+     */
+    public <T> VoidExecutionHandler<T> limit(VoidExecutionHandler<T> handler) {
+        return new VoidExecutionHandler<T>() {
+            @Override
+            void execute(TaskInstance<T> taskInstance, ExecutionContext executionContext) {
+                String taskName = taskInstance.taskName
+                // a deferred execution is re-created, so never defer one that carries a retry count
+                boolean canDefer = executionContext.execution.consecutiveFailures == 0
+                if (!tryStart(taskName, canDefer)) {
+                    meterRegistry.counter('skills.tasks.deferred', 'task', taskName).increment()
+                    throw new ExecutionLimitReachedException("Deferring [${taskInstance.id}] of task [${taskName}]")
+                }
+                Timer.Sample sample = Timer.start(meterRegistry)
+                String outcome = 'success'
+                try {
+                    handler.execute(taskInstance, executionContext)
+                } catch (Throwable t) {
+                    outcome = 'failure'
+                    throw t
+                } finally {
+                    finished(taskName)
+                    sample.stop(meterRegistry.timer('skills.tasks.execution', 'task', taskName, 'outcome', outcome))
+                }
+            }
+        }
+    }
+
+    int getPriority(String taskName) {
+        return priorities.getOrDefault(taskName, 0)
+    }
+
+    Instant getDeferredExecutionTime() {
+        return Instant.now().plusSeconds(deferSeconds)
+    }
+
+    synchronized boolean tryStart(String taskName, boolean canDefer = true) {
+        int numRunning = running.getOrDefault(taskName, 0)
+        if (canDefer && numRunning > 0) {
+            Integer max = maxConcurrent.get(taskName)
+            if (max != null && numRunning >= max) {
+                return false
+            }
+        }
+        running.put(taskName, numRunning + 1)
+        return true
+    }
+
+    synchronized void finished(String taskName) {
+        int numRunning = running.getOrDefault(taskName, 1) - 1
+        if (numRunning > 0) {
+            running.put(taskName, numRunning)
+        } else {
+            running.remove(taskName)
+        }
+    }
+
+    @Scheduled(initialDelayString = '#{"${skills.config.tasks.sampleIntervalMs:15000}"}', fixedDelayString = '#{"${skills.config.tasks.sampleIntervalMs:15000}"}')
+    @Transactional(readOnly = true)
+    void sampleDueTasks() {
+        if (!postgresQlNativeRepo) {
+            return
+        }
+        try {
+            long now = System.currentTimeMillis()
+            Set<String> sampled = new HashSet<>()
+            postgresQlNativeRepo.getDueScheduledTasks().each { PostgresQlNativeRepo.DueScheduledTasks due ->
+                DueTasks forTask = getDueTasks(due.taskName)
+                forTask.count = due.count
+                forTask.oldestAgeSeconds = Math.max(0L, now - toEpochMillis(due.oldestExecutionTime)) / 1000d
+                sampled.add(due.taskName)
+            }
+            dueTasks.each { String taskName, DueTasks forTask ->
+                if (!sampled.contains(taskName)) {
+                    forTask.count = 0
+                    forTask.oldestAgeSeconds = 0
+                }
+            }
+        } catch (Throwable t) {
+            log.warn("Failed to sample due scheduled tasks", t)
+        }
+    }
+
+    private DueTasks getDueTasks(String taskName) {
+        return dueTasks.computeIfAbsent(taskName, { String name ->
+            DueTasks forTask = new DueTasks()
+            Gauge.builder('skills.tasks.due', forTask, { DueTasks due -> (double) due.count })
+                    .description('Number of executions that are due but were not picked yet')
+                    .tag('task', name)
+                    .register(meterRegistry)
+            Gauge.builder('skills.tasks.due.oldest.age', forTask, { DueTasks due -> due.oldestAgeSeconds })
+                    .description('Seconds since the oldest due execution that was not picked yet became due')
+                    .baseUnit('seconds')
+                    .tag('task', name)
+                    .register(meterRegistry)
+            return forTask
+        })
+    }
+
+    private static long toEpochMillis(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).time
+        }
+        if (value instanceof Instant) {
+            return ((Instant) value).toEpochMilli()
+        }
+        if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toInstant().toEpochMilli()
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+        }
+        return System.currentTimeMillis()
+    }
+
+    private static Map<String, Integer> parse(String conf) {
+        Map<String, Integer> res = [:]
+        conf?.split(',')?.each { String entry ->
+            if (entry.trim()) {
+                int separator = entry.lastIndexOf(':')
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Expected taskName:value but got [${entry}]")
+                }
+                res.put(entry.substring(0, separator).trim(), Integer.valueOf(entry.substring(separator + 1).trim()))
+            }
+        }
+        return res
+    }
+
+    static class ExecutionLimitReachedException extends RuntimeException {
+        ExecutionLimitReachedException(String message) {
+            // thrown for every deferral, skip the stack trace
+            super(message, null, false, false)
+        }
+    }
+}
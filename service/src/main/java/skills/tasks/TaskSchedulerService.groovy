@@ -25,6 +25,7 @@ import skills.services.events.SkillDate
 import skills.tasks.data.CatalogFinalizeRequest
 import skills.tasks.data.CatalogSkillDefinitionUpdated
 import skills.tasks.data.ImportedSkillAchievement
+import skills.tasks.data.ImportedSkillAchievements
 import skills.tasks.data.RemoveSkillEventsForUserRequest
 import skills.tasks.data.TextInputAiGradingRequest
 
@@ -46,6 +47,9 @@ class TaskSchedulerService {
     @Autowired
     OneTimeTask<ImportedSkillAchievement> importedSkillAchievementOneTimeTask
 
+    @Autowired
+    OneTimeTask<ImportedSkillAchievements> importedSkillAchievementsOneTimeTask
+
     @Autowired
     OneTimeTask<CatalogFinalizeRequest> finalizeCatalogImportsOneTimeTask
 
@@ -80,6 +84,20 @@ class TaskSchedulerService {
         scheduler.schedule(importedSkillAchievementOneTimeTask.instance(id, importedSkillAchievement), Instant.now().plusSeconds(schedulingDelaySeconds))
     }
 
+    void scheduleImportedSkillAchievements(String userId, Integer originalSkillId, List<Integer> importedSkillIds, List<ImportedSkillAchievements.Event> events) {
+        String uuid = UUID.randomUUID().toString()
+        String id = "${originalSkillId}-${uuid}"
+        ImportedSkillAchievements importedSkillAchievements = new ImportedSkillAchievements(
+                uuid: uuid,
+                userId: userId,
+                originalSkillId: originalSkillId,
+                importedSkillIds: importedSkillIds,
+                events: events,
+        )
+        log.debug("scheduling imported skill achievements task [{}] for [{}] imported skills and [{}] events using db-scheduler", id, importedSkillIds.size(), events.size())
+        scheduler.schedule(importedSkillAchievementsOneTimeTask.instance(id, importedSkillAchievements), Instant.now().plusSeconds(schedulingDelaySeconds))
+    }
+
     void scheduleCatalogImportFinalization(String projectId){
         String id = "${projectId}-${UUID.randomUUID().toString()}}"
         log.info("scheduling catalog import finalization for [{}] using db-scheduler", id)
@@ -20,6 +20,7 @@ import com.github.kagkarlsson.scheduler.boot.config.DbSchedulerCustomizer
 import com.github.kagkarlsson.scheduler.task.ExecutionComplete
 import com.github.kagkarlsson.scheduler.task.ExecutionOperations
 import com.github.kagkarlsson.scheduler.task.FailureHandler
+import com.github.kagkarlsson.scheduler.task.SchedulableInstance
 import com.github.kagkarlsson.scheduler.task.helper.OneTimeTask
 import com.github.kagkarlsson.scheduler.task.helper.RecurringTask
 import com.github.kagkarlsson.scheduler.task.helper.Tasks
@@ -27,14 +28,17 @@ import com.github.kagkarlsson.scheduler.task.schedule.Schedules
 import groovy.util.logging.Slf4j
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.annotation.Value
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
 import skills.tasks.JsonSerializer
+import skills.tasks.TaskExecutionPolicy
 import skills.tasks.data.CatalogFinalizeRequest
 import skills.tasks.data.CatalogSkillDefinitionUpdated
 import skills.tasks.data.ExpireUserAchievements
 import skills.tasks.data.ImportedSkillAchievement
+import skills.tasks.data.ImportedSkillAchievements
 import skills.tasks.data.ProjectInviteCleanup
 import skills.tasks.data.RemoveSkillEventsForUserRequest
 import skills.tasks.data.TextInputAiGradingRequest
@@ -43,6 +47,7 @@ import skills.tasks.executors.CatalogSkillUpdatedTaskExecutor
 import skills.tasks.executors.ExpireUserAchievementsTaskExecutor
 import skills.tasks.executors.FinalizeCatalogSkillsImportExecutor
 import skills.tasks.executors.ImportedSkillAchievementTaskExecutor
+import skills.tasks.executors.ImportedSkillAchievementsTaskExecutor
 import skills.tasks.executors.ProjectInviteCleanupTaskExecutor
 import skills.tasks.executors.RemoveSkillEventsForAUserExecutor
 import skills.tasks.executors.TextInputQuestionAiGradingExecutor
@@ -82,6 +87,8 @@ class TaskConfig {
     @Value('#{"${skills.config.exponentialBackOffRate:1}"}')
     int aiGraderExponentialBackOffRate
 
+    @Autowired
+    TaskExecutionPolicy taskExecutionPolicy
 
     @Bean
     DbSchedulerCustomizer customizer() {
@@ -127,51 +134,88 @@ class TaskConfig {
         }
     }
 
+    static class DeferOnExecutionLimitHandler<T> implements FailureHandler<T> {
+        private FailureHandler<T> failureHandler;
+        private TaskExecutionPolicy taskExecutionPolicy;
+
+        DeferOnExecutionLimitHandler(FailureHandler<T> failureHandler, TaskExecutionPolicy taskExecutionPolicy){
+            this.failureHandler = failureHandler;
+            this.taskExecutionPolicy = taskExecutionPolicy;
+        }
+
+        @Override
+        void onFailure(final ExecutionComplete executionComplete, final ExecutionOperations<T> executionOperations) {
+            Throwable t = executionComplete.getCause()?.orElse(null)
+            if(t instanceof TaskExecutionPolicy.ExecutionLimitReachedException){
+                // the execution never started so reschedule it rather than count it as a failed attempt;
+                // only executions without previous failures are deferred, so no retry count is lost by re-creating it
+                executionOperations.removeAndScheduleNew(SchedulableInstance.of(executionComplete.getExecution().taskInstance, taskExecutionPolicy.getDeferredExecutionTime()));
+            }else{
+                this.failureHandler.onFailure(executionComplete, executionOperations);
+            }
+        }
+    }
+
     @Bean
     OneTimeTask<CatalogSkillDefinitionUpdated> catalogSkillDefinitionUpdatedOneTimeTask(CatalogSkillUpdatedTaskExecutor catalogSkillUpdatedTaskExecutor) {
         return Tasks.oneTime("catalog-skill-updated", CatalogSkillDefinitionUpdated.class)
+                .defaultPriority(taskExecutionPolicy.getPriority("catalog-skill-updated"))
                 .onFailure(
-                        new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(maxRetries,
-                                new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(exponentialBackOffSeconds), exponentialBackOffRate)))
+                        new DeferOnExecutionLimitHandler(new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(maxRetries,
+                                new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(exponentialBackOffSeconds), exponentialBackOffRate))), taskExecutionPolicy)
                 )
-                .execute(catalogSkillUpdatedTaskExecutor);
+                .execute(taskExecutionPolicy.limit(catalogSkillUpdatedTaskExecutor));
     }
 
     @Bean
     OneTimeTask<ImportedSkillAchievement> importedSkillAchievementOneTimeTask(ImportedSkillAchievementTaskExecutor importedSkillAchievementTaskExecutor) {
         return Tasks.oneTime("imported-skill-achievement", ImportedSkillAchievement.class)
-            .onFailure(new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(maxRetries,
-                    new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(exponentialBackOffSeconds), exponentialBackOffRate)))
+            .defaultPriority(taskExecutionPolicy.getPriority("imported-skill-achievement"))
+            .onFailure(new DeferOnExecutionLimitHandler(new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(maxRetries,
+                    new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(exponentialBackOffSeconds), exponentialBackOffRate))), taskExecutionPolicy)
+            )
+            .execute(taskExecutionPolicy.limit(importedSkillAchievementTaskExecutor))
+    }
+
+    @Bean
+    OneTimeTask<ImportedSkillAchievements> importedSkillAchievementsOneTimeTask(ImportedSkillAchievementsTaskExecutor importedSkillAchievementsTaskExecutor) {
+        return Tasks.oneTime("imported-skill-achievements", ImportedSkillAchievements.class)
+            .defaultPriority(taskExecutionPolicy.getPriority("imported-skill-achievements"))
+            .onFailure(new DeferOnExecutionLimitHandler(new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(maxRetries,
+                    new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(exponentialBackOffSeconds), exponentialBackOffRate))), taskExecutionPolicy)
             )
-            .execute(importedSkillAchievementTaskExecutor)
+            .execute(taskExecutionPolicy.limit(importedSkillAchievementsTaskExecutor))
     }
 
     @Bean
     OneTimeTask<CatalogFinalizeRequest> finalizeCatalogImportsOneTimeTask(FinalizeCatalogSkillsImportExecutor finalizeCatalogSkillsImportExecutor) {
         return Tasks.oneTime("finalize-catalog-imports", CatalogFinalizeRequest.class)
-                .onFailure(new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(maxRetries,
-                        new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(exponentialBackOffSeconds), exponentialBackOffRate)))
+                .defaultPriority(taskExecutionPolicy.getPriority("finalize-catalog-imports"))
+                .onFailure(new DeferOnExecutionLimitHandler(new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(maxRetries,
+                        new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(exponentialBackOffSeconds), exponentialBackOffRate))), taskExecutionPolicy)
                 )
-                .execute(finalizeCatalogSkillsImportExecutor)
+                .execute(taskExecutionPolicy.limit(finalizeCatalogSkillsImportExecutor))
     }
     @Bean
     OneTimeTask<RemoveSkillEventsForUserRequest> removeSkillEventsForAUser(RemoveSkillEventsForAUserExecutor removeSkillEventsForAUserExecutor) {
         return Tasks.oneTime("remove-skill-events-for-user", RemoveSkillEventsForUserRequest.class)
+                .defaultPriority(taskExecutionPolicy.getPriority("remove-skill-events-for-user"))
                 .onFailure(
-                        new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(maxRetries,
-                                new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(exponentialBackOffSeconds), exponentialBackOffRate)))
+                        new DeferOnExecutionLimitHandler(new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(maxRetries,
+                                new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(exponentialBackOffSeconds), exponentialBackOffRate))), taskExecutionPolicy)
                 )
-                .execute(removeSkillEventsForAUserExecutor);
+                .execute(taskExecutionPolicy.limit(removeSkillEventsForAUserExecutor));
     }
 
     @Bean
     OneTimeTask<TextInputAiGradingRequest> gradeTextInputUsingAi(TextInputQuestionAiGradingExecutor textInputQuestionAiGradingExecutor) {
         return Tasks.oneTime("grade-text-input-using-ai", TextInputAiGradingRequest.class)
+                .defaultPriority(taskExecutionPolicy.getPriority("grade-text-input-using-ai"))
                 .onFailure(
-                        new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(aiGraderMaxRetries,
-                                new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(aiGraderExponentialBackOffSeconds), aiGraderExponentialBackOffRate)))
+                        new DeferOnExecutionLimitHandler(new DontRetryOnNoRetryExceptionHandler(new FailureHandler.MaxRetriesFailureHandler(aiGraderMaxRetries,
+                                new FailureHandler.ExponentialBackoffFailureHandler(Duration.ofSeconds(aiGraderExponentialBackOffSeconds), aiGraderExponentialBackOffRate))), taskExecutionPolicy)
                 )
-                .execute(textInputQuestionAiGradingExecutor);
+                .execute(taskExecutionPolicy.limit(textInputQuestionAiGradingExecutor));
     }
     @Bean
     RecurringTask<ProjectInviteCleanup> cleanupProjectInvitesTask(ProjectInviteCleanupTaskExecutor projectInviteCleanupTaskExecutor) {
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.tasks.data
+
+import skills.services.events.SkillDate
+
+/**
+ * All of a user's applied events for an exported catalog skill that were reported in the same transaction, to be
+ * propagated to every importing project in one go.
+ */
+class ImportedSkillAchievements {
+    String uuid
+    String userId
+    Integer originalSkillId
+    List<Integer> importedSkillIds
+    // in the order they were reported
+    List<Event> events
+
+    static class Event {
+        SkillDate incomingSkillDate
+        boolean thisRequestCompletedOriginalSkill
+        boolean isMotivationalSkill
+        // epoch millis, used to measure propagation lag
+        long reportedOn
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.tasks.executors
+
+import callStack.profiler.CProf
+import callStack.profiler.ProfileEvent
+import com.github.kagkarlsson.scheduler.task.ExecutionContext
+import com.github.kagkarlsson.scheduler.task.TaskInstance
+import com.github.kagkarlsson.scheduler.task.VoidExecutionHandler
+import groovy.util.logging.Slf4j
+import io.micrometer.core.instrument.DistributionSummary
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
+import jakarta.annotation.PostConstruct
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import org.springframework.transaction.annotation.Transactional
+import skills.services.events.pointsAndAchievements.ImportedSkillsAchievementsHandler
+import skills.storage.model.SkillDefMin
+import skills.storage.repos.SkillDefRepo
+import skills.tasks.data.ImportedSkillAchievements
+
+import java.util.concurrent.TimeUnit
+
+@Component
+@Slf4j
+class ImportedSkillAchievementsTaskExecutor implements VoidExecutionHandler<ImportedSkillAchievements> {
+
+    @Autowired
+    ImportedSkillsAchievementsHandler importedSkillsAchievementsHandler
+
+    @Autowired
+    SkillDefRepo skillDefRepo
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    @Value('#{"${skills.async.reportSkill.prof.minMillisToPrint:500}"}')
+    int minMillisToPrint
+
+    private DistributionSummary fanOutSummary
+    private DistributionSummary eventsSummary
+    private Timer lagTimer
+
+    @PostConstruct
+    void init() {
+        fanOutSummary = DistributionSummary.builder('skills.catalog.propagation.fanOut')
+                .description('Number of importing projects updated by a single propagation task')
+                .register(meterRegistry)
+        eventsSummary = DistributionSummary.builder('skills.catalog.propagation.events')
+                .description('Number of coalesced events propagated by a single propagation task')
+                .register(meterRegistry)
+        lagTimer = Timer.builder('skills.catalog.propagation.lag')
+                .description('Time from reporting the oldest event of a propagation task until all importing projects were updated')
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+    }
+
+    @Transactional
+    @Override
+    void execute(TaskInstance<ImportedSkillAchievements> taskInstance, ExecutionContext executionContext) {
+        ImportedSkillAchievements data = taskInstance.getData()
+        log.debug("Running async imported skill achievements scheduled task for originalSkillId=[{}], userId=[{}], numImportedSkills=[{}], numEvents=[{}], uuid=[{}]",
+                data.originalSkillId, data.userId, data.importedSkillIds.size(), data.events.size(), data.uuid)
+
+        CProf.clear()
+        String profName = "asyncReport".toString()
+        CProf.start(profName)
+        List<SkillDefMin> importedSkills = []
+        data.importedSkillIds.each { Integer importedSkillId ->
+            SkillDefMin importedSkill = skillDefRepo.findSkillDefMinById(importedSkillId)
+            if (!importedSkill) {
+                // import was removed since the events were reported
+                log.debug("Imported skill with id=[{}] no longer exists, skipping", importedSkillId)
+                return
+            }
+            importedSkills.add(importedSkill)
+        }
+        // each project takes the user's skill reporting lock, always acquire them in the same order so concurrent tasks cannot deadlock
+        importedSkills.sort { SkillDefMin a, SkillDefMin b -> a.projectId <=> b.projectId ?: a.id <=> b.id }
+        importedSkills.each { SkillDefMin importedSkill ->
+            data.events.each { ImportedSkillAchievements.Event event ->
+                importedSkillsAchievementsHandler.handleAchievementsForImportedSkills(data.userId, importedSkill, event.incomingSkillDate, event.thisRequestCompletedOriginalSkill, event.isMotivationalSkill)
+            }
+        }
+        int numUpdated = importedSkills.size()
+        ProfileEvent resProfEvent = CProf.stop(profName)
+        if (resProfEvent.getRuntimeInMillis() > minMillisToPrint) {
+            log.info("Profiled ImportedSkillAchievementsTaskExecutor for originalSkillId=[{}], userId=[{}]:\n{}", data.originalSkillId, data.userId, CProf.prettyPrint())
+        }
+
+        fanOutSummary.record(numUpdated)
+        eventsSummary.record(data.events.size())
+        long oldestReportedOn = data.events.collect { it.reportedOn }.min()
+        lagTimer.record(Math.max(0L, System.currentTimeMillis() - oldestReportedOn), TimeUnit.MILLISECONDS)
+        log.debug("Completed async imported skill achievements scheduled task for originalSkillId=[{}], userId=[{}], uuid=[{}]", data.originalSkillId, data.userId, data.uuid)
+    }
+}
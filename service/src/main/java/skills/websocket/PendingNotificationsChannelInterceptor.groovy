@@ -16,8 +16,11 @@
 package skills.websocket
 
 import groovy.util.logging.Slf4j
+import jakarta.annotation.PostConstruct
+import jakarta.annotation.PreDestroy
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.annotation.Qualifier
+import org.springframework.beans.factory.annotation.Value
 import org.springframework.context.annotation.Lazy
 import org.springframework.core.annotation.Order
 import org.springframework.lang.Nullable
@@ -32,6 +35,11 @@ import org.springframework.stereotype.Component
 import skills.services.events.SkillEventsService
 
 import java.security.Principal
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 @Qualifier("WebSocketConfig")
 @Lazy
@@ -40,10 +48,41 @@ import java.security.Principal
 @Order(Integer.MAX_VALUE)
 class PendingNotificationsChannelInterceptor implements ChannelInterceptor {
 
+    /**
+     * A client subscribes to several destinations when it connects and many clients reconnect at once after a deploy;
+     * subscriptions from the same user within this window are collapsed into a single pending-notification check
+     * that runs once the window elapses. Set to 0 to check synchronously on every subscription.
+     */
+    @Value('#{"${skills.websocket.pendingNotifications.debounceMs:500}"}')
+    long debounceMs = 500
+
+    @Value('#{"${skills.websocket.pendingNotifications.numThreads:4}"}')
+    int numThreads = 4
+
     @Lazy
     @Autowired
     SkillEventsService skillEventsService
 
+    private final Set<String> scheduledUsers = ConcurrentHashMap.newKeySet()
+    private ScheduledExecutorService scheduler
+
+    @PostConstruct
+    void init() {
+        if (debounceMs > 0) {
+            AtomicInteger threadNum = new AtomicInteger()
+            scheduler = Executors.newScheduledThreadPool(numThreads, { Runnable r ->
+                Thread t = new Thread(r, "pending-notifications-${threadNum.incrementAndGet()}".toString())
+                t.daemon = true
+                return t
+            })
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler?.shutdownNow()
+    }
+
     @Override
     void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, @Nullable Exception ex) {
         if(ex == null) {
@@ -51,11 +90,14 @@ class PendingNotificationsChannelInterceptor implements ChannelInterceptor {
             if (StompCommand.SUBSCRIBE == accessor.getCommand()) {
                 Principal user = accessor.getUser()
                 if (user != null && ((Authentication)user).isAuthenticated()) {
-                    log.debug("sending any pending notifications to user [${user.getName()}]")
-                    try {
-                        skillEventsService.identifyPendingNotifications(user.getName())
-                    } catch (Exception e) {
-                        log.error("unable to notify user [${user.getName()}] of pending notifications", e)
+                    String userId = user.getName()
+                    if (scheduler) {
+                        // a check that has not started yet will pick up anything pending for this subscription as well
+                        if (scheduledUsers.add(userId)) {
+                            scheduler.schedule({ notifyOfPendingNotifications(userId) } as Runnable, debounceMs, TimeUnit.MILLISECONDS)
+                        }
+                    } else {
+                        notifyOfPendingNotifications(userId)
                     }
                 } else {
                     log.warn("unable to notify user of pending notifications as there is no Authentication or the user is not yet authenticated")
@@ -64,4 +106,13 @@ class PendingNotificationsChannelInterceptor implements ChannelInterceptor {
         }
     }
 
+    private void notifyOfPendingNotifications(String userId) {
+        scheduledUsers.remove(userId)
+        log.debug("sending any pending notifications to user [${userId}]")
+        try {
+            skillEventsService.identifyPendingNotifications(userId)
+        } catch (Exception e) {
+            log.error("unable to notify user [${userId}] of pending notifications", e)
+        }
+    }
 }
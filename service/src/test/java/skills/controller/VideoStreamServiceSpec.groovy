@@ -0,0 +1,138 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.controller
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import jakarta.servlet.ServletOutputStream
+import jakarta.servlet.WriteListener
+import jakarta.servlet.http.HttpServletResponse
+import org.springframework.transaction.PlatformTransactionManager
+import skills.services.video.VideoContentDiskCache
+import skills.storage.model.Attachment
+import skills.storage.repos.AttachmentRepo
+import spock.lang.Specification
+
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+class VideoStreamServiceSpec extends Specification {
+
+    AttachmentRepo attachmentRepo = Mock()
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    VideoStreamService videoStreamService
+    ByteArrayOutputStream out = new ByteArrayOutputStream()
+    HttpServletResponse response = Mock()
+
+    Attachment attachment = new Attachment(uuid: 'uuid1', size: 100, contentType: 'video/mp4', filename: 'video.mp4')
+    byte[] content = (0..99).collect { (byte) it } as byte[]
+
+    def setup() {
+        videoStreamService = new VideoStreamService(attachmentRepo: attachmentRepo, videoContentDiskCache: new VideoContentDiskCache(), meterRegistry: meterRegistry)
+        videoStreamService.init()
+        response.getOutputStream() >> new ServletOutputStream() {
+            boolean isReady() { return true }
+            void setWriteListener(WriteListener writeListener) {}
+            void write(int b) { out.write(b) }
+        }
+    }
+
+    def "range is served with an ETag"() {
+        when:
+        videoStreamService.streamVideo(attachment, 'bytes=10-19', null, null, response)
+
+        then:
+        1 * attachmentRepo.fetchFileChunk('uuid1', 10, 10) >> Arrays.copyOfRange(content, 10, 20)
+        1 * response.setHeader('ETag', '"uuid1-100"')
+        1 * response.setStatus(206)
+        1 * response.setHeader('Content-Range', 'bytes 10-19/100')
+        1 * response.setContentLengthLong(10)
+        out.toByteArray() == Arrays.copyOfRange(content, 10, 20)
+        meterRegistry.get('skills.video.bytesServed').tag('source', 'db').counter().count() == 10
+    }
+
+    def "matching If-None-Match returns not modified"() {
+        when:
+        videoStreamService.streamVideo(attachment, null, null, 'W/"uuid1-100", "other"', response)
+
+        then:
+        1 * response.setStatus(304)
+        0 * attachmentRepo.fetchFileChunk(_, _, _)
+        out.size() == 0
+    }
+
+    def "range is ignored when If-Range does not match"() {
+        when:
+        videoStreamService.streamVideo(attachment, 'bytes=10-19', '"uuid1-99"', null, response)
+
+        then:
+        1 * attachmentRepo.fetchFileChunk('uuid1', 0, 100) >> content
+        0 * response.setStatus(206)
+        1 * response.setContentLengthLong(100)
+        out.toByteArray() == content
+    }
+
+    def "range is served when If-Range matches"() {
+        when:
+        videoStreamService.streamVideo(attachment, 'bytes=90-', '"uuid1-100"', null, response)
+
+        then:
+        1 * attachmentRepo.fetchFileChunk('uuid1', 90, 10) >> Arrays.copyOfRange(content, 90, 100)
+        1 * response.setStatus(206)
+        1 * response.setHeader('Content-Range', 'bytes 90-99/100')
+        out.toByteArray() == Arrays.copyOfRange(content, 90, 100)
+    }
+
+    def "cached content is transferred from disk"() {
+        Path file = Files.createTempFile('video', '.cache')
+        Files.write(file, content)
+        ByteArrayOutputStream target = new ByteArrayOutputStream()
+
+        when:
+        FileChannel.open(file, StandardOpenOption.READ).withCloseable { FileChannel channel ->
+            // buffer smaller than the range so that several reads are needed
+            VideoContentDiskCache.transferTo(channel, 25, 50, target, new byte[16])
+        }
+
+        then:
+        target.toByteArray() == Arrays.copyOfRange(content, 25, 75)
+
+        cleanup:
+        Files.deleteIfExists(file)
+    }
+
+    def "cached file removed by eviction falls back to the database"() {
+        Path dir = Files.createTempDirectory('videoCache')
+        VideoContentDiskCache diskCache = new VideoContentDiskCache(enabled: true, dir: dir.toString(), meterRegistry: meterRegistry,
+                transactionManager: Mock(PlatformTransactionManager))
+        diskCache.init()
+        diskCache.cache.put('uuid1', new VideoContentDiskCache.CachedContent('uuid1', dir.resolve('uuid1'), 100))
+        videoStreamService.videoContentDiskCache = diskCache
+
+        when:
+        videoStreamService.streamVideo(attachment, 'bytes=10-19', null, null, response)
+
+        then:
+        1 * attachmentRepo.fetchFileChunk('uuid1', 10, 10) >> Arrays.copyOfRange(content, 10, 20)
+        out.toByteArray() == Arrays.copyOfRange(content, 10, 20)
+        meterRegistry.get('skills.video.bytesServed').tag('source', 'db').counter().count() == 10
+
+        cleanup:
+        diskCache.shutdown()
+        dir.toFile().deleteDir()
+    }
+}
@@ -41,6 +41,7 @@ import spock.lang.Shared
         'skills.config.db-upgrade-in-progress=false',
         'skills.queued-event-path=./target',
         'skills.queued-event-path.commit-every-n-records=5',
+        'skills.queued-event.replay.checkpoint-every-n-records=4',
         'skills.authorization.userInfoUri=https://localhost:8186/userInfo?dn={dn}',
         'skills.authorization.userQueryUri=https://localhost:8186/userQuery?query={query}',
         'skills.authorization.userInfoHealthCheckUri=https://localhost:8186/status'
@@ -278,6 +279,47 @@ class ReplayWALEventsIT extends DefaultIntSpec {
         projectUsers.data.userId.sort() == ['user3', 'user4', 'user5', 'user9', 'user10', 'user11', 'user12', 'user13'].sort()
     }
 
+    def "events are replayed in checkpointed chunks"() {
+        PathResource file1 = createFileWithEvents(1, 10)
+
+        int numRecordsToExpect = 10
+        when:
+        rootUser.runReplayEventsAfterUpgrade()
+        WaitFor.wait { skillsService.getProjectUsers(proj.projectId).data.size() == numRecordsToExpect }
+        WaitFor.wait { dbCheckPointer.getRecordToStartOn(file1.getFile().name) == 0 }
+        def projectUsers = skillsService.getProjectUsers(proj.projectId)
+        then:
+        projectUsers.data.size() == numRecordsToExpect
+        projectUsers.data.userId.sort() == (1..10).collect { "user${it}".toString() }.sort()
+        dbCheckPointer.getRecordToStartOn(file1.getFile().name) == 0
+    }
+
+    def "events of the same user are replayed in order"() {
+        skills[1].numPerformToCompletion = 3
+        skills[1].pointIncrementInterval = 0
+        skillsService.createSkill(skills[1])
+
+        PathResource path = new PathResource("./target/queued_skill_events-file1.jsonsequence")
+        SequenceWriter sequenceWriter = createSequenceWriter(path)
+        Date now = new Date()
+        3.times { int eventNum ->
+            ['user1', 'user2', 'user3'].each { String userId ->
+                sequenceWriter.write(new QueuedSkillEvent(
+                        projectId: proj.projectId, skillId: skills[1].skillId,
+                        userId: userId, requestTime: new Date(now.time - (3 - eventNum) * 1000)
+                ))
+            }
+        }
+        sequenceWriter.close()
+
+        when:
+        rootUser.runReplayEventsAfterUpgrade()
+        WaitFor.wait { dbCheckPointer.getRecordToStartOn(path.getFile().name) == 0 && skillsService.getProjectUsers(proj.projectId).data.size() == 3 }
+        WaitFor.wait { skillsService.getSkillSummary('user3', proj.projectId).points == 300 }
+        then:
+        ['user1', 'user2', 'user3'].collect { skillsService.getSkillSummary(it, proj.projectId).points } == [300, 300, 300]
+    }
+
     private PathResource createFileWithEvents(int fileNum, int numEvents, int userIdStart = 1) {
         PathResource path = new PathResource("./target/queued_skill_events-file${fileNum}.jsonsequence")
         SequenceWriter sequenceWriter = createSequenceWriter(path)
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests
+
+import groovy.util.logging.Slf4j
+import org.springframework.beans.factory.annotation.Autowired
+import skills.intTests.utils.DefaultIntSpec
+import skills.intTests.utils.SkillsFactory
+import skills.services.LockingService
+import skills.services.events.SkillEventsTransactionalService
+import skills.services.locking.DbRowKeyedLockProvider
+import skills.services.locking.JvmKeyedLockProvider
+import skills.services.locking.KeyedLockProvider
+import skills.services.locking.PostgresAdvisoryKeyedLockProvider
+import skills.storage.repos.nativeSql.PostgresQlNativeRepo
+import spock.lang.Ignore
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compares throughput and latency percentiles of concurrent reportSkillInternal calls for each KeyedLockProvider;
+ * ignored by default, remove @Ignore and run against a local postgres instance.
+ */
+@Slf4j
+class BenchmarkSkillReportingLockProvidersSpec extends DefaultIntSpec {
+
+    @Autowired
+    SkillEventsTransactionalService skillEventsTransactionalService
+
+    @Autowired
+    LockingService lockingService
+
+    @Autowired
+    PostgresQlNativeRepo postgresQlNativeRepo
+
+    int numThreads = 16
+    int numUsers = 50
+    int numEventsPerUser = 40
+
+    @Ignore
+    def "benchmark concurrent skill reporting across lock providers"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(10, 1, 1, 10, 1000)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        List<String> users = (1..numUsers).collect { "benchmarkUser${it}".toString() }
+
+        JvmKeyedLockProvider jvmProvider = new JvmKeyedLockProvider()
+        jvmProvider.init()
+        Map<String, KeyedLockProvider> providers = [
+                db      : new DbRowKeyedLockProvider(postgresQlNativeRepo: postgresQlNativeRepo),
+                advisory: new PostgresAdvisoryKeyedLockProvider(postgresQlNativeRepo: postgresQlNativeRepo),
+                jvm     : jvmProvider,
+        ]
+        KeyedLockProvider original = lockingService.keyedLockProvider
+
+        when:
+        // warm-up so that the first provider is not penalized
+        runScenario(proj.projectId, skills, users.take(5), 5)
+
+        List<String> reports = providers.collect { String name, KeyedLockProvider provider ->
+            lockingService.keyedLockProvider = provider
+            try {
+                return "[${name}] ${runScenario(proj.projectId, skills, users, numEventsPerUser)}".toString()
+            } finally {
+                lockingService.keyedLockProvider = original
+            }
+        }
+        log.info("Lock provider benchmark results:\n{}", reports.join("\n"))
+
+        then:
+        reports.size() == providers.size()
+    }
+
+    private String runScenario(String projectId, List<Map> skills, List<String> users, int eventsPerUser) {
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>()
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads)
+        long start = System.nanoTime()
+        users.each { String userId ->
+            eventsPerUser.times { int i ->
+                executor.submit({
+                    long callStart = System.nanoTime()
+                    skillEventsTransactionalService.reportSkillInternal(projectId, skills[i % skills.size()].skillId, userId, new Date())
+                    latencies.add(System.nanoTime() - callStart)
+                } as Runnable)
+            }
+        }
+        executor.shutdown()
+        executor.awaitTermination(1, TimeUnit.HOURS)
+        long totalNanos = System.nanoTime() - start
+
+        List<Long> sorted = latencies.toList().sort()
+        double throughput = sorted.size() / (totalNanos / 1_000_000_000d)
+        return String.format("events=%d, throughput=%.1f events/sec, p50=%.2f ms, p99=%.2f ms, max=%.2f ms",
+                sorted.size(), throughput, percentileMs(sorted, 0.5), percentileMs(sorted, 0.99), percentileMs(sorted, 1.0))
+    }
+
+    private static double percentileMs(List<Long> sorted, double percentile) {
+        int index = Math.min(sorted.size() - 1, (int) Math.ceil(percentile * sorted.size()) - 1)
+        return sorted[Math.max(0, index)] / 1_000_000d
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.http.HttpStatus
+import skills.SpringBootApp
+import skills.intTests.utils.DefaultIntSpec
+import skills.intTests.utils.SkillsClientException
+import skills.intTests.utils.SkillsFactory
+import skills.services.events.SkillEventsGroupCommitService
+
+@SpringBootTest(properties = ['skills.events.groupCommit.enabled=true',
+        'skills.events.groupCommit.numWorkers=2',
+        'skills.events.groupCommit.batchSize=10',
+        'skills.events.groupCommit.lingerMs=20'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class GroupCommitReportSkillIT extends DefaultIntSpec {
+
+    @Autowired
+    SkillEventsGroupCommitService skillEventsGroupCommitService
+
+    def "events reported concurrently by the same user are all applied through group-commit"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(5, 1, 1, 10, 4)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+
+        String userId = getRandomUsers(1).first()
+
+        when:
+        List<Thread> threads = skills.collect { def skill ->
+            Thread.start {
+                4.times {
+                    skillsService.addSkill([projectId: proj.projectId, skillId: skill.skillId], userId, new Date())
+                }
+            }
+        }
+        threads.each { it.join(60000) }
+        def summary = skillsService.getSkillSummary(userId, proj.projectId)
+
+        then:
+        skillEventsGroupCommitService.isEnabled()
+        summary.points == 200
+        summary.totalPoints == 200
+    }
+
+    def "results are returned to each caller"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(1, 1, 1, 10, 2)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+
+        String userId = getRandomUsers(1).first()
+
+        when:
+        def res1 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date()).body
+        def res2 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date()).body
+        def res3 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date()).body
+
+        then:
+        res1.skillApplied
+        res1.totalPointsEarned == 10
+        res2.skillApplied
+        res2.totalPointsEarned == 20
+        res2.completed.find { it.type == 'Skill' }
+        !res3.skillApplied
+        res3.explanation == "This skill reached its maximum points"
+    }
+
+    def "failures of individual events are reported to their callers"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(1, 1, 1)
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+
+        when:
+        skillsService.addSkill([projectId: proj.projectId, skillId: 'doesNotExist'], getRandomUsers(1).first(), new Date())
+
+        then:
+        SkillsClientException e = thrown()
+        e.httpStatus == HttpStatus.NOT_FOUND
+        e.message.contains("errorCode:SkillNotFound")
+    }
+}
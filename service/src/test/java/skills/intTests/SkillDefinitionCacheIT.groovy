@@ -0,0 +1,158 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests
+
+import io.micrometer.core.instrument.MeterRegistry
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import skills.SpringBootApp
+import skills.intTests.utils.DefaultIntSpec
+import skills.intTests.utils.SkillsFactory
+import skills.services.SkillDefinitionCache
+import skills.services.attributes.ExpirationAttrs
+import skills.services.events.CompletionItem
+
+import java.time.LocalDateTime
+
+@SpringBootTest(properties = ['skills.config.definitionCache.enabled=true'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class SkillDefinitionCacheIT extends DefaultIntSpec {
+
+    @Autowired
+    SkillDefinitionCache skillDefinitionCache
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    def proj = SkillsFactory.createProject(1)
+    def subj = SkillsFactory.createSubject(1, 1)
+
+    def setup() {
+        // data is reset directly in the db between tests
+        skillDefinitionCache.evict(proj.projectId)
+    }
+
+    def "skill events are applied using cached definitions"() {
+        def skills = SkillsFactory.createSkills(2, 1, 1, 10, 2)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        List<String> users = getRandomUsers(2)
+
+        when:
+        def res1 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], users[0], new Date()).body
+        def res2 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], users[0], new Date()).body
+        def res3 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], users[0], new Date()).body
+        def res4 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[1].skillId], users[1], new Date()).body
+
+        then:
+        res1.skillApplied
+        res2.skillApplied
+        res2.completed.find { it.type == CompletionItem.CompletionItemType.Skill.name() }
+        !res3.skillApplied
+        res4.skillApplied
+        skillsService.getSkillSummary(users[0], proj.projectId).points == 20
+        skillsService.getSkillSummary(users[1], proj.projectId).points == 10
+        meterRegistry.find("cache.gets").tag("cache", SkillDefinitionCache.CACHE_NAME).tag("result", "hit").functionCounter().count() > 0
+    }
+
+    def "skill edits are picked up by subsequent events"() {
+        def skills = SkillsFactory.createSkills(1, 1, 1, 10, 5)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        String userId = getRandomUsers(1).first()
+
+        when:
+        def res1 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date()).body
+        skills[0].pointIncrement = 20
+        skillsService.createSkill(skills[0])
+        def res2 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date()).body
+
+        then:
+        res1.pointsEarned == 10
+        res2.pointsEarned == 20
+    }
+
+    def "level edits are picked up by subsequent events"() {
+        def skills = SkillsFactory.createSkills(1, 1, 1, 10, 10)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        List<String> users = getRandomUsers(2)
+
+        when:
+        def res1 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], users[0], new Date()).body
+        def levels = skillsService.getLevels(proj.projectId).sort() { it.level }
+        levels[1].percent = 20
+        skillsService.editLevel(proj.projectId, null, "2", levels[1])
+        skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], users[1], new Date())
+        def res2 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], users[1], new Date()).body
+
+        then:
+        res1.completed.findAll { it.type == CompletionItem.CompletionItemType.Overall.name() }.collect { it.level } == [1]
+        res2.completed.findAll { it.type == CompletionItem.CompletionItemType.Overall.name() }.collect { it.level } == [2]
+    }
+
+    def "skill expiration settings can be saved and are picked up by subsequent events"() {
+        def skills = SkillsFactory.createSkills(1, 1, 1, 10, 5)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        String userId = getRandomUsers(1).first()
+        LocalDateTime expirationDate = (new Date() + 1).toLocalDateTime()
+
+        when:
+        def res1 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date()).body
+        skillsService.saveSkillExpirationAttributes(proj.projectId, skills[0].skillId, [
+                expirationType: ExpirationAttrs.YEARLY,
+                every: 1,
+                monthlyDay: expirationDate.dayOfMonth,
+                nextExpirationDate: expirationDate.toDate(),
+        ])
+        def expirationAttrs = skillsService.getSkillExpirationAttributes(proj.projectId, skills[0].skillId)
+        def res2 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date()).body
+
+        then:
+        res1.skillApplied
+        expirationAttrs.expirationType == ExpirationAttrs.YEARLY
+        res2.skillApplied
+        skillsService.getSkillSummary(userId, proj.projectId).points == 20
+    }
+
+    def "skills imported from the catalog are picked up by subsequent events"() {
+        def proj2 = SkillsFactory.createProject(2)
+        def proj2Subj = SkillsFactory.createSubject(2, 2)
+        def skills = SkillsFactory.createSkills(1, 1, 1, 10, 5)
+        def proj2Skills = SkillsFactory.createSkills(1, 2, 2, 10, 5)
+        (skills + proj2Skills).each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        skillsService.createProjectAndSubjectAndSkills(proj2, proj2Subj, proj2Skills)
+        skillsService.exportSkillToCatalog(proj.projectId, skills[0].skillId)
+        skillDefinitionCache.evict(proj2.projectId)
+        String userId = getRandomUsers(1).first()
+
+        when:
+        // load project 2 definitions into the cache before the import
+        def res1 = skillsService.addSkill([projectId: proj2.projectId, skillId: proj2Skills[0].skillId], userId, new Date()).body
+        skillsService.importSkillFromCatalog(proj2.projectId, proj2Subj.subjectId, proj.projectId, skills[0].skillId)
+        skillsService.finalizeSkillsImportFromCatalog(proj2.projectId, true)
+        def res2 = skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date()).body
+        waitForAsyncTasksCompletion.waitForAllScheduleTasks()
+
+        then:
+        res1.skillApplied
+        res2.skillApplied
+        skillsService.getSkillSummary(userId, proj.projectId).points == 10
+        skillsService.getSkillSummary(userId, proj2.projectId).points == 20
+    }
+}
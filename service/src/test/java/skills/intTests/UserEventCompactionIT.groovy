@@ -0,0 +1,162 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.test.context.SpringBootTest
+import skills.SpringBootApp
+import skills.intTests.utils.DefaultIntSpec
+import skills.intTests.utils.SkillsFactory
+import skills.services.StartDateUtil
+import skills.services.UserEventCompactionService
+import skills.services.UserEventService
+import skills.services.WeekNumberUtil
+import skills.storage.model.EventType
+import skills.storage.model.SkillDef
+import skills.storage.model.UserEvent
+import skills.storage.repos.UserEventsRepo
+
+import javax.sql.DataSource
+import java.sql.Connection
+import java.time.LocalDateTime
+
+@SpringBootTest(properties = ['skills.config.eventCompaction.numWorkers=3',
+        'skills.config.eventCompaction.weeksPerChunk=1'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class UserEventCompactionIT extends DefaultIntSpec {
+
+    @Autowired
+    UserEventService userEventService
+
+    @Autowired
+    UserEventCompactionService userEventCompactionService
+
+    @Autowired
+    UserEventsRepo userEventsRepo
+
+    @Autowired
+    DataSource dataSource
+
+    @Value('#{"${skills.config.compactDailyEventsOlderThan}"}')
+    int maxDailyDays
+
+    def "daily events are compacted into weekly events in parallel chunks"() {
+        def proj1 = SkillsFactory.createProject(1)
+        def subj1 = SkillsFactory.createSubject(1, 1)
+        def skills1 = SkillsFactory.createSkills(2, 1, 1)
+        skillsService.createProjectAndSubjectAndSkills(proj1, subj1, skills1)
+        def proj2 = SkillsFactory.createProject(2)
+        def subj2 = SkillsFactory.createSubject(2, 1)
+        def skills2 = SkillsFactory.createSkills(1, 2, 1)
+        skillsService.createProjectAndSubjectAndSkills(proj2, subj2, skills2)
+
+        List<String> users = getRandomUsers(2)
+        Integer p1s1 = skillRefId(proj1.projectId, skills1[0].skillId)
+        Integer p1s2 = skillRefId(proj1.projectId, skills1[1].skillId)
+        Integer p2s1 = skillRefId(proj2.projectId, skills2[0].skillId)
+
+        LocalDateTime now = LocalDateTime.now()
+        List<Date> oldDates = (0..34).collect { now.minusDays(maxDailyDays + 1 + it).toDate() }
+        Date recentDate = now.toDate()
+        oldDates.each { Date date ->
+            userEventService.recordEvent(proj1.projectId, p1s1, users[0], date)
+            userEventService.recordEvent(proj1.projectId, p1s1, users[0], date)
+            userEventService.recordEvent(proj1.projectId, p1s2, users[1], date)
+            userEventService.recordEvent(proj2.projectId, p2s1, users[0], date)
+        }
+        userEventService.recordEvent(proj1.projectId, p1s1, users[0], recentDate)
+
+        Map<Long, Integer> expectedWeeklyCounts = oldDates.countBy { StartDateUtil.computeStartDate(it, EventType.WEEKLY).time }
+
+        when:
+        userEventService.compactDailyEvents()
+        List<UserEvent> events = userEventsRepo.findAll().findAll { it.projectId in [proj1.projectId, proj2.projectId] }
+
+        then:
+        userEventCompactionService.lastProgress.totalChunks >= expectedWeeklyCounts.size() * 2
+        userEventCompactionService.lastProgress.completedChunks.get() == userEventCompactionService.lastProgress.totalChunks
+        userEventCompactionService.lastProgress.failedChunks.get() == 0
+
+        // only the recent event remains DAILY
+        events.findAll { it.eventType == EventType.DAILY }.collect { [it.projectId, it.skillRefId, it.userId, it.count] } == [[proj1.projectId, p1s1, users[0], 1]]
+
+        List<UserEvent> weekly = events.findAll { it.eventType == EventType.WEEKLY }
+        weekly.every { it.eventTime == StartDateUtil.computeStartDate(it.eventTime, EventType.WEEKLY) }
+        weekly.every { it.weekNumber == WeekNumberUtil.getWeekNumber(it.eventTime) }
+        weekly.findAll { it.skillRefId == p1s1 }.collectEntries { [it.eventTime.time, it.count] } == expectedWeeklyCounts.collectEntries { k, v -> [k, v * 2] }
+        weekly.findAll { it.skillRefId == p1s2 }.collectEntries { [it.eventTime.time, it.count] } == expectedWeeklyCounts
+        weekly.findAll { it.skillRefId == p2s1 }.collectEntries { [it.eventTime.time, it.count] } == expectedWeeklyCounts
+    }
+
+    def "compaction merges into existing weekly rows and can be re-run"() {
+        def proj1 = SkillsFactory.createProject(1)
+        def subj1 = SkillsFactory.createSubject(1, 1)
+        def skills1 = SkillsFactory.createSkills(1, 1, 1)
+        skillsService.createProjectAndSubjectAndSkills(proj1, subj1, skills1)
+        String userId = getRandomUsers(1).first()
+        Integer skillRefId = skillRefId(proj1.projectId, skills1[0].skillId)
+        Date oldDate = LocalDateTime.now().minusDays(maxDailyDays + 10).toDate()
+
+        userEventService.recordEvent(proj1.projectId, skillRefId, userId, oldDate)
+        userEventService.compactDailyEvents()
+        userEventService.recordEvent(proj1.projectId, skillRefId, userId, oldDate)
+        userEventService.recordEvent(proj1.projectId, skillRefId, userId, oldDate)
+
+        when:
+        userEventService.compactDailyEvents()
+        userEventService.compactDailyEvents()
+        List<UserEvent> events = userEventsRepo.findAll().findAll { it.projectId == proj1.projectId }
+
+        then:
+        events.size() == 1
+        events[0].eventType == EventType.WEEKLY
+        events[0].count == 3
+        events[0].eventTime == StartDateUtil.computeStartDate(oldDate, EventType.WEEKLY)
+    }
+
+    def "compaction is skipped while another node holds the compaction lock"() {
+        def proj1 = SkillsFactory.createProject(1)
+        def subj1 = SkillsFactory.createSubject(1, 1)
+        def skills1 = SkillsFactory.createSkills(1, 1, 1)
+        skillsService.createProjectAndSubjectAndSkills(proj1, subj1, skills1)
+        String userId = getRandomUsers(1).first()
+        Integer skillRefId = skillRefId(proj1.projectId, skills1[0].skillId)
+        userEventService.recordEvent(proj1.projectId, skillRefId, userId, LocalDateTime.now().minusDays(maxDailyDays + 10).toDate())
+
+        when:
+        Connection otherNode = dataSource.getConnection()
+        try {
+            otherNode.createStatement().execute("select pg_advisory_lock(${UserEventCompactionService.COMPACTION_LOCK_KEY})")
+            userEventService.compactDailyEvents()
+        } finally {
+            // pooled connection outlives close(), so the session lock must be released explicitly
+            otherNode.createStatement().execute("select pg_advisory_unlock(${UserEventCompactionService.COMPACTION_LOCK_KEY})")
+            otherNode.close()
+        }
+        List<EventType> whileLocked = userEventsRepo.findAll().findAll { it.projectId == proj1.projectId }.collect { it.eventType }
+        userEventService.compactDailyEvents()
+        List<EventType> afterRelease = userEventsRepo.findAll().findAll { it.projectId == proj1.projectId }.collect { it.eventType }
+
+        then:
+        whileLocked == [EventType.DAILY]
+        afterRelease == [EventType.WEEKLY]
+    }
+
+    private Integer skillRefId(String projectId, String skillId) {
+        return skillDefRepo.findByProjectIdAndSkillIdAndType(projectId, skillId, SkillDef.ContainerType.Skill).id
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import skills.SpringBootApp
+import skills.intTests.utils.DefaultIntSpec
+import skills.intTests.utils.SkillsFactory
+import skills.services.StartDateUtil
+import skills.services.UserEventService
+import skills.services.UserEventsWriteBehindBuffer
+import skills.storage.model.EventType
+import skills.storage.model.SkillDef
+import skills.storage.model.UserEvent
+import skills.storage.repos.UserEventsRepo
+
+@SpringBootTest(properties = ['skills.config.userEvents.writeBehind.enabled=true',
+        // effectively disable periodic flushing so the tests control when counts are written
+        'skills.config.userEvents.writeBehind.flushIntervalMs=3600000',
+        'skills.config.userEvents.writeBehind.flushBatchSize=2'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class UserEventsWriteBehindIT extends DefaultIntSpec {
+
+    @Autowired
+    UserEventService userEventService
+
+    @Autowired
+    UserEventsWriteBehindBuffer userEventsWriteBehindBuffer
+
+    @Autowired
+    UserEventsRepo userEventsRepo
+
+    def "reported events are aggregated in memory and written on flush"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(3, 1, 1, 10, 5)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        List<String> users = getRandomUsers(2)
+        Date now = new Date()
+
+        when:
+        3.times { skillsService.addSkill(skills[0], users[0], now) }
+        2.times { skillsService.addSkill(skills[1], users[0], now) }
+        skillsService.addSkill(skills[0], users[1], now)
+        skillsService.addSkill(skills[2], users[1], now)
+        List<UserEvent> beforeFlush = findDailyEvents(proj.projectId)
+        userEventsWriteBehindBuffer.flush()
+        List<UserEvent> afterFlush = findDailyEvents(proj.projectId)
+
+        then:
+        !beforeFlush
+        afterFlush.size() == 4
+        afterFlush.find { it.userId == users[0] && it.skillRefId == skillRefId(proj.projectId, skills[0].skillId) }.count == 3
+        afterFlush.find { it.userId == users[0] && it.skillRefId == skillRefId(proj.projectId, skills[1].skillId) }.count == 2
+        afterFlush.find { it.userId == users[1] && it.skillRefId == skillRefId(proj.projectId, skills[0].skillId) }.count == 1
+        afterFlush.find { it.userId == users[1] && it.skillRefId == skillRefId(proj.projectId, skills[2].skillId) }.count == 1
+        afterFlush.every { it.eventTime == StartDateUtil.computeStartDate(now, EventType.DAILY) }
+    }
+
+    def "flushed counts are added to existing rows"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(1, 1, 1, 10, 5)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        String userId = getRandomUsers(1).first()
+        Date now = new Date()
+
+        when:
+        2.times { skillsService.addSkill(skills[0], userId, now) }
+        userEventsWriteBehindBuffer.flush()
+        3.times { skillsService.addSkill(skills[0], userId, now) }
+        userEventsWriteBehindBuffer.flush()
+        List<UserEvent> events = findDailyEvents(proj.projectId)
+
+        then:
+        events.size() == 1
+        events[0].count == 5
+    }
+
+    def "removing an event flushes buffered counts first"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(1, 1, 1, 10, 5)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        String userId = getRandomUsers(1).first()
+        Date now = new Date()
+        2.times { skillsService.addSkill(skills[0], userId, now) }
+
+        when:
+        runInTransaction {
+            userEventService.removeEvent(now, userId, skillRefId(proj.projectId, skills[0].skillId))
+        }
+        List<UserEvent> events = findDailyEvents(proj.projectId)
+
+        then:
+        events.size() == 1
+        events[0].count == 1
+    }
+
+    def "events recorded by a rolled back transaction are not counted"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(1, 1, 1, 10, 5)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        String userId = getRandomUsers(1).first()
+        Date now = new Date()
+        Integer skillRefId = skillRefId(proj.projectId, skills[0].skillId)
+
+        when:
+        2.times { skillsService.addSkill(skills[0], userId, now) }
+        try {
+            runInTransaction {
+                userEventService.recordEvent(proj.projectId, skillRefId, userId, now)
+                throw new IllegalStateException("roll back")
+            }
+        } catch (IllegalStateException ignored) {
+        }
+        runInTransaction {
+            userEventService.recordEvent(proj.projectId, skillRefId, userId, now)
+        }
+        userEventsWriteBehindBuffer.flush()
+        List<UserEvent> events = findDailyEvents(proj.projectId)
+
+        then:
+        events.size() == 1
+        events[0].count == 3
+    }
+
+    private List<UserEvent> findDailyEvents(String projectId) {
+        return userEventsRepo.findAll().findAll { it.projectId == projectId && it.eventType == EventType.DAILY }
+    }
+
+    private Integer skillRefId(String projectId, String skillId) {
+        return skillDefRepo.findByProjectIdAndSkillIdAndType(projectId, skillId, SkillDef.ContainerType.Skill).id
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpStatus
+import org.springframework.http.ResponseEntity
+import skills.SpringBootApp
+import skills.intTests.utils.DefaultIntSpec
+import skills.intTests.utils.SkillsFactory
+import skills.skillLoading.UserProgressSnapshotCache
+
+@SpringBootTest(properties = ['skills.config.summaryCache.enabled=true'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class UserProgressSnapshotCacheIT extends DefaultIntSpec {
+
+    @Autowired
+    UserProgressSnapshotCache userProgressSnapshotCache
+
+    def setup() {
+        // the database is reset between tests so any snapshots left over from a previous test must be discarded
+        userProgressSnapshotCache.allChanged()
+    }
+
+    def "summary responses carry an ETag and unchanged summaries return 304"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(2, 1, 1, 10, 2)
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        String userId = getRandomUsers(1).first()
+        String url = "/projects/${proj.projectId}/summary?includeSkills=true&userId=${userId}"
+
+        when:
+        ResponseEntity<String> first = skillsService.wsHelper.apiGetWithHeaders(url, new HttpHeaders())
+        String etag = first.headers.getETag()
+        HttpHeaders conditional = new HttpHeaders()
+        conditional.setIfNoneMatch(etag)
+        ResponseEntity<String> second = skillsService.wsHelper.apiGetWithHeaders(url, conditional)
+
+        skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date())
+        ResponseEntity<String> afterEvent = skillsService.wsHelper.apiGetWithHeaders(url, conditional)
+
+        then:
+        userProgressSnapshotCache.enabled
+        first.statusCode == HttpStatus.OK
+        etag
+        second.statusCode == HttpStatus.NOT_MODIFIED
+        !second.body
+        afterEvent.statusCode == HttpStatus.OK
+        afterEvent.headers.getETag() != etag
+    }
+
+    def "reported skill events are reflected in the cached summaries"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(2, 1, 1, 10, 2)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        String userId = getRandomUsers(1).first()
+
+        when:
+        def before = skillsService.getSkillSummary(userId, proj.projectId)
+        def subjBefore = skillsService.getSkillSummary(userId, proj.projectId, subj.subjectId)
+        skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date())
+        def after = skillsService.getSkillSummary(userId, proj.projectId)
+        def subjAfter = skillsService.getSkillSummary(userId, proj.projectId, subj.subjectId)
+
+        then:
+        before.points == 0
+        subjBefore.points == 0
+        after.points == 10
+        subjAfter.points == 10
+    }
+
+    def "admin changes to a project's definitions are reflected in the cached summaries"() {
+        def proj = SkillsFactory.createProject(1)
+        def subj = SkillsFactory.createSubject(1, 1)
+        def skills = SkillsFactory.createSkills(2, 1, 1, 10, 2)
+        skills.each { it.pointIncrementInterval = 0 }
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+        String userId = getRandomUsers(1).first()
+        skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date())
+
+        when:
+        def before = skillsService.getSkillSummary(userId, proj.projectId)
+        skills[1].pointIncrement = 50
+        skillsService.updateSkill(skills[1])
+        def after = skillsService.getSkillSummary(userId, proj.projectId)
+
+        then:
+        before.totalPoints == 40
+        after.totalPoints == 120
+    }
+}
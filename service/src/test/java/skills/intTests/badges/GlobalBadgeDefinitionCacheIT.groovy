@@ -0,0 +1,109 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests.badges
+
+import org.springframework.boot.test.context.SpringBootTest
+import skills.SpringBootApp
+import skills.intTests.utils.DefaultIntSpec
+import skills.services.events.CompletionItem
+
+import static skills.intTests.utils.SkillsFactory.*
+
+@SpringBootTest(properties = ['skills.config.definitionCache.enabled=true'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class GlobalBadgeDefinitionCacheIT extends DefaultIntSpec {
+
+    def proj1 = createProject(1)
+    def proj1Subj = createSubject(1, 1)
+    List<Map> proj1Skills = createSkills(3, 1, 1, 100)
+    def proj2 = createProject(2)
+    def proj2Subj = createSubject(2, 1)
+    List<Map> proj2Skills = createSkills(3, 2, 1, 100)
+    def badge = createBadge(1, 1)
+
+    def setup() {
+        skillsService.createProjectAndSubjectAndSkills(proj1, proj1Subj, proj1Skills)
+        skillsService.createProjectAndSubjectAndSkills(proj2, proj2Subj, proj2Skills)
+        skillsService.createGlobalBadge(badge)
+    }
+
+    def "skill requirement added to a global badge is enforced by projects that already feed the badge"() {
+        skillsService.assignSkillToGlobalBadge(proj1.projectId, badge.badgeId, proj1Skills[0].skillId)
+        skillsService.assignSkillToGlobalBadge(proj2.projectId, badge.badgeId, proj2Skills[0].skillId)
+        badge.enabled = 'true'
+        skillsService.updateGlobalBadge(badge)
+        String userId = getRandomUsers(1).first()
+
+        when:
+        skillsService.addSkill([projectId: proj2.projectId, skillId: proj2Skills[0].skillId], userId, new Date())
+        // loads project 1 badge requirements into the cache
+        skillsService.addSkill([projectId: proj1.projectId, skillId: proj1Skills[2].skillId], userId, new Date())
+        skillsService.assignSkillToGlobalBadge(proj2.projectId, badge.badgeId, proj2Skills[1].skillId)
+        def res1 = skillsService.addSkill([projectId: proj1.projectId, skillId: proj1Skills[0].skillId], userId, new Date()).body
+        def summaryBefore = skillsService.getBadgeSummary(userId, proj1.projectId, badge.badgeId, -1, true)
+        def res2 = skillsService.addSkill([projectId: proj2.projectId, skillId: proj2Skills[1].skillId], userId, new Date()).body
+        def summaryAfter = skillsService.getBadgeSummary(userId, proj1.projectId, badge.badgeId, -1, true)
+
+        then:
+        res1.skillApplied
+        !res1.completed.find { it.type == CompletionItem.CompletionItemType.GlobalBadge.name() }
+        !summaryBefore.badgeAchieved
+        res2.completed.find { it.type == CompletionItem.CompletionItemType.GlobalBadge.name() && it.id == badge.badgeId }
+        summaryAfter.badgeAchieved
+    }
+
+    def "skill requirement removed from a global badge is no longer required by projects that still feed the badge"() {
+        skillsService.assignSkillToGlobalBadge(proj1.projectId, badge.badgeId, proj1Skills[0].skillId)
+        skillsService.assignSkillToGlobalBadge(proj2.projectId, badge.badgeId, proj2Skills[0].skillId)
+        skillsService.assignSkillToGlobalBadge(proj2.projectId, badge.badgeId, proj2Skills[1].skillId)
+        badge.enabled = 'true'
+        skillsService.updateGlobalBadge(badge)
+        String userId = getRandomUsers(1).first()
+
+        when:
+        skillsService.addSkill([projectId: proj2.projectId, skillId: proj2Skills[0].skillId], userId, new Date())
+        // loads project 1 badge requirements into the cache
+        skillsService.addSkill([projectId: proj1.projectId, skillId: proj1Skills[2].skillId], userId, new Date())
+        skillsService.removeSkillFromGlobalBadge(proj2.projectId, badge.badgeId, proj2Skills[1].skillId)
+        def summaryBefore = skillsService.getBadgeSummary(userId, proj1.projectId, badge.badgeId, -1, true)
+        def res = skillsService.addSkill([projectId: proj1.projectId, skillId: proj1Skills[0].skillId], userId, new Date()).body
+        def summaryAfter = skillsService.getBadgeSummary(userId, proj1.projectId, badge.badgeId, -1, true)
+
+        then:
+        !summaryBefore.badgeAchieved
+        res.completed.find { it.type == CompletionItem.CompletionItemType.GlobalBadge.name() && it.id == badge.badgeId }
+        summaryAfter.badgeAchieved
+    }
+
+    def "project level requirement added to a global badge is enforced by projects that already feed the badge"() {
+        skillsService.assignSkillToGlobalBadge(proj1.projectId, badge.badgeId, proj1Skills[0].skillId)
+        badge.enabled = 'true'
+        skillsService.updateGlobalBadge(badge)
+        String userId = getRandomUsers(1).first()
+
+        when:
+        // loads project 1 badge requirements into the cache
+        skillsService.addSkill([projectId: proj1.projectId, skillId: proj1Skills[2].skillId], userId, new Date())
+        skillsService.assignProjectLevelToGlobalBadge(projectId: proj2.projectId, badgeId: badge.badgeId, level: "5")
+        def res = skillsService.addSkill([projectId: proj1.projectId, skillId: proj1Skills[0].skillId], userId, new Date()).body
+        def summary = skillsService.getBadgeSummary(userId, proj1.projectId, badge.badgeId, -1, true)
+
+        then:
+        res.skillApplied
+        !res.completed.find { it.type == CompletionItem.CompletionItemType.GlobalBadge.name() }
+        !summary.badgeAchieved
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests.catalog
+
+import io.micrometer.core.instrument.MeterRegistry
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import skills.SpringBootApp
+
+import static skills.intTests.utils.SkillsFactory.*
+
+@SpringBootTest(properties = ['skills.config.catalogPropagation.coalesce.enabled=true'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class CoalescedCatalogPropagationIT extends CatalogIntSpec {
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    def "events reported for exported skills are propagated to every importing project"() {
+        def project1 = createProject(1)
+        def p1subj1 = createSubject(1, 1)
+        def p1_skills = (1..2).collect { createSkill(1, 1, it, 0, 5, 0, 100) }
+        skillsService.createProjectAndSubjectAndSkills(project1, p1subj1, p1_skills)
+        p1_skills.each { skillsService.exportSkillToCatalog(project1.projectId, it.skillId) }
+
+        def project2 = createProject(2)
+        def p2subj1 = createSubject(2, 1)
+        skillsService.createProjectAndSubjectAndSkills(project2, p2subj1, [createSkill(2, 1, 10, 0, 5, 0, 100)])
+        def project3 = createProject(3)
+        def p3subj1 = createSubject(3, 1)
+        skillsService.createProjectAndSubjectAndSkills(project3, p3subj1, [createSkill(3, 1, 10, 0, 5, 0, 100)])
+
+        // import the skills into the projects in opposite orders so that the importing projects are found in different orders
+        skillsService.importSkillFromCatalog(project2.projectId, p2subj1.subjectId, project1.projectId, p1_skills[0].skillId)
+        skillsService.importSkillFromCatalog(project3.projectId, p3subj1.subjectId, project1.projectId, p1_skills[0].skillId)
+        skillsService.importSkillFromCatalog(project3.projectId, p3subj1.subjectId, project1.projectId, p1_skills[1].skillId)
+        skillsService.importSkillFromCatalog(project2.projectId, p2subj1.subjectId, project1.projectId, p1_skills[1].skillId)
+        skillsService.finalizeSkillsImportFromCatalog(project2.projectId)
+        skillsService.finalizeSkillsImportFromCatalog(project3.projectId)
+
+        List<String> users = getRandomUsers(3)
+        double scheduledBefore = meterRegistry.find('skills.catalog.propagation.scheduled').counter()?.count() ?: 0
+
+        when:
+        users.each { String userId ->
+            3.times {
+                p1_skills.each { skillsService.addSkill([projectId: project1.projectId, skillId: it.skillId], userId) }
+            }
+        }
+        waitForAsyncTasksCompletion.waitForAllScheduleTasks()
+
+        then:
+        meterRegistry.find('skills.catalog.propagation.scheduled').counter().count() - scheduledBefore == users.size() * 3 * p1_skills.size()
+        users.each { String userId ->
+            assert skillsService.getSkillSummary(userId, project1.projectId).points == 600
+            assert skillsService.getSkillSummary(userId, project2.projectId).points == 600
+            assert skillsService.getSkillSummary(userId, project3.projectId).points == 600
+            p1_skills.each { Map skill ->
+                assert skillsService.getSingleSkillSummary(userId, project2.projectId, skill.skillId).points == 300
+                assert skillsService.getSingleSkillSummary(userId, project3.projectId, skill.skillId).points == 300
+            }
+        }
+    }
+}
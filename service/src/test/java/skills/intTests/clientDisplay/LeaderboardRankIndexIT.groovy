@@ -0,0 +1,196 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests.clientDisplay
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import skills.SpringBootApp
+import skills.intTests.utils.DefaultIntSpec
+import skills.intTests.utils.SkillsFactory
+import skills.skillLoading.LeaderboardRankIndex
+
+@SpringBootTest(properties = ['skills.config.leaderboard.rankIndex.enabled=true'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class LeaderboardRankIndexIT extends DefaultIntSpec {
+
+    @Autowired
+    LeaderboardRankIndex leaderboardRankIndex
+
+    def proj = SkillsFactory.createProject(1)
+    def subj = SkillsFactory.createSubject(1, 1)
+
+    def setup() {
+        // data is reset directly in the db between tests
+        leaderboardRankIndex.invalidate(proj.projectId)
+    }
+
+    def "ten around me, rank and rank distribution are the same with and without the index"() {
+        List<String> users = createRankedUsers(25)
+
+        when:
+        leaderboardRankIndex.enabled = false
+        def fromDb = loadRankingInfo(users[15])
+        leaderboardRankIndex.enabled = true
+        waitForIndex()
+        def fromIndex = loadRankingInfo(users[15])
+
+        then:
+        fromIndex.leaderboard.rankedUsers.size() == 11
+        fromIndex.leaderboard.rankedUsers.collect { it.rank } == (11..21).toList()
+        fromIndex == fromDb
+    }
+
+    def "index is kept up to date as points are reported"() {
+        List<String> users = createRankedUsers(25)
+        waitForIndex()
+        List<Map> skills = skillsService.getSkillsForSubject(proj.projectId, subj.subjectId)
+
+        when:
+        // move the last user up to the 6th place
+        20.times { int skillNum ->
+            skillsService.addSkill([projectId: proj.projectId, skillId: skills[skillNum + 1].skillId], users[24], new Date())
+        }
+        def res = skillsService.getLeaderboard(users[24], proj.projectId, null, "tenAroundMe")
+        def rank = skillsService.getRank(users[24], proj.projectId)
+        def subjectRank = skillsService.getRank(users[24], proj.projectId, subj.subjectId)
+
+        then:
+        leaderboardRankIndex.getIndex(proj.projectId, null)
+        // rank position only counts users with more points while the leaderboard also orders ties by first seen
+        rank.position == 5
+        subjectRank.position == 5
+        res.rankedUsers.find { it.isItMe }.rank == 6
+        res.rankedUsers.find { it.isItMe }.points == 210
+    }
+
+    def "users new to the project are added to the index"() {
+        List<String> users = createRankedUsers(5)
+        waitForIndex()
+        List<Map> skills = skillsService.getSkillsForSubject(proj.projectId, subj.subjectId)
+        String newUser = getRandomUsers(7, false).find { !users.contains(it) && it != "skills@skills.org" }
+
+        when:
+        3.times { int skillNum ->
+            skillsService.addSkill([projectId: proj.projectId, skillId: skills[skillNum].skillId], newUser, new Date())
+        }
+        // new users are added in the background
+        long until = System.currentTimeMillis() + 30000
+        while (!leaderboardRankIndex.getIndex(proj.projectId, null)?.contains(newUser.toLowerCase()) && System.currentTimeMillis() < until) {
+            Thread.sleep(50)
+        }
+        def res = skillsService.getLeaderboard(newUser, proj.projectId, null, "tenAroundMe")
+
+        then:
+        leaderboardRankIndex.getIndex(proj.projectId, null).size() == 6
+        res.rankedUsers.find { it.isItMe }.rank == 4
+        res.rankedUsers.find { it.isItMe }.points == 30
+    }
+
+    def "archived users are removed once the index is rebuilt"() {
+        List<String> users = createRankedUsers(25)
+        waitForIndex()
+
+        when:
+        skillsService.archiveUsers(users.subList(0, 3), proj.projectId)
+        waitForIndex()
+        def res = skillsService.getLeaderboard(users[15], proj.projectId, null, "tenAroundMe")
+
+        then:
+        res.rankedUsers.find { it.isItMe }.rank == 13
+        leaderboardRankIndex.getIndex(proj.projectId, null).size() == 22
+    }
+
+    def "index that missed points saved elsewhere falls back to the database and is rebuilt"() {
+        List<String> users = createRankedUsers(25)
+        waitForIndex()
+
+        when:
+        // points saved by another node never reach this node's index
+        runInTransaction {
+            def userPoints = userPointsRepo.findByProjectIdAndUserIdAndSkillId(proj.projectId, users[24], null)
+            userPoints.points = 125
+            userPointsRepo.save(userPoints)
+        }
+        def res = skillsService.getLeaderboard(users[24], proj.projectId, null, "tenAroundMe")
+        waitForIndex()
+
+        then:
+        res.rankedUsers.find { it.isItMe }.rank == 14
+        res.rankedUsers.find { it.isItMe }.points == 125
+        leaderboardRankIndex.getIndex(proj.projectId, null).getPoints(users[24].toLowerCase()) == 125
+    }
+
+    def "index is rebuilt when its number of users disagrees with the database"() {
+        List<String> users = createRankedUsers(25)
+        waitForIndex()
+        leaderboardRankIndex.verifyIntervalSeconds = 0
+
+        when:
+        runInTransaction {
+            userPointsRepo.delete(userPointsRepo.findByProjectIdAndUserIdAndSkillId(proj.projectId, users[3], null))
+        }
+        def rank = skillsService.getRank(users[10], proj.projectId)
+        waitForIndex()
+
+        then:
+        rank.numUsers == 24
+        leaderboardRankIndex.getIndex(proj.projectId, null).size() == 24
+
+        cleanup:
+        leaderboardRankIndex.verifyIntervalSeconds = 30
+    }
+
+    private Map loadRankingInfo(String userId) {
+        return [
+                leaderboard        : skillsService.getLeaderboard(userId, proj.projectId, null, "tenAroundMe"),
+                subjectLeaderboard : skillsService.getLeaderboard(userId, proj.projectId, subj.subjectId, "tenAroundMe"),
+                rank               : skillsService.getRank(userId, proj.projectId),
+                subjectRank        : skillsService.getRank(userId, proj.projectId, subj.subjectId),
+                distribution       : skillsService.getRankDistribution(userId, proj.projectId),
+                subjectDistribution: skillsService.getRankDistribution(userId, proj.projectId, subj.subjectId),
+        ]
+    }
+
+    private void waitForIndex() {
+        leaderboardRankIndex.getIndex(proj.projectId, null)
+        leaderboardRankIndex.getIndex(proj.projectId, subj.subjectId)
+        long until = System.currentTimeMillis() + 30000
+        while ((!leaderboardRankIndex.getIndex(proj.projectId, null) || !leaderboardRankIndex.getIndex(proj.projectId, subj.subjectId))
+                && System.currentTimeMillis() < until) {
+            Thread.sleep(50)
+        }
+        assert leaderboardRankIndex.getIndex(proj.projectId, null)
+    }
+
+    /**
+     * users are returned ordered by rank, user at index i has (numUsers - i) * 10 points
+     */
+    private List<String> createRankedUsers(int numUsers) {
+        List<String> users = getRandomUsers(numUsers + 1, false).findAll { it != "skills@skills.org" }.subList(0, numUsers)
+        List<Date> days = (0..numUsers + 1).collect { new Date() - it }
+        List<Map> skills = SkillsFactory.createSkills(numUsers + 2, 1, 1)
+        skillsService.createProject(proj)
+        skillsService.createSubject(subj)
+        skillsService.createSkills(skills)
+
+        users.eachWithIndex { String userId, int userNum ->
+            (numUsers - userNum).times { int skillNum ->
+                skillsService.addSkill([projectId: proj.projectId, skillId: skills.get(skillNum).skillId], userId, days.get(userNum))
+            }
+        }
+        return users
+    }
+}
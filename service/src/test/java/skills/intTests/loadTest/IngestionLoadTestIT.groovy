@@ -0,0 +1,183 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests.loadTest
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import groovy.util.logging.Slf4j
+import jakarta.persistence.EntityManagerFactory
+import org.hibernate.SessionFactory
+import org.hibernate.stat.Statistics
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import skills.SpringBootApp
+import skills.intTests.utils.DefaultIntSpec
+import spock.lang.IgnoreIf
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+import static skills.intTests.loadTest.LoadTestDatasetGenerator.GeneratedProject
+import static skills.intTests.loadTest.LoadTestDatasetGenerator.LoadTestDataset
+
+/**
+ * End-to-end load test, only runs when -Dskills.loadTest.enabled=true is supplied, for example:
+ *
+ * mvn -B verify -Dit.test=IngestionLoadTestIT -Dskills.loadTest.enabled=true -Dskills.loadTest.numUsers=2000
+ *
+ * Generates the dataset described by LoadTestConfig against the configured (local) Postgres, then drives each
+ * scenario with LoadTestConfig.numThreads concurrent clients against the locally started service and finally runs
+ * all of them mixed together. Throughput, p50/p95/p99 latencies and the number of statements and transactions
+ * issued through Hibernate (JdbcTemplate queries are not counted) are logged and written as json to
+ * LoadTestConfig.reportFile.
+ */
+@Slf4j
+@IgnoreIf({ !Boolean.valueOf(sys['skills.loadTest.enabled']) })
+@SpringBootTest(properties = ['spring.jpa.properties.hibernate.generate_statistics=true',
+        'logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class IngestionLoadTestIT extends DefaultIntSpec {
+
+    static final List<String> METRICS_IDS = ['numUsersPerLevelChartBuilder', 'skillUsageNavigatorChartBuilder']
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory
+
+    LoadTestConfig config = new LoadTestConfig()
+    LoadTestDataset dataset
+    Statistics dbStatistics
+
+    def "drive ingestion, summary, leaderboard and metrics endpoints"() {
+        dataset = new LoadTestDatasetGenerator(config: config, skillsService: skillsService).generate()
+        dbStatistics = entityManagerFactory.unwrap(SessionFactory).statistics
+
+        // each scenario turns a seeded random into a single request, so the sequence of requests is reproducible
+        Map<String, Closure<Closure>> scenarios = [
+                reportSkill : { Random random ->
+                    String userId = randomUser(random)
+                    Map skill = randomSkill(random)
+                    return { skillsService.addSkill([projectId: skill.projectId, skillId: skill.skillId], userId, new Date()) }
+                },
+                skillSummary: { Random random ->
+                    String userId = randomUser(random)
+                    String projectId = randomProject(random).projectId
+                    return { skillsService.getSkillSummary(userId, projectId) }
+                },
+                leaderboard : { Random random ->
+                    String userId = randomUser(random)
+                    GeneratedProject project = randomProject(random)
+                    String subjectId = random.nextBoolean() ? project.subjectIds.get(random.nextInt(project.subjectIds.size())) : null
+                    return { skillsService.getLeaderboard(userId, project.projectId, subjectId) }
+                },
+                metrics     : { Random random ->
+                    String projectId = randomProject(random).projectId
+                    String metricsId = METRICS_IDS.get(random.nextInt(METRICS_IDS.size()))
+                    return { skillsService.getMetricsData(projectId, metricsId, [:]) }
+                },
+        ]
+        // rough production mix, dominated by reported events
+        Map<String, Integer> mixWeights = [reportSkill: 70, skillSummary: 20, leaderboard: 7, metrics: 3]
+        Closure<Closure> mixed = { Random random ->
+            int pick = random.nextInt(mixWeights.values().sum() as int)
+            String scenario = mixWeights.find { (pick -= it.value) < 0 }.key
+            return scenarios[scenario].call(random)
+        }
+
+        when:
+        run(new LoadTestScenarioStats('warmup'), mixed, config.warmupRequests, config.seed - 1)
+        List<Map<String, Object>> results = []
+        scenarios.eachWithIndex { Map.Entry<String, Closure<Closure>> scenario, int i ->
+            results.add(run(new LoadTestScenarioStats(scenario.key), scenario.value, config.requestsPerScenario, config.seed + i))
+        }
+        results.add(run(new LoadTestScenarioStats('mixed'), mixed, config.requestsPerScenario, config.seed + scenarios.size()))
+        writeReport(results)
+
+        then:
+        results.each { Map<String, Object> res ->
+            assert res.requests == config.requestsPerScenario
+            // load test exists to measure, not to verify behavior; only fail when the service is clearly struggling
+            assert (res.errors as int) <= (config.requestsPerScenario * 0.01)
+        }
+    }
+
+    private Map<String, Object> run(LoadTestScenarioStats stats, Closure<Closure> scenario, int numRequests, long seed) {
+        Random random = new Random(seed)
+        List<Closure> requests = (0..<numRequests).collect { scenario.call(random) }
+
+        ExecutorService executor = Executors.newFixedThreadPool(config.numThreads)
+        log.info("Running scenario [{}]: [{}] requests with [{}] threads", stats.name, numRequests, config.numThreads)
+        stats.start(dbStatistics.prepareStatementCount, dbStatistics.transactionCount)
+        requests.each { Closure request ->
+            executor.submit {
+                long start = System.nanoTime()
+                boolean success = true
+                try {
+                    request.call()
+                } catch (Throwable t) {
+                    success = false
+                    log.warn("Scenario [${stats.name}] request failed: ${t.message}")
+                }
+                stats.record(System.nanoTime() - start, success)
+            }
+        }
+        executor.shutdown()
+        assert executor.awaitTermination(1, TimeUnit.HOURS)
+        stats.stop(dbStatistics.prepareStatementCount, dbStatistics.transactionCount)
+
+        Map<String, Object> summary = stats.summary()
+        log.info("Scenario results: {}", summary)
+        return summary
+    }
+
+    private void writeReport(List<Map<String, Object>> results) {
+        Map report = [
+                createdAt: new Date(),
+                config   : config.properties.findAll { it.key != 'class' },
+                dataset  : [
+                        projects        : dataset.projects.size(),
+                        reportableSkills: dataset.projects.sum { it.skills.size() },
+                        users           : dataset.userIds.size(),
+                        historyEvents   : dataset.numHistoryEvents,
+                ],
+                scenarios: results,
+        ]
+        File reportFile = new File(config.reportFile)
+        reportFile.parentFile?.mkdirs()
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(reportFile, report)
+
+        StringBuilder table = new StringBuilder(String.format('%n%-14s %9s %7s %10s %9s %9s %9s %12s %12s%n',
+                'scenario', 'requests', 'errors', 'req/sec', 'p50 ms', 'p95 ms', 'p99 ms', 'statements', 'stmts/req'))
+        results.each { Map<String, Object> res ->
+            table.append(String.format('%-14s %9d %7d %10.2f %9.2f %9.2f %9.2f %12d %12.2f%n',
+                    res.scenario, res.requests, res.errors, res.throughputPerSecond, res.p50Ms, res.p95Ms, res.p99Ms,
+                    res.dbStatements, res.dbStatementsPerRequest))
+        }
+        log.info("Load test results, full report written to [{}]:{}", reportFile.absolutePath, table)
+    }
+
+    private String randomUser(Random random) {
+        return dataset.userIds.get(random.nextInt(dataset.userIds.size()))
+    }
+
+    private GeneratedProject randomProject(Random random) {
+        return dataset.projects.get(random.nextInt(dataset.projects.size()))
+    }
+
+    private Map randomSkill(Random random) {
+        List<Map> skills = randomProject(random).skills
+        return skills.get(random.nextInt(skills.size()))
+    }
+}
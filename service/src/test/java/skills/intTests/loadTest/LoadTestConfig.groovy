@@ -0,0 +1,53 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests.loadTest
+
+import groovy.transform.ToString
+
+/**
+ * Load test knobs, each one can be overridden with a -Dskills.loadTest.<name>=<value> system property.
+ * Defaults describe a small dataset that generates in a few minutes against a local Postgres.
+ */
+@ToString(includeNames = true)
+class LoadTestConfig {
+
+    static final String PREFIX = 'skills.loadTest.'
+
+    // dataset
+    long seed = Long.getLong(PREFIX + 'seed', 42)
+    int numProjects = intProp('numProjects', 3)
+    int subjectsPerProject = intProp('subjectsPerProject', 3)
+    int skillsPerSubject = intProp('skillsPerSubject', 10)
+    int groupsPerSubject = intProp('groupsPerSubject', 1)
+    int skillsPerGroup = intProp('skillsPerGroup', 4)
+    int badgesPerProject = intProp('badgesPerProject', 3)
+    int skillsPerBadge = intProp('skillsPerBadge', 5)
+    int numGlobalBadges = intProp('numGlobalBadges', 2)
+    int catalogImportsPerProject = intProp('catalogImportsPerProject', 3)
+    int numUsers = intProp('numUsers', 300)
+    int maxHistoryEventsPerUser = intProp('maxHistoryEventsPerUser', 40)
+    int historyDays = intProp('historyDays', 60)
+
+    // load
+    int numThreads = intProp('numThreads', 8)
+    int warmupRequests = intProp('warmupRequests', 100)
+    int requestsPerScenario = intProp('requestsPerScenario', 1000)
+    String reportFile = System.getProperty(PREFIX + 'reportFile', 'target/load-test-report.json')
+
+    private static int intProp(String name, int defaultValue) {
+        return Integer.getInteger(PREFIX + name, defaultValue)
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests.loadTest
+
+import groovy.util.logging.Slf4j
+import skills.intTests.utils.SkillsFactory
+import skills.intTests.utils.SkillsService
+
+import java.time.LocalDate
+import java.time.ZoneId
+
+/**
+ * Creates a synthetic, reproducible (same seed, same dataset) training schema through the admin endpoints:
+ * projects with subjects, skills groups, skills, badges, skills imported from the catalog and global badges spanning
+ * all projects, then gives every user an event history spread over the last LoadTestConfig.historyDays days.
+ *
+ * Event histories are skewed the way real usage is - most users only have a handful of events while a few are
+ * very active - and are loaded with the bulk reporting endpoint, one request per (skill, day).
+ */
+@Slf4j
+class LoadTestDatasetGenerator {
+
+    static final String USER_ID_PREFIX = 'loadtestuser'
+
+    static class GeneratedProject {
+        String projectId
+        List<String> subjectIds = []
+        // skills users can report, including group children and imported catalog skills
+        List<Map> skills = []
+    }
+
+    static class LoadTestDataset {
+        List<GeneratedProject> projects = []
+        List<String> userIds = []
+        int numHistoryEvents
+    }
+
+    LoadTestConfig config
+    SkillsService skillsService
+    private Random random
+
+    LoadTestDataset generate() {
+        random = new Random(config.seed)
+        LoadTestDataset dataset = new LoadTestDataset()
+        log.info("Generating load test dataset with {}", config)
+
+        (1..config.numProjects).each { int projNum ->
+            dataset.projects.add(createProject(projNum))
+        }
+        importFromCatalog(dataset.projects)
+        createGlobalBadges(dataset.projects)
+
+        dataset.userIds = (1..config.numUsers).collect { "${USER_ID_PREFIX}${it}".toString() }
+        dataset.numHistoryEvents = loadEventHistory(dataset)
+        log.info("Generated [{}] projects, [{}] reportable skills, [{}] users and [{}] historical events",
+                dataset.projects.size(), dataset.projects.sum { it.skills.size() }, dataset.userIds.size(), dataset.numHistoryEvents)
+        return dataset
+    }
+
+    private GeneratedProject createProject(int projNum) {
+        Map proj = SkillsFactory.createProject(projNum)
+        skillsService.createProject(proj)
+        GeneratedProject generated = new GeneratedProject(projectId: proj.projectId)
+
+        (1..config.subjectsPerProject).each { int subjNum ->
+            Map subject = SkillsFactory.createSubject(projNum, subjNum)
+            skillsService.createSubject(subject)
+            generated.subjectIds.add(subject.subjectId)
+
+            int skillNum = 0
+            if (config.skillsPerSubject > 0) {
+                List<Map> skills = (1..config.skillsPerSubject).collect { newSkill(projNum, subjNum, ++skillNum) }
+                skillsService.createSkills(skills)
+                generated.skills.addAll(skills)
+            }
+            if (config.skillsPerGroup > 0) {
+                (0..<config.groupsPerSubject).each {
+                    Map group = uniqueAcrossProjects(SkillsFactory.createSkillsGroup(projNum, subjNum, ++skillNum), projNum)
+                    skillsService.createSkill(group)
+                    (1..config.skillsPerGroup).each {
+                        Map skill = newSkill(projNum, subjNum, ++skillNum)
+                        skillsService.assignSkillToSkillsGroup(group.skillId, skill)
+                        generated.skills.add(skill)
+                    }
+                }
+            }
+        }
+
+        if (generated.skills) {
+            config.badgesPerProject.times { int badgeIndex ->
+                int badgeNum = badgeIndex + 1
+                Map badge = SkillsFactory.createBadge(projNum, badgeNum)
+                skillsService.createBadge(badge)
+                pick(generated.skills, config.skillsPerBadge).each { Map skill ->
+                    skillsService.assignSkillToBadge(proj.projectId, badge.badgeId, skill.skillId)
+                }
+                badge.enabled = true
+                skillsService.updateBadge(badge, badge.badgeId)
+            }
+        }
+        return generated
+    }
+
+    private Map newSkill(int projNum, int subjNum, int skillNum) {
+        // a quarter of the skills keep a time window, so some reported events are rejected like in production
+        boolean hasTimeWindow = random.nextInt(4) == 0
+        Map skill = SkillsFactory.createSkill(projNum, subjNum, skillNum, 0, 2 + random.nextInt(8),
+                hasTimeWindow ? 480 : 0, (1 + random.nextInt(10)) * 10)
+        return uniqueAcrossProjects(skill, projNum)
+    }
+
+    // catalog imports require skill ids and names that do not exist in the importing project yet
+    private static Map uniqueAcrossProjects(Map skill, int projNum) {
+        skill.skillId = "${skill.skillId}proj${projNum}".toString()
+        skill.name = "${skill.name} Project ${projNum}".toString()
+        return skill
+    }
+
+    private void importFromCatalog(List<GeneratedProject> projects) {
+        if (projects.size() < 2 || config.catalogImportsPerProject <= 0) {
+            return
+        }
+        // the first project exports to the catalog, all of the other projects import the same skills
+        GeneratedProject exporting = projects.first()
+        List<Map> exported = exporting.skills.take(config.catalogImportsPerProject)
+        skillsService.bulkExportSkillsToCatalog(exporting.projectId, exported.collect { it.skillId as String })
+
+        projects.drop(1).each { GeneratedProject importing ->
+            String subjectId = importing.subjectIds.first()
+            skillsService.bulkImportSkillsFromCatalogAndFinalize(importing.projectId, subjectId,
+                    exported.collect { [projectId: exporting.projectId, skillId: it.skillId] })
+            // imported skills can only be reported through the original skill, but count towards importing project's points
+            importing.skills.addAll(exported)
+        }
+    }
+
+    private void createGlobalBadges(List<GeneratedProject> projects) {
+        config.numGlobalBadges.times { int badgeIndex ->
+            int badgeNum = badgeIndex + 1
+            Map badge = [badgeId: "globalBadge${badgeNum}".toString(), name: "Global Badge ${badgeNum}".toString()]
+            skillsService.createGlobalBadge(badge)
+            projects.each { GeneratedProject project ->
+                Map skill = pick(project.skills.findAll { it.projectId == project.projectId }, 1).first()
+                skillsService.assignSkillToGlobalBadge(project.projectId, badge.badgeId, skill.skillId as String)
+            }
+            badge.enabled = 'true'
+            skillsService.updateGlobalBadge(badge)
+        }
+    }
+
+    private int loadEventHistory(LoadTestDataset dataset) {
+        LocalDate today = LocalDate.now()
+        // skill -> day offset -> users
+        Map<Map, Map<Integer, List<String>>> eventsBySkillAndDay = [:]
+        int numEvents = 0
+        dataset.userIds.each { String userId ->
+            double activity = random.nextDouble()
+            int userNumEvents = 1 + (int) (config.maxHistoryEventsPerUser * activity * activity * activity)
+            GeneratedProject project = dataset.projects.get(random.nextInt(dataset.projects.size()))
+            userNumEvents.times {
+                // occasionally users also work on other projects
+                GeneratedProject eventProject = random.nextInt(5) == 0 ? dataset.projects.get(random.nextInt(dataset.projects.size())) : project
+                Map skill = eventProject.skills.get(random.nextInt(eventProject.skills.size()))
+                int daysAgo = random.nextInt(Math.max(1, config.historyDays))
+                eventsBySkillAndDay.computeIfAbsent(skill, { [:] }).computeIfAbsent(daysAgo, { [] }).add(userId)
+                numEvents++
+            }
+        }
+
+        int numRequests = 0
+        eventsBySkillAndDay.each { Map skill, Map<Integer, List<String>> byDay ->
+            byDay.each { Integer daysAgo, List<String> userIds ->
+                Date date = Date.from(today.minusDays(daysAgo).atStartOfDay(ZoneId.systemDefault()).toInstant())
+                userIds.collate(1000).each { List<String> batch ->
+                    skillsService.bulkAddSkill([projectId: skill.projectId, skillId: skill.skillId], batch, date)
+                    numRequests++
+                }
+            }
+        }
+        log.info("Loaded [{}] historical events with [{}] bulk requests", numEvents, numRequests)
+        return numEvents
+    }
+
+    private List<Map> pick(List<Map> from, int num) {
+        List<Map> shuffled = new ArrayList<>(from)
+        Collections.shuffle(shuffled, random)
+        return shuffled.take(num)
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests.loadTest
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Latencies and errors recorded by the load test threads of a single scenario.
+ */
+class LoadTestScenarioStats {
+
+    final String name
+    private final ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>()
+    private final AtomicInteger numErrors = new AtomicInteger()
+    private long startNanos
+    private long endNanos
+    private long dbStatementsAtStart
+    private long dbTransactionsAtStart
+    private long dbStatements
+    private long dbTransactions
+
+    LoadTestScenarioStats(String name) {
+        this.name = name
+    }
+
+    void start(long dbStatementCount, long dbTransactionCount) {
+        dbStatementsAtStart = dbStatementCount
+        dbTransactionsAtStart = dbTransactionCount
+        startNanos = System.nanoTime()
+    }
+
+    void stop(long dbStatementCount, long dbTransactionCount) {
+        endNanos = System.nanoTime()
+        dbStatements = dbStatementCount - dbStatementsAtStart
+        dbTransactions = dbTransactionCount - dbTransactionsAtStart
+    }
+
+    void record(long latencyNanos, boolean success) {
+        latenciesNanos.add(latencyNanos)
+        if (!success) {
+            numErrors.incrementAndGet()
+        }
+    }
+
+    Map<String, Object> summary() {
+        long[] sorted = latenciesNanos.collect { it as long } as long[]
+        Arrays.sort(sorted)
+        int numRequests = sorted.length
+        double elapsedSeconds = (endNanos - startNanos) / 1_000_000_000d
+        return [
+                scenario            : name,
+                requests            : numRequests,
+                errors              : numErrors.get(),
+                elapsedSeconds      : round(elapsedSeconds),
+                throughputPerSecond : round(elapsedSeconds > 0 ? numRequests / elapsedSeconds : 0),
+                p50Ms               : percentileMs(sorted, 50),
+                p95Ms               : percentileMs(sorted, 95),
+                p99Ms               : percentileMs(sorted, 99),
+                maxMs               : numRequests ? toMs(sorted[numRequests - 1]) : 0,
+                dbStatements        : dbStatements,
+                dbStatementsPerRequest: round(numRequests ? dbStatements / numRequests : 0),
+                dbTransactions      : dbTransactions,
+        ]
+    }
+
+    private static double percentileMs(long[] sorted, int percentile) {
+        if (!sorted) {
+            return 0
+        }
+        int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1
+        return toMs(sorted[Math.max(0, index)])
+    }
+
+    private static double toMs(long nanos) {
+        return round(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1))
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100d
+    }
+}
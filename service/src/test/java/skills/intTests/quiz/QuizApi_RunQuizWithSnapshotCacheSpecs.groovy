@@ -0,0 +1,27 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests.quiz
+
+import org.springframework.boot.test.context.SpringBootTest
+import skills.SpringBootApp
+
+/**
+ * runs every quiz run scenario against quiz definitions served from the snapshot cache
+ */
+@SpringBootTest(properties = ['skills.config.quizSnapshotCache.enabled=true'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class QuizApi_RunQuizWithSnapshotCacheSpecs extends QuizApi_RunQuizSpecs {
+}
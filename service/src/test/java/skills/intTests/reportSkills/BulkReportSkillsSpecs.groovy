@@ -52,6 +52,67 @@ class BulkReportSkillsSpecs extends DefaultIntSpec {
         res.body.userIdsErrored.size() == 0
     }
 
+    def "bulk report progress can be retrieved using the provided import id"() {
+        def proj = SkillsFactory.createProject()
+        def subj = SkillsFactory.createSubject()
+        def skills = SkillsFactory.createSkills(10,)
+
+        skillsService.createProject(proj)
+        skillsService.createSubject(subj)
+        skillsService.createSkills(skills)
+
+        when:
+        def res = skillsService.bulkAddSkill([projectId: projId, skillId: skills[0].skillId], sampleUserIds, new Date(), 'import1')
+        def progress = skillsService.getSkillEventImportProgress(projId, 'import1')
+
+        then:
+        res.body.userIdsAppliedCount == sampleUserIds.size()
+        progress.importId == 'import1'
+        progress.projectId == projId
+        progress.totalUsers == sampleUserIds.size()
+        progress.processedUsers == sampleUserIds.size()
+        progress.appliedEvents == sampleUserIds.size()
+        progress.notAppliedEvents == 0
+        progress.erroredUsers == 0
+        progress.done
+    }
+
+    def "bulk report progress for an unknown import id"() {
+        def proj = SkillsFactory.createProject()
+        skillsService.createProject(proj)
+
+        when:
+        skillsService.getSkillEventImportProgress(projId, 'doesNotExist')
+
+        then:
+        SkillsClientException exception = thrown(SkillsClientException)
+        exception.message.contains("Import [doesNotExist] was not found")
+    }
+
+    def "bulk report skill for many users with points accumulated for every user"() {
+        def proj = SkillsFactory.createProject()
+        def subj = SkillsFactory.createSubject()
+        def skills = SkillsFactory.createSkills(1, 1, 1, 100, 2)
+        skills[0].pointIncrementInterval = 0
+
+        skillsService.createProject(proj)
+        skillsService.createSubject(subj)
+        skillsService.createSkills(skills)
+        List<String> users = getRandomUsers(12)
+
+        when:
+        def res1 = skillsService.bulkAddSkill([projectId: projId, skillId: skills[0].skillId], users, new Date())
+        def res2 = skillsService.bulkAddSkill([projectId: projId, skillId: skills[0].skillId], users, new Date())
+        def res3 = skillsService.bulkAddSkill([projectId: projId, skillId: skills[0].skillId], users, new Date())
+
+        then:
+        res1.body.userIdsAppliedCount == users.size()
+        res2.body.userIdsAppliedCount == users.size()
+        res3.body.userIdsAppliedCount == 0
+        res3.body.userIdsNotAppliedCount == users.size()
+        users.every { skillsService.getSkillSummary(it, projId).points == 200 }
+    }
+
     @Requires({ env["SPRING_PROFILES_ACTIVE"] == "pki" })
     def "bulk report skill for multiple users, one invalid user "() {
         def proj = SkillsFactory.createProject()
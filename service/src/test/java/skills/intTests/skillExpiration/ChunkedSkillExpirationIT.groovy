@@ -0,0 +1,109 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.intTests.skillExpiration
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import skills.SpringBootApp
+import skills.intTests.utils.DefaultIntSpec
+import skills.intTests.utils.SkillsFactory
+import skills.services.attributes.ExpirationAttrs
+import skills.services.settings.SettingsService
+import skills.storage.repos.ExpiredUserAchievementRepo
+import skills.tasks.executors.ExpireUserAchievementsTaskExecutor
+
+@SpringBootTest(properties = ['skills.config.achievementExpiration.batchSize=2'],
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class ChunkedSkillExpirationIT extends DefaultIntSpec {
+
+    @Autowired
+    ExpiredUserAchievementRepo expiredUserAchievementRepo
+
+    @Autowired
+    ExpireUserAchievementsTaskExecutor expireUserAchievementsTaskExecutor
+
+    @Autowired
+    SettingsService settingService
+
+    def "daily expiration is applied in chunks and recalculates points and levels of every user"() {
+        def proj = SkillsFactory.createProject()
+        def subj = SkillsFactory.createSubject()
+        def skills = SkillsFactory.createSkills(2, 1, 1, 100)
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+
+        List<String> users = getRandomUsers(5)
+        Date eightDaysAgo = new Date() - 8
+        users.each { String userId ->
+            skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, eightDaysAgo)
+        }
+        // first two users also achieved the second skill recently, which must not be affected
+        users.take(2).each { String userId ->
+            skillsService.addSkill([projectId: proj.projectId, skillId: skills[1].skillId], userId, new Date())
+        }
+
+        when:
+        skillsService.saveSkillExpirationAttributes(proj.projectId, skills[0].skillId, [
+                expirationType: ExpirationAttrs.DAILY,
+                every: 7,
+        ])
+        expireUserAchievementsTaskExecutor.removeExpiredUserAchievements()
+        settingService.deleteGlobalSetting(ExpireUserAchievementsTaskExecutor.SKILL_EXPIRATION_LAST_RUN_DATE)
+
+        def summaries = users.collect { skillsService.getSkillSummary(it, proj.projectId) }
+        def expired = expiredUserAchievementRepo.findAll().findAll { it.skillId == skills[0].skillId }
+
+        then:
+        expired.collect { it.userId }.sort() == users.collect { it.toLowerCase() }.sort()
+        summaries.take(2).every { it.points == 100 && it.skillsLevel == 3 }
+        summaries.drop(2).every { it.points == 0 && it.skillsLevel == 0 }
+        users.every { String userId ->
+            !skillsService.getPerformedSkills(userId, proj.projectId).data.find { it.skillId == skills[0].skillId }
+        }
+        users.take(2).every { String userId ->
+            skillsService.getPerformedSkills(userId, proj.projectId).data.find { it.skillId == skills[1].skillId }
+        }
+    }
+
+    def "achievements older than the expiration window are the only ones expired"() {
+        def proj = SkillsFactory.createProject()
+        def subj = SkillsFactory.createSubject()
+        def skills = SkillsFactory.createSkills(1, 1, 1, 100)
+        skillsService.createProjectAndSubjectAndSkills(proj, subj, skills)
+
+        List<String> users = getRandomUsers(5)
+        users.take(3).each { String userId ->
+            skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date() - 8)
+        }
+        users.drop(3).each { String userId ->
+            skillsService.addSkill([projectId: proj.projectId, skillId: skills[0].skillId], userId, new Date() - 2)
+        }
+
+        when:
+        skillsService.saveSkillExpirationAttributes(proj.projectId, skills[0].skillId, [
+                expirationType: ExpirationAttrs.DAILY,
+                every: 7,
+        ])
+        expireUserAchievementsTaskExecutor.removeExpiredUserAchievements()
+        settingService.deleteGlobalSetting(ExpireUserAchievementsTaskExecutor.SKILL_EXPIRATION_LAST_RUN_DATE)
+
+        def summaries = users.collect { skillsService.getSkillSummary(it, proj.projectId) }
+
+        then:
+        expiredUserAchievementRepo.findAll().collect { it.userId }.sort() == users.take(3).collect { it.toLowerCase() }.sort()
+        summaries.take(3).every { it.points == 0 && it.skillsLevel == 0 }
+        summaries.drop(3).every { it.points == 100 && it.skillsLevel == 5 }
+    }
+}
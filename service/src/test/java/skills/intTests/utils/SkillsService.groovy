@@ -700,6 +700,15 @@ class SkillsService {
         return wsHelper.adminPost("/projects/${props.projectId}/skills/${props.skillId}", [ userIds : userIds, timestamp: timestamp])
     }
 
+    def bulkAddSkill(Map props, List<String> userIds, Date date, String importId) {
+        userIds = userIds.collect { getUserId(it, false) }
+        return wsHelper.adminPost("/projects/${props.projectId}/skills/${props.skillId}", [ userIds : userIds, timestamp: date.time, importId: importId])
+    }
+
+    def getSkillEventImportProgress(String projectId, String importId) {
+        return wsHelper.adminGet("/projects/${projectId}/skillEventImports/${importId}/progress")
+    }
+
     def getApprovals(String projectId, int limit, int page, String orderBy, Boolean ascending, String userFilter = '', String skillFilter = '', boolean allRequests = false) {
         return wsHelper.adminGet("/projects/${projectId}/approvals?limit=${limit}&page=${page}&orderBy=${orderBy}&ascending=${ascending}&userFilter=${userFilter}&skillFilter=${skillFilter}&allRequests=${allRequests}")
     }
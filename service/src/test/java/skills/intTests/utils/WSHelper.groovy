@@ -257,6 +257,12 @@ class WSHelper {
         return get(endpoint, "openai", params)
     }
 
+    ResponseEntity<String> apiGetWithHeaders(String endpoint, HttpHeaders headers) {
+        String url = "${skillsService}/api${endpoint}"
+        log.info("GET: {}, headers [{}]", url, headers)
+        return restTemplateWrapper.getForEntityWithHeaders(url, String, headers)
+    }
+
     String getTokenForUser(String userId, boolean includeGrantType=true, boolean includeProxyUser=true) {
         log.info("Getting token for user [$userId]")
         String tokenUrl = "${skillsService}/oauth/token"
@@ -0,0 +1,211 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.metrics
+
+import com.github.benmanes.caffeine.cache.Ticker
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import skills.controller.exceptions.SkillException
+import skills.metrics.builders.ProjectMetricsBuilder
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+class MetricsResultCacheSpec extends Specification {
+
+    static class CountingBuilder implements ProjectMetricsBuilder {
+        AtomicInteger numBuilds = new AtomicInteger()
+        int cacheTtlSeconds = USE_DEFAULT_CACHE_TTL
+        CountDownLatch started = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(0)
+        CountDownLatch built = new CountDownLatch(1)
+        boolean fail = false
+
+        @Override
+        String getId() {
+            return "countingBuilder"
+        }
+
+        @Override
+        Object build(String projectId, String chartId, Map<String, String> props) {
+            started.countDown()
+            release.await(10, TimeUnit.SECONDS)
+            int num = numBuilds.incrementAndGet()
+            built.countDown()
+            if (fail) {
+                throw new SkillException("failed to build", projectId)
+            }
+            return "${projectId}-${num}".toString()
+        }
+    }
+
+    static class ManualTicker implements Ticker {
+        AtomicLong nanos = new AtomicLong()
+
+        @Override
+        long read() {
+            return nanos.get()
+        }
+
+        void advance(long amount, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(amount))
+        }
+    }
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    ManualTicker ticker = new ManualTicker()
+
+    private MetricsResultCache createCache(boolean enabled = true) {
+        MetricsResultCache cache = new MetricsResultCache(enabled: enabled, meterRegistry: meterRegistry, ticker: ticker)
+        cache.init()
+        return cache
+    }
+
+    private static void awaitRefresh(MetricsResultCache cache, CountingBuilder builder) {
+        assert builder.built.await(10, TimeUnit.SECONDS)
+        long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(10)
+        // the refreshed result is cached right after it is built
+        while (!cache.inFlight.isEmpty() && System.nanoTime() < waitUntil) {
+            Thread.yield()
+        }
+    }
+
+    def "results are cached by project, metrics id and props regardless of props order"() {
+        MetricsResultCache cache = createCache()
+        CountingBuilder builder = new CountingBuilder()
+
+        when:
+        def res1 = cache.get("proj1", builder.id, [a: "1", b: "2"], builder)
+        def res2 = cache.get("proj1", builder.id, [b: "2", a: "1"], builder)
+        def res3 = cache.get("proj1", builder.id, [a: "1", b: "3"], builder)
+        def res4 = cache.get("proj2", builder.id, [a: "1", b: "2"], builder)
+
+        then:
+        res1 == "proj1-1"
+        res2 == "proj1-1"
+        res3 == "proj1-2"
+        res4 == "proj2-3"
+        builder.numBuilds.get() == 3
+        meterRegistry.counter('skills.metrics.cache.requests', 'builder', builder.id, 'result', 'hit').count() == 1
+        meterRegistry.timer('skills.metrics.builder.duration', 'builder', builder.id).count() == 3
+    }
+
+    def "concurrent identical requests share a single computation"() {
+        MetricsResultCache cache = createCache()
+        CountingBuilder builder = new CountingBuilder(release: new CountDownLatch(1))
+
+        when:
+        List<String> results = Collections.synchronizedList([])
+        List<Thread> threads = [Thread.start { results.add((String) cache.get("proj1", builder.id, [:], builder)) }]
+        builder.started.await(10, TimeUnit.SECONDS)
+        threads.addAll((1..4).collect {
+            Thread.start { results.add((String) cache.get("proj1", builder.id, [:], builder)) }
+        })
+        builder.release.countDown()
+        threads.each { it.join(10000) }
+
+        then:
+        builder.numBuilds.get() == 1
+        results == (1..5).collect { "proj1-1" }
+    }
+
+    def "stale results are served while they are refreshed in the background"() {
+        MetricsResultCache cache = createCache()
+        CountingBuilder builder = new CountingBuilder(cacheTtlSeconds: 1)
+
+        when:
+        def first = cache.get("proj1", builder.id, [:], builder)
+        builder.built = new CountDownLatch(1)
+        ticker.advance(1100, TimeUnit.MILLISECONDS)
+        def stale = cache.get("proj1", builder.id, [:], builder)
+        awaitRefresh(cache, builder)
+        def refreshed = cache.get("proj1", builder.id, [:], builder)
+
+        then:
+        first == "proj1-1"
+        stale == "proj1-1"
+        refreshed == "proj1-2"
+        builder.numBuilds.get() == 2
+    }
+
+    def "results are served until the ttl and are not served past the stale-while-revalidate period"() {
+        MetricsResultCache cache = createCache()
+        CountingBuilder builder = new CountingBuilder(cacheTtlSeconds: 10)
+
+        when:
+        def first = cache.get("proj1", builder.id, [:], builder)
+        ticker.advance(9, TimeUnit.SECONDS)
+        def cached = cache.get("proj1", builder.id, [:], builder)
+        ticker.advance(10 + cache.staleWhileRevalidateSeconds, TimeUnit.SECONDS)
+        def recomputed = cache.get("proj1", builder.id, [:], builder)
+
+        then:
+        first == "proj1-1"
+        cached == "proj1-1"
+        recomputed == "proj1-2"
+        meterRegistry.counter('skills.metrics.cache.requests', 'builder', builder.id, 'result', 'stale').count() == 0
+    }
+
+    def "failures are not cached and are rethrown to the caller"() {
+        MetricsResultCache cache = createCache()
+        CountingBuilder builder = new CountingBuilder(fail: true)
+
+        when:
+        cache.get("proj1", builder.id, [:], builder)
+
+        then:
+        thrown(SkillException)
+
+        when:
+        builder.fail = false
+        def res = cache.get("proj1", builder.id, [:], builder)
+
+        then:
+        res == "proj1-2"
+    }
+
+    def "results are always computed when the cache is disabled or the builder does not opt in"() {
+        CountingBuilder builder = new CountingBuilder()
+        CountingBuilder noCacheBuilder = new CountingBuilder(cacheTtlSeconds: 0)
+        ProjectMetricsBuilder notOptedInBuilder = new ProjectMetricsBuilder() {
+            AtomicInteger numBuilds = new AtomicInteger()
+
+            @Override
+            String getId() {
+                return "notOptedInBuilder"
+            }
+
+            @Override
+            Object build(String projectId, String chartId, Map<String, String> props) {
+                return numBuilds.incrementAndGet()
+            }
+        }
+        MetricsResultCache disabled = createCache(false)
+        MetricsResultCache enabled = createCache()
+
+        when:
+        2.times { disabled.get("proj1", builder.id, [:], builder) }
+        2.times { enabled.get("proj1", noCacheBuilder.id, [:], noCacheBuilder) }
+        def results = (1..2).collect { enabled.get("proj1", notOptedInBuilder.id, [:], notOptedInBuilder) }
+
+        then:
+        builder.numBuilds.get() == 2
+        noCacheBuilder.numBuilds.get() == 2
+        results == [1, 2]
+    }
+}
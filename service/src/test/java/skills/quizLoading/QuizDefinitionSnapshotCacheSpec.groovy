@@ -0,0 +1,133 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.quizLoading
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import skills.services.quiz.QuizQuestionType
+import skills.storage.model.QuizAnswerDef
+import skills.storage.model.QuizDefParent
+import skills.storage.model.QuizDefWithDescription
+import skills.storage.model.QuizQuestionDef
+import skills.storage.model.QuizSetting
+import skills.storage.repos.QuizAnswerDefRepo
+import skills.storage.repos.QuizDefWithDescRepo
+import skills.storage.repos.QuizQuestionDefRepo
+import skills.storage.repos.QuizSettingsRepo
+import spock.lang.Specification
+
+class QuizDefinitionSnapshotCacheSpec extends Specification {
+
+    QuizDefWithDescRepo quizDefWithDescRepo = Mock()
+    QuizSettingsRepo quizSettingsRepo = Mock()
+    QuizQuestionDefRepo quizQuestionRepo = Mock()
+    QuizAnswerDefRepo quizAnswerRepo = Mock()
+
+    private QuizDefinitionSnapshotCache createCache(boolean enabled = true) {
+        QuizDefinitionSnapshotCache cache = new QuizDefinitionSnapshotCache(enabled: enabled, meterRegistry: new SimpleMeterRegistry(),
+                quizDefWithDescRepo: quizDefWithDescRepo, quizSettingsRepo: quizSettingsRepo,
+                quizQuestionRepo: quizQuestionRepo, quizAnswerRepo: quizAnswerRepo)
+        cache.init()
+        return cache
+    }
+
+    def cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization()
+        }
+    }
+
+    def "snapshot holds quiz-level settings, questions and answers"() {
+        QuizDefinitionSnapshotCache cache = createCache()
+        quizDefWithDescRepo.findByQuizIdIgnoreCase('quiz1') >> new QuizDefWithDescription(id: 1, quizId: 'Quiz1', name: 'Quiz 1', type: QuizDefParent.QuizType.Quiz)
+        quizSettingsRepo.findAllByQuizRefId(1) >> [
+                new QuizSetting(setting: QuizSettings.QuizLength.setting, value: '2', quizRefId: 1),
+                new QuizSetting(setting: QuizSettings.MultipleTakes.setting, value: 'true', quizRefId: 1),
+                new QuizSetting(setting: QuizSettings.RandomizeAnswers.setting, value: 'true', quizRefId: 1, userRefId: 7),
+        ]
+        quizQuestionRepo.findAllByQuizIdIgnoreCase('Quiz1') >> [new QuizQuestionDef(id: 10, quizId: 'Quiz1', question: 'q', type: QuizQuestionType.SingleChoice, displayOrder: 1)]
+        quizAnswerRepo.findAllByQuizIdIgnoreCase('Quiz1') >> [
+                new QuizAnswerDef(id: 100, quizId: 'Quiz1', questionRefId: 10, answer: 'a', isCorrectAnswer: 'true'),
+                new QuizAnswerDef(id: 101, quizId: 'Quiz1', questionRefId: 10, answer: 'b', isCorrectAnswer: 'false'),
+        ]
+
+        when:
+        QuizDefinitionSnapshot snapshot = cache.get('quiz1')
+
+        then:
+        snapshot.quizRefId == 1
+        snapshot.toQuizDef().quizId == 'Quiz1'
+        snapshot.getSettingAsInteger(QuizSettings.QuizLength.setting) == 2
+        snapshot.getSettingAsInteger(QuizSettings.MaxNumAttempts.setting) == -1
+        snapshot.getSettingAsBoolean(QuizSettings.MultipleTakes.setting)
+        !snapshot.getSettingAsBoolean(QuizSettings.RandomizeAnswers.setting)
+        snapshot.questions.collect { it.id } == [10]
+        snapshot.answersByQuestionId[10].collect { it.id } == [100, 101]
+        snapshot.answersById[101].questionType == QuizQuestionType.SingleChoice
+
+        when:
+        snapshot.answersByQuestionId[10].shuffle()
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "snapshots are reused until the quiz changes"() {
+        QuizDefinitionSnapshotCache cache = createCache()
+
+        when:
+        QuizDefinitionSnapshot first = cache.get('quiz1')
+        QuizDefinitionSnapshot second = cache.get('QUIZ1')
+        cache.quizChanged('Quiz1')
+        QuizDefinitionSnapshot third = cache.get('quiz1')
+
+        then:
+        2 * quizDefWithDescRepo.findByQuizIdIgnoreCase(_) >> new QuizDefWithDescription(id: 1, quizId: 'Quiz1', type: QuizDefParent.QuizType.Quiz)
+        first.is(second)
+        !third.is(first)
+    }
+
+    def "snapshots loaded while the changing transaction is in flight are not served"() {
+        QuizDefinitionSnapshotCache cache = createCache()
+        quizDefWithDescRepo.findByQuizIdIgnoreCase(_) >> new QuizDefWithDescription(id: 1, quizId: 'quiz1', type: QuizDefParent.QuizType.Quiz)
+        TransactionSynchronizationManager.initSynchronization()
+
+        when:
+        cache.quizChanged('quiz1')
+        QuizDefinitionSnapshot duringTx = cache.get('quiz1')
+        TransactionSynchronizationManager.getSynchronizations().each { it.afterCompletion(TransactionSynchronization.STATUS_COMMITTED) }
+        TransactionSynchronizationManager.clearSynchronization()
+
+        then:
+        !cache.get('quiz1').is(duringTx)
+    }
+
+    def "disabled cache loads a new snapshot every time"() {
+        QuizDefinitionSnapshotCache cache = createCache(false)
+
+        when:
+        QuizDefinitionSnapshot first = cache.get('quiz1')
+        QuizDefinitionSnapshot second = cache.get('quiz1')
+        QuizDefinitionSnapshot missing = cache.get('other')
+
+        then:
+        2 * quizDefWithDescRepo.findByQuizIdIgnoreCase('quiz1') >> new QuizDefWithDescription(id: 1, quizId: 'quiz1', type: QuizDefParent.QuizType.Quiz)
+        1 * quizDefWithDescRepo.findByQuizIdIgnoreCase('other') >> null
+        !first.is(second)
+        missing == null
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services
+
+import callStack.profiler.Profile
+import io.micrometer.core.instrument.DistributionSummary
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.stereotype.Component
+import skills.SpringBootApp
+import skills.profile.CallStackProfAspect
+import skills.utils.LoggerHelper
+import spock.lang.Specification
+
+@SpringBootTest(properties = ['skills.prof.metrics.enabled=true', 'skills.prof.metrics.treeSampleRate=1.0', 'skills.h2.port=9094'],
+        webEnvironment=SpringBootTest.WebEnvironment.RANDOM_PORT, classes = SpringBootApp)
+class CallStackProfMetricsIT extends Specification {
+
+    @Autowired
+    ProfiledController profiledController
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    def "profiled methods are recorded as timers tagged by method"() {
+        LoggerHelper loggerHelper = new LoggerHelper(CallStackProfAspect.class)
+
+        when:
+        profiledController.endpoint("arg1")
+        profiledController.endpoint("arg2")
+
+        Timer endpointTimer = meterRegistry.find('skills.profile.method.timePerRequest').tag('method', 'ProfiledController.endpoint').timer()
+        Collection<Timer> allTimers = meterRegistry.find('skills.profile.method.timePerRequest').timers()
+        Timer innerTimer = allTimers.find { it.id.getTag('method').contains('innerMethod') }
+        DistributionSummary innerCalls = meterRegistry.find('skills.profile.method.callsPerRequest').summaries()
+                .find { it.id.getTag('method').contains('innerMethod') }
+
+        then:
+        endpointTimer.count() == 2
+        endpointTimer.totalTime(java.util.concurrent.TimeUnit.MILLISECONDS) >= 200
+        // both calls of innerMethod in a request are summed into a single sample
+        innerTimer.count() == 2
+        innerTimer.max(java.util.concurrent.TimeUnit.MILLISECONDS) >= 100
+        innerCalls.count() == 2
+        innerCalls.totalAmount() == 4
+        !allTimers.find { it.id.getTag('method').contains('arg1') }
+        loggerHelper.logEvents?.find { it.formattedMessage.contains('Sampled Profile of Endpoint') && it.formattedMessage.contains('innerMethod') }
+
+        cleanup:
+        loggerHelper.stop()
+    }
+
+    @skills.profile.EnableCallStackProf
+    @Component
+    static class ProfiledController {
+
+        void endpoint(String arg) {
+            innerMethod()
+            innerMethod()
+        }
+
+        @Profile
+        void innerMethod() {
+            Thread.sleep(50)
+        }
+    }
+}
@@ -71,8 +71,13 @@ class EmailNotifierSpec extends Specification {
         lockingServiceMock.lockForNotifying()
         notificationEmailBuilderManager.build(notification, _) >> new NotificationEmailBuilder.Res(subject: "subject", html: "body", plainText: "body")
 
-        mockAttrRepo.findEmailByUserId(*_) >>> ['fake1@fake.fake', 'fake2@fake.fake']
-        2 * mockSendingService.sendEmail(*_) >>> { throw new RuntimeException("sending failed ") } >>> null
+        mockAttrRepo.findEmailsByUserIds(*_) >> [userIdAndEmail('fake1', 'fake1@fake.fake'), userIdAndEmail('fake2', 'fake2@fake.fake')]
+        1 * mockSendingService.sendEmails(*_) >> { List<EmailSendingService.OutgoingEmail> emails, JavaMailSender sender ->
+            assert emails.size() == 2
+            Map<EmailSendingService.OutgoingEmail, Exception> failed = new IdentityHashMap<>()
+            failed.put(emails.find { it.to == ['fake1@fake.fake'] }, new RuntimeException("sending failed "))
+            return failed
+        }
 
         EmailNotifier emailNotifier = new EmailNotifier()
         emailNotifier.retainFailedNotificationsForNumSecs = TimeUnit.MINUTES.toSeconds(30)
@@ -97,6 +102,59 @@ class EmailNotifierSpec extends Specification {
         1 * notificationsRepo.save({ it.userId == JsonOutput.toJson(["fake1"]) && it.id == 1 && it.failedCount == 1})
     }
 
+    def "recipients of a batch of notifications are resolved with one query and sent over shared connections"() {
+        EmailSendingService mockSendingService = Mock()
+        UserAttrsRepo mockAttrRepo = Mock(UserAttrsRepo)
+        SettingsService mockSettingsService = Mock(SettingsService)
+        NotificationsRepo notificationsRepo = Mock(NotificationsRepo)
+        NotificationEmailBuilderManager notificationEmailBuilderManager = Mock(NotificationEmailBuilderManager)
+        EmailSettingsService emailSettingsServiceMock = Mock(EmailSettingsService)
+
+        List<Notification> notifications = (1..3).collect { int num ->
+            new Notification(
+                    requestedOn: new Date(),
+                    created: new Date(),
+                    userId: JsonOutput.toJson(["user${num}a".toString(), "user${num}b".toString()]),
+                    failedCount: 0,
+                    encodedParams: JsonOutput.toJson([htmlBody: "body", emailSubject: "subject", rawBody: "body"]),
+                    type: Notification.Type.ContactUsers,
+                    id: num,
+            )
+        }
+
+        notificationsRepo.streamNewNotifications() >> notifications.stream()
+        mockSettingsService.getGlobalSettingsByGroup(*_) >> []
+        notificationEmailBuilderManager.build(_, _) >> new NotificationEmailBuilder.Res(subject: "subject", html: "body", plainText: "body")
+
+        List<List<String>> sentPerConnection = []
+        mockSendingService.sendEmails(*_) >> { List<EmailSendingService.OutgoingEmail> emails, JavaMailSender sender ->
+            sentPerConnection.add(emails.collectMany { it.to })
+            return [:]
+        }
+
+        EmailNotifier emailNotifier = new EmailNotifier(notificationsPerBatch: 10, emailsPerConnection: 2)
+        emailNotifier.retainFailedNotificationsForNumSecs = TimeUnit.MINUTES.toSeconds(30)
+        emailNotifier.notificationsRepo = notificationsRepo
+        emailNotifier.emailSettingsService = emailSettingsServiceMock
+        emailNotifier.featureService = Mock(FeatureService)
+        emailNotifier.lockingService = Mock(LockingService)
+        emailNotifier.notificationEmailBuilderManager = notificationEmailBuilderManager
+        emailNotifier.settingsService = mockSettingsService
+        emailNotifier.systemSettingsService = Mock(SystemSettingsService)
+        emailNotifier.sendingService = mockSendingService
+        emailNotifier.userAttrs = mockAttrRepo
+
+        when:
+        emailNotifier.dispatchNotifications()
+
+        then:
+        1 * mockAttrRepo.findEmailsByUserIds({ it.size() == 6 }) >> { args -> args[0].collect { String userId -> userIdAndEmail(userId, "${userId}@fake.fake".toString()) } }
+        3 * notificationsRepo.deleteById(_)
+        0 * notificationsRepo.save(_)
+        sentPerConnection.size() == 3
+        sentPerConnection.flatten().sort() == ['user1a', 'user1b', 'user2a', 'user2b', 'user3a', 'user3b'].collect { "${it}@fake.fake".toString() }
+    }
+
     def "community descriptor will be replaced when configured"() {
         String UC_REPLACEMENT = 'UC REPLACEMENT'
         Notification notification = new Notification(
@@ -157,4 +215,7 @@ class EmailNotifierSpec extends Specification {
         e.message.contains("User Community Header variable found in header/footer, but no replace value found in encodedParams.")
     }
 
+    private static UserAttrsRepo.UserIdAndEmail userIdAndEmail(String userId, String email) {
+        return [getUserId: { -> userId }, getEmail: { -> email }] as UserAttrsRepo.UserIdAndEmail
+    }
 }
@@ -15,8 +15,11 @@
  */
 package skills.services
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.springframework.messaging.simp.SimpMessagingTemplate
 import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
 import skills.quizLoading.QuizRunService
 import skills.services.admin.SkillCatalogService
 import skills.services.attributes.SkillAttributeService
@@ -24,8 +27,9 @@ import skills.services.events.*
 import skills.services.events.pointsAndAchievements.PointsAndAchievementsHandler
 import skills.storage.model.SkillDef
 import skills.storage.model.SkillDefMin
-import skills.storage.model.UserAchievement
 import skills.storage.repos.*
+import skills.tasks.TaskSchedulerService
+import skills.tasks.data.ImportedSkillAchievements
 import skills.utils.LoggerHelper
 import skills.utils.MatomoReporter
 import skills.utils.MetricsLogger
@@ -74,6 +78,7 @@ class SkillEventServiceUnitSpecs extends Specification {
                 skillDefRepo: skillDefRepo,
                 skillAttributeService: mockSkillAttributeService,
                 quizRunService: mockQuizRunService,
+                skillDefinitionCache: new SkillDefinitionCache(),
         )
         SkillEventsService skillEventsService = new SkillEventsService(
                 skillEventPublisher: mockSkillEventPublisher,
@@ -125,6 +130,7 @@ class SkillEventServiceUnitSpecs extends Specification {
                 userEventService: mockUserEventService,
                 skillCatalogService: mockCatalogService,
                 skillAttributeService: mockSkillAttributeService,
+                skillDefinitionCache: new SkillDefinitionCache(),
         )
         SkillEventsService skillEventsService = new SkillEventsService(
                 skillEventPublisher: mockSkillEventPublisher,
@@ -155,6 +161,81 @@ class SkillEventServiceUnitSpecs extends Specification {
         }
     }
 
+    def "events for skills that reached their maximum points are rejected from the user skill state cache without querying the database"() {
+        SkillEventPublisher mockSkillEventPublisher = Mock()
+        SkillEventsSupportRepo mockSkillEventsSupportRepo = Mock()
+        UserPerformedSkillRepo mockPerformedSkillRepository = Mock()
+        MetricsLogger mockMetricsLogger = Mock()
+        MatomoReporter mockMatomoReporter = Mock()
+        UserEventService mockUserEventService = Mock()
+        SkillCatalogService mockCatalogService = Mock()
+        SkillAttributeService mockSkillAttributeService = Mock()
+
+        UserSkillStateCache userSkillStateCache = new UserSkillStateCache(enabled: true, meterRegistry: new SimpleMeterRegistry())
+        userSkillStateCache.init()
+        SkillEventsTransactionalService skillEventsTransactionalService = new SkillEventsTransactionalService(
+                skillEventPublisher: mockSkillEventPublisher,
+                skillEventsSupportRepo: mockSkillEventsSupportRepo,
+                performedSkillRepository: mockPerformedSkillRepository,
+                userEventService: mockUserEventService,
+                skillCatalogService: mockCatalogService,
+                skillAttributeService: mockSkillAttributeService,
+                skillDefinitionCache: new SkillDefinitionCache(),
+                userSkillStateCache: userSkillStateCache,
+        )
+        SkillEventsService skillEventsService = new SkillEventsService(
+                skillEventPublisher: mockSkillEventPublisher,
+                metricsLogger: mockMetricsLogger,
+                matomoReporter: mockMatomoReporter,
+                skillEventsTransactionalService: skillEventsTransactionalService,
+        )
+
+        SkillDefMin skillDefMin = Mock()
+        skillDefMin.getPointIncrement() >> 50
+        skillDefMin.getTotalPoints() >> 100
+        skillDefMin.getProjectId() >> projId
+        skillDefMin.getSelfReportingType() >> SkillDef.SelfReportingType.HonorSystem
+        mockSkillEventsSupportRepo.findByProjectIdAndSkillIdAndType(projId, skillId, SkillDef.ContainerType.Skill) >> skillDefMin
+        mockCatalogService.isAvailableInCatalog(_, _) >> false
+
+        // no transaction is active so the state is cached right away
+        userSkillStateCache.applied(userSkillStateCache.get(userId, projId, skillId), 2, new Date(), 0)
+
+        when:
+        def res = skillEventsService.reportSkill(projId, skillId, userId, false, null)
+
+        then:
+        !res.skillApplied
+        res.explanation == "This skill reached its maximum points"
+        0 * mockPerformedSkillRepository.countByUserIdAndProjectIdAndSkillId(_, _, _)
+        1 * mockUserEventService.recordEvent(projId, _, userId, _)
+        0 * mockSkillEventPublisher.publishSkillUpdate(_, userId)
+    }
+
+    def "user skill state cache drops user's states once the user's events change"() {
+        UserSkillStateCache userSkillStateCache = new UserSkillStateCache(enabled: true, meterRegistry: new SimpleMeterRegistry())
+        userSkillStateCache.init()
+        Date performedOn = new Date()
+
+        when:
+        userSkillStateCache.applied(userSkillStateCache.get(userId, projId, skillId), 1, performedOn, 2)
+        userSkillStateCache.applied(userSkillStateCache.get(userId, projId, skillId), 2, performedOn - 1, 2)
+        userSkillStateCache.applied(userSkillStateCache.get(userId, projId, skillId), 3, performedOn - 2, 2)
+        UserSkillStateCache.SkillState cached = userSkillStateCache.get(userId.toUpperCase(), projId, skillId).state
+        userSkillStateCache.userChanged(userId)
+        UserSkillStateCache.SkillState afterUserChanged = userSkillStateCache.get(userId, projId, skillId).state
+        userSkillStateCache.applied(userSkillStateCache.get(userId, projId, skillId), 1, performedOn, 2)
+        userSkillStateCache.projectChanged(projId)
+        UserSkillStateCache.SkillState afterProjectChanged = userSkillStateCache.get(userId, projId, skillId).state
+
+        then:
+        cached.numOccurrences == 3
+        cached.recentPerformedOn == [performedOn, performedOn - 1]
+        cached.dependenciesSatisfied
+        afterUserChanged == null
+        afterProjectChanged == null
+    }
+
     def "test reportSkill will notify when skills is NOT applied, but notifyIfNotApplied is true "() {
         SkillEventPublisher mockSkillEventPublisher = Mock()
         SkillEventsSupportRepo mockSkillEventsSupportRepo = Mock()
@@ -172,6 +253,7 @@ class SkillEventServiceUnitSpecs extends Specification {
                 userEventService: mockUserEventService,
                 skillCatalogService: mockCatalogService,
                 skillAttributeService: mockSkillAttributeService,
+                skillDefinitionCache: new SkillDefinitionCache(),
         )
         SkillEventsService skillEventsService = new SkillEventsService(
                 skillEventPublisher: mockSkillEventPublisher,
@@ -283,6 +365,89 @@ class SkillEventServiceUnitSpecs extends Specification {
         invocations == 4
     }
 
+    def "coalescing publisher sends a single update per skill for all events reported within the window"() {
+        SimpMessagingTemplate mockMessagingTemplate = Mock()
+        BrokerAvailabilityEvent brokerAvailable = new BrokerAvailabilityEvent(true, this)
+        SkillEventPublisher skillEventPublisher = new SkillEventPublisher(messagingTemplate: mockMessagingTemplate, coalesce: true, coalescingWindowMs: 500)
+
+        List<SkillEventResult> sent = []
+        mockMessagingTemplate.convertAndSendToUser('user1', '/queue/project1-skill-updates', _) >> { args -> sent.add(args[2]) }
+
+        when:
+        skillEventPublisher.init()
+        skillEventPublisher.handleBrokerAvailabilityEvent(brokerAvailable)
+        (1..5).each {
+            skillEventPublisher.publishSkillUpdate(new SkillEventResult(projectId: 'project1', skillId: 'skill1', pointsEarned: 10, totalPointsEarned: it * 10,
+                    completed: it == 5 ? [new CompletionItem(type: CompletionItem.CompletionItemType.Skill, id: 'skill1')] : []), 'user1')
+        }
+        skillEventPublisher.publishSkillUpdate(new SkillEventResult(projectId: 'project1', skillId: 'skill2', pointsEarned: 5, totalPointsEarned: 5), 'user1')
+        Thread.sleep(1500)
+
+        then:
+        sent.size() == 2
+        sent[0].skillId == 'skill1'
+        sent[0].pointsEarned == 50
+        sent[0].totalPointsEarned == 50
+        sent[0].completed.collect { it.id } == ['skill1']
+        sent[1].skillId == 'skill2'
+        sent[1].pointsEarned == 5
+
+        cleanup:
+        skillEventPublisher.shutdown()
+    }
+
+    def "coalescing publisher drops the oldest pending update once user's mailbox is full"() {
+        SimpMessagingTemplate mockMessagingTemplate = Mock()
+        BrokerAvailabilityEvent brokerAvailable = new BrokerAvailabilityEvent(true, this)
+        SkillEventPublisher skillEventPublisher = new SkillEventPublisher(messagingTemplate: mockMessagingTemplate, coalesce: true, coalescingWindowMs: 500, maxPendingPerUser: 3)
+
+        List<String> sentSkillIds = []
+        mockMessagingTemplate.convertAndSendToUser('user1', '/queue/project1-skill-updates', _) >> { args -> sentSkillIds.add(args[2].skillId) }
+
+        when:
+        skillEventPublisher.init()
+        skillEventPublisher.handleBrokerAvailabilityEvent(brokerAvailable)
+        (1..5).each {
+            skillEventPublisher.publishSkillUpdate(new SkillEventResult(projectId: 'project1', skillId: "skill${it}".toString()), 'user1')
+        }
+        Thread.sleep(1500)
+
+        then:
+        sentSkillIds == ['skill3', 'skill4', 'skill5']
+
+        cleanup:
+        skillEventPublisher.shutdown()
+    }
+
+    def "catalog propagation coalesces events reported in the same transaction per user and original skill"() {
+        TaskSchedulerService mockTaskSchedulerService = Mock()
+        ImportedSkillsPropagationQueue queue = new ImportedSkillsPropagationQueue(enabled: true, taskSchedulerService: mockTaskSchedulerService, meterRegistry: new SimpleMeterRegistry())
+        queue.init()
+        SkillDate first = new SkillDate(date: new Date() - 1, isProvided: true)
+        SkillDate second = new SkillDate(date: new Date(), isProvided: false)
+
+        when:
+        TransactionSynchronizationManager.initSynchronization()
+        try {
+            queue.add(userId, 1, [10, 11, 12], first, false, false)
+            queue.add('otherUser', 1, [10, 11, 12], first, false, false)
+            queue.add(userId, 1, [10, 11, 12], second, true, false)
+            TransactionSynchronizationManager.getSynchronizations().each { it.beforeCommit(false) }
+            TransactionSynchronizationManager.getSynchronizations().each { it.afterCompletion(TransactionSynchronization.STATUS_COMMITTED) }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization()
+        }
+
+        then:
+        1 * mockTaskSchedulerService.scheduleImportedSkillAchievements(userId, 1, [10, 11, 12], _) >> { arguments ->
+            List<ImportedSkillAchievements.Event> events = arguments[3]
+            assert events.collect { it.incomingSkillDate } == [first, second]
+            assert events.collect { it.thisRequestCompletedOriginalSkill } == [false, true]
+        }
+        1 * mockTaskSchedulerService.scheduleImportedSkillAchievements('otherUser', 1, [10, 11, 12], { it.size() == 1 })
+        0 * mockTaskSchedulerService._
+    }
+
     def "notify user of achievements does not fail with project level achievements"() {
         SkillEventPublisher mockSkillEventPublisher = Mock()
         SkillEventsSupportRepo mockSkillEventsSupportRepo = Mock()
@@ -307,9 +472,9 @@ class SkillEventServiceUnitSpecs extends Specification {
                 skillEventsTransactionalService: skillEventsTransactionalService,
         )
 
-        UserAchievement ua = new UserAchievement(projectId: "proj", level: 1, created: new Date())
-        userAchievedLevelRepo.findAllByUserIdAndNotifiedOrderByCreatedAsc(_, _) >> [ua]
-        userPointsRepo.findByProjectIdAndUserIdAndSkillId("proj", null, _) >> null
+        UserAchievedLevelRepo.PendingNotification pending = [getId: { -> 1 }, getProjectId: { -> "proj" }, getSkillId: { -> null }, getLevel: { -> 1 },
+                                                             getSkillName: { -> null }, getDefSkillId: { -> null }, getSkillType: { -> null }, getPointsSkillId: { -> null }] as UserAchievedLevelRepo.PendingNotification
+        userAchievedLevelRepo.findPendingNotifications("aUser") >> [pending]
 
         when:
 
@@ -322,6 +487,6 @@ class SkillEventServiceUnitSpecs extends Specification {
                     it.completed.size() == 1 && it.completed[0].name == "OVERALL" &&
                     it.completed[0].level == 1
         }, "aUser")
-        1 * userAchievedLevelRepo.saveAll(_)
+        1 * userAchievedLevelRepo.markNotified([1])
     }
 }
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.admin
+
+import skills.storage.model.SkillDef
+import skills.storage.repos.SkillRelDefRepo
+import spock.lang.Specification
+
+import static skills.services.admin.LearningPathGraph.AdditionCheck.FullCheckRequired
+import static skills.services.admin.LearningPathGraph.AdditionCheck.NoCycle
+
+class LearningPathGraphSpec extends Specification {
+
+    static final String PROJ = 'proj1'
+
+    def "prerequisites are ordered before their dependents"() {
+        // 1 <- 2 <- 3, 1 <- 4
+        LearningPathGraph graph = build([[2, 1], [3, 2], [4, 1]])
+
+        expect:
+        graph.ordered
+        graph.numNodes == 4
+        graph.isOrderedBefore(1, 2)
+        graph.isOrderedBefore(2, 3)
+        graph.isOrderedBefore(1, 4)
+    }
+
+    def "prerequisite that does not create a circular learning path"() {
+        LearningPathGraph graph = build([[2, 1], [3, 2], [5, 4]])
+
+        expect:
+        graph.checkAddition(skill(dependent), skill(prerequisite)) == NoCycle
+
+        where:
+        dependent | prerequisite
+        3         | 1
+        4         | 3
+        1         | 4
+        6         | 3
+        3         | 7
+    }
+
+    def "prerequisite that creates a circular learning path requires full check"() {
+        LearningPathGraph graph = build([[2, 1], [3, 2], [4, 3]])
+
+        expect:
+        graph.checkAddition(skill(dependent), skill(prerequisite)) == FullCheckRequired
+
+        where:
+        dependent | prerequisite
+        1         | 4
+        1         | 2
+        2         | 3
+    }
+
+    def "existing prerequisite requires full check"() {
+        LearningPathGraph graph = build([[2, 1]])
+
+        expect:
+        graph.checkAddition(skill(2), skill(1)) == FullCheckRequired
+    }
+
+    def "badges always require full check"() {
+        LearningPathGraph graph = build([[2, 1]])
+
+        expect:
+        graph.checkAddition(badge(10), skill(1)) == FullCheckRequired
+        graph.checkAddition(skill(1), badge(10)) == FullCheckRequired
+    }
+
+    def "with badges on the learning path only prerequisites that do not reach badge skills skip full check"() {
+        // badge 10 contains skill 5 and depends on skill 1; skill 3 depends on skill 5
+        LearningPathGraph graph = build([[10, 1], [3, 5], [7, 6]], [[10, 5]])
+
+        expect:
+        graph.checkAddition(skill(2), skill(1)) == NoCycle
+        graph.checkAddition(skill(8), skill(7)) == NoCycle
+        graph.checkAddition(skill(2), skill(3)) == FullCheckRequired
+        graph.checkAddition(skill(2), skill(5)) == FullCheckRequired
+        graph.checkAddition(skill(6), skill(7)) == FullCheckRequired
+    }
+
+    def "skills of badges that are not on the learning path do not require full check"() {
+        LearningPathGraph graph = build([[10, 1], [3, 2]], [[11, 2]])
+
+        expect:
+        graph.checkAddition(skill(4), skill(3)) == NoCycle
+    }
+
+    def "cross-project prerequisite reached with badges on the learning path requires full check"() {
+        LearningPathGraph graph = build([[10, 1]])
+
+        expect:
+        graph.checkAddition(skill(2), new LearningPathGraph.Node(refId: 20, projectId: 'proj2', skillId: 'skill20', type: SkillDef.ContainerType.Skill)) == FullCheckRequired
+    }
+
+    def "added prerequisites are re-ordered"() {
+        LearningPathGraph graph = build([[2, 1], [4, 3]])
+        assert graph.isOrderedBefore(1, 2)
+        assert graph.isOrderedBefore(3, 4)
+
+        when:
+        graph.addEdge(skill(1), skill(4), 100)
+        graph.addEdge(skill(3), skill(5), 101)
+
+        then:
+        graph.ordered
+        graph.numNodes == 5
+        graph.isOrderedBefore(5, 3)
+        graph.isOrderedBefore(3, 4)
+        graph.isOrderedBefore(4, 1)
+        graph.isOrderedBefore(1, 2)
+        graph.checkAddition(skill(5), skill(2)) == FullCheckRequired
+        graph.checkAddition(skill(2), skill(5)) == NoCycle
+    }
+
+    def "existing circular learning path always requires full check"() {
+        LearningPathGraph graph = build([[2, 1], [1, 2], [4, 3]])
+
+        expect:
+        !graph.ordered
+        graph.checkAddition(skill(5), skill(3)) == FullCheckRequired
+    }
+
+    def "signature tracks added prerequisites"() {
+        LearningPathGraph graph = build([[2, 1], [3, 2]])
+
+        expect:
+        graph.matches(signature(2, 2))
+        !graph.matches(signature(1, 2))
+        !graph.matches(signature(2, 5))
+
+        when:
+        graph.addEdge(skill(4), skill(3), 7)
+
+        then:
+        graph.matches(signature(3, 7))
+        !graph.matches(signature(2, 2))
+    }
+
+    def "empty graph"() {
+        LearningPathGraph graph = LearningPathGraph.build(PROJ, signature(0, null), [], [])
+
+        expect:
+        graph.matches(signature(0, null))
+        graph.checkAddition(skill(1), skill(2)) == NoCycle
+    }
+
+    private static LearningPathGraph build(List<List<Integer>> dependencies, List<List<Integer>> badgeRequirements = []) {
+        int relId = 0
+        List<SkillRelDefRepo.LearningPathEdge> deps = dependencies.collect { edge(++relId, it[0], it[1]) }
+        List<SkillRelDefRepo.LearningPathEdge> badgeReqs = badgeRequirements.collect { edge(++relId, it[0], it[1]) }
+        return LearningPathGraph.build(PROJ, signature(relId, relId ? relId : null), deps, badgeReqs)
+    }
+
+    // ids 10 and up are badges
+    private static SkillRelDefRepo.LearningPathEdge edge(int id, int parentRefId, int childRefId) {
+        LearningPathGraph.Node parent = parentRefId >= 10 ? badge(parentRefId) : skill(parentRefId)
+        LearningPathGraph.Node child = skill(childRefId)
+        return [
+                getId             : { -> id },
+                getParentRefId    : { -> parent.refId },
+                getParentProjectId: { -> parent.projectId },
+                getParentSkillId  : { -> parent.skillId },
+                getParentType     : { -> parent.type },
+                getChildRefId     : { -> child.refId },
+                getChildProjectId : { -> child.projectId },
+                getChildSkillId   : { -> child.skillId },
+                getChildType      : { -> child.type },
+        ] as SkillRelDefRepo.LearningPathEdge
+    }
+
+    private static SkillRelDefRepo.RelationshipsSignature signature(long numRelationships, Integer maxRelationshipId) {
+        return [
+                getNumRelationships : { -> numRelationships },
+                getMaxRelationshipId: { -> maxRelationshipId },
+        ] as SkillRelDefRepo.RelationshipsSignature
+    }
+
+    private static LearningPathGraph.Node skill(int refId) {
+        return new LearningPathGraph.Node(refId: refId, projectId: PROJ, skillId: "skill${refId}".toString(), type: SkillDef.ContainerType.Skill)
+    }
+
+    private static LearningPathGraph.Node badge(int refId) {
+        return new LearningPathGraph.Node(refId: refId, projectId: PROJ, skillId: "badge${refId}".toString(), type: SkillDef.ContainerType.Badge)
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.services.locking
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.dao.CannotAcquireLockException
+import skills.intTests.utils.DefaultIntSpec
+import skills.storage.repos.nativeSql.PostgresQlNativeRepo
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+class KeyedLockProvidersSpec extends DefaultIntSpec {
+
+    @Autowired
+    PostgresQlNativeRepo postgresQlNativeRepo
+
+    def "advisory lock is exclusive for the same key until the transaction ends"() {
+        KeyedLockProvider provider = new PostgresAdvisoryKeyedLockProvider(postgresQlNativeRepo: postgresQlNativeRepo)
+
+        expect:
+        secondLockWaitsForFirstTransaction(provider, "reportSkill_aUseraProject", "reportSkill_aUseraProject")
+    }
+
+    def "advisory lock does not block different keys"() {
+        KeyedLockProvider provider = new PostgresAdvisoryKeyedLockProvider(postgresQlNativeRepo: postgresQlNativeRepo)
+
+        expect:
+        !secondLockWaitsForFirstTransaction(provider, "reportSkill_aUseraProject", "reportSkill_otherUseraProject")
+    }
+
+    def "jvm lock is exclusive for the same key until the transaction ends"() {
+        JvmKeyedLockProvider provider = new JvmKeyedLockProvider()
+        provider.init()
+
+        expect:
+        secondLockWaitsForFirstTransaction(provider, "reportSkill_aUseraProject", "reportSkill_aUseraProject")
+    }
+
+    def "jvm lock is re-entrant within the same transaction"() {
+        JvmKeyedLockProvider provider = new JvmKeyedLockProvider()
+        provider.init()
+
+        when:
+        boolean res = runInTransaction {
+            provider.lock("quizAttempt_1")
+            provider.lock("quizAttempt_1")
+            return true
+        }
+
+        then:
+        res
+        // lock must be fully released after the transaction
+        runInTransaction {
+            provider.lock("quizAttempt_1")
+            return true
+        }
+    }
+
+    def "jvm lock does not deadlock when two transactions each hold two different keys"() {
+        JvmKeyedLockProvider provider = new JvmKeyedLockProvider()
+        provider.init()
+        CountDownLatch firstKeysTaken = new CountDownLatch(2)
+        ExecutorService service = Executors.newFixedThreadPool(2)
+
+        when:
+        // opposite acquisition order, as quiz reporting (attempt, then skill reporting) racing another reporter
+        Future<Boolean> t1 = service.submit({
+            runInTransaction {
+                provider.lock("quizAttempt_1")
+                firstKeysTaken.countDown()
+                firstKeysTaken.await()
+                provider.lock("reportSkill_user1proj1")
+                return true
+            }
+        } as Callable<Boolean>)
+        Future<Boolean> t2 = service.submit({
+            runInTransaction {
+                provider.lock("reportSkill_user2proj1")
+                firstKeysTaken.countDown()
+                firstKeysTaken.await()
+                provider.lock("quizAttempt_2")
+                return true
+            }
+        } as Callable<Boolean>)
+        service.shutdown()
+
+        then:
+        service.awaitTermination(10, TimeUnit.SECONDS)
+        t1.get()
+        t2.get()
+    }
+
+    def "jvm lock times out instead of deadlocking when two transactions take the same keys in opposite order"() {
+        JvmKeyedLockProvider provider = new JvmKeyedLockProvider(lockTimeoutSeconds: 1)
+        provider.init()
+        CountDownLatch firstKeysTaken = new CountDownLatch(2)
+        ExecutorService service = Executors.newFixedThreadPool(2)
+
+        when:
+        List<Future<Boolean>> results = [["reportSkill_a", "reportSkill_b"], ["reportSkill_b", "reportSkill_a"]].collect { List<String> keys ->
+            service.submit({
+                try {
+                    runInTransaction {
+                        provider.lock(keys[0])
+                        firstKeysTaken.countDown()
+                        firstKeysTaken.await()
+                        provider.lock(keys[1])
+                        return true
+                    }
+                } catch (CannotAcquireLockException e) {
+                    return false
+                }
+            } as Callable<Boolean>)
+        }
+        service.shutdown()
+
+        then:
+        service.awaitTermination(10, TimeUnit.SECONDS)
+        // at least one gives up and rolls back, releasing its lock so that the other can finish
+        results.collect { it.get() }.count { !it } >= 1
+        // both keys are released afterwards
+        runInTransaction {
+            provider.lock("reportSkill_a")
+            provider.lock("reportSkill_b")
+            return true
+        }
+    }
+
+    def "jvm lock requires a transaction"() {
+        JvmKeyedLockProvider provider = new JvmKeyedLockProvider()
+        provider.init()
+
+        when:
+        provider.lock("update_user")
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    private boolean secondLockWaitsForFirstTransaction(KeyedLockProvider provider, String firstKey, String secondKey) {
+        ExecutorService service = Executors.newFixedThreadPool(2)
+        AtomicLong t1Start = new AtomicLong()
+        AtomicLong t2Start = new AtomicLong()
+        long sleepTime = 2500
+
+        service.submit({
+            runInTransaction {
+                provider.lock(firstKey)
+                t1Start.set(System.currentTimeMillis())
+                Thread.sleep(sleepTime)
+                return true
+            }
+        } as Runnable)
+        Thread.sleep(100)
+        service.submit({
+            runInTransaction {
+                provider.lock(secondKey)
+                t2Start.set(System.currentTimeMillis())
+                return true
+            }
+        } as Runnable)
+        service.shutdown()
+        assert service.awaitTermination(sleepTime * 4, TimeUnit.MILLISECONDS)
+
+        return t2Start.get() >= t1Start.get() + sleepTime
+    }
+}
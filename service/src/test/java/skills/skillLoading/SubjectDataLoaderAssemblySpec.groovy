@@ -0,0 +1,77 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.skillLoading
+
+import skills.storage.model.SkillDef
+import skills.storage.model.UserPoints
+import skills.storage.repos.UserPointsRepo
+import spock.lang.Specification
+
+import static skills.skillLoading.SubjectDataLoader.SkillDefAndUserPoints
+import static skills.skillLoading.SubjectDataLoader.SkillsAndPoints
+
+class SubjectDataLoaderAssemblySpec extends Specification {
+
+    def "assembles points, today's points and dependency info for a subject of #numSkills skills"() {
+        SyntheticSubject subject = new SyntheticSubject(numSkills)
+
+        when:
+        List<SkillsAndPoints> res = subject.assemble()
+
+        then:
+        res.size() == numSkills
+        res.eachWithIndex { SkillsAndPoints skill, int i ->
+            assert skill.skillDef.id == i
+            assert skill.points == i * 10
+            assert skill.todaysPoints == (i % 2 == 0 ? 10 : 0)
+            if (i % 3 == 0) {
+                assert skill.dependencyInfo.numDirectDependents == 2
+                assert skill.dependencyInfo.achieved == (i % 5 != 0)
+            } else {
+                assert skill.dependencyInfo == null
+            }
+        }
+
+        where:
+        numSkills << [10, 100, 1000]
+    }
+
+    private static class SyntheticSubject {
+        List<SkillDefAndUserPoints> children
+        List<UserPointsRepo.SkillRefIdWithPoints> todaysPoints
+        List<UserPointsRepo.SkillWithChildAndAchievementIndicator> deps
+
+        SyntheticSubject(int numSkills) {
+            children = (0..<numSkills).collect { int i ->
+                SkillDef skillDef = new SkillDef(id: i, skillId: "skill${i}".toString(), pointIncrement: 10, displayOrder: i, type: SkillDef.ContainerType.Skill)
+                new SkillDefAndUserPoints(skillDef: skillDef, points: i ? new UserPoints(points: i * 10) : null)
+            }
+            todaysPoints = (0..<numSkills).findAll { it % 2 == 0 }.collect { int i ->
+                [getSkillRefId: { -> i }, getPoints: { -> 10 }] as UserPointsRepo.SkillRefIdWithPoints
+            }
+            deps = (0..<numSkills).findAll { it % 3 == 0 }.collectMany { int i ->
+                (0..1).collect { int childNum ->
+                    Integer achievementId = (i % 5 == 0 && childNum == 1) ? null : childNum + 1
+                    [getParentId: { -> i }, getChildId: { -> numSkills + childNum }, getAchievementId: { -> achievementId }] as UserPointsRepo.SkillWithChildAndAchievementIndicator
+                }
+            }
+        }
+
+        List<SkillsAndPoints> assemble() {
+            return SubjectDataLoader.assembleSkillsAndPoints(children, todaysPoints, deps)
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.skillLoading
+
+import spock.lang.Specification
+
+class UserScoreTreeSpec extends Specification {
+
+    def "ranks match a full sort of the users"() {
+        Random random = new Random(42)
+        UserScoreTree tree = new UserScoreTree()
+        Map<String, List<Long>> users = [:]
+        2000.times {
+            String userId = "user${random.nextInt(500)}".toString()
+            long points = random.nextInt(50) * 10
+            long firstSeen = random.nextInt(100)
+            if (random.nextInt(10) == 0) {
+                tree.remove(userId)
+                users.remove(userId)
+            } else {
+                tree.put(userId, (int) points, firstSeen)
+                users.put(userId, [points, firstSeen])
+            }
+        }
+        List<String> sorted = users.keySet().sort { String a, String b ->
+            users[b][0] <=> users[a][0] ?: users[a][1] <=> users[b][1] ?: a <=> b
+        }
+
+        expect:
+        tree.size() == users.size()
+        tree.getUserIds(1, sorted.size()) == sorted
+        users.every { String userId, List<Long> pointsAndFirstSeen ->
+            int points = (int) pointsAndFirstSeen[0]
+            long firstSeen = pointsAndFirstSeen[1]
+            int expectedAbove = users.values().count { List<Long> other -> other[0] > points || (other[0] == points && other[1] < firstSeen) } as int
+            tree.countRankedAbove(points, firstSeen) == expectedAbove
+        }
+    }
+
+    def "find the next higher and lower points"() {
+        UserScoreTree tree = new UserScoreTree()
+        tree.put("a", 100, 1)
+        tree.put("b", 50, 2)
+        tree.put("c", 50, 3)
+        tree.put("d", 10, 4)
+
+        expect:
+        tree.findNextHigherPoints(50) == 100
+        tree.findNextHigherPoints(100) == null
+        tree.findNextHigherPoints(0) == 10
+        tree.findNextLowerPoints(50) == 10
+        tree.findNextLowerPoints(10) == null
+        tree.findNextLowerPoints(1000) == 100
+    }
+
+    def "updating a user's points moves them within the ranking"() {
+        UserScoreTree tree = new UserScoreTree()
+        tree.put("a", 100, 1)
+        tree.put("b", 50, 2)
+        tree.put("c", 10, 3)
+
+        when:
+        tree.put("c", 200, 3)
+
+        then:
+        tree.size() == 3
+        tree.getPoints("c") == 200
+        tree.getUserIds(1, 3) == ["c", "a", "b"]
+        tree.countRankedAbove(50, 2) == 2
+        tree.getUserIds(3, 5) == ["b"]
+    }
+}
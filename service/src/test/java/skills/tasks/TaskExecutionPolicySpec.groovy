@@ -0,0 +1,121 @@
+/**
+ * Copyright 2020 SkillTree
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package skills.tasks
+
+import com.github.kagkarlsson.scheduler.task.Execution
+import com.github.kagkarlsson.scheduler.task.ExecutionComplete
+import com.github.kagkarlsson.scheduler.task.ExecutionContext
+import com.github.kagkarlsson.scheduler.task.ExecutionOperations
+import com.github.kagkarlsson.scheduler.task.FailureHandler
+import com.github.kagkarlsson.scheduler.task.SchedulableInstance
+import com.github.kagkarlsson.scheduler.task.TaskInstance
+import com.github.kagkarlsson.scheduler.task.VoidExecutionHandler
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import skills.storage.repos.nativeSql.PostgresQlNativeRepo
+import skills.tasks.config.TaskConfig
+import spock.lang.Specification
+
+import java.time.Instant
+
+class TaskExecutionPolicySpec extends Specification {
+
+    TaskExecutionPolicy policy = new TaskExecutionPolicy(
+            prioritiesConf: 'high:10,low:1',
+            maxConcurrentConf: 'low:2',
+            meterRegistry: new SimpleMeterRegistry())
+
+    def setup() {
+        policy.init()
+    }
+
+    def "always allows one execution per task type but no more than maxConcurrent"() {
+        expect:
+        policy.tryStart('low')
+        policy.tryStart('low')
+        !policy.tryStart('low')
+        policy.tryStart('other')
+        policy.tryStart('other')
+
+        when:
+        policy.finished('low')
+
+        then:
+        policy.tryStart('low')
+    }
+
+    def "due executions are sampled into metrics"() {
+        policy.postgresQlNativeRepo = Mock(PostgresQlNativeRepo) {
+            getDueScheduledTasks() >> [new PostgresQlNativeRepo.DueScheduledTasks(taskName: 'high', count: 3, oldestExecutionTime: new Date(System.currentTimeMillis() - 60000))]
+        }
+
+        when:
+        policy.sampleDueTasks()
+
+        then:
+        policy.meterRegistry.get('skills.tasks.due').tag('task', 'high').gauge().value() == 3d
+        policy.meterRegistry.get('skills.tasks.due.oldest.age').tag('task', 'high').gauge().value() >= 60d
+    }
+
+    def "task priorities are looked up by task name"() {
+        expect:
+        policy.getPriority('high') == 10
+        policy.getPriority('low') == 1
+        policy.getPriority('other') == 0
+    }
+
+    def "executions that already failed are never deferred"() {
+        expect:
+        policy.tryStart('low')
+        policy.tryStart('low')
+        !policy.tryStart('low')
+        policy.tryStart('low', false)
+    }
+
+    def "limits are not applied unless configured"() {
+        policy.maxConcurrentConf = ''
+        policy.init()
+
+        expect:
+        (1..5).every { policy.tryStart('low') }
+    }
+
+    def "deferred executions are rescheduled instead of failed"() {
+        TaskInstance<String> taskInstance = new TaskInstance<String>('low', '1')
+        VoidExecutionHandler<String> handler = Mock()
+        VoidExecutionHandler<String> limited = policy.limit(handler)
+        FailureHandler<String> delegate = Mock()
+        ExecutionOperations<String> operations = Mock()
+        TaskConfig.DeferOnExecutionLimitHandler<String> failureHandler = new TaskConfig.DeferOnExecutionLimitHandler<String>(delegate, policy)
+        policy.tryStart('low')
+        policy.tryStart('low')
+
+        when:
+        limited.execute(taskInstance, Mock(ExecutionContext) { getExecution() >> new Execution(Instant.now(), taskInstance) })
+
+        then:
+        TaskExecutionPolicy.ExecutionLimitReachedException e = thrown()
+        0 * handler._
+        policy.meterRegistry.get('skills.tasks.deferred').tag('task', 'low').counter().count() == 1d
+
+        when:
+        Execution execution = new Execution(Instant.now(), taskInstance)
+        failureHandler.onFailure(ExecutionComplete.failure(execution, Instant.now(), Instant.now(), e), operations)
+
+        then:
+        1 * operations.removeAndScheduleNew({ SchedulableInstance instance -> instance.taskInstance == taskInstance })
+        0 * delegate._
+    }
+}